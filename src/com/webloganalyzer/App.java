@@ -1,14 +1,19 @@
 package com.webloganalyzer;
 
+import com.webloganalyzer.cli.BatchAnalyzer;
 import com.webloganalyzer.gui.MainFrame;
 
 import javax.swing.*;
 
 public class App {
     public static void main(String[] args) {
+        // With arguments, run headless (servers, cron); without, open the GUI.
+        if (args.length > 0) {
+            System.exit(BatchAnalyzer.run(args));
+        }
         SwingUtilities.invokeLater(() -> {
             MainFrame frame = new MainFrame();
             frame.setVisible(true);
         });
     }
-}
\ No newline at end of file
+}
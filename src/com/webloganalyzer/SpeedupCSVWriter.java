@@ -1,5 +1,9 @@
 package com.webloganalyzer;
 
+import com.webloganalyzer.service.SampleStats;
+import com.webloganalyzer.service.SpeedupBenchmark;
+import com.webloganalyzer.service.SpeedupMeasurement;
+
 import java.io.*;
 import java.util.*;
 
@@ -16,4 +20,51 @@ public class SpeedupCSVWriter {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * One row per thread count from a {@link SpeedupBenchmark} run: speedup median/p90/stddev,
+     * the Karp-Flatt serial fraction, and median/p90/stddev milliseconds for the total and each
+     * phase. The read phase is only the I/O floor and is not part of the total. The Amdahl fit over
+     * all thread counts goes in a trailing comment line.
+     */
+    public static void write(List<SpeedupMeasurement> measurements, File outputFile) {
+        try (PrintWriter pw = new PrintWriter(new FileWriter(outputFile))) {
+            StringBuilder header = new StringBuilder("Threads,Repetitions,Speedup,SpeedupP90,SpeedupStdDev,SerialFraction");
+            header.append(",TotalMs,TotalP90Ms,TotalStdDevMs");
+            for (SpeedupBenchmark.Phase phase : SpeedupBenchmark.Phase.values()) {
+                String label = phase.getLabel();
+                header.append(',').append(label).append("Ms,").append(label).append("P90Ms,").append(label).append("StdDevMs");
+            }
+            pw.println(header);
+
+            for (SpeedupMeasurement m : measurements) {
+                StringBuilder row = new StringBuilder();
+                row.append(m.getThreads()).append(',').append(m.getTotal().getCount());
+                appendStats(row, m.getSpeedup());
+                row.append(',').append(Double.isNaN(m.getSerialFraction()) ? "" : format(m.getSerialFraction()));
+                appendStats(row, m.getTotal());
+                for (SpeedupBenchmark.Phase phase : SpeedupBenchmark.Phase.values()) {
+                    appendStats(row, m.getPhase(phase));
+                }
+                pw.println(row);
+            }
+            double serialFraction = SpeedupBenchmark.estimateSerialFraction(measurements);
+            if (!Double.isNaN(serialFraction)) {
+                pw.println("# Amdahl serial fraction (least-squares fit): " + format(serialFraction));
+            }
+            System.out.println("✅ Speedup results written to: " + outputFile.getAbsolutePath());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void appendStats(StringBuilder row, SampleStats stats) {
+        row.append(',').append(format(stats.getMedian()))
+                .append(',').append(format(stats.getP90()))
+                .append(',').append(format(stats.getStdDev()));
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+}
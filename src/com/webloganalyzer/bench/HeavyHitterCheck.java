@@ -0,0 +1,184 @@
+package com.webloganalyzer.bench;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogEntry;
+import com.webloganalyzer.model.LogFormat;
+import com.webloganalyzer.model.LogLineParser;
+import com.webloganalyzer.model.LogRecord;
+import com.webloganalyzer.service.AnalysisOptions;
+import com.webloganalyzer.service.LogAnalyzer;
+import com.webloganalyzer.service.SystemAdminAnalyzer;
+import com.webloganalyzer.service.WebDeveloperAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the approximate top IPs, top URLs and per-resource error counts of the System
+ * Administrator and Web Developer views with exact counts, over {@link SyntheticLogGenerator} logs
+ * parsed into one accumulator and into several merged ones, as the parallel processors do. Every
+ * reported count must lie between the exact count and the exact count plus the reported error
+ * bound, the bound must be at most N / capacity, and every resource with more than N / capacity
+ * errors must be listed. Prints how far the counts were actually off and how many of the exact
+ * top entries were found. With unique counts approximated as well, parsing for the Web Developer
+ * view must not intern a single resource, and the HyperLogLog estimates must be within four
+ * standard errors. Exits with status 1 if any of this fails.
+ *
+ * <p>Usage: {@code HeavyHitterCheck [lines]}
+ */
+public class HeavyHitterCheck {
+
+    private static final int[] CAPACITIES = {16, 256, 1024};
+    private static final int[] PARTS = {1, 4};
+
+    /** Exact counts of one log, from the parsed entries. */
+    private record Exact(Map<String, Integer> ips, Map<String, Integer> urls, Map<String, Integer> errors,
+                         int requests, int errorCount) {
+    }
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        List<String> failures = new ArrayList<>();
+        int checks = 0;
+        System.out.printf("%-28s %8s %5s %-6s %10s %10s %8s%n", "log", "capacity", "parts", "counts",
+                "max error", "bound", "top found");
+        List<Map.Entry<String, SyntheticLogGenerator>> generators = List.of(
+                Map.entry("zipf 20000 hosts", new SyntheticLogGenerator()),
+                Map.entry("zipf, 20% errors", new SyntheticLogGenerator().hosts(2_000).errorRate(0.2).seed(5)),
+                Map.entry("uniform 50000 resources", new SyntheticLogGenerator().skew(0).resources(50_000).seed(9)));
+        for (Map.Entry<String, SyntheticLogGenerator> generator : generators) {
+            String[] log = generator.getValue().generateLines(lines);
+            Exact exact = exact(log);
+            for (int capacity : CAPACITIES) {
+                AnalysisOptions options = AnalysisOptions.EXACT.withApproximateTopK(true).withHeavyHitterCapacity(capacity);
+                for (int parts : PARTS) {
+                    String label = String.format("%-28s %8d %5d", generator.getKey(), capacity, parts);
+                    SystemAdminAnalyzer.Result admin = analyze(new SystemAdminAnalyzer(options), log, parts);
+                    WebDeveloperAnalyzer.Result developer = analyze(new WebDeveloperAnalyzer(options), log, parts);
+                    checks += 3;
+                    check(label + " IPs   ", admin.getTopIps(), exact.ips(), admin.getMaxCountError(),
+                            exact.requests(), capacity, SystemAdminAnalyzer.TOP_IP_COUNT, failures);
+                    check(label + " URLs  ", developer.getTopUrls(), exact.urls(), developer.getMaxCountError(),
+                            exact.requests(), capacity, WebDeveloperAnalyzer.TOP_URL_COUNT, failures);
+                    List<Map.Entry<String, Integer>> errors = new ArrayList<>(developer.getErrorsPerResource().entrySet());
+                    check(label + " errors", errors, exact.errors(), developer.getMaxErrorCountError(),
+                            exact.errorCount(), capacity, errors.size(), failures);
+                    for (Map.Entry<String, Integer> resource : exact.errors().entrySet()) {
+                        if ((long) resource.getValue() * capacity > exact.errorCount()
+                                && !developer.getErrorsPerResource().containsKey(resource.getKey())) {
+                            failures.add(label + ": " + resource + " has more than N / capacity errors but is not listed");
+                        }
+                    }
+                }
+            }
+            checks++;
+            checkBounded(generator.getKey(), log, exact, failures);
+        }
+
+        failures.forEach(System.out::println);
+        System.out.println(checks + " comparisons, " + failures.size() + " violated guarantees");
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /** Checks the reported counts against the exact ones and prints how far off they were. */
+    private static void check(String label, List<Map.Entry<String, Integer>> reported, Map<String, Integer> exact,
+                              long maxError, long total, int capacity, int topCount, List<String> failures) {
+        if (maxError * capacity > total) {
+            failures.add(label + ": error bound " + maxError + " is over N / capacity = " + total + " / " + capacity);
+        }
+        long worst = 0;
+        for (Map.Entry<String, Integer> entry : reported) {
+            int count = exact.getOrDefault(entry.getKey(), 0);
+            long over = entry.getValue() - count;
+            worst = Math.max(worst, over);
+            if (over < 0 || over > maxError) {
+                failures.add(label + ": " + entry + " but the exact count is " + count + ", bound " + maxError);
+            }
+        }
+        List<String> reportedValues = reported.stream().map(Map.Entry::getKey).toList();
+        long found = top(exact, topCount).stream().filter(reportedValues::contains).count();
+        System.out.printf("%s %10d %10d %5d/%-3d%n", label, worst, maxError, found, Math.min(topCount, exact.size()));
+    }
+
+    /** Runs the Web Developer view with both approximations, which must leave the resource dictionary empty. */
+    private static void checkBounded(String label, String[] log, Exact exact, List<String> failures) {
+        AnalysisOptions options = AnalysisOptions.EXACT.withApproximateTopK(true).withApproximateDistinct(true);
+        LogDictionaries dictionaries = new LogDictionaries();
+        LogAnalyzer.Accumulator<WebDeveloperAnalyzer.Result> accumulator =
+                new WebDeveloperAnalyzer(options).newAccumulator(dictionaries);
+        LogRecord record = new LogRecord(dictionaries);
+        LogLineParser parser = LogFormat.COMMON.newParser();
+        for (String line : log) {
+            if (parser.parseInto(line, record)) {
+                accumulator.accept(record);
+            }
+        }
+        int estimate = accumulator.result().getUniqueResources();
+        int interned = dictionaries.getResources().size();
+        double error = (double) (estimate - exact.urls().size()) / exact.urls().size();
+        System.out.printf("%-28s unique URLs %d, estimated %d (%+.2f%%), resources interned %d%n", label,
+                exact.urls().size(), estimate, error * 100, interned);
+        if (interned != 0) {
+            failures.add(label + ": " + interned + " resources interned with approximate top-K and unique counts");
+        }
+        if (Math.abs(error) > 4 * 1.04 / Math.sqrt(1 << options.getDistinctPrecision())) {
+            failures.add(label + ": unique URL estimate " + estimate + " is too far from " + exact.urls().size());
+        }
+    }
+
+    private static List<String> top(Map<String, Integer> counts, int limit) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit).map(Map.Entry::getKey).toList();
+    }
+
+    private static Exact exact(String[] log) {
+        LogLineParser parser = LogFormat.COMMON.newParser();
+        Map<String, Integer> ips = new HashMap<>();
+        Map<String, Integer> urls = new HashMap<>();
+        Map<String, Integer> errors = new HashMap<>();
+        int requests = 0;
+        int errorCount = 0;
+        for (String line : log) {
+            LogEntry entry = parser.parse(line);
+            if (entry == null) {
+                continue;
+            }
+            requests++;
+            ips.merge(entry.getIpAddress(), 1, Integer::sum);
+            urls.merge(entry.getResource(), 1, Integer::sum);
+            if (entry.getStatusCode() >= 400) {
+                errorCount++;
+                errors.merge(entry.getResource(), 1, Integer::sum);
+            }
+        }
+        return new Exact(ips, urls, errors, requests, errorCount);
+    }
+
+    /** Parses the log in {@code parts} consecutive shares with dictionaries of their own and merges them in order. */
+    private static <R> R analyze(LogAnalyzer<R> analyzer, String[] log, int parts) {
+        LogAnalyzer.Accumulator<R> combined = null;
+        for (int part = 0; part < parts; part++) {
+            LogDictionaries dictionaries = new LogDictionaries();
+            LogAnalyzer.Accumulator<R> accumulator = analyzer.newAccumulator(dictionaries);
+            LogRecord record = new LogRecord(dictionaries);
+            LogLineParser parser = LogFormat.COMMON.newParser();
+            for (int i = (int) ((long) log.length * part / parts); i < (long) log.length * (part + 1) / parts; i++) {
+                if (parser.parseInto(log[i], record)) {
+                    accumulator.accept(record);
+                }
+            }
+            if (combined == null) {
+                combined = accumulator;
+            } else {
+                combined.merge(accumulator);
+            }
+        }
+        return combined.result();
+    }
+}
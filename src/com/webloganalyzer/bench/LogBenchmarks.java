@@ -0,0 +1,403 @@
+package com.webloganalyzer.bench;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.webloganalyzer.model.LogEntry;
+import com.webloganalyzer.model.LogFormat;
+import com.webloganalyzer.model.LogLineParser;
+import com.webloganalyzer.model.LogTable;
+import com.webloganalyzer.model.NasaLogLineParser;
+import com.webloganalyzer.service.AnalysisOptions;
+import com.webloganalyzer.service.LogAnalysisService;
+import com.webloganalyzer.service.LogAnalysisService.Role;
+import com.webloganalyzer.service.MultiFileLogProcessor;
+import com.webloganalyzer.service.ParallelLogProcessor;
+import com.webloganalyzer.service.ParallelLogProcessor.InputMode;
+import com.webloganalyzer.service.SequentialLogProcessor;
+import com.webloganalyzer.service.VirtualThreadLogProcessor;
+import com.webloganalyzer.service.VirtualThreads;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Repeatable micro- and macro-benchmarks for the parsing and analysis paths, run against a
+ * {@link SyntheticLogGenerator} log so results can be compared between machines and commits.
+ *
+ * <p>Every benchmark is warmed up, then timed over several iterations; the report gives the mean
+ * and standard deviation per operation, lines per second, and heap bytes allocated per operation
+ * and per line. Allocation is measured across all threads (GC churn plus the change in heap use),
+ * so it also covers the worker threads of the parallel processors.
+ *
+ * <p>The {@code formats} group compares parser throughput per {@link LogFormat}: the hand-written
+ * Common Log Format parser, the same format compiled from its format string, and the compiled
+ * Combined and nginx formats over lines with a referrer and user agent, in memory and end to end.
+ * Two custom formats read the same lines with the method and resource as separate fields, one
+ * with a trailing part left unread. {@link LogFormatCheck} checks what these parsers accept.
+ *
+ * <p>The {@code sources} group splits the same number of lines over {@code --sources} files and
+ * compares reading them one after another with the multi-file and virtual-thread processors.
+ *
+ * <p>Usage: {@code LogBenchmarks [--lines N] [--skew S] [--seed N] [--log FILE] [--threads 1,2,4,8]
+ * [--sources N] [--warmup N] [--iterations N] [--only parse,formats,sequential,parallel,roles,sources]
+ * [--csv FILE]}
+ */
+public class LogBenchmarks {
+
+    private static final int MAX_IN_MEMORY_LINES = 1_000_000;
+    private static final String NGINX_MAIN_FORMAT =
+            "$remote_addr - $remote_user [$time_local] \"$request\" $status $body_bytes_sent \"$http_referer\" \"$http_user_agent\"";
+    private static final String CUSTOM_APACHE_FORMAT = "%h %l %u %t \"%m %U %H\" %>s %b \"%{Referer}i\" \"%{User-agent}i\"";
+    private static final String CUSTOM_NGINX_FORMAT =
+            "$remote_addr - $remote_user [$time_local] \"$request_method $uri $server_protocol\" $status $body_bytes_sent";
+
+    /** One timed operation; returns the number of log lines it handled. */
+    private interface Operation {
+        long run() throws Exception;
+    }
+
+    private record Measurement(String name, int iterations, double meanMillis, double stdDevMillis,
+                               double linesPerSecond, double bytesPerOp, double bytesPerLine) {
+    }
+
+    /** Keeps results reachable so the JIT cannot drop the work that produced them. */
+    private static volatile Object sink;
+
+    private int lines = 1_000_000;
+    private double skew = 1.0;
+    private long seed = 42;
+    private File logFile;
+    private int[] threadCounts = defaultThreadCounts();
+    private int sourceCount = 64;
+    private int warmupIterations = 3;
+    private int measuredIterations = 5;
+    private Set<String> groups = new LinkedHashSet<>(List.of("parse", "formats", "sequential", "parallel", "roles", "sources"));
+    private File csvFile;
+
+    private final AllocationMeter allocation = new AllocationMeter();
+    private final List<Measurement> measurements = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        LogBenchmarks benchmarks = new LogBenchmarks();
+        benchmarks.parseArguments(args);
+        benchmarks.runAll();
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            switch (args[i]) {
+                case "--lines" -> lines = Integer.parseInt(value);
+                case "--skew" -> skew = Double.parseDouble(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--log" -> logFile = new File(value);
+                case "--threads" -> threadCounts = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--sources" -> sourceCount = Integer.parseInt(value);
+                case "--warmup" -> warmupIterations = Integer.parseInt(value);
+                case "--iterations" -> measuredIterations = Integer.parseInt(value);
+                case "--only" -> groups = new LinkedHashSet<>(Arrays.asList(value.split(",")));
+                case "--csv" -> csvFile = new File(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            i++;
+        }
+    }
+
+    private void runAll() throws Exception {
+        File log = logFile;
+        if (log == null) {
+            log = File.createTempFile("bench-", ".log");
+            log.deleteOnExit();
+            System.out.println("Generating " + lines + " lines (skew " + skew + ", seed " + seed + ") into " + log);
+            new SyntheticLogGenerator().skew(skew).seed(seed).write(log, lines);
+        }
+        System.out.printf("Log: %s (%.1f MB), %d warmup + %d measured iterations, %d cores%n%n",
+                log, log.length() / 1e6, warmupIterations, measuredIterations,
+                Runtime.getRuntime().availableProcessors());
+
+        if (groups.contains("parse")) {
+            String[] sample = new SyntheticLogGenerator().skew(skew).seed(seed)
+                    .generateLines(Math.min(lines, MAX_IN_MEMORY_LINES));
+            measure("parse/LogEntry.parseFromNasaLogLine", () -> {
+                int parsed = 0;
+                for (String line : sample) {
+                    if (LogEntry.parseFromNasaLogLine(line) != null) {
+                        parsed++;
+                    }
+                }
+                sink = parsed;
+                return sample.length;
+            });
+            measure("parse/NasaLogLineParser.parseInto(table)", () -> {
+                NasaLogLineParser parser = new NasaLogLineParser();
+                LogTable table = new LogTable(sample.length);
+                for (String line : sample) {
+                    parser.parseInto(line, table);
+                }
+                sink = table;
+                return sample.length;
+            });
+        }
+
+        if (groups.contains("formats")) {
+            measureFormats();
+        }
+
+        File input = log;
+        if (groups.contains("sequential")) {
+            SequentialLogProcessor sequential = new SequentialLogProcessor();
+            measure("sequential/processLogFile", () -> lineCount(sequential.processLogFile(input).size()));
+            measure("sequential/processToTable", () -> lineCount(sequential.processToTable(input).size()));
+        }
+
+        if (groups.contains("parallel")) {
+            for (InputMode mode : InputMode.values()) {
+                for (int threads : threadCounts) {
+                    ParallelLogProcessor parallel = new ParallelLogProcessor(threads, mode);
+                    measure("parallel/processToTable " + mode + " threads=" + threads,
+                            () -> lineCount(parallel.processToTable(input).size()));
+                }
+            }
+        }
+
+        if (groups.contains("roles")) {
+            LogTable table = new ParallelLogProcessor(Runtime.getRuntime().availableProcessors(), InputMode.MEMORY_MAPPED)
+                    .processToTable(input);
+            int maxThreads = Arrays.stream(threadCounts).max().orElse(1);
+            for (Role role : Role.values()) {
+                for (int threads : new LinkedHashSet<>(List.of(1, maxThreads))) {
+                    LogAnalysisService service = new LogAnalysisService(threads, AnalysisOptions.EXACT);
+                    measure("roles/" + role.name() + " threads=" + threads, () -> {
+                        sink = service.analyze(table, role);
+                        return table.size();
+                    });
+                }
+                LogAnalysisService approximate = new LogAnalysisService(maxThreads,
+                        AnalysisOptions.EXACT.withApproximateTopK(true).withApproximateDistinct(true));
+                measure("roles/" + role.name() + " threads=" + maxThreads + " approximate", () -> {
+                    sink = approximate.analyze(table, role);
+                    return table.size();
+                });
+            }
+        }
+
+        if (groups.contains("sources")) {
+            List<File> sources = writeSources();
+            SequentialLogProcessor sequential = new SequentialLogProcessor();
+            measure("sources/sequential files=" + sources.size(), () -> {
+                long rows = 0;
+                for (File source : sources) {
+                    rows += sequential.processToTable(source).size();
+                }
+                return lineCount((int) rows);
+            });
+            for (int threads : threadCounts) {
+                MultiFileLogProcessor multiFile = new MultiFileLogProcessor(threads);
+                measure("sources/multi-file files=" + sources.size() + " threads=" + threads,
+                        () -> lineCount(multiFile.processToTable(sources).size()));
+                VirtualThreadLogProcessor virtual = new VirtualThreadLogProcessor(threads);
+                measure("sources/virtual-thread files=" + sources.size() + " threads=" + threads
+                                + (VirtualThreads.isAvailable() ? "" : " (platform readers)"),
+                        () -> lineCount(virtual.processToTable(sources).size()));
+            }
+        }
+
+        // The processors log as they go; repeat the results together at the end.
+        System.out.println("\n=== Benchmark results ===");
+        measurements.forEach(LogBenchmarks::print);
+        if (csvFile != null) {
+            writeCsv(csvFile);
+        }
+    }
+
+    private void measureFormats() throws Exception {
+        int sampleLines = Math.min(lines, MAX_IN_MEMORY_LINES);
+        String[] common = new SyntheticLogGenerator().skew(skew).seed(seed).generateLines(sampleLines);
+        String[] combined = new SyntheticLogGenerator().skew(skew).seed(seed).combined(true).generateLines(sampleLines);
+        measureParser("formats/common (hand-written)", LogFormat.COMMON, common);
+        measureParser("formats/common (compiled)", LogFormat.compile(LogFormat.COMMON_PATTERN), common);
+        measureParser("formats/combined (compiled)", LogFormat.COMBINED, combined);
+        measureParser("formats/nginx main (compiled)", LogFormat.compile("nginx main", NGINX_MAIN_FORMAT), combined);
+        measureParser("formats/custom Apache (compiled)", LogFormat.compile("custom Apache", CUSTOM_APACHE_FORMAT), combined);
+        measureParser("formats/custom nginx (compiled)", LogFormat.compile("custom nginx", CUSTOM_NGINX_FORMAT), combined);
+
+        File combinedLog = File.createTempFile("bench-combined-", ".log");
+        combinedLog.deleteOnExit();
+        new SyntheticLogGenerator().skew(skew).seed(seed).combined(true).write(combinedLog, lines);
+        SequentialLogProcessor sequential = new SequentialLogProcessor(LogFormat.COMBINED);
+        measure("formats/combined sequential/processToTable", () -> lineCount(sequential.processToTable(combinedLog).size()));
+        int maxThreads = Arrays.stream(threadCounts).max().orElse(1);
+        ParallelLogProcessor parallel = new ParallelLogProcessor(maxThreads, InputMode.MEMORY_MAPPED, LogFormat.COMBINED);
+        measure("formats/combined parallel/processToTable MEMORY_MAPPED threads=" + maxThreads,
+                () -> lineCount(parallel.processToTable(combinedLog).size()));
+    }
+
+    /** Parses {@code sample} into a table; fails if the format rejects more than the generator's malformed lines. */
+    private void measureParser(String name, LogFormat format, String[] sample) throws Exception {
+        measure(name, () -> {
+            LogLineParser parser = format.newParser();
+            LogTable table = new LogTable(sample.length);
+            for (String line : sample) {
+                parser.parseInto(line, table);
+            }
+            if (parser.getTotalRejectCount() > sample.length / 100) {
+                throw new IllegalStateException(name + " rejected " + parser.getRejectCounts());
+            }
+            sink = table;
+            return sample.length;
+        });
+    }
+
+    /** The benchmark's lines spread over {@link #sourceCount} temporary files, each with its own seed. */
+    private List<File> writeSources() throws IOException {
+        File dir = Files.createTempDirectory("bench-sources-").toFile();
+        dir.deleteOnExit();
+        List<File> sources = new ArrayList<>(sourceCount);
+        for (int i = 0; i < sourceCount; i++) {
+            File source = new File(dir, String.format("access-%04d.log", i));
+            source.deleteOnExit();
+            new SyntheticLogGenerator().skew(skew).seed(seed + i).write(source, lines / sourceCount);
+            sources.add(source);
+        }
+        return sources;
+    }
+
+    private long lineCount(int rows) {
+        sink = rows;
+        return rows;
+    }
+
+    private void measure(String name, Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.run();
+        }
+        System.gc();
+
+        double[] millis = new double[measuredIterations];
+        long totalLines = 0;
+        long allocatedBefore = allocation.allocatedBytes();
+        for (int i = 0; i < measuredIterations; i++) {
+            long start = System.nanoTime();
+            totalLines += operation.run();
+            millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        long allocated = allocation.allocatedBytes() - allocatedBefore;
+
+        double mean = Arrays.stream(millis).average().orElse(0);
+        double variance = Arrays.stream(millis).map(m -> (m - mean) * (m - mean)).sum() / Math.max(1, millis.length - 1);
+        double totalMillis = Arrays.stream(millis).sum();
+        Measurement measurement = new Measurement(name, measuredIterations, mean, Math.sqrt(variance),
+                totalMillis == 0 ? 0 : totalLines / (totalMillis / 1000),
+                (double) allocated / measuredIterations,
+                totalLines == 0 ? 0 : (double) allocated / totalLines);
+        measurements.add(measurement);
+        print(measurement);
+    }
+
+    private static void print(Measurement m) {
+        System.out.printf("%-55s %10.2f +/- %7.2f ms/op %12.0f lines/s %10.1f MB/op %8.1f B/line%n",
+                m.name(), m.meanMillis(), m.stdDevMillis(), m.linesPerSecond(), m.bytesPerOp() / 1e6, m.bytesPerLine());
+    }
+
+    private void writeCsv(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (PrintWriter pw = new PrintWriter(new FileWriter(file))) {
+            pw.println("Benchmark,Iterations,MeanMillis,StdDevMillis,LinesPerSecond,BytesPerOp,BytesPerLine");
+            for (Measurement m : measurements) {
+                pw.printf("\"%s\",%d,%.3f,%.3f,%.0f,%.0f,%.2f%n", m.name(), m.iterations(), m.meanMillis(),
+                        m.stdDevMillis(), m.linesPerSecond(), m.bytesPerOp(), m.bytesPerLine());
+            }
+        }
+        System.out.println("\nBenchmark results written to: " + file.getAbsolutePath());
+    }
+
+    private static int[] defaultThreadCounts() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(cores);
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Heap allocation across all threads: bytes reclaimed by every collection so far plus the heap
+     * currently in use. Per-thread allocation counters would miss the worker threads that the
+     * processors start and stop inside a single operation.
+     */
+    private static final class AllocationMeter {
+        private final AtomicLong reclaimedBytes = new AtomicLong();
+        private final AtomicLong notifiedCollections = new AtomicLong();
+        private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        private final long collectionsBefore = collectionCount();
+
+        AllocationMeter() {
+            for (GarbageCollectorMXBean collector : collectors) {
+                if (collector instanceof NotificationEmitter emitter) {
+                    emitter.addNotificationListener((notification, handback) -> {
+                        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                            return;
+                        }
+                        var info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()).getGcInfo();
+                        long reclaimed = 0;
+                        for (var entry : info.getMemoryUsageBeforeGc().entrySet()) {
+                            MemoryUsage after = info.getMemoryUsageAfterGc().get(entry.getKey());
+                            reclaimed += entry.getValue().getUsed() - (after == null ? 0 : after.getUsed());
+                        }
+                        reclaimedBytes.addAndGet(reclaimed);
+                        notifiedCollections.incrementAndGet();
+                    }, null, null);
+                }
+            }
+        }
+
+        long allocatedBytes() throws InterruptedException {
+            awaitNotifications();
+            long used = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    used += pool.getUsage().getUsed();
+                }
+            }
+            return reclaimedBytes.get() + used;
+        }
+
+        /** GC notifications arrive asynchronously; wait briefly until every collection is counted. */
+        private void awaitNotifications() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 1000;
+            while (notifiedCollections.get() < collectionCount() - collectionsBefore && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+
+        private long collectionCount() {
+            long count = 0;
+            for (GarbageCollectorMXBean collector : collectors) {
+                count += Math.max(0, collector.getCollectionCount());
+            }
+            return count;
+        }
+    }
+}
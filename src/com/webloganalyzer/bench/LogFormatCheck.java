@@ -0,0 +1,314 @@
+package com.webloganalyzer.bench;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogEntry;
+import com.webloganalyzer.model.LogFormat;
+import com.webloganalyzer.model.LogLineParser;
+import com.webloganalyzer.model.LogRecord;
+import com.webloganalyzer.model.RejectReason;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks the parsers of compiled {@link LogFormat}s against a regex written by hand for each
+ * format: Combined, nginx's default {@code main}, and two custom formats, one Apache and one
+ * nginx. The lines are {@link SyntheticLogGenerator} requests rendered in each format, with empty
+ * and backslash-escaped quoted fields mixed in, and random edits of them. Every line must be
+ * accepted or rejected by both the parser and the regex, and an accepted line must give the same
+ * entry from {@code parse} and from {@code parseInto} a record. Lines broken on purpose must be
+ * rejected for the expected {@link RejectReason}; in particular a line that ends where the format
+ * goes on, such as a Common line read as Combined, is a {@link RejectReason#FORMAT_MISMATCH}.
+ * Exits with status 1 on any mismatch.
+ *
+ * <p>Then reports the throughput of each format's parser over the same requests, next to the
+ * hand-written Common parser. The timings are printed, not checked, since they depend on the
+ * machine; {@link LogBenchmarks} measures them properly.
+ *
+ * <p>Usage: {@code LogFormatCheck [lines] [edits]}
+ */
+public class LogFormatCheck {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+    // A generated Combined line, split into the parts the formats are rendered from.
+    private static final Pattern COMBINED_PARTS = Pattern.compile(
+            "(\\S+) - - \\[([^\\]]+)\\] \"(\\S+) (\\S+) (\\S+)\" (\\S+) (\\S+) \"([^\"]*)\" \"([^\"]*)\"");
+    private static final String QUOTED = "(?:[^\"\\\\]|\\\\.)*";  // up to the first unescaped quote
+    private static final String EDIT_ALPHABET = " -[]\"\\/:0123456789aGx=\t\u0085";
+    private static final int THROUGHPUT_ROUNDS = 10;
+
+    /** One request, as text in the layout of no format in particular. */
+    private record Parts(String host, String time, String method, String resource, String protocol, String status,
+                         String bytes, String referrer, String userAgent, String responseTime) {
+
+        Parts with(String status, String bytes, String time) {
+            return new Parts(host, time, method, resource, protocol, status, bytes, referrer, userAgent, responseTime);
+        }
+
+        String request() {
+            return method + " " + resource + " " + protocol;
+        }
+
+        String common() {
+            return host + " - - [" + time + "] \"" + request() + "\" " + status + " " + bytes;
+        }
+    }
+
+    /** A line and the reason it must be rejected for. */
+    private record Broken(String line, RejectReason reason) {
+    }
+
+    /**
+     * A format under test: how a request is written in it, and the regex that reads it, with
+     * groups {@code host}, {@code time}, {@code status}, {@code bytes} and either {@code request}
+     * or {@code method} and {@code resource}.
+     */
+    private record Spec(String name, LogFormat format, Function<Parts, String> render, Pattern reference,
+                        boolean extendsCommon) {
+    }
+
+    private static final List<Spec> SPECS = List.of(
+            new Spec("combined", LogFormat.COMBINED,
+                    p -> p.common() + " \"" + p.referrer() + "\" \"" + p.userAgent() + "\"",
+                    Pattern.compile("^(?<host>\\S+) \\S+ \\S+ \\[(?<time>[^\\]]+)\\] \"(?<request>" + QUOTED
+                            + ")\" (?<status>\\S+) (?<bytes>\\S+) \"" + QUOTED + "\" \"" + QUOTED + "\"", Pattern.DOTALL),
+                    true),
+            new Spec("nginx main", LogFormat.compile("nginx main", "$remote_addr - $remote_user [$time_local] \"$request\""
+                    + " $status $body_bytes_sent \"$http_referer\" \"$http_user_agent\""),
+                    p -> p.common() + " \"" + p.referrer() + "\" \"" + p.userAgent() + "\"",
+                    Pattern.compile("^(?<host>\\S+) - \\S+ \\[(?<time>[^\\]]+)\\] \"(?<request>" + QUOTED
+                            + ")\" (?<status>\\S+) (?<bytes>\\S+) \"" + QUOTED + "\" \"" + QUOTED + "\"", Pattern.DOTALL),
+                    true),
+            new Spec("custom Apache", LogFormat.compile("custom Apache", "%h %l %u %t \"%m %U %H\" %>s %b %D"),
+                    p -> p.common() + " " + p.responseTime(),
+                    Pattern.compile("^(?<host>\\S+) \\S+ \\S+ \\[(?<time>[^\\]]+)\\] \"(?<method>\\S+) (?<resource>\\S+)"
+                            + " [^\"]+\" (?<status>\\S+) (?<bytes>\\S+) \\S+", Pattern.DOTALL),
+                    false),
+            new Spec("custom nginx", LogFormat.compile("custom nginx", "$remote_addr [$time_local] \"$request\" $status"
+                    + " $body_bytes_sent rt=$request_time ua=\"$http_user_agent\""),
+                    p -> p.host() + " [" + p.time() + "] \"" + p.request() + "\" " + p.status() + " " + p.bytes()
+                            + " rt=" + p.responseTime() + " ua=\"" + p.userAgent() + "\"",
+                    Pattern.compile("^(?<host>\\S+) \\[(?<time>[^\\]]+)\\] \"(?<request>" + QUOTED
+                            + ")\" (?<status>\\S+) (?<bytes>\\S+) rt=\\S+ ua=\"" + QUOTED + "\"", Pattern.DOTALL),
+                    false));
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int edits = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        List<Parts> requests = requests(lines);
+        List<String> failures = new ArrayList<>();
+
+        System.out.printf("%-14s %8s %8s %8s  %s%n", "format", "lines", "accepted", "broken", "rejects");
+        for (Spec spec : SPECS) {
+            LogLineParser parser = spec.format().newParser();
+            LogLineParser recordParser = spec.format().newParser();
+            LogRecord record = new LogRecord(new LogDictionaries());
+            long accepted = 0;
+            List<String> rendered = new ArrayList<>(requests.size());
+            for (Parts request : requests) {
+                String line = spec.render().apply(request);
+                rendered.add(line);
+                accepted += compare(spec, line, parser, recordParser, record, failures) ? 1 : 0;
+            }
+            if (accepted != rendered.size()) {
+                failures.add(spec.name() + ": only " + accepted + " of " + rendered.size() + " well-formed lines accepted");
+            }
+            SplittableRandom random = new SplittableRandom(7);
+            for (int i = 0; i < edits; i++) {
+                String line = edit(rendered.get(random.nextInt(rendered.size())), random);
+                accepted += compare(spec, line, parser, recordParser, record, failures) ? 1 : 0;
+            }
+            int broken = checkRejects(spec, requests, failures);
+            System.out.printf("%-14s %8d %8d %8d  %s%n", spec.name(), rendered.size() + edits, accepted, broken,
+                    parser.getRejectCounts());
+        }
+
+        failures.stream().limit(20).forEach(System.out::println);
+        System.out.println(failures.size() + " mismatches");
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+        reportThroughput(requests);
+    }
+
+    /** Parses a line both ways; returns whether the parser accepted it. */
+    private static boolean compare(Spec spec, String line, LogLineParser parser, LogLineParser recordParser,
+                                   LogRecord record, List<String> failures) {
+        LogEntry expected = parseWithRegex(spec.reference(), line);
+        LogEntry parsed = parser.parse(line);
+        boolean recorded = recordParser.parseInto(line, record);
+        if (!same(expected, parsed)) {
+            failures.add(spec.name() + " parse:     " + line + "\n  regex  " + expected + "\n  parser " + parsed
+                    + " " + parser.getLastRejectReason());
+        } else if (recorded != (expected != null) || recorded && !same(expected, record.toEntry())) {
+            failures.add(spec.name() + " parseInto: " + line + "\n  regex  " + expected + "\n  record "
+                    + (recorded ? record.toEntry() : null));
+        }
+        return parsed != null;
+    }
+
+    /** Rejects of lines broken in one known way each; returns how many lines were checked. */
+    private static int checkRejects(Spec spec, List<Parts> requests, List<String> failures) {
+        LogLineParser parser = spec.format().newParser();
+        int checked = 0;
+        for (int i = 0; i < requests.size(); i += 97) {
+            Parts request = requests.get(i);
+            String line = spec.render().apply(request);
+            List<Broken> cases = new ArrayList<>(List.of(
+                    new Broken(spec.render().apply(request.with("2x0", request.bytes(), request.time())),
+                            RejectReason.BAD_STATUS),
+                    new Broken(spec.render().apply(request.with(request.status(), "12a", request.time())),
+                            RejectReason.BAD_BYTES),
+                    new Broken(spec.render().apply(request.with(request.status(), request.bytes(),
+                            request.time().replace(':', '/'))), RejectReason.BAD_TIMESTAMP),
+                    // Cut inside or just before the last field: the line ends where the format goes on.
+                    new Broken(line.substring(0, line.lastIndexOf(' ')), RejectReason.FORMAT_MISMATCH)));
+            if (line.endsWith("\"")) {
+                cases.add(new Broken(line.substring(0, line.length() - 1), RejectReason.FORMAT_MISMATCH));
+            }
+            if (spec.extendsCommon()) {
+                cases.add(new Broken(request.common(), RejectReason.FORMAT_MISMATCH));
+            }
+            for (Broken broken : cases) {
+                checked++;
+                if (parser.parse(broken.line()) != null || parser.getLastRejectReason() != broken.reason()) {
+                    failures.add(spec.name() + ": expected " + broken.reason() + " but got "
+                            + parser.getLastRejectReason() + " for " + broken.line());
+                }
+            }
+        }
+        return checked;
+    }
+
+    /** Lines per second of each format's parser, parsing into a record, best of several rounds. */
+    private static void reportThroughput(List<Parts> requests) {
+        List<String> names = new ArrayList<>();
+        List<LogFormat> formats = new ArrayList<>();
+        List<String[]> samples = new ArrayList<>();
+        names.add("common (hand-written)");
+        formats.add(LogFormat.COMMON);
+        samples.add(requests.stream().map(Parts::common).toArray(String[]::new));
+        for (Spec spec : SPECS) {
+            names.add(spec.name());
+            formats.add(spec.format());
+            samples.add(requests.stream().map(spec.render()).toArray(String[]::new));
+        }
+        long[] best = new long[formats.size()];
+        Arrays.fill(best, Long.MAX_VALUE);
+        for (int round = 0; round < THROUGHPUT_ROUNDS; round++) {  // formats take turns, so all are warmed up alike
+            for (int f = 0; f < formats.size(); f++) {
+                LogLineParser parser = formats.get(f).newParser();
+                LogRecord record = new LogRecord(new LogDictionaries());
+                long start = System.nanoTime();
+                for (String line : samples.get(f)) {
+                    parser.parseInto(line, record);
+                }
+                best[f] = Math.min(best[f], System.nanoTime() - start);
+            }
+        }
+        System.out.printf("%n%-22s %12s %10s%n", "throughput", "lines/s", "MB/s");
+        for (int f = 0; f < formats.size(); f++) {
+            String[] sample = samples.get(f);
+            long chars = 0;
+            for (String line : sample) {
+                chars += line.length() + 1;
+            }
+            System.out.printf("%-22s %12.0f %10.1f%n", names.get(f), sample.length * 1e9 / best[f], chars * 1e3 / best[f]);
+        }
+    }
+
+    /** Generated requests, some with an empty referrer, or a user agent with escaped quotes or none. */
+    private static List<Parts> requests(int lines) {
+        SplittableRandom random = new SplittableRandom(11);
+        List<Parts> requests = new ArrayList<>(lines);
+        for (String line : new SyntheticLogGenerator().combined(true).malformedRate(0).seed(5).generateLines(lines)) {
+            Matcher matcher = COMBINED_PARTS.matcher(line);
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Unexpected generated line: " + line);
+            }
+            String referrer = random.nextInt(10) == 0 ? "" : matcher.group(8);
+            String userAgent = switch (random.nextInt(10)) {
+                case 0 -> "";
+                case 1 -> "Bot \\\"quoted\\\" \\\\ " + matcher.group(9);
+                default -> matcher.group(9);
+            };
+            String responseTime = Integer.toString(random.nextInt(1, 5_000_000));
+            requests.add(new Parts(matcher.group(1), matcher.group(2), matcher.group(3), matcher.group(4), matcher.group(5),
+                    matcher.group(6), matcher.group(7), referrer, userAgent, responseTime));
+        }
+        return requests;
+    }
+
+    /** Up to three random deletions, insertions or replacements of a character. */
+    private static String edit(String line, SplittableRandom random) {
+        StringBuilder edited = new StringBuilder(line);
+        int count = random.nextInt(4);
+        for (int i = 0; i < count && edited.length() > 0; i++) {
+            int at = random.nextInt(edited.length());
+            char c = EDIT_ALPHABET.charAt(random.nextInt(EDIT_ALPHABET.length()));
+            switch (random.nextInt(3)) {
+                case 0 -> edited.deleteCharAt(at);
+                case 1 -> edited.insert(at, c);
+                default -> edited.setCharAt(at, c);
+            }
+        }
+        return edited.toString();
+    }
+
+    private static boolean same(LogEntry a, LogEntry b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getIpAddress().equals(b.getIpAddress())
+                && a.getTimestamp().equals(b.getTimestamp())
+                && a.getRequestMethod().equals(b.getRequestMethod())
+                && a.getResource().equals(b.getResource())
+                && a.getStatusCode() == b.getStatusCode()
+                && a.getBytes() == b.getBytes();
+    }
+
+    /**
+     * The entry the reference regex reads from the line: the request must be three tokens
+     * separated by single spaces, the status three digits, the byte count '-' or an int, and the
+     * timestamp in the Common Log Format layout. Trailing text is ignored.
+     */
+    private static LogEntry parseWithRegex(Pattern reference, String line) {
+        Matcher matcher = reference.matcher(line);
+        if (!matcher.find()) {
+            return null;
+        }
+        String method;
+        String resource;
+        if (reference.pattern().contains("(?<request>")) {
+            Matcher request = Pattern.compile("(\\S+) (\\S+) (\\S+)").matcher(matcher.group("request"));
+            if (!request.matches()) {
+                return null;
+            }
+            method = request.group(1);
+            resource = request.group(2);
+        } else {
+            method = matcher.group("method");
+            resource = matcher.group("resource");
+        }
+        if (!matcher.group("status").matches("\\d{3}")) {
+            return null;
+        }
+        try {
+            String bytes = matcher.group("bytes");
+            OffsetDateTime timestamp = OffsetDateTime.parse(matcher.group("time"), TIMESTAMP_FORMAT);
+            return new LogEntry(matcher.group("host"), timestamp, method, resource,
+                    Integer.parseInt(matcher.group("status")), bytes.equals("-") ? 0 : Integer.parseInt(bytes));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
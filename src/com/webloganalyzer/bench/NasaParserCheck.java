@@ -0,0 +1,168 @@
+package com.webloganalyzer.bench;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogEntry;
+import com.webloganalyzer.model.LogRecord;
+import com.webloganalyzer.model.NasaLogLineParser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link NasaLogLineParser} with the regex parsing it replaced, which is kept here as it
+ * was but for compiling the pattern and formatter once. Every line must be accepted or rejected by
+ * both, and an accepted line must give equal entries from {@code parse} and from {@code parseInto}
+ * a record. The lines are hand-picked edge
+ * cases, a {@link SyntheticLogGenerator} log with malformed lines, random edits of both, and the
+ * lines of any log files given. Exits with status 1 on any mismatch.
+ *
+ * <p>Usage: {@code NasaParserCheck [edits] [log files...]}
+ */
+public class NasaParserCheck {
+
+    private static final Pattern OLD_PATTERN =
+            Pattern.compile("^(\\S+) \\S+ \\S+ \\[(.+?)\\] \"(\\S+) (\\S+) \\S+\" (\\d{3}) (\\S+)");
+    private static final DateTimeFormatter OLD_TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+
+    private static final String[] EDGE_CASES = {
+            "199.72.81.55 - - [01/Jul/1995:00:00:01 -0400] \"GET /history/apollo/ HTTP/1.0\" 200 6245",
+            "unicomp6.unicomp.net - - [01/Jul/1995:00:00:06 -0400] \"GET /shuttle/countdown/ HTTP/1.0\" 200 3985",
+            "burger.letters.com - - [01/Jul/1995:00:00:12 -0400] \"GET /images/NASA-logosmall.gif HTTP/1.0\" 304 -",
+            "d104.aa.net - - [01/Jul/1995:00:00:13 -0400] \"GET /shuttle/countdown/ HTTP/1.0\" 200 3985 trailing",
+            "x - - [31/Feb/1995:23:59:59 +0000] \"POST /login HTTP/1.0\" 401 12",
+            "x - - [29/Feb/1996:23:59:59 +1800] \"PUT /a HTTP/1.0\" 200 +12",
+            "x - - [29/Feb/1995:12:00:00 -0400] \"GET / HTTP/1.0\" 200 1",
+            "x - - [01/jul/1995:00:00:01 -0400] \"GET / HTTP/1.0\" 200 1",
+            "x - - [01/Jul/1995:00:00:01 -0400] \"GET /index.html\" 200 1",
+            "x - - [01/Jul/1995:00:00:01 -0400] \"GET /a] HTTP/1.0\" 200 1",
+            "x - - [01/Jul/1995:24:00:01 -0400] \"GET / HTTP/1.0\" 200 99999999999",
+            "x - - [01/Jul/1995:00:00:01 -0400] \"GET / HTTP/1.0\"\" 200 -5",
+            "x - - [1/Jul/1995:00:00:01 -0400] \"GET / HTTP/1.0\" 200 1",
+            "x - - [01/Jul/1995:00:00:60 -0400] \"GET / HTTP/1.0\" 200 1",
+            "x - - [01/Jul/1995:00:00:01 -04:00] \"GET / HTTP/1.0\" 200 1",
+            "x - - [01/Jul/1995:00:00:01 -0400] \"GET / HTTP/1.0\" 2000 1",
+            "x - - [01/Jul/1995:00:00:01 -0400] \"GET / HTTP/1.0\" 200 2147483648",
+            "x - - [01/Jul/1995:00:00:01 -0400] \"GET  / HTTP/1.0\" 200 1",
+            "x\t- - [01/Jul/1995:00:00:01 -0400] \"GET / HTTP/1.0\" 200 1",
+            "x - - [] \"GET / HTTP/1.0\" 200 1",
+            "",
+    };
+    private static final String EDIT_ALPHABET = " -[]\"/:0123456789aJ+\t\u0085\u00a0x";
+
+    public static void main(String[] args) throws IOException {
+        int edits = args.length > 0 ? Integer.parseInt(args[0]) : 400_000;
+        List<String> failures = new ArrayList<>();
+        NasaLogLineParser parser = new NasaLogLineParser();
+        NasaLogLineParser recordParser = new NasaLogLineParser();
+        LogRecord record = new LogRecord(new LogDictionaries());
+        long[] accepted = new long[1];
+
+        List<String> seeds = new ArrayList<>(List.of(EDGE_CASES));
+        for (String line : new SyntheticLogGenerator().malformedRate(0.05).seed(3).generateLines(20_000)) {
+            seeds.add(line);
+        }
+        long lines = 0;
+        for (String line : seeds) {
+            lines++;
+            compare(line, parser, recordParser, record, accepted, failures);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < edits; i++) {
+            lines++;
+            compare(edit(seeds.get(random.nextInt(seeds.size())), random), parser, recordParser, record, accepted,
+                    failures);
+        }
+        for (int i = 1; i < args.length; i++) {
+            try (BufferedReader reader = Files.newBufferedReader(new File(args[i]).toPath(), StandardCharsets.ISO_8859_1)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines++;
+                    compare(line, parser, recordParser, record, accepted, failures);
+                }
+            }
+        }
+
+        failures.stream().limit(20).forEach(System.out::println);
+        System.out.println(lines + " lines, " + accepted[0] + " accepted, rejects " + parser.getRejectCounts() + ", "
+                + failures.size() + " mismatches");
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /** Up to three random deletions, insertions or replacements of a character. */
+    private static String edit(String line, SplittableRandom random) {
+        StringBuilder edited = new StringBuilder(line);
+        int count = random.nextInt(4);
+        for (int i = 0; i < count && edited.length() > 0; i++) {
+            int at = random.nextInt(edited.length());
+            char c = EDIT_ALPHABET.charAt(random.nextInt(EDIT_ALPHABET.length()));
+            switch (random.nextInt(3)) {
+                case 0 -> edited.deleteCharAt(at);
+                case 1 -> edited.insert(at, c);
+                default -> edited.setCharAt(at, c);
+            }
+        }
+        return edited.toString();
+    }
+
+    private static void compare(String line, NasaLogLineParser parser, NasaLogLineParser recordParser,
+                                LogRecord record, long[] accepted, List<String> failures) {
+        LogEntry expected = parseWithRegex(line);
+        LogEntry parsed = parser.parse(line);
+        boolean recorded = recordParser.parseInto(line, record);
+        if (parsed != null) {
+            accepted[0]++;
+        }
+        if (!same(expected, parsed)) {
+            failures.add("parse:     " + line + "\n  regex  " + expected + "\n  parser " + parsed);
+        } else if (recorded != (expected != null) || recorded && !same(expected, record.toEntry())) {
+            failures.add("parseInto: " + line + "\n  regex  " + expected + "\n  record " + (recorded ? record.toEntry() : null));
+        }
+    }
+
+    private static boolean same(LogEntry a, LogEntry b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getIpAddress().equals(b.getIpAddress())
+                && a.getTimestamp().equals(b.getTimestamp())  // the same instant and the same offset
+                && a.getRequestMethod().equals(b.getRequestMethod())
+                && a.getResource().equals(b.getResource())
+                && a.getStatusCode() == b.getStatusCode()
+                && a.getBytes() == b.getBytes();
+    }
+
+    /** {@code LogEntry.parseFromNasaLogLine} as it was before {@link NasaLogLineParser}. */
+    private static LogEntry parseWithRegex(String line) {
+        try {
+            Matcher matcher = OLD_PATTERN.matcher(line);
+            if (!matcher.find()) {
+                return null;
+            }
+            String ip = matcher.group(1);
+            String dateStr = matcher.group(2);
+            String method = matcher.group(3);
+            String resource = matcher.group(4);
+            int status = Integer.parseInt(matcher.group(5));
+            String bytesStr = matcher.group(6);
+            int bytes = bytesStr.equals("-") ? 0 : Integer.parseInt(bytesStr);
+            OffsetDateTime timestamp = OffsetDateTime.parse(dateStr, OLD_TIMESTAMP_FORMAT);
+            return new LogEntry(ip, timestamp, method, resource, status, bytes);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
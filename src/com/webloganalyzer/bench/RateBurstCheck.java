@@ -0,0 +1,227 @@
+package com.webloganalyzer.bench;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogRecord;
+import com.webloganalyzer.service.BurstTimeline;
+import com.webloganalyzer.service.LogAnalyzer;
+import com.webloganalyzer.service.RateBurstAnalyzer;
+import com.webloganalyzer.service.RateRule;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Fuzzes {@link RateBurstAnalyzer} against a brute-force count of every window at every
+ * request. Each random log is counted by one accumulator, by accumulators over random splits
+ * merged left to right (taking results between merges, as a tail does), and by a random tree of
+ * merges, and each timeline must equal the brute-force one. Exits with status 1 on any mismatch.
+ *
+ * <p>Usage: {@code RateBurstCheck [seeds]}
+ */
+public class RateBurstCheck {
+
+    private static final long START_SECOND = 804_571_200L;  // 01/Jul/1995:00:00:00 -0400
+    private static final int OFFSET_SECONDS = -4 * 3600;
+
+    private record Request(String ip, long second, boolean failedLogin) {
+    }
+
+    public static void main(String[] args) {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        List<String> failures = new ArrayList<>();
+        int checks = 0;
+        long bursts = 0;
+        for (int seed = 0; seed < seeds; seed++) {
+            Random random = new Random(seed);
+            List<RateRule> rules = switch (seed % 3) {
+                case 0 -> RateRule.DEFAULTS;
+                case 1 -> List.of(new RateRule(Duration.ofSeconds(30), 8, 2), new RateRule(Duration.ofSeconds(90), 15, 0));
+                default -> List.of(new RateRule(Duration.ofMinutes(2), 10, 3));
+            };
+            RateBurstAnalyzer analyzer = new RateBurstAnalyzer(rules);
+            List<Request> requests = generate(random, seed % 2 == 0 ? 900 : 120);
+            List<String> expected = bruteForce(requests, rules, analyzer.getBucketSeconds());
+            bursts += expected.size();
+
+            Map<String, BurstTimeline> timelines = new HashMap<>();
+            timelines.put("single", count(analyzer, requests, 0, requests.size()).result());
+            LogAnalyzer.Accumulator<BurstTimeline> folded = fold(analyzer, requests, random);
+            timelines.put("left fold", folded.result());
+            timelines.put("left fold, asked again", folded.result());
+            timelines.put("tree", tree(analyzer, requests, 0, requests.size(), random).result());
+            for (Map.Entry<String, BurstTimeline> timeline : timelines.entrySet()) {
+                checks++;
+                List<String> actual = describe(timeline.getValue());
+                if (!actual.equals(expected)) {
+                    List<String> missing = new ArrayList<>(expected);
+                    missing.removeAll(actual);
+                    List<String> extra = new ArrayList<>(actual);
+                    extra.removeAll(expected);
+                    failures.add(String.format("seed %d %s rules %s%n  missing %s%n  extra   %s", seed,
+                            timeline.getKey(), rules, missing, extra));
+                }
+            }
+        }
+
+        failures.forEach(System.out::println);
+        System.out.println(checks + " comparisons over " + bursts + " bursts, " + failures.size() + " mismatches");
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /** Requests mostly a second or two apart with occasional gaps, from a few IPs of skewed weight. */
+    private static List<Request> generate(Random random, int maxGapSeconds) {
+        int count = 200 + random.nextInt(4000);
+        int hosts = 3 + random.nextInt(40);
+        List<Request> requests = new ArrayList<>(count);
+        long second = START_SECOND + random.nextInt(1000);
+        for (int i = 0; i < count; i++) {
+            second += random.nextInt(10) == 0 ? random.nextInt(maxGapSeconds) : random.nextInt(3);
+            String ip = "host" + (int) (Math.pow(random.nextDouble(), 3) * hosts);
+            requests.add(new Request(ip, second, random.nextInt(6) == 0));
+        }
+        return requests;
+    }
+
+    /**
+     * Recounts every window of every check at each request, opening a burst when the count goes
+     * over the limit and closing it at the first request of that IP that is back under it.
+     */
+    private static List<String> bruteForce(List<Request> requests, List<RateRule> rules, int bucketSeconds) {
+        int checks = 2 * rules.size();
+        Map<String, List<Request>> seen = new HashMap<>();
+        Map<String, long[][]> open = new HashMap<>();  // per IP and check: start, end and peak
+        List<String> bursts = new ArrayList<>();
+        long watermark = Long.MIN_VALUE;
+        for (Request request : requests) {
+            long bucket = Math.floorDiv(request.second(), bucketSeconds);
+            watermark = Math.max(watermark, bucket);
+            List<Request> history = seen.computeIfAbsent(request.ip(), ip -> new ArrayList<>());
+            history.add(request);
+            long[][] spans = open.computeIfAbsent(request.ip(), ip -> new long[checks][]);
+            for (int k = 0; k < checks; k++) {
+                int limit = limit(rules, k);
+                if (limit == 0) {
+                    continue;
+                }
+                int sum = countInWindow(history, rules, k, bucket, bucketSeconds);
+                if (sum > limit) {
+                    if (spans[k] == null) {
+                        spans[k] = new long[]{request.second(), request.second(), sum};
+                    } else {
+                        spans[k][1] = Math.max(spans[k][1], request.second());
+                        spans[k][2] = Math.max(spans[k][2], sum);
+                    }
+                } else if (spans[k] != null) {
+                    bursts.add(describe(request.ip(), rules, k, spans[k], false));
+                    spans[k] = null;
+                }
+            }
+        }
+        for (Map.Entry<String, long[][]> entry : open.entrySet()) {
+            for (int k = 0; k < checks; k++) {
+                long[] span = entry.getValue()[k];
+                if (span != null) {
+                    int sum = countInWindow(seen.get(entry.getKey()), rules, k, watermark, bucketSeconds);
+                    bursts.add(describe(entry.getKey(), rules, k, span, sum > limit(rules, k)));
+                }
+            }
+        }
+        Collections.sort(bursts);
+        return bursts;
+    }
+
+    private static int limit(List<RateRule> rules, int check) {
+        RateRule rule = rules.get(check % rules.size());
+        return check < rules.size() ? rule.maxRequests() : rule.maxFailedLogins();
+    }
+
+    private static int countInWindow(List<Request> history, List<RateRule> rules, int check, long lastBucket,
+                                     int bucketSeconds) {
+        long buckets = rules.get(check % rules.size()).window().getSeconds() / bucketSeconds;
+        int sum = 0;
+        for (Request request : history) {
+            long bucket = Math.floorDiv(request.second(), bucketSeconds);
+            if (bucket > lastBucket - buckets && bucket <= lastBucket && (check < rules.size() || request.failedLogin())) {
+                sum++;
+            }
+        }
+        return sum;
+    }
+
+    private static String describe(String ip, List<RateRule> rules, int check, long[] span, boolean ongoing) {
+        String kind = (check < rules.size() ? BurstTimeline.Kind.REQUESTS : BurstTimeline.Kind.FAILED_LOGINS).name();
+        return span[0] + " " + ip + " " + kind + " " + rules.get(check % rules.size()).windowLabel() + " "
+                + span[1] + " " + span[2] + " " + ongoing;
+    }
+
+    private static List<String> describe(BurstTimeline timeline) {
+        List<String> bursts = new ArrayList<>();
+        for (BurstTimeline.Burst burst : timeline.getBursts()) {
+            bursts.add(burst.start().toEpochSecond() + " " + burst.ip() + " " + burst.kind().name() + " "
+                    + burst.rule().windowLabel() + " " + burst.end().toEpochSecond() + " " + burst.peak() + " "
+                    + burst.ongoing());
+        }
+        Collections.sort(bursts);
+        return bursts;
+    }
+
+    /** Counts requests [from, to) into a fresh accumulator with dictionaries of its own. */
+    private static LogAnalyzer.Accumulator<BurstTimeline> count(RateBurstAnalyzer analyzer, List<Request> requests,
+                                                               int from, int to) {
+        LogDictionaries dictionaries = new LogDictionaries();
+        LogAnalyzer.Accumulator<BurstTimeline> accumulator = analyzer.newAccumulator(dictionaries);
+        LogRecord record = new LogRecord(dictionaries);
+        int get = dictionaries.getMethods().idOf("GET");
+        int post = dictionaries.getMethods().idOf("POST");
+        int index = dictionaries.getResources().idOf("/index.html");
+        int login = dictionaries.getResources().idOf("/login");
+        for (int i = from; i < to; i++) {
+            Request request = requests.get(i);
+            boolean failed = request.failedLogin();
+            record.set(dictionaries.getIps().idOf(request.ip()), failed ? post : get, failed ? login : index,
+                    request.second(), OFFSET_SECONDS, failed ? 401 : 200, 100);
+            accumulator.accept(record);
+        }
+        return accumulator;
+    }
+
+    /** Splits the requests at random and merges the parts in file order, as the processors do. */
+    private static LogAnalyzer.Accumulator<BurstTimeline> fold(RateBurstAnalyzer analyzer, List<Request> requests,
+                                                              Random random) {
+        int[] cuts = random.ints(random.nextInt(12), 0, requests.size()).sorted().toArray();
+        LogAnalyzer.Accumulator<BurstTimeline> folded = null;
+        int from = 0;
+        for (int i = 0; i <= cuts.length; i++) {
+            int to = i < cuts.length ? cuts[i] : requests.size();
+            LogAnalyzer.Accumulator<BurstTimeline> part = count(analyzer, requests, from, to);
+            if (folded == null) {
+                folded = part;
+            } else {
+                folded.merge(part);
+                if (random.nextBoolean()) {
+                    folded.result();  // a result in between must not disturb the merging
+                }
+            }
+            from = to;
+        }
+        return folded;
+    }
+
+    private static LogAnalyzer.Accumulator<BurstTimeline> tree(RateBurstAnalyzer analyzer, List<Request> requests,
+                                                              int from, int to, Random random) {
+        if (to - from < 50 || random.nextInt(4) == 0) {
+            return count(analyzer, requests, from, to);
+        }
+        int middle = from + random.nextInt(to - from);
+        LogAnalyzer.Accumulator<BurstTimeline> left = tree(analyzer, requests, from, middle, random);
+        left.merge(tree(analyzer, requests, middle, to, random));
+        return left;
+    }
+}
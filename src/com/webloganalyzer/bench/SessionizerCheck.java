@@ -0,0 +1,217 @@
+package com.webloganalyzer.bench;
+
+import com.webloganalyzer.model.LogFormat;
+import com.webloganalyzer.model.LogLineParser;
+import com.webloganalyzer.model.LogStore;
+import com.webloganalyzer.model.LogTable;
+import com.webloganalyzer.model.OffHeapLogStore;
+import com.webloganalyzer.model.StringDictionary;
+import com.webloganalyzer.service.SessionStats;
+import com.webloganalyzer.service.Sessionizer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Compares {@link Sessionizer} against a brute-force sessionization on one thread, over
+ * {@link SyntheticLogGenerator} logs stored as a {@link LogTable}, as an {@link OffHeapLogStore}
+ * and as a table shuffled out of time order. Every store is sessionized with several gaps, time
+ * ranges and thread counts, and with partitions small enough to need many rounds. Exits with
+ * status 1 on the first mismatch.
+ *
+ * <p>Usage: {@code SessionizerCheck [lines]}
+ */
+public class SessionizerCheck {
+
+    private static final Set<String> ASSET_EXTENSIONS =
+            Set.of("gif", "jpg", "jpeg", "png", "bmp", "xbm", "ico", "css", "js");
+    private static final int[] PARALLELISM = {1, 2, 4, 8};
+    private static final long[] GAP_SECONDS = {60, 1800};
+
+    /** What the check compares; exit pages as their counts, since ties may come in any order. */
+    private record Summary(long sessions, long pageViews, long bounces, long totalDuration, int medianDuration,
+                           int p90Duration, int maxDuration, int medianPages, int p90Pages,
+                           List<Integer> topExitCounts) {
+    }
+
+    /** The brute-force summary, with the exits and page views of every resource by name. */
+    private record Reference(Summary summary, Map<String, Integer> exits, Map<String, Integer> views) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        List<String> failures = new ArrayList<>();
+        int checks = 0;
+        for (SyntheticLogGenerator generator : List.of(
+                new SyntheticLogGenerator().hosts(500).requestsPerSecond(1),
+                new SyntheticLogGenerator().hosts(20_000).requestsPerSecond(20).seed(7),
+                new SyntheticLogGenerator().hosts(50).skew(0).requestsPerSecond(1).seed(3))) {
+            LogTable table = parse(generator.generateLines(lines));
+            try (OffHeapLogStore offHeap = new OffHeapLogStore(1 << 20, null)) {
+                offHeap.addAll(table);
+                Map<String, LogStore> stores = Map.of("table", table, "off-heap", offHeap, "shuffled", shuffle(table));
+                for (Map.Entry<String, LogStore> store : stores.entrySet()) {
+                    checks += check(store.getKey(), store.getValue(), failures);
+                }
+            }
+        }
+        checks += check("empty", new LogTable(), failures);
+
+        failures.forEach(System.out::println);
+        System.out.println(checks + " comparisons, " + failures.size() + " mismatches");
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private static int check(String name, LogStore store, List<String> failures) {
+        int checks = 0;
+        long middle = store.size() == 0 ? 0 : store.getEpochSecond(store.size() / 2);
+        long[][] ranges = {{Long.MIN_VALUE, Long.MAX_VALUE}, {middle - 3600, middle + 3600}};
+        for (long gapSeconds : GAP_SECONDS) {
+            for (long[] range : ranges) {
+                Reference expected = bruteForce(store, gapSeconds, range[0], range[1]);
+                for (int parallelism : PARALLELISM) {
+                    // The small cap makes even eight threads go through four rounds.
+                    for (int maxRows : new int[]{Sessionizer.MAX_ROWS_PER_PARTITION, store.size() / 32 + 1}) {
+                        Sessionizer sessionizer = new Sessionizer(parallelism, Duration.ofSeconds(gapSeconds), maxRows);
+                        SessionStats stats = sessionizer.sessionize(store, range[0], range[1]);
+                        String label = String.format("%s gap=%ds range=%s threads=%d maxRows=%d", name, gapSeconds,
+                                range[0] == Long.MIN_VALUE ? "all" : "1h", parallelism, maxRows);
+                        checks++;
+                        if (!summarize(stats).equals(expected.summary())) {
+                            failures.add(String.format("%s%n  expected %s%n  actual   %s", label, expected.summary(),
+                                    summarize(stats)));
+                        }
+                        for (SessionStats.ExitPage page : stats.getTopExitPages()) {
+                            if (page.exits() != expected.exits().getOrDefault(page.url(), 0)
+                                    || page.views() != expected.views().getOrDefault(page.url(), 0)) {
+                                failures.add(label + ": exit page " + page + ", expected "
+                                        + expected.exits().get(page.url()) + " exits of " + expected.views().get(page.url()));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return checks;
+    }
+
+    /** Groups rows by IP, sorts each group by time (ties in file order) and cuts at the gap. */
+    private static Reference bruteForce(LogStore store, long gapSeconds, long from, long to) {
+        Map<Integer, List<Integer>> rowsByIp = new HashMap<>();
+        for (int row = 0; row < store.size(); row++) {
+            long second = store.getEpochSecond(row);
+            if (second >= from && second < to) {
+                rowsByIp.computeIfAbsent(store.getIpId(row), ip -> new ArrayList<>()).add(row);
+            }
+        }
+        StringDictionary resources = store.getDictionaries().getResources();
+        List<Integer> durations = new ArrayList<>();
+        List<Integer> pages = new ArrayList<>();
+        Map<String, Integer> exits = new HashMap<>();
+        Map<String, Integer> views = new HashMap<>();
+        for (List<Integer> rows : rowsByIp.values()) {
+            rows.sort(Comparator.comparingLong(store::getEpochSecond));
+            long start = store.getEpochSecond(rows.get(0));
+            long last = start;
+            int pageViews = 0;
+            String exit = null;
+            for (int row : rows) {
+                long second = store.getEpochSecond(row);
+                if (second - last > gapSeconds) {
+                    durations.add((int) (last - start));
+                    pages.add(pageViews);
+                    if (exit != null) {
+                        exits.merge(exit, 1, Integer::sum);
+                    }
+                    start = second;
+                    pageViews = 0;
+                    exit = null;
+                }
+                last = second;
+                String resource = resources.valueOf(store.getResourceId(row));
+                if (isPage(resource)) {
+                    pageViews++;
+                    views.merge(resource, 1, Integer::sum);
+                    exit = resource;
+                }
+            }
+            durations.add((int) (last - start));
+            pages.add(pageViews);
+            if (exit != null) {
+                exits.merge(exit, 1, Integer::sum);
+            }
+        }
+        durations.sort(null);
+        pages.sort(null);
+        long totalDuration = durations.stream().mapToLong(Integer::longValue).sum();
+        long pageViews = pages.stream().mapToLong(Integer::longValue).sum();
+        long bounces = pages.stream().filter(count -> count <= 1).count();
+        List<Integer> topExitCounts = exits.values().stream().sorted(Comparator.reverseOrder())
+                .limit(Sessionizer.TOP_EXIT_PAGE_COUNT).toList();
+        Summary summary = new Summary(durations.size(), pageViews, bounces, totalDuration, percentile(durations, 50),
+                percentile(durations, 90), durations.isEmpty() ? 0 : durations.get(durations.size() - 1),
+                percentile(pages, 50), percentile(pages, 90), topExitCounts);
+        return new Reference(summary, exits, views);
+    }
+
+    private static Summary summarize(SessionStats stats) {
+        long totalDuration = Math.round(stats.getMeanDurationSeconds() * stats.getSessionCount());
+        return new Summary(stats.getSessionCount(), stats.getPageViews(), stats.getBounces(), totalDuration,
+                stats.getMedianDurationSeconds(), stats.getP90DurationSeconds(), stats.getMaxDurationSeconds(),
+                stats.getMedianPagesPerSession(), stats.getP90PagesPerSession(),
+                stats.getTopExitPages().stream().map(SessionStats.ExitPage::exits).toList());
+    }
+
+    private static boolean isPage(String resource) {
+        String path = resource.split("[?#]", 2)[0];
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        int dot = name.lastIndexOf('.');
+        return dot < 0 || !ASSET_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static int percentile(List<Integer> sorted, double percent) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get(Math.max(0, (int) Math.ceil(percent / 100 * sorted.size()) - 1));
+    }
+
+    private static LogTable parse(String[] lines) {
+        LogTable table = new LogTable();
+        LogLineParser parser = LogFormat.COMMON.newParser();
+        for (String line : lines) {
+            parser.parseInto(line, table);
+        }
+        return table;
+    }
+
+    private static LogTable shuffle(LogTable table) {
+        int[] order = new int[table.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        LogTable shuffled = new LogTable(table.size(), table.getDictionaries());
+        for (int row : order) {
+            shuffled.addRow(table.getIpId(row), table.getMethodId(row), table.getResourceId(row),
+                    table.getEpochSecond(row), table.getOffsetSeconds(row), table.getStatusCode(row), table.getBytes(row));
+        }
+        return shuffled;
+    }
+}
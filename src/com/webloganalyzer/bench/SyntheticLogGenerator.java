@@ -0,0 +1,223 @@
+package com.webloganalyzer.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Writes NASA-format access logs with a fixed seed, so benchmarks and experiments can run on
+ * reproducible data without the real dataset. Hosts and resources are drawn from Zipf
+ * distributions; {@code skew} 0 is uniform and values around 1 resemble real web traffic.
+ * With {@link #combined(boolean)} the lines carry a referrer and user agent as well (Combined Log
+ * Format).
+ *
+ * <p>Usage: {@code SyntheticLogGenerator <output> [lines] [skew] [seed]}
+ */
+public class SyntheticLogGenerator {
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+    private static final String[] DIRECTORIES = {"/images/", "/shuttle/missions/", "/history/apollo/", "/software/", "/cgi-bin/"};
+    private static final String[] EXTENSIONS = {".gif", ".html", ".jpg", ".txt", ".xbm"};
+    private static final String[] SPECIAL_RESOURCES = {"/login", "/admin/index.html", "/login.cgi", "/admin/users"};
+    private static final String[] USER_AGENTS = {
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 14_2) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.2 Safari/605.1.15",
+            "Mozilla/5.0 (X11; Linux x86_64; rv:121.0) Gecko/20100101 Firefox/121.0",
+            "curl/8.4.0",
+            "Googlebot/2.1 (+http://www.google.com/bot.html)"
+    };
+
+    private long seed = 42;
+    private int hostCount = 20_000;
+    private int resourceCount = 5_000;
+    private double skew = 1.0;
+    private double errorRate = 0.05;
+    private double malformedRate = 0.001;
+    private long startEpochSecond = 804_571_200L;  // 01/Jul/1995:00:00:00 -0400
+    private int requestsPerSecond = 20;
+    private boolean combined;
+
+    public SyntheticLogGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public SyntheticLogGenerator hosts(int hostCount) {
+        this.hostCount = hostCount;
+        return this;
+    }
+
+    public SyntheticLogGenerator resources(int resourceCount) {
+        this.resourceCount = resourceCount;
+        return this;
+    }
+
+    /** Zipf exponent for host and resource popularity. */
+    public SyntheticLogGenerator skew(double skew) {
+        this.skew = skew;
+        return this;
+    }
+
+    /** Share of 4xx/5xx responses. */
+    public SyntheticLogGenerator errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /** Share of lines the parser should reject. */
+    public SyntheticLogGenerator malformedRate(double malformedRate) {
+        this.malformedRate = malformedRate;
+        return this;
+    }
+
+    public SyntheticLogGenerator requestsPerSecond(int requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+        return this;
+    }
+
+    /** Appends a quoted referrer and user agent to every line, as in the Combined Log Format. */
+    public SyntheticLogGenerator combined(boolean combined) {
+        this.combined = combined;
+        return this;
+    }
+
+    public void write(File output, long lines) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(output.toPath(), StandardCharsets.ISO_8859_1)) {
+            write(writer, lines);
+        }
+    }
+
+    public String[] generateLines(int lines) {
+        String[] result = new String[lines];
+        Source source = new Source();
+        for (int i = 0; i < lines; i++) {
+            result[i] = source.next(i);
+        }
+        return result;
+    }
+
+    public void write(Writer writer, long lines) throws IOException {
+        Source source = new Source();
+        for (long i = 0; i < lines; i++) {
+            writer.write(source.next(i));
+            writer.write('\n');
+        }
+    }
+
+    /** One deterministic stream of lines for the current settings. */
+    private final class Source {
+        private final SplittableRandom random = new SplittableRandom(seed);
+        private final double[] hostCdf = zipfCdf(hostCount, skew);
+        private final double[] resourceCdf = zipfCdf(resourceCount, skew);
+        private final String[] hosts = new String[hostCount];
+        private final String[] resources = new String[resourceCount];
+        private final StringBuilder line = new StringBuilder(160);
+        private long cachedSecond = Long.MIN_VALUE;
+        private String cachedTimestamp;
+
+        Source() {
+            SplittableRandom names = new SplittableRandom(seed ^ 0x5DEECE66DL);
+            for (int i = 0; i < hostCount; i++) {
+                hosts[i] = names.nextInt(4) == 0
+                        ? (names.nextInt(1, 224) + "." + names.nextInt(256) + "." + names.nextInt(256) + "." + names.nextInt(1, 255))
+                        : "host" + i + "." + (names.nextBoolean() ? "example.com" : "net" + names.nextInt(100) + ".org");
+            }
+            for (int i = 0; i < resourceCount; i++) {
+                resources[i] = i < SPECIAL_RESOURCES.length && resourceCount > 100
+                        ? SPECIAL_RESOURCES[i]
+                        : DIRECTORIES[names.nextInt(DIRECTORIES.length)] + "item" + i
+                        + EXTENSIONS[names.nextInt(EXTENSIONS.length)];
+            }
+        }
+
+        String next(long index) {
+            if (random.nextDouble() < malformedRate) {
+                return "malformed line " + index;
+            }
+            String host = hosts[sample(hostCdf)];
+            String resource = resources[sample(resourceCdf)];
+            long second = startEpochSecond + index / Math.max(1, requestsPerSecond);
+
+            String method;
+            int methodRoll = random.nextInt(1000);
+            if (methodRoll < 940) method = "GET";
+            else if (methodRoll < 980) method = "POST";
+            else if (methodRoll < 995) method = "HEAD";
+            else method = methodRoll < 998 ? "PUT" : "DELETE";
+
+            int status;
+            if (random.nextDouble() < errorRate) {
+                int errorRoll = random.nextInt(10);
+                status = errorRoll < 6 ? 404 : errorRoll < 8 ? 403 : errorRoll < 9 ? 401 : 500;
+            } else {
+                status = random.nextInt(10) == 0 ? 304 : 200;
+            }
+            String bytes = status == 304 || status >= 400 && random.nextBoolean()
+                    ? "-"
+                    : Integer.toString(random.nextInt(100, 200_000));
+
+            line.setLength(0);
+            line.append(host).append(" - - [").append(timestamp(second)).append("] \"")
+                    .append(method).append(' ').append(resource).append(" HTTP/1.0\" ")
+                    .append(status).append(' ').append(bytes);
+            if (combined) {
+                String referrer = random.nextInt(3) == 0 ? "-" : "http://www.example.com" + resources[sample(resourceCdf)];
+                line.append(" \"").append(referrer).append("\" \"")
+                        .append(USER_AGENTS[random.nextInt(USER_AGENTS.length)]).append('"');
+            }
+            return line.toString();
+        }
+
+        private int sample(double[] cdf) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble());
+            return index >= 0 ? index : Math.min(-index - 1, cdf.length - 1);
+        }
+
+        private String timestamp(long second) {
+            if (second != cachedSecond) {
+                cachedSecond = second;
+                cachedTimestamp = TIMESTAMP.format(Instant.ofEpochSecond(second).atOffset(ZoneOffset.ofHours(-4)));
+            }
+            return cachedTimestamp;
+        }
+    }
+
+    private static double[] zipfCdf(int count, double exponent) {
+        double[] cdf = new double[count];
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < count; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SyntheticLogGenerator <output> [lines] [skew] [seed]");
+            System.exit(2);
+        }
+        long lines = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+        SyntheticLogGenerator generator = new SyntheticLogGenerator();
+        if (args.length > 2) generator.skew(Double.parseDouble(args[2]));
+        if (args.length > 3) generator.seed(Long.parseLong(args[3]));
+
+        long start = System.nanoTime();
+        generator.write(new File(args[0]), lines);
+        System.out.println("Wrote " + lines + " lines to " + args[0] + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,483 @@
+package com.webloganalyzer.cli;
+
+import com.webloganalyzer.model.LogFormat;
+import com.webloganalyzer.model.LogStore;
+import com.webloganalyzer.model.OffHeapLogStore;
+import com.webloganalyzer.service.AnalysisOptions;
+import com.webloganalyzer.service.BurstTimeline;
+import com.webloganalyzer.service.LogAnalysisService;
+import com.webloganalyzer.service.LogAnalysisService.Role;
+import com.webloganalyzer.service.LogProcessor;
+import com.webloganalyzer.service.MultiFileLogProcessor;
+import com.webloganalyzer.service.ParallelLogProcessor;
+import com.webloganalyzer.service.ParallelLogProcessor.InputMode;
+import com.webloganalyzer.service.ParsedLogCache;
+import com.webloganalyzer.service.RateRule;
+import com.webloganalyzer.service.SecurityAnalystAnalyzer;
+import com.webloganalyzer.service.SequentialLogProcessor;
+import com.webloganalyzer.service.SessionStats;
+import com.webloganalyzer.service.StreamingLogProcessor;
+import com.webloganalyzer.service.SystemAdminAnalyzer;
+import com.webloganalyzer.service.VirtualThreadLogProcessor;
+import com.webloganalyzer.service.WebDeveloperAnalyzer;
+import com.webloganalyzer.service.WorkerUtilization;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Headless batch mode: parses each log file, runs the selected role analyses over the parsed
+ * table and writes one JSON or CSV report, without loading any AWT or Swing classes. Every phase
+ * reports its wall time and throughput in lines/s and MB/s (of bytes on disk). Directories and
+ * {@code .gz} files are accepted, and {@code --merge} analyzes all inputs as one log.
+ *
+ * <p>The processors log progress to standard output; in batch mode that goes to standard error
+ * so the report on standard output stays machine-readable.
+ */
+public class BatchAnalyzer {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: App [options] <log file or directory>...",
+            "  --processor sequential|parallel|mapped|streaming|virtual",
+            "                                                     how to parse (default: mapped)",
+            "  --threads N                                        worker threads (default: all cores)",
+            "  --role sysadmin|webdev|security|all                analyses to run (default: all)",
+            "  --log-format common|combined|FORMAT                Apache or nginx layout of the logs (default: common)",
+            "  --format json|csv                                  report format (default: json)",
+            "  --output FILE                                      write the report to FILE instead of stdout",
+            "  --merge                                            analyze all inputs together as one log",
+            "  --cache DIR                                        reuse parsed snapshots kept in DIR",
+            "  --off-heap MB                                      keep parsed rows outside the heap, spilling to disk",
+            "                                                     beyond MB of direct memory (for logs larger than -Xmx)",
+            "  --spill-dir DIR                                    where --off-heap spills (default: temporary directory)",
+            "  --approximate-topk                                 Space-Saving top-K with bounded memory",
+            "  --approximate-distinct                             HyperLogLog unique counts",
+            "  --rate-rule WINDOW:REQUESTS[:FAILED_LOGINS]        per-IP burst limit such as 10m:300:20, repeatable",
+            "                                                     (default: " + RateRule.DEFAULTS.stream()
+                    .map(RateRule::toString).collect(Collectors.joining(" and ")) + ")",
+            "  --session-gap WINDOW                               idle time that ends a visitor session, such as 30m",
+            "                                                     (default: 30m)");
+
+    private String processorName = "mapped";
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private final Set<Role> roles = EnumSet.noneOf(Role.class);
+    private LogFormat logFormat = LogFormat.COMMON;
+    private String format = "json";
+    private File outputFile;
+    private File cacheDir;
+    private long offHeapBudget = -1;  // bytes; -1 keeps rows on the heap
+    private File spillDir;
+    private boolean merge;
+    private AnalysisOptions options = AnalysisOptions.EXACT;
+    private final List<RateRule> rateRules = new ArrayList<>();
+    private final List<File> logFiles = new ArrayList<>();
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /** Runs a batch and returns the process exit code. */
+    public static int run(String[] args) {
+        PrintStream report = System.out;
+        if (List.of(args).contains("--help")) {
+            report.println(USAGE);
+            return EXIT_OK;
+        }
+        BatchAnalyzer batch = new BatchAnalyzer();
+        try {
+            batch.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        System.setOut(System.err);
+        try {
+            return batch.execute(report);
+        } finally {
+            System.setOut(report);
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                logFiles.add(new File(arg));
+                continue;
+            }
+            switch (arg) {
+                case "--approximate-topk" -> options = options.withApproximateTopK(true);
+                case "--approximate-distinct" -> options = options.withApproximateDistinct(true);
+                case "--merge" -> merge = true;
+                default -> {
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    String value = args[++i];
+                    switch (arg) {
+                        case "--processor" -> processorName = value.toLowerCase(Locale.ROOT);
+                        case "--threads" -> threads = parsePositive(arg, value);
+                        case "--role" -> roles.addAll(parseRoles(value));
+                        case "--log-format" -> logFormat = LogFormat.of(value);
+                        case "--format" -> format = value.toLowerCase(Locale.ROOT);
+                        case "--output" -> outputFile = new File(value);
+                        case "--cache" -> cacheDir = new File(value);
+                        case "--off-heap" -> offHeapBudget = parseNonNegative(arg, value) * (1L << 20);
+                        case "--spill-dir" -> spillDir = new File(value);
+                        case "--rate-rule" -> rateRules.add(RateRule.parse(value));
+                        case "--session-gap" -> options = options.withSessionGap(RateRule.parseWindow(value));
+                        default -> throw new IllegalArgumentException("Unknown option " + arg);
+                    }
+                }
+            }
+        }
+        if (logFiles.isEmpty()) {
+            throw new IllegalArgumentException("No log files given");
+        }
+        if (!format.equals("json") && !format.equals("csv")) {
+            throw new IllegalArgumentException("Unknown format " + format);
+        }
+        newProcessor();  // validates --processor
+        if (offHeapBudget >= 0 && cacheDir != null) {
+            throw new IllegalArgumentException("--off-heap and --cache cannot be combined");
+        }
+        if (spillDir != null && offHeapBudget < 0) {
+            throw new IllegalArgumentException("--spill-dir needs --off-heap");
+        }
+        if (!rateRules.isEmpty()) {
+            options = options.withRateRules(rateRules);
+        }
+        if (roles.isEmpty()) {
+            roles.addAll(EnumSet.allOf(Role.class));
+        }
+    }
+
+    private static int parsePositive(String option, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException(option + " needs a positive number, got " + value);
+    }
+
+    private static long parseNonNegative(String option, String value) {
+        try {
+            long number = Long.parseLong(value);
+            if (number >= 0) {
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException(option + " needs a number of at least 0, got " + value);
+    }
+
+    private static Set<Role> parseRoles(String value) {
+        Set<Role> parsed = EnumSet.noneOf(Role.class);
+        for (String name : value.split(",")) {
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "sysadmin", "admin", "system_administrator" -> parsed.add(Role.SYSTEM_ADMINISTRATOR);
+                case "webdev", "developer", "web_developer" -> parsed.add(Role.WEB_DEVELOPER);
+                case "security", "analyst", "security_analyst" -> parsed.add(Role.SECURITY_ANALYST);
+                case "all" -> parsed.addAll(EnumSet.allOf(Role.class));
+                default -> throw new IllegalArgumentException("Unknown role " + name);
+            }
+        }
+        return parsed;
+    }
+
+    private LogProcessor newProcessor() {
+        return switch (processorName) {
+            case "sequential" -> new SequentialLogProcessor(logFormat);
+            case "parallel" -> new ParallelLogProcessor(threads, InputMode.READ_ALL_LINES, logFormat);
+            case "mapped" -> new ParallelLogProcessor(threads, InputMode.MEMORY_MAPPED, logFormat);
+            case "streaming" -> new StreamingLogProcessor(threads, StreamingLogProcessor.DEFAULT_BATCH_SIZE,
+                    StreamingLogProcessor.DEFAULT_QUEUE_DEPTH, logFormat);
+            case "virtual" -> new VirtualThreadLogProcessor(threads, logFormat);
+            default -> throw new IllegalArgumentException("Unknown processor " + processorName);
+        };
+    }
+
+    private int execute(PrintStream stdout) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", Instant.now().toString());
+        report.put("processor", processorName);
+        report.put("threads", threads);
+        report.put("logFormat", logFormat.toString());
+        report.put("offHeapBudgetMb", offHeapBudget < 0 ? null : offHeapBudget >> 20);
+        report.put("approximateTopK", options.isApproximateTopK());
+        report.put("approximateDistinct", options.isApproximateDistinct());
+        report.put("rateRules", options.getRateRules().stream().map(RateRule::toString).toList());
+        report.put("sessionGapSeconds", options.getSessionGap().getSeconds());
+
+        List<Object> fileReports = new ArrayList<>();
+        boolean failed = false;
+        List<List<File>> inputs = merge ? List.of(logFiles) : logFiles.stream().map(List::of).toList();
+        for (List<File> input : inputs) {
+            try {
+                fileReports.add(analyze(input));
+            } catch (Exception e) {
+                failed = true;
+                System.err.println("Error: analysis of " + label(input) + " failed: " + e);
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("file", label(input));
+                error.put("error", String.valueOf(e.getMessage()));
+                fileReports.add(error);
+            }
+        }
+        report.put("files", fileReports);
+
+        try {
+            if (outputFile != null) {
+                try (PrintStream out = new PrintStream(new FileOutputStream(outputFile), false, StandardCharsets.UTF_8)) {
+                    write(report, out);
+                }
+                System.err.println("Report written to: " + outputFile.getAbsolutePath());
+            } else {
+                write(report, stdout);
+                stdout.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Error: could not write report: " + e.getMessage());
+            return EXIT_FAILED;
+        }
+        return failed ? EXIT_FAILED : EXIT_OK;
+    }
+
+    private void write(Map<String, Object> report, PrintStream out) {
+        if (format.equals("csv")) {
+            ReportWriter.writeCsv(report, out);
+        } else {
+            ReportWriter.writeJson(report, out);
+        }
+    }
+
+    /**
+     * Parses one input into a table and runs the roles over it. A single plain file goes through
+     * the chosen processor (and the cache, if any); directories, gzip files and merged inputs go
+     * through {@link MultiFileLogProcessor}, which spreads the files over all threads, unless the
+     * virtual-thread processor was chosen, which reads every source on its own thread. With
+     * {@code --off-heap} the rows go into an {@link OffHeapLogStore} instead, which is closed, and
+     * its spill file deleted, once the roles have run.
+     */
+    private Map<String, Object> analyze(List<File> input) throws Exception {
+        List<File> files = MultiFileLogProcessor.expand(input);
+        long fileBytes = 0;
+        for (File file : files) {
+            fileBytes += file.length();
+        }
+        Map<String, Object> fileReport = new LinkedHashMap<>();
+        fileReport.put("file", label(input));
+        if (files.size() != 1 || !files.get(0).equals(input.get(0))) {
+            fileReport.put("files", files.stream().map(File::getPath).toList());
+        }
+        fileReport.put("bytes", fileBytes);
+
+        boolean singlePlainFile = input.size() == 1 && input.get(0).isFile() && !input.get(0).getName().endsWith(".gz");
+        boolean cached = cacheDir != null && input.size() == 1 && input.get(0).isFile();
+        LogProcessor processor = singlePlainFile || processorName.equals("virtual")
+                ? newProcessor() : new MultiFileLogProcessor(threads, logFormat);
+
+        try (OffHeapLogStore store = offHeapBudget < 0 ? null : new OffHeapLogStore(offHeapBudget, spillDir)) {
+            long start = System.nanoTime();
+            LogStore table = store != null ? parseInto(store, files, processor) : parse(input, files, processor, cached);
+            long parseNanos = System.nanoTime() - start;
+            fileReport.put("lines", table.size());
+            if (store != null) {
+                fileReport.put("directBytes", store.getDirectBytes());
+                fileReport.put("spilledBytes", store.getSpilledBytes());
+            }
+            analyzeRoles(table, fileReport, processor, fileBytes, parseNanos, cached);
+        }
+        return fileReport;
+    }
+
+    private LogStore parse(List<File> input, List<File> files, LogProcessor processor, boolean cached) throws Exception {
+        if (cached) {
+            return new ParsedLogCache(snapshotDir()).loadOrParse(input.get(0), processor);
+        } else if (processor instanceof MultiFileLogProcessor multiFile) {
+            return multiFile.processToTable(files);
+        } else if (processor instanceof VirtualThreadLogProcessor virtual) {
+            return virtual.processToTable(files);
+        }
+        return processor.processToTable(input.get(0));
+    }
+
+    /**
+     * Fills {@code store} in file order. The virtual-thread processor keeps every source's rows
+     * until all are read, so several inputs go through {@link MultiFileLogProcessor} instead.
+     */
+    private LogStore parseInto(OffHeapLogStore store, List<File> files, LogProcessor processor)
+            throws Exception {
+        if (processor instanceof MultiFileLogProcessor multiFile) {
+            multiFile.processInto(files, store);
+        } else if (processor instanceof VirtualThreadLogProcessor && files.size() > 1) {
+            new MultiFileLogProcessor(threads, logFormat).processInto(files, store);
+        } else {
+            processor.processInto(files.get(0), store);
+        }
+        System.out.println("Stored " + store);
+        return store;
+    }
+
+    private void analyzeRoles(LogStore table, Map<String, Object> fileReport, LogProcessor processor, long fileBytes,
+                              long parseNanos, boolean cached) {
+        Map<String, Object> phases = new LinkedHashMap<>();
+        Map<String, Object> parsePhase = phase(table.size(), fileBytes, parseNanos);
+        if (processor instanceof ParallelLogProcessor parallel && parallel.getLastUtilization() != null) {
+            WorkerUtilization utilization = parallel.getLastUtilization();
+            Map<String, Object> workers = new LinkedHashMap<>();
+            workers.put("tasks", utilization.getTaskCount());
+            workers.put("steals", utilization.getStealCount());
+            workers.put("meanUtilization", utilization.getMeanUtilization());
+            workers.put("minUtilization", utilization.getMinUtilization());
+            workers.put("maxUtilization", utilization.getMaxUtilization());
+            parsePhase.put("workers", workers);
+        }
+        phases.put(cached ? "load" : "parse", parsePhase);
+
+        LogAnalysisService service = new LogAnalysisService(threads, options);
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (Role role : roles) {
+            long start = System.nanoTime();
+            Object result = service.analyze(table, role);
+            phases.put("analyze " + role.name(), phase(table.size(), fileBytes, System.nanoTime() - start));
+            results.put(role.name(), describe(result));
+        }
+        fileReport.put("phases", phases);
+        fileReport.put("roles", results);
+    }
+
+    /**
+     * Snapshots do not record the format they were parsed with, so each format other than the
+     * default one keeps its own subdirectory of the cache.
+     */
+    private File snapshotDir() {
+        if (logFormat.equals(LogFormat.COMMON)) {
+            return cacheDir;
+        }
+        return new File(cacheDir, String.format("format-%08x", logFormat.getPattern().hashCode()));
+    }
+
+    private static String label(List<File> input) {
+        return input.stream().map(File::getPath).collect(Collectors.joining(","));
+    }
+
+    private static Map<String, Object> phase(long lines, long fileBytes, long nanos) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        Map<String, Object> phase = new LinkedHashMap<>();
+        phase.put("millis", nanos / 1e6);
+        phase.put("linesPerSecond", lines / seconds);
+        phase.put("mbPerSecond", fileBytes / 1e6 / seconds);
+        return phase;
+    }
+
+    private static Map<String, Object> describe(Object result) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        if (result instanceof SystemAdminAnalyzer.Result admin) {
+            fields.put("totalRequests", admin.getTotalRequests());
+            fields.put("uniqueIps", admin.getUniqueIps());
+            fields.put("uniqueIpsApproximate", admin.isUniqueIpsApproximate());
+            fields.put("serverErrors", admin.getServerErrors());
+            fields.put("failedLogins", admin.getFailedLogins());
+            fields.put("suspiciousIps", admin.getSuspiciousIps());
+            fields.put("bursts", describe(admin.getBursts()));
+            fields.put("droppedBursts", admin.getBursts().getDroppedCount());
+            fields.put("topIps", toMap(admin.getTopIps()));
+            fields.put("approximate", admin.isApproximate());
+            fields.put("maxCountError", admin.getMaxCountError());
+        } else if (result instanceof WebDeveloperAnalyzer.Result developer) {
+            fields.put("totalRequests", developer.getTotalRequests());
+            fields.put("uniqueResources", developer.getUniqueResources());
+            fields.put("uniqueResourcesApproximate", developer.isUniqueResourcesApproximate());
+            fields.put("methodCounts", developer.getMethodCounts());
+            fields.put("topUrls", toMap(developer.getTopUrls()));
+            fields.put("errorsPerResource", developer.getErrorsPerResource());
+            fields.put("approximate", developer.isApproximate());
+            fields.put("maxCountError", developer.getMaxCountError());
+            fields.put("maxErrorCountError", developer.getMaxErrorCountError());
+            if (developer.getSessions() != null) {
+                fields.put("sessions", describe(developer.getSessions()));
+            }
+        } else if (result instanceof SecurityAnalystAnalyzer.Result security) {
+            fields.put("totalRequests", security.getTotalRequests());
+            fields.put("sensitiveEndpoints", security.getSensitiveEndpoints());
+            fields.put("suspiciousMethods", security.getSuspiciousMethods());
+        } else {
+            fields.put("result", String.valueOf(result));
+        }
+        return fields;
+    }
+
+    private static Map<String, Object> describe(SessionStats sessions) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("sessions", sessions.getSessionCount());
+        fields.put("pageViews", sessions.getPageViews());
+        fields.put("bounceRate", sessions.getBounceRate());
+        fields.put("meanDurationSeconds", sessions.getMeanDurationSeconds());
+        fields.put("medianDurationSeconds", sessions.getMedianDurationSeconds());
+        fields.put("p90DurationSeconds", sessions.getP90DurationSeconds());
+        fields.put("maxDurationSeconds", sessions.getMaxDurationSeconds());
+        fields.put("meanPagesPerSession", sessions.getMeanPagesPerSession());
+        fields.put("medianPagesPerSession", sessions.getMedianPagesPerSession());
+        fields.put("p90PagesPerSession", sessions.getP90PagesPerSession());
+        List<Object> exitPages = new ArrayList<>();
+        for (SessionStats.ExitPage page : sessions.getTopExitPages()) {
+            Map<String, Object> exit = new LinkedHashMap<>();
+            exit.put("url", page.url());
+            exit.put("exits", page.exits());
+            exit.put("views", page.views());
+            exit.put("exitRate", page.exitRate());
+            exitPages.add(exit);
+        }
+        fields.put("topExitPages", exitPages);
+        return fields;
+    }
+
+    private static List<Object> describe(BurstTimeline timeline) {
+        List<Object> bursts = new ArrayList<>();
+        for (BurstTimeline.Burst burst : timeline.getBursts()) {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("start", burst.start().toString());
+            fields.put("end", burst.end().toString());
+            fields.put("ip", burst.ip());
+            fields.put("kind", burst.kind().name());
+            fields.put("window", burst.rule().windowLabel());
+            fields.put("limit", burst.limit());
+            fields.put("peak", burst.peak());
+            fields.put("ongoing", burst.ongoing());
+            bursts.add(fields);
+        }
+        return bursts;
+    }
+
+    private static Map<String, Integer> toMap(List<Map.Entry<String, Integer>> entries) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            map.put(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+}
@@ -0,0 +1,127 @@
+package com.webloganalyzer.cli;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes batch reports. A report is a tree of {@link Map}s (written in iteration order),
+ * {@link List}s, strings, numbers and booleans; JSON keeps the tree, CSV flattens it into one
+ * {@code path,value} row per leaf, e.g. {@code files.0.roles.WEB_DEVELOPER.methodCounts.GET,1234}.
+ */
+final class ReportWriter {
+
+    private ReportWriter() {
+    }
+
+    static void writeJson(Object report, PrintStream out) {
+        StringBuilder json = new StringBuilder(4096);
+        appendJson(json, report, 0);
+        out.println(json);
+    }
+
+    static void writeCsv(Object report, PrintStream out) {
+        out.println("path,value");
+        appendCsv(out, "", report);
+    }
+
+    private static void appendJson(StringBuilder json, Object value, int depth) {
+        if (value instanceof Map<?, ?> map) {
+            if (map.isEmpty()) {
+                json.append("{}");
+                return;
+            }
+            json.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                json.append(first ? "\n" : ",\n");
+                indent(json, depth + 1);
+                appendString(json, String.valueOf(entry.getKey()));
+                json.append(": ");
+                appendJson(json, entry.getValue(), depth + 1);
+                first = false;
+            }
+            json.append('\n');
+            indent(json, depth);
+            json.append('}');
+        } else if (value instanceof List<?> list) {
+            if (list.isEmpty()) {
+                json.append("[]");
+                return;
+            }
+            json.append('[');
+            boolean first = true;
+            for (Object element : list) {
+                json.append(first ? "\n" : ",\n");
+                indent(json, depth + 1);
+                appendJson(json, element, depth + 1);
+                first = false;
+            }
+            json.append('\n');
+            indent(json, depth);
+            json.append(']');
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            json.append(Double.isFinite(number) ? String.format(Locale.ROOT, "%.3f", number) : "null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else if (value == null) {
+            json.append("null");
+        } else {
+            appendString(json, value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    private static void indent(StringBuilder json, int depth) {
+        json.append("  ".repeat(depth));
+    }
+
+    private static void appendCsv(PrintStream out, String path, Object value) {
+        if (value instanceof Map<?, ?> map) {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                appendCsv(out, child(path, String.valueOf(entry.getKey())), entry.getValue());
+            }
+        } else if (value instanceof List<?> list) {
+            for (int i = 0; i < list.size(); i++) {
+                appendCsv(out, child(path, Integer.toString(i)), list.get(i));
+            }
+        } else {
+            String text = value instanceof Double number ? String.format(Locale.ROOT, "%.3f", number) : String.valueOf(value);
+            out.println(csvField(path) + "," + csvField(text));
+        }
+    }
+
+    private static String child(String path, String key) {
+        return path.isEmpty() ? key : path + "." + key;
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,186 @@
+package com.webloganalyzer.gui;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.JTableHeader;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A paged, sortable table over one of the analyzers' aggregates (a key-to-count map or a list of
+ * keys), for results too large to print line by line. The aggregate is copied once into parallel
+ * arrays; the table model only ever exposes the current page of {@link #PAGE_SIZE} rows, and
+ * {@link JTable} only paints the rows in view, so the cost of showing a result does not grow with
+ * the number of distinct resources or IPs.
+ *
+ * <p>Clicking a column header sorts the whole aggregate, not just the page, and goes back to the
+ * first page; clicking it again reverses the order.
+ */
+final class AggregateTable extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int PAGE_SIZE = 200;
+    private static final int VISIBLE_ROWS = 10;
+
+    private final String[] headers;
+    private final String[] keys;
+    private final int[] counts;  // null for a plain list of keys
+    private final int[] order;  // row i of the sorted aggregate is keys[order[i]]
+    private final PageModel model = new PageModel();
+    private final JTable table;
+    private final JLabel pageLabel = new JLabel();
+    private final JButton previousButton = new JButton("< Prev");
+    private final JButton nextButton = new JButton("Next >");
+    private int page;
+    private int sortColumn = -1;
+    private boolean descending;
+
+    /** Keys with their counts, largest count first. */
+    static AggregateTable ofCounts(String keyHeader, String countHeader, Map<String, Integer> aggregate) {
+        String[] keys = new String[aggregate.size()];
+        int[] counts = new int[aggregate.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : aggregate.entrySet()) {
+            keys[i] = entry.getKey();
+            counts[i++] = entry.getValue();
+        }
+        AggregateTable table = new AggregateTable(new String[]{keyHeader, countHeader}, keys, counts);
+        table.sortBy(1, true);
+        return table;
+    }
+
+    /** Keys in the order given. */
+    static AggregateTable ofKeys(String header, List<String> aggregate) {
+        AggregateTable table = new AggregateTable(new String[]{header}, aggregate.toArray(new String[0]), null);
+        table.showPage(0);
+        return table;
+    }
+
+    private AggregateTable(String[] headers, String[] keys, int[] counts) {
+        super(new BorderLayout());
+        this.headers = headers;
+        this.keys = keys;
+        this.counts = counts;
+        this.order = new int[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        table = new JTable(model);  // after the arrays, which the model reads straight away
+        table.setAutoCreateRowSorter(false);
+        table.setFillsViewportHeight(true);
+        table.setPreferredScrollableViewportSize(new Dimension(520,
+                table.getRowHeight() * Math.max(1, Math.min(VISIBLE_ROWS, keys.length))));
+        if (counts != null) {
+            table.getColumnModel().getColumn(1).setMaxWidth(120);
+        }
+        JTableHeader header = table.getTableHeader();
+        header.setReorderingAllowed(false);
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = header.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    // Counts read best largest first, keys alphabetically.
+                    sortBy(column, column == sortColumn ? !descending : column == 1);
+                }
+            }
+        });
+
+        previousButton.addActionListener(e -> showPage(page - 1));
+        nextButton.addActionListener(e -> showPage(page + 1));
+        JPanel pager = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        pager.setOpaque(false);
+        pager.add(previousButton);
+        pager.add(nextButton);
+        pager.add(pageLabel);
+
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(pager, BorderLayout.SOUTH);
+        setMaximumSize(getPreferredSize());
+    }
+
+    private void sortBy(int column, boolean descending) {
+        if (column == 0) {
+            Integer[] boxed = new Integer[order.length];
+            for (int i = 0; i < boxed.length; i++) {
+                boxed[i] = i;
+            }
+            Comparator<Integer> byKey = Comparator.comparing(i -> keys[i]);
+            Arrays.sort(boxed, descending ? byKey.reversed() : byKey);
+            for (int i = 0; i < boxed.length; i++) {
+                order[i] = boxed[i];
+            }
+        } else {
+            // Counts are non-negative ints: sort (count, index) pairs packed into primitive longs.
+            long[] packed = new long[order.length];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = (long) counts[i] << 32 | i;
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < packed.length; i++) {
+                order[descending ? packed.length - 1 - i : i] = (int) packed[i];
+            }
+        }
+        this.sortColumn = column;
+        this.descending = descending;
+        for (int c = 0; c < headers.length; c++) {
+            table.getColumnModel().getColumn(c).setHeaderValue(model.getColumnName(c));
+        }
+        table.getTableHeader().repaint();
+        showPage(0);
+    }
+
+    private void showPage(int newPage) {
+        int pages = Math.max(1, (keys.length + PAGE_SIZE - 1) / PAGE_SIZE);
+        page = Math.max(0, Math.min(pages - 1, newPage));
+        int first = page * PAGE_SIZE;
+        int last = Math.min(keys.length, first + PAGE_SIZE);
+        pageLabel.setText(keys.length == 0
+                ? "No rows"
+                : String.format("Rows %,d-%,d of %,d", first + 1, last, keys.length));
+        previousButton.setEnabled(page > 0);
+        nextButton.setEnabled(page < pages - 1);
+        model.fireTableDataChanged();
+    }
+
+    /** The rows of the current page. */
+    private final class PageModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int getRowCount() {
+            return Math.max(0, Math.min(PAGE_SIZE, keys.length - page * PAGE_SIZE));
+        }
+
+        @Override
+        public int getColumnCount() {
+            return headers.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            if (column != sortColumn) {
+                return headers[column];
+            }
+            return headers[column] + (descending ? " ▼" : " ▲");
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 0 ? String.class : Integer.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            int index = order[page * PAGE_SIZE + row];
+            return column == 0 ? keys[index] : (Object) counts[index];
+        }
+    }
+}
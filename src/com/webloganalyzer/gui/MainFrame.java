@@ -1,6 +1,6 @@
 package com.webloganalyzer.gui;
 
-import com.webloganalyzer.model.LogEntry;
+import com.webloganalyzer.model.LogTable;
 import com.webloganalyzer.service.*;
 import com.webloganalyzer.SpeedupCSVWriter;
 
@@ -15,30 +15,66 @@ import java.util.List;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
+import org.jfree.chart.renderer.category.StatisticalLineAndShapeRenderer;
 import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.statistics.DefaultStatisticalCategoryDataset;
 
 public class MainFrame extends JFrame {
+    private static final int[] THREAD_COUNTS = {4, 8, 12, 16};
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+    // Each pane has at most one run going; a newer run in the same slot cancels the older one.
+    private static final String SEQUENTIAL_RUN = "sequential";
+    private static final String PARALLEL_RUN = "parallel";
 
     private JTextPane sequentialTextPane;
     private JTabbedPane parallelTabs;
     private JButton loadButton;
     private JButton showChartButton;
+    private JButton measureSpeedupButton;
+    private JButton metricsButton;
+    private JButton cancelButton;
+    private JProgressBar progressBar;
+    private JDialog metricsDialog;
+    private JButton followButton;
     private JComboBox<String> roleComboBox;
+    private JCheckBox approximateTopKCheckBox;
+    private JCheckBox approximateDistinctCheckBox;
     private JLabel roleIconLabel;
     private JPanel topPanel;
 
-    private long sequentialTimeMs = 0;
     private File loadedFile;
+    private volatile AnalysisSessionCache.Session session;  // loadedFile's parsed table, once available
+    private volatile TimeRollupIndex rollups;  // built alongside the session
+    private JButton timeRangeButton;
+    private JCheckBox useCacheCheckBox;
+    private final ParsedLogCache parseCache = new ParsedLogCache(new File("results", "cache"));
 
     private final Map<Integer, JTextPane> parallelPanes = new HashMap<>();
     private final Map<Integer, Boolean> parallelRunStatus = new HashMap<>();
     private final Map<Integer, Double> threadSpeedups = new HashMap<>();
+    private final AnalysisSessionCache sessions = new AnalysisSessionCache();
+    // Timings of loadedFile per role and options; the session holds the results themselves.
+    private final Map<ViewKey, SequentialRun> sequentialRuns = new ConcurrentHashMap<>();
+    private final Map<ViewKey, Map<Integer, ParallelRun>> parallelRuns = new ConcurrentHashMap<>();
+    private final Map<String, SwingWorker<?, ?>> activeRuns = new HashMap<>();  // touched on the EDT only
+
+    private record ViewKey(LogAnalysisService.Role role, AnalysisOptions options) {
+    }
+
+    /** A timed sequential run; {@code overTable} when it analyzed the parsed table rather than the file. */
+    private record SequentialRun(long millis, boolean overTable) {
+    }
+
+    private record ParallelRun(Object result, long millis, double speedup, boolean overTable) {
+    }
 
     public MainFrame() {
         super("Web Log Analyzer");
@@ -54,6 +90,12 @@ public class MainFrame extends JFrame {
         loadButton = new JButton("Load Log File");
         loadButton.addActionListener(e -> loadLogFile());
 
+        timeRangeButton = new JButton("Time Range...");
+        timeRangeButton.addActionListener(e -> showTimeRangeDialog());
+
+        followButton = new JButton("Follow Live Log");
+        followButton.addActionListener(e -> followLogFile());
+
         showChartButton = new JButton("Show Speed-Up Chart");
         showChartButton.addActionListener(e -> {
             File dir = new File("results");
@@ -70,8 +112,9 @@ public class MainFrame extends JFrame {
                 dataset.addValue(threadSpeedups.get(threads), "Speedup", threads);
             }
 
+            SequentialRun basis = sequentialRuns.get(selectedView());
             JFreeChart chart = ChartFactory.createLineChart(
-                    "Thread Speedup",
+                    basis != null && basis.overTable() ? "Thread Speedup (analysis only)" : "Thread Speedup",
                     "Threads",
                     "Speedup",
                     dataset
@@ -87,12 +130,46 @@ public class MainFrame extends JFrame {
             dialog.setVisible(true);
         });
 
+        measureSpeedupButton = new JButton("Measure Speed-Up...");
+        measureSpeedupButton.setToolTipText("Repeat the full analysis at each thread count and chart medians with error bars");
+        measureSpeedupButton.addActionListener(e -> measureSpeedup());
+
+        metricsButton = new JButton("Metrics");
+        metricsButton.setToolTipText("Live parser counters: per-worker load, chunk latency, queue waits, allocation and GC");
+        metricsButton.addActionListener(e -> showMetricsDialog());
+
+        cancelButton = new JButton("Cancel");
+        cancelButton.setToolTipText("Stop the analyses still running");
+        cancelButton.addActionListener(e -> {
+            cancelRun(SEQUENTIAL_RUN);
+            cancelRun(PARALLEL_RUN);
+        });
+
+        progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
+
         roleComboBox = new JComboBox<>(new String[]{
                 "System Administrator",
                 "Web Developer",
                 "Security Analyst"
         });
-        roleComboBox.addActionListener(e -> updateStyleForRole());
+        roleComboBox.addActionListener(e -> {
+            updateStyleForRole();
+            showSelectedRole();
+        });
+
+        approximateTopKCheckBox = new JCheckBox("Approximate top-K");
+        approximateTopKCheckBox.setOpaque(false);
+        approximateTopKCheckBox.setToolTipText("Track top IPs/URLs with fixed-size heavy-hitter summaries instead of exact counts");
+        approximateDistinctCheckBox = new JCheckBox("Approximate unique counts");
+        approximateDistinctCheckBox.setOpaque(false);
+        approximateDistinctCheckBox.setToolTipText("Estimate unique IPs/resources with HyperLogLog instead of exact sets");
+
+        // Off by default: with the cache on, the timed runs analyze an already parsed table.
+        useCacheCheckBox = new JCheckBox("Use parse cache", false);
+        useCacheCheckBox.setOpaque(false);
+        useCacheCheckBox.setToolTipText("Keep a binary snapshot of each parsed log and reuse it instead of re-parsing;"
+                + " the timings then cover analysis only");
 
         roleIconLabel = new JLabel();
 
@@ -101,14 +178,28 @@ public class MainFrame extends JFrame {
         topPanel.add(roleIconLabel);
         topPanel.add(new JLabel("Select Role: "));
         topPanel.add(roleComboBox);
+        topPanel.add(approximateTopKCheckBox);
+        topPanel.add(approximateDistinctCheckBox);
+        topPanel.add(useCacheCheckBox);
         topPanel.add(loadButton);
+        topPanel.add(followButton);
+        topPanel.add(timeRangeButton);
         topPanel.add(showChartButton);
+        topPanel.add(measureSpeedupButton);
+        topPanel.add(metricsButton);
+
+        JPanel statusPanel = new JPanel(new BorderLayout(10, 0));
+        statusPanel.setBorder(new EmptyBorder(5, 10, 5, 10));
+        statusPanel.add(progressBar, BorderLayout.CENTER);
+        statusPanel.add(cancelButton, BorderLayout.EAST);
 
         this.setLayout(new BorderLayout());
         this.add(topPanel, BorderLayout.NORTH);
         this.add(splitPane, BorderLayout.CENTER);
+        this.add(statusPanel, BorderLayout.SOUTH);
 
         updateStyleForRole();
+        updateRunControls();
 
         this.setSize(1200, 700);
         this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -174,8 +265,16 @@ public class MainFrame extends JFrame {
         }
         loadButton.setBackground(fgColor);
         loadButton.setForeground(bgColor);
+        followButton.setBackground(fgColor);
+        followButton.setForeground(bgColor);
+        timeRangeButton.setBackground(fgColor);
+        timeRangeButton.setForeground(bgColor);
         showChartButton.setBackground(fgColor);
         showChartButton.setForeground(bgColor);
+        measureSpeedupButton.setBackground(fgColor);
+        measureSpeedupButton.setForeground(bgColor);
+        metricsButton.setBackground(fgColor);
+        metricsButton.setForeground(bgColor);
         roleComboBox.setBackground(fgColor);
         roleComboBox.setForeground(bgColor);
 
@@ -190,30 +289,90 @@ public class MainFrame extends JFrame {
         }
     }
 
+    /** Directories of rotated logs and gzip archives go through the multi-file processor. */
+    private static boolean isMultiFile(File file) {
+        return file.isDirectory() || file.getName().endsWith(".gz");
+    }
+
+    private static LogProcessor processorFor(File file, int threads) {
+        return isMultiFile(file)
+                ? new MultiFileLogProcessor(threads)
+                : new ParallelLogProcessor(threads, ParallelLogProcessor.InputMode.MEMORY_MAPPED);
+    }
+
     private void loadLogFile() {
         JFileChooser chooser = new JFileChooser();
-        chooser.setFileFilter(new FileNameExtensionFilter("Log files", "log", "txt"));
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        chooser.setFileFilter(new FileNameExtensionFilter("Log files and archives", "log", "txt", "gz"));
         int ret = chooser.showOpenDialog(this);
         if (ret == JFileChooser.APPROVE_OPTION) {
+            cancelRun(SEQUENTIAL_RUN);
+            cancelRun(PARALLEL_RUN);
             loadedFile = chooser.getSelectedFile();
+            session = null;
+            rollups = null;
 
             sequentialTextPane.setText("");
             parallelTabs.removeAll();
             parallelPanes.clear();
             parallelRunStatus.clear();
             threadSpeedups.clear();
+            sequentialRuns.clear();
+            parallelRuns.clear();
 
             processSequentialAndPrepareTabs(loadedFile);
         }
     }
 
+    private void followLogFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Log files", "log", "txt"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        LogAnalysisService.Role role = selectedRole();
+
+        JTextPane livePane = createStyledPane();
+        appendToPane(livePane, "Waiting for lines...", false, Color.GRAY, 14);
+        JDialog dialog = new JDialog(this, "Live: " + file.getName() + " (" + role + ")", false);
+        dialog.getContentPane().add(new JScrollPane(livePane));
+        dialog.setSize(700, 600);
+        dialog.setLocationRelativeTo(this);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+
+        // The offset checkpoint lets a later session pick up where this one stopped.
+        File checkpoint = new File("results", file.getName() + "." + role.name().toLowerCase() + ".checkpoint");
+        LogTailer<?> tailer = startTailer(file, role.newAnalyzer(selectedOptions()), checkpoint, livePane);
+        dialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                try {
+                    tailer.close();
+                } catch (IOException ex) {
+                    System.err.println("Could not close tailer: " + ex.getMessage());
+                }
+            }
+        });
+        dialog.setVisible(true);
+    }
+
+    private <R> LogTailer<R> startTailer(File file, LogAnalyzer<R> analyzer, File checkpoint, JTextPane livePane) {
+        LogTailer<R> tailer = new LogTailer<>(file, analyzer, checkpoint, LogTailer.DEFAULT_POLL_MILLIS,
+                (result, stats) -> SwingUtilities.invokeLater(() -> {
+                    livePane.setText("");
+                    appendToPane(livePane, "--- LIVE: " + file.getName() + " ---", true, Color.BLUE, 16);
+                    appendToPane(livePane, stats.toString(), false, Color.GRAY, 12);
+                    displayResult(result, livePane);
+                }));
+        tailer.start();
+        return tailer;
+    }
+
     private void processSequentialAndPrepareTabs(File file) {
         parallelTabs.addTab("Select threads", new JPanel());
         parallelPanes.put(-1, null);
         parallelRunStatus.put(-1, true);
 
-        int[] threadCounts = {4, 8, 12, 16};
-        for (int threads : threadCounts) {
+        for (int threads : THREAD_COUNTS) {
             JTextPane parallelTextPane = createStyledPane();
             JScrollPane scrollPane = new JScrollPane(parallelTextPane);
             parallelTabs.addTab(threads + " threads", scrollPane);
@@ -224,18 +383,379 @@ public class MainFrame extends JFrame {
 
         parallelTabs.setSelectedIndex(0);
 
+        LogAnalysisService.Role role = selectedRole();
+        AnalysisOptions options = selectedOptions();
+        ViewKey view = new ViewKey(role, options);
+        boolean useCache = useCacheCheckBox.isSelected();
+        SwingWorker<Void, AnalysisProgress<?>> worker = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() {
+                try {
+                    String loadNote;
+                    Object sequentialResult;
+                    long sequentialMs;
+                    AnalysisSessionCache.Session loaded = sessions.get(file);
+                    if (loaded != null) {
+                        // Opened earlier in this session: analyze the table still in memory.
+                        loadNote = "Reused the parsed log from this session (" + loaded.getTable().size() + " rows)";
+                        Instant startSeq = Instant.now();
+                        sequentialResult = new LogAnalysisService(1, options).analyze(loaded.getTable(), role);
+                        sequentialMs = Duration.between(startSeq, Instant.now()).toMillis();
+                        sequentialRuns.put(view, new SequentialRun(sequentialMs, true));
+                    } else if (useCache) {
+                        // Parse once (or load the snapshot); the timed runs then analyze the table.
+                        Instant startLoad = Instant.now();
+                        LogTable table = parseCache.load(file);
+                        boolean hit = table != null;
+                        if (!hit) {
+                            int cores = Runtime.getRuntime().availableProcessors();
+                            table = parseCache.loadOrParse(file, processorFor(file, cores));
+                        }
+                        long loadMs = Duration.between(startLoad, Instant.now()).toMillis();
+                        loadNote = (hit ? "Loaded parsed log from cache in " : "Parsed and cached in ") + loadMs + " ms ("
+                                + table.size() + " rows)";
+                        loaded = sessions.put(file, table);
+
+                        Instant startSeq = Instant.now();
+                        sequentialResult = new LogAnalysisService(1, options).analyze(table, role);
+                        sequentialMs = Duration.between(startSeq, Instant.now()).toMillis();
+                        sequentialRuns.put(view, new SequentialRun(sequentialMs, true));
+                    } else {
+                        // The table for role switches and its rollups are built first, on all cores and
+                        // untimed, so the timed run is the same fused pass over the file that the
+                        // parallel tabs time, here on one thread.
+                        int cores = Runtime.getRuntime().availableProcessors();
+                        Instant startLoad = Instant.now();
+                        MultiFileLogProcessor.TableRollups parsed =
+                                new MultiFileLogProcessor(cores).processToTableWithRollups(List.of(file));
+                        long loadMs = Duration.between(startLoad, Instant.now()).toMillis();
+                        loadNote = "Parsed for this session in " + loadMs + " ms (" + parsed.table().size()
+                                + " rows, not part of the time below)";
+                        loaded = sessions.put(file, parsed.table(), parsed.rollups());
+
+                        Instant startSeq = Instant.now();
+                        Object fused = new MultiFileLogProcessor(1).analyzeProgressively(List.of(file),
+                                role.newAnalyzer(options), PROGRESS_INTERVAL_MILLIS, progress -> publish(progress));
+                        sequentialResult = new LogAnalysisService(1, options).addSessions(parsed.table(), fused);
+                        sequentialMs = Duration.between(startSeq, Instant.now()).toMillis();
+                        sequentialRuns.put(view, new SequentialRun(sequentialMs, false));
+                    }
+                    loaded.putResult(role, options, sequentialResult);
+                    if (isCancelled()) {
+                        return null;  // another log was loaded meanwhile
+                    }
+                    session = loaded;
+                    // Built while parsing; a table from the parse cache gets a pass of its own.
+                    rollups = loaded.getRollups(Runtime.getRuntime().availableProcessors());
+
+                    String note = loadNote;
+                    boolean overTable = sequentialRuns.get(view).overTable();
+                    SwingUtilities.invokeLater(() -> {
+                        sequentialTextPane.setText("");
+                        appendToPane(sequentialTextPane, "--- SEQUENTIAL ANALYSIS ---", true, Color.BLUE, 16);
+                        if (note != null) {
+                            appendToPane(sequentialTextPane, note, false, Color.GRAY, 12);
+                        }
+                        appendToPane(sequentialTextPane, timeLine(sequentialMs, overTable), false, Color.BLACK, 14);
+                        displayResult(sequentialResult, sequentialTextPane);
+                        if (!view.equals(selectedView())) {
+                            showSelectedRole();  // the role changed while this run was going
+                        }
+                    });
+                } catch (Exception e) {
+                    if (!isCancelled()) {
+                        SwingUtilities.invokeLater(() ->
+                                appendToPane(sequentialTextPane, "Error: " + e.getMessage(), true, Color.RED, 14));
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            protected void process(List<AnalysisProgress<?>> chunks) {
+                if (!isCancelled()) {
+                    showPartial(sequentialTextPane, "SEQUENTIAL ANALYSIS", chunks.get(chunks.size() - 1));
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    showCancelled(sequentialTextPane, "Load the log again to analyze it.");
+                }
+            }
+        };
+        startRun(SEQUENTIAL_RUN, "Analyzing " + file.getName(), worker);
+    }
+
+    private void measureSpeedup() {
+        File file = loadedFile;
+        if (file == null) {
+            JOptionPane.showMessageDialog(this, "Load a log file first.", "Measure Speed-Up", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        JSpinner warmupSpinner = new JSpinner(new SpinnerNumberModel(2, 0, 20, 1));
+        JSpinner repetitionsSpinner = new JSpinner(new SpinnerNumberModel(5, 1, 100, 1));
+        JPanel settings = new JPanel(new GridLayout(2, 2, 5, 5));
+        settings.add(new JLabel("Warmup repetitions per thread count:"));
+        settings.add(warmupSpinner);
+        settings.add(new JLabel("Measured repetitions per thread count:"));
+        settings.add(repetitionsSpinner);
+        if (JOptionPane.showConfirmDialog(this, settings, "Measure Speed-Up", JOptionPane.OK_CANCEL_OPTION)
+                != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        SpeedupBenchmark benchmark = new SpeedupBenchmark(selectedRole(), selectedOptions(), threads -> processorFor(file, threads))
+                .warmupRepetitions((Integer) warmupSpinner.getValue())
+                .repetitions((Integer) repetitionsSpinner.getValue())
+                .renderer(this::renderOffscreen);
+
+        JTextArea progressArea = new JTextArea(15, 70);
+        progressArea.setEditable(false);
+        progressArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        JButton cancelButton = new JButton("Cancel");
+        JPanel progressPanel = new JPanel(new BorderLayout());
+        progressPanel.add(new JScrollPane(progressArea), BorderLayout.CENTER);
+        progressPanel.add(cancelButton, BorderLayout.SOUTH);
+        JDialog progressDialog = new JDialog(this, "Measuring speed-up: " + file.getName(), false);
+        progressDialog.getContentPane().add(progressPanel);
+        progressDialog.pack();
+        progressDialog.setLocationRelativeTo(this);
+
+        SwingWorker<List<SpeedupMeasurement>, String> worker = new SwingWorker<>() {
+            @Override
+            protected List<SpeedupMeasurement> doInBackground() throws Exception {
+                return benchmark.progress(this::publish).measure(file, THREAD_COUNTS);
+            }
+
+            @Override
+            protected void process(List<String> lines) {
+                for (String line : lines) {
+                    progressArea.append(line + "\n");
+                }
+            }
+
+            @Override
+            protected void done() {
+                progressDialog.dispose();
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    List<SpeedupMeasurement> measurements = get();
+                    File dir = new File("results");
+                    if (!dir.exists()) dir.mkdirs();
+                    SpeedupCSVWriter.write(measurements, new File(dir, "speedup_measurements.csv"));
+                    showSpeedupMeasurementCharts(measurements);
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(MainFrame.this, "Measurement failed: " + cause.getMessage(),
+                            "Measure Speed-Up", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        cancelButton.addActionListener(e -> worker.cancel(true));
+        worker.execute();
+        progressDialog.setVisible(true);
+    }
+
+    /** The render phase of a speedup measurement: lays the result out in a pane nobody sees. */
+    private void renderOffscreen(Object result) {
+        try {
+            SwingUtilities.invokeAndWait(() -> displayResult(result, createStyledPane()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // the benchmark stops before its next run
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            throw new IllegalStateException("Rendering failed", e.getCause());
+        }
+    }
+
+    private void showSpeedupMeasurementCharts(List<SpeedupMeasurement> measurements) {
+        DefaultStatisticalCategoryDataset speedups = new DefaultStatisticalCategoryDataset();
+        DefaultCategoryDataset phases = new DefaultCategoryDataset();
+        for (SpeedupMeasurement m : measurements) {
+            Integer threads = m.getThreads();
+            speedups.add(m.getSpeedup().getMedian(), m.getSpeedup().getStdDev(), "Speedup (median +/- stddev)", threads);
+            speedups.add(threads.doubleValue(), 0, "Ideal", threads);
+            for (SpeedupBenchmark.Phase phase : SpeedupBenchmark.Phase.values()) {
+                if (phase.isInTotal()) {
+                    phases.addValue(m.getPhase(phase).getMedian(), phase.getLabel(), threads);
+                }
+            }
+        }
+
+        double serialFraction = SpeedupBenchmark.estimateSerialFraction(measurements);
+        String speedupTitle = Double.isNaN(serialFraction)
+                ? "Thread Speedup"
+                : String.format("Thread Speedup (Amdahl serial fraction %.1f%%)", serialFraction * 100);
+        JFreeChart speedupChart = ChartFactory.createLineChart(speedupTitle, "Threads", "Speedup", speedups);
+        speedupChart.getCategoryPlot().setRenderer(new StatisticalLineAndShapeRenderer());
+        // Reading is not stacked with the rest: it is not part of the total, only a floor under parsing.
+        String phaseTitle = String.format("Median time per phase (read alone %.0f ms)",
+                measurements.get(0).getPhase(SpeedupBenchmark.Phase.READ).getMedian());
+        JFreeChart phaseChart = ChartFactory.createStackedBarChart(phaseTitle, "Threads", "Milliseconds", phases);
+
+        JPanel charts = new JPanel(new GridLayout(1, 2));
+        charts.add(new ChartPanel(speedupChart));
+        charts.add(new ChartPanel(phaseChart));
+        charts.setPreferredSize(new Dimension(1200, 550));
+
+        JDialog dialog = new JDialog(this, "Speedup Measurement", true);
+        dialog.getContentPane().add(charts);
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
+    private void showMetricsDialog() {
+        if (metricsDialog != null) {
+            metricsDialog.toFront();
+            return;
+        }
+        JTextArea metricsArea = new JTextArea(24, 110);
+        metricsArea.setEditable(false);
+        metricsArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+
+        ProcessorMetrics metrics = ProcessorMetrics.shared();
+        Runnable refresh = () -> metricsArea.setText(metrics.snapshot().toString());
+        javax.swing.Timer timer = new javax.swing.Timer(500, e -> refresh.run());
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            metrics.reset();
+            refresh.run();
+        });
+
+        JPanel content = new JPanel(new BorderLayout());
+        content.add(new JScrollPane(metricsArea), BorderLayout.CENTER);
+        content.add(resetButton, BorderLayout.SOUTH);
+
+        metricsDialog = new JDialog(this, "Parser Metrics", false);
+        metricsDialog.getContentPane().add(content);
+        metricsDialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        metricsDialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                timer.stop();
+                metricsDialog = null;
+            }
+        });
+        refresh.run();
+        timer.start();
+        metricsDialog.pack();
+        metricsDialog.setLocationRelativeTo(this);
+        metricsDialog.setVisible(true);
+    }
+
+    private void showTimeRangeDialog() {
+        AnalysisSessionCache.Session current = session;
+        TimeRollupIndex index = rollups;
+        if (current == null || index == null || index.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Load a log file first.",
+                    "Time Range", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        LogTable table = current.getTable();
+
+        Date first = new Date(index.getFirstEpochSecond() * 1000);
+        Date end = new Date(index.getEndEpochSecond() * 1000);
+        JSpinner fromSpinner = new JSpinner(new SpinnerDateModel(first, first, end, Calendar.MINUTE));
+        fromSpinner.setEditor(new JSpinner.DateEditor(fromSpinner, "yyyy-MM-dd HH:mm"));
+        JSpinner toSpinner = new JSpinner(new SpinnerDateModel(end, first, end, Calendar.MINUTE));
+        toSpinner.setEditor(new JSpinner.DateEditor(toSpinner, "yyyy-MM-dd HH:mm"));
+
+        // Totals come straight from the rollups, so they can follow every spinner change.
+        JLabel totalsLabel = new JLabel();
+        Runnable updateTotals = () -> totalsLabel.setText(
+                index.totals(epochSecondOf(fromSpinner), epochSecondOf(toSpinner)).toString());
+        fromSpinner.addChangeListener(e -> updateTotals.run());
+        toSpinner.addChangeListener(e -> updateTotals.run());
+        updateTotals.run();
+
+        JButton chartButton = new JButton("Show Traffic Chart");
+        chartButton.addActionListener(e -> showTrafficChart(index, epochSecondOf(fromSpinner), epochSecondOf(toSpinner)));
+
+        JButton analyzeButton = new JButton("Analyze Range");
+        analyzeButton.addActionListener(e ->
+                runRangeAnalysis(table, index, epochSecondOf(fromSpinner), epochSecondOf(toSpinner)));
+
+        JPanel rangePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        rangePanel.add(new JLabel("From: "));
+        rangePanel.add(fromSpinner);
+        rangePanel.add(new JLabel("To: "));
+        rangePanel.add(toSpinner);
+        rangePanel.add(chartButton);
+        rangePanel.add(analyzeButton);
+
+        JPanel content = new JPanel(new BorderLayout());
+        content.setBorder(new EmptyBorder(10, 10, 10, 10));
+        content.add(rangePanel, BorderLayout.NORTH);
+        content.add(totalsLabel, BorderLayout.SOUTH);
+
+        JDialog dialog = new JDialog(this, "Time Range", false);
+        dialog.getContentPane().add(content);
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
+    private static long epochSecondOf(JSpinner spinner) {
+        return ((Date) spinner.getValue()).getTime() / 1000;
+    }
+
+    private void showTrafficChart(TimeRollupIndex index, long from, long to) {
+        TimeRollupIndex.Granularity granularity = to - from > 12 * 3600
+                ? TimeRollupIndex.Granularity.HOUR
+                : TimeRollupIndex.Granularity.MINUTE;
+        DateTimeFormatter labelFormat = DateTimeFormatter.ofPattern("MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+        for (TimeRollupIndex.Bucket bucket : index.histogram(from, to, granularity)) {
+            String label = labelFormat.format(Instant.ofEpochSecond(bucket.startEpochSecond()));
+            dataset.addValue(bucket.totals().getRequests(), "Requests", label);
+            dataset.addValue(bucket.totals().getErrors(), "Errors (4xx/5xx)", label);
+        }
+
+        JFreeChart chart = ChartFactory.createLineChart(
+                "Traffic per " + granularity.name().toLowerCase(),
+                "Time",
+                "Requests",
+                dataset
+        );
+
+        ChartPanel chartPanel = new ChartPanel(chart);
+        chartPanel.setPreferredSize(new Dimension(800, 600));
+
+        JDialog dialog = new JDialog(this, "Traffic Chart", true);
+        dialog.getContentPane().add(chartPanel);
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
+    private void runRangeAnalysis(LogTable table, TimeRollupIndex index, long from, long to) {
+        LogAnalysisService.Role role = selectedRole();
+        AnalysisOptions options = selectedOptions();
+        cancelRun(SEQUENTIAL_RUN);
+        sequentialTextPane.setText("");
         SwingWorker<Void, Void> worker = new SwingWorker<>() {
             @Override
             protected Void doInBackground() {
                 try {
-                    LogProcessor sequentialProcessor = new SequentialLogProcessor();
-                    Instant startSeq = Instant.now();
-                    List<LogEntry> sequentialEntries = sequentialProcessor.processLogFile(file);
-                    sequentialTimeMs = Duration.between(startSeq, Instant.now()).toMillis();
+                    Instant start = Instant.now();
+                    Object result = new LogAnalysisService(Runtime.getRuntime().availableProcessors(), options)
+                            .analyze(table, role, from, to);
+                    long elapsed = Duration.between(start, Instant.now()).toMillis();
+                    if (isCancelled()) {
+                        return null;
+                    }
 
                     SwingUtilities.invokeLater(() -> {
-                        appendToPane(sequentialTextPane, "--- SEQUENTIAL ANALYSIS ---", true, Color.BLUE, 16);
-                        analyzeAndDisplay(sequentialEntries, sequentialTextPane);
+                        appendToPane(sequentialTextPane, "--- ANALYSIS from " + new Date(from * 1000) + " to "
+                                + new Date(to * 1000) + " ---", true, Color.BLUE, 16);
+                        appendToPane(sequentialTextPane, index.totals(from, to).toString(), false, Color.GRAY, 12);
+                        appendToPane(sequentialTextPane, "Time: " + elapsed + " ms", false, Color.BLACK, 14);
+                        displayResult(result, sequentialTextPane);
                     });
                 } catch (Exception e) {
                     SwingUtilities.invokeLater(() ->
@@ -243,8 +763,15 @@ public class MainFrame extends JFrame {
                 }
                 return null;
             }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    showCancelled(sequentialTextPane, "Analyze the range again to see it.");
+                }
+            }
         };
-        worker.execute();
+        startRun(SEQUENTIAL_RUN, "Analyzing the time range", worker);
     }
 
     private void runParallelAnalysis(int threads) {
@@ -253,90 +780,304 @@ public class MainFrame extends JFrame {
 
         pane.setText("");
 
-        SwingWorker<Void, Void> worker = new SwingWorker<>() {
+        LogAnalysisService.Role role = selectedRole();
+        AnalysisOptions options = selectedOptions();
+        ViewKey view = new ViewKey(role, options);
+        SequentialRun sequential = sequentialRuns.get(view);
+        AnalysisSessionCache.Session current = session;
+        if (sequential == null || current == null) {
+            appendToPane(pane, "--- Waiting for the sequential analysis --- Click this tab again once it is done.",
+                    false, Color.GRAY, 14);
+            return;
+        }
+        parallelRunStatus.put(threads, true);
+        appendToPane(pane, "Running with " + threads + " threads...", false, Color.GRAY, 12);
+        SwingWorker<Void, AnalysisProgress<?>> worker = new SwingWorker<>() {
             @Override
             protected Void doInBackground() {
                 try {
-                    ParallelLogProcessor parallelProcessor = new ParallelLogProcessor(threads);
+                    // The sequential run's operation at this thread count: an analysis of the parsed
+                    // table, or one fused pass over the file plus the sessions, so the speed-up
+                    // compares like with like.
                     Instant startPar = Instant.now();
-                    List<LogEntry> parallelEntries = parallelProcessor.processLogFile(loadedFile);
+                    Object parallelResult;
+                    if (sequential.overTable()) {
+                        parallelResult = new LogAnalysisService(threads, options).analyze(current.getTable(), role);
+                    } else {
+                        parallelResult = new MultiFileLogProcessor(threads).analyzeProgressively(List.of(current.getLog()),
+                                role.newAnalyzer(options), PROGRESS_INTERVAL_MILLIS, progress -> publish(progress));
+                        parallelResult = new LogAnalysisService(threads, options).addSessions(current.getTable(), parallelResult);
+                    }
                     long parallelTime = Duration.between(startPar, Instant.now()).toMillis();
-                    double speedup = (double) sequentialTimeMs / Math.max(parallelTime, 1);
+                    if (isCancelled()) {
+                        return null;
+                    }
+                    double speedup = (double) sequential.millis() / Math.max(parallelTime, 1);
 
-                    threadSpeedups.put(threads, speedup);
+                    ParallelRun run = new ParallelRun(parallelResult, parallelTime, speedup, sequential.overTable());
+                    parallelRuns.computeIfAbsent(view, v -> new ConcurrentHashMap<>()).put(threads, run);
 
                     SwingUtilities.invokeLater(() -> {
-                        appendToPane(pane, "--- PARALLEL ANALYSIS with " + threads + " threads ---", true, new Color(0, 128, 0), 16);
-                        appendToPane(pane, "Time: " + parallelTime + " ms", false, Color.BLACK, 14);
-                        appendToPane(pane, "Speed-up: " + String.format("%.2fx", speedup), false, Color.BLACK, 14);
-                        analyzeAndDisplay(parallelEntries, pane);
+                        if (view.equals(selectedView())) {
+                            threadSpeedups.put(threads, speedup);
+                            showParallelRun(pane, threads, run);
+                        }
                     });
+                } catch (Exception e) {
+                    if (isCancelled()) {
+                        return null;
+                    }
+                    SwingUtilities.invokeLater(() -> {
+                        parallelRunStatus.put(threads, false);
+                        appendToPane(pane, "Error: " + e.getMessage(), true, Color.RED, 14);
+                    });
+                    e.printStackTrace();
+                }
+                return null;
+            }
 
-                    parallelRunStatus.put(threads, true);
+            @Override
+            protected void process(List<AnalysisProgress<?>> chunks) {
+                if (!isCancelled() && view.equals(selectedView())) {
+                    showPartial(pane, "PARALLEL ANALYSIS with " + threads + " threads", chunks.get(chunks.size() - 1));
+                }
+            }
 
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    parallelRunStatus.put(threads, false);
+                    showCancelled(pane, "Click this tab to run it again.");
+                }
+            }
+        };
+        // A newer tab supersedes the one still running, so runs never compete for the cores.
+        startRun(PARALLEL_RUN, "Running " + threads + " threads", worker);
+    }
+
+    private void showParallelRun(JTextPane pane, int threads, ParallelRun run) {
+        pane.setText("");
+        appendToPane(pane, "--- PARALLEL ANALYSIS with " + threads + " threads ---", true, new Color(0, 128, 0), 16);
+        appendToPane(pane, timeLine(run.millis(), run.overTable()), false, Color.BLACK, 14);
+        appendToPane(pane, "Speed-up: " + String.format("%.2fx", run.speedup()), false, Color.BLACK, 14);
+        displayResult(run.result(), pane);
+    }
+
+    /**
+     * Re-renders the sequential pane and the parallel tabs for the selected role from the session
+     * of the loaded log, without reading the file. Results computed before are shown as they are;
+     * a role seen for the first time is analyzed from the parsed table, and its parallel tabs run
+     * again when clicked.
+     */
+    private void showSelectedRole() {
+        AnalysisSessionCache.Session current = session;
+        if (current == null) return;  // nothing loaded yet, or the load is still running
+        cancelRun(PARALLEL_RUN);  // computing a view no longer selected
+        cancelRun(SEQUENTIAL_RUN);
+
+        LogAnalysisService.Role role = selectedRole();
+        AnalysisOptions options = selectedOptions();
+        ViewKey view = new ViewKey(role, options);
+
+        Map<Integer, ParallelRun> runs = parallelRuns.getOrDefault(view, Map.of());
+        threadSpeedups.clear();
+        for (Map.Entry<Integer, JTextPane> entry : parallelPanes.entrySet()) {
+            int threads = entry.getKey();
+            JTextPane pane = entry.getValue();
+            if (pane == null) continue;
+            ParallelRun run = runs.get(threads);
+            parallelRunStatus.put(threads, run != null);
+            if (run != null) {
+                threadSpeedups.put(threads, run.speedup());
+                showParallelRun(pane, threads, run);
+            } else {
+                pane.setText("");
+                appendToPane(pane, "--- Not yet run --- Click this tab to run.", false, Color.GRAY, 14);
+            }
+        }
+
+        sequentialTextPane.setText("");
+        SequentialRun sequential = sequentialRuns.get(view);
+        Object cached = current.getResult(role, options);
+        if (sequential != null && cached != null) {
+            showSequentialResult(cached, sequential, "From the session cache");
+            runSelectedTabIfPending();
+            return;
+        }
+        appendToPane(sequentialTextPane, "Analyzing the parsed log for " + role + "...", false, Color.GRAY, 12);
+        SwingWorker<Void, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() {
+                try {
+                    Instant start = Instant.now();
+                    Object result = new LogAnalysisService(1, options).analyze(current.getTable(), role);
+                    long millis = Duration.between(start, Instant.now()).toMillis();
+                    current.putResult(role, options, result);
+                    SequentialRun run = new SequentialRun(millis, true);
+                    sequentialRuns.put(view, run);
+                    SwingUtilities.invokeLater(() -> {
+                        if (!isCancelled() && session == current && view.equals(selectedView())) {
+                            sequentialTextPane.setText("");
+                            showSequentialResult(result, run, "Analyzed the parsed log from this session (file not read)");
+                            runSelectedTabIfPending();
+                        }
+                    });
                 } catch (Exception e) {
                     SwingUtilities.invokeLater(() ->
-                            appendToPane(pane, "Error: " + e.getMessage(), true, Color.RED, 14));
-                    e.printStackTrace();
+                            appendToPane(sequentialTextPane, "Error: " + e.getMessage(), true, Color.RED, 14));
                 }
                 return null;
             }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    showCancelled(sequentialTextPane, "Select the role again to analyze it.");
+                }
+            }
         };
+        startRun(SEQUENTIAL_RUN, "Analyzing for " + role, worker);
+    }
+
+    /** Runs the parallel tab in view if it has nothing to show for the selected role yet. */
+    private void runSelectedTabIfPending() {
+        int index = parallelTabs.getSelectedIndex();
+        if (index <= 0) return;
+        int threads = Integer.parseInt(parallelTabs.getTitleAt(index).split(" ")[0]);
+        if (parallelPanes.containsKey(threads) && !parallelRunStatus.getOrDefault(threads, false)) {
+            runParallelAnalysis(threads);
+        }
+    }
+
+    private void showSequentialResult(Object result, SequentialRun run, String note) {
+        appendToPane(sequentialTextPane, "--- SEQUENTIAL ANALYSIS ---", true, Color.BLUE, 16);
+        appendToPane(sequentialTextPane, note, false, Color.GRAY, 12);
+        appendToPane(sequentialTextPane, timeLine(run.millis(), run.overTable()), false, Color.BLACK, 14);
+        displayResult(result, sequentialTextPane);
+    }
+
+    /** States what a timing covers: a run over the parsed table leaves out reading and parsing. */
+    private static String timeLine(long millis, boolean overTable) {
+        return (overTable ? "Time (analysis only, log already parsed): " : "Time (parse + analysis): ") + millis + " ms";
+    }
+
+    /** Replaces {@code pane} with the result so far of a run that is still going. */
+    private void showPartial(JTextPane pane, String title, AnalysisProgress<?> progress) {
+        progressBar.setIndeterminate(false);
+        progressBar.setValue((int) Math.round(progress.getFraction() * progressBar.getMaximum()));
+        progressBar.setString(progress.toString());
+
+        pane.setText("");
+        appendToPane(pane, "--- " + title + " (PARTIAL) ---", true, new Color(204, 102, 0), 16);
+        appendToPane(pane, "So far: " + progress, false, Color.GRAY, 12);
+        displayResult(progress.getPartialResult(), pane);
+    }
+
+    private void showCancelled(JTextPane pane, String hint) {
+        pane.setText("");
+        appendToPane(pane, "--- Cancelled --- " + hint, false, Color.GRAY, 14);
+    }
+
+    /**
+     * Starts {@code worker} as the run of {@code slot}, cancelling the run it supersedes there.
+     * Cancelling interrupts the worker; the progressive analyses stop after the units already
+     * started, the others finish in the background but are not shown.
+     */
+    private void startRun(String slot, String label, SwingWorker<?, ?> worker) {
+        cancelRun(slot);
+        activeRuns.put(slot, worker);
+        worker.addPropertyChangeListener(e -> {
+            if (worker.isDone() && activeRuns.remove(slot, worker)) {
+                updateRunControls();
+            }
+        });
+        progressBar.setIndeterminate(true);
+        progressBar.setString(label + "...");
+        updateRunControls();
         worker.execute();
     }
 
-    private void analyzeAndDisplay(List<LogEntry> entries, JTextPane pane) {
-        appendToPane(pane, "Total requests: " + entries.size(), true, Color.BLACK, 14);
-        String selectedRole = (String) roleComboBox.getSelectedItem();
-        if (selectedRole == null) selectedRole = "System Administrator";
+    private void cancelRun(String slot) {
+        SwingWorker<?, ?> worker = activeRuns.remove(slot);
+        if (worker != null) {
+            worker.cancel(true);
+        }
+        updateRunControls();
+    }
 
-        switch (selectedRole) {
-            case "System Administrator" -> doSystemAdminAnalysis(entries, pane);
-            case "Web Developer" -> doWebDeveloperAnalysis(entries, pane);
-            case "Security Analyst" -> doSecurityAnalystAnalysis(entries, pane);
+    private void updateRunControls() {
+        boolean running = !activeRuns.isEmpty();
+        cancelButton.setEnabled(running);
+        progressBar.setVisible(running);
+        if (!running) {
+            progressBar.setIndeterminate(false);
+            progressBar.setValue(0);
         }
     }
-    private void doSystemAdminAnalysis(List<LogEntry> entries, JTextPane pane) {
-        Set<String> uniqueIps = new HashSet<>();
-        AtomicInteger errorCount = new AtomicInteger(0);
-        AtomicInteger failedLoginCount = new AtomicInteger(0);
-        Map<String, Integer> ipRequestCounts = new HashMap<>();
-
-        for (LogEntry e : entries) {
-            uniqueIps.add(e.getIpAddress());
-            if (e.getStatusCode() >= 500) errorCount.incrementAndGet();
-            ipRequestCounts.merge(e.getIpAddress(), 1, Integer::sum);
-
-            if ("POST".equalsIgnoreCase(e.getRequestMethod())
-                    && e.getResource().toLowerCase().contains("/login")
-                    && (e.getStatusCode() == 401 || e.getStatusCode() == 403)) {
-                failedLoginCount.incrementAndGet();
-            }
+
+    private ViewKey selectedView() {
+        return new ViewKey(selectedRole(), selectedOptions());
+    }
+
+    private LogAnalysisService.Role selectedRole() {
+        return LogAnalysisService.Role.fromLabel((String) roleComboBox.getSelectedItem());
+    }
+
+    private AnalysisOptions selectedOptions() {
+        return AnalysisOptions.EXACT
+                .withApproximateTopK(approximateTopKCheckBox.isSelected())
+                .withApproximateDistinct(approximateDistinctCheckBox.isSelected());
+    }
+
+    private void displayResult(Object result, JTextPane pane) {
+        if (result instanceof SystemAdminAnalyzer.Result adminResult) {
+            showSystemAdminResult(adminResult, pane);
+        } else if (result instanceof WebDeveloperAnalyzer.Result devResult) {
+            showWebDeveloperResult(devResult, pane);
+        } else if (result instanceof SecurityAnalystAnalyzer.Result securityResult) {
+            showSecurityAnalystResult(securityResult, pane);
         }
+    }
 
-        List<String> suspiciousIps = ipRequestCounts.entrySet().stream()
-                .filter(e -> e.getValue() > 100)
-                .map(Map.Entry::getKey)
-                .toList();
+    private void showSystemAdminResult(SystemAdminAnalyzer.Result result, JTextPane pane) {
+        appendToPane(pane, "Total requests: " + result.getTotalRequests(), true, Color.BLACK, 14);
+        List<String> suspiciousIps = result.getSuspiciousIps();
 
-        appendToPane(pane, "\nUnique IPs: " + uniqueIps.size(), false, Color.BLUE, 13);
-        appendToPane(pane, "Server errors (500s): " + errorCount.get(), false, Color.RED, 13);
-        appendToPane(pane, "Failed login attempts: " + failedLoginCount.get(), false, Color.ORANGE, 13);
+        appendToPane(pane, "\nUnique IPs: " + (result.isUniqueIpsApproximate() ? "~" : "") + result.getUniqueIps(),
+                false, Color.BLUE, 13);
+        appendToPane(pane, "Server errors (500s): " + result.getServerErrors(), false, Color.RED, 13);
+        appendToPane(pane, "Failed login attempts: " + result.getFailedLogins(), false, Color.ORANGE, 13);
 
-        appendToPane(pane, "Suspicious IPs (>100 requests):", true, Color.MAGENTA, 13);
+        BurstTimeline bursts = result.getBursts();
+        List<String> limits = bursts.getRules().stream()
+                .map(rule -> rule.maxRequests() + " requests per " + rule.windowLabel())
+                .toList();
+        appendToPane(pane, "Suspicious IPs (more than " + String.join(" or ", limits) + "):", true, Color.MAGENTA, 13);
         if (suspiciousIps.isEmpty()) {
             appendToPane(pane, "None detected", false, Color.GRAY, 12);
         } else {
-            suspiciousIps.forEach(ip ->
-                    appendToPane(pane, " - " + ip, false, Color.MAGENTA, 12));
+            appendTable(pane, AggregateTable.ofKeys("IP address", suspiciousIps));
+        }
+
+        appendToPane(pane, "Burst timeline (requests and failed logins):", true, Color.MAGENTA, 13);
+        if (bursts.getBursts().isEmpty()) {
+            appendToPane(pane, "None detected", false, Color.GRAY, 12);
+        } else {
+            appendTable(pane, AggregateTable.ofKeys("Burst",
+                    bursts.getBursts().stream().map(BurstTimeline.Burst::toString).toList()));
+        }
+        if (bursts.getDroppedCount() > 0) {
+            appendToPane(pane, "(" + bursts.getDroppedCount() + " older bursts not kept)", false, Color.GRAY, 12);
+        }
+        if (result.isApproximate()) {
+            appendToPane(pane, "(approximate: per-IP counts may be over by up to " + result.getMaxCountError() + ")",
+                    false, Color.GRAY, 12);
         }
 
         JButton chartButton = new JButton("Show System Admin Chart");
         chartButton.addActionListener(ev -> {
             DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-            ipRequestCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(10)  // ✅ Only top 10 IPs
+            result.getTopIps()  // ✅ Only top 10 IPs
                 .forEach(entry -> dataset.addValue(entry.getValue(), "Requests", entry.getKey()));
 
             JFreeChart chart = ChartFactory.createBarChart(
@@ -358,37 +1099,53 @@ public class MainFrame extends JFrame {
         pane.insertComponent(chartButton);
     }
 
-    private void doWebDeveloperAnalysis(List<LogEntry> entries, JTextPane pane) {
-        Map<String, Integer> methodCounts = new HashMap<>();
-        Map<String, Integer> urlCounts = new HashMap<>();
-        Map<String, Integer> errorPerResource = new HashMap<>();
+    private void showWebDeveloperResult(WebDeveloperAnalyzer.Result result, JTextPane pane) {
+        appendToPane(pane, "Total requests: " + result.getTotalRequests(), true, Color.BLACK, 14);
+        Map<String, Integer> methodCounts = result.getMethodCounts();
+        Map<String, Integer> errorPerResource = result.getErrorsPerResource();
 
-        for (LogEntry e : entries) {
-            methodCounts.merge(e.getRequestMethod(), 1, Integer::sum);
-            urlCounts.merge(e.getResource(), 1, Integer::sum);
-
-            if (e.getStatusCode() >= 400) {
-                errorPerResource.merge(e.getResource(), 1, Integer::sum);
-            }
-        }
+        appendToPane(pane, "Unique resources: " + (result.isUniqueResourcesApproximate() ? "~" : "")
+                + result.getUniqueResources(), false, Color.BLUE, 13);
 
         appendToPane(pane, "\nRequest counts by HTTP method:", true, Color.BLUE, 13);
         methodCounts.forEach((method, count) ->
                 appendToPane(pane, " - " + method + ": " + count, false, Color.BLACK, 12));
 
         appendToPane(pane, "\nTop 5 URLs:", true, Color.BLUE, 13);
-        urlCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(5)
-                .forEach(e ->
-                        appendToPane(pane, " - " + e.getKey() + ": " + e.getValue(), false, Color.BLACK, 12));
+        result.getTopUrls().forEach(e ->
+                appendToPane(pane, " - " + e.getKey() + ": " + e.getValue(), false, Color.BLACK, 12));
+        if (result.isApproximate()) {
+            appendToPane(pane, "(approximate: counts may be over by up to " + result.getMaxCountError() + ")",
+                    false, Color.GRAY, 12);
+        }
+
+        SessionStats sessions = result.getSessions();
+        if (sessions != null) {
+            appendToPane(pane, "\nSessions (ending after " + formatSeconds(sessions.getGap().getSeconds()) + " idle):",
+                    true, Color.BLUE, 13);
+            appendToPane(pane, String.format(" - %d sessions, %.1f%% with at most one page", sessions.getSessionCount(),
+                    sessions.getBounceRate() * 100), false, Color.BLACK, 12);
+            appendToPane(pane, " - Length: mean " + formatSeconds(Math.round(sessions.getMeanDurationSeconds()))
+                    + ", median " + formatSeconds(sessions.getMedianDurationSeconds())
+                    + ", 90th percentile " + formatSeconds(sessions.getP90DurationSeconds())
+                    + ", longest " + formatSeconds(sessions.getMaxDurationSeconds()), false, Color.BLACK, 12);
+            appendToPane(pane, String.format(" - Pages per session: mean %.1f, median %d, 90th percentile %d",
+                    sessions.getMeanPagesPerSession(), sessions.getMedianPagesPerSession(),
+                    sessions.getP90PagesPerSession()), false, Color.BLACK, 12);
+            appendToPane(pane, "Top drop-off pages:", true, Color.BLUE, 12);
+            sessions.getTopExitPages().forEach(exit -> appendToPane(pane, String.format(" - %s: %d exits (%.0f%% of its views)",
+                    exit.url(), exit.exits(), exit.exitRate() * 100), false, Color.BLACK, 12));
+        }
 
         appendToPane(pane, "\nResources with errors (4xx/5xx):", true, Color.RED, 13);
         if (errorPerResource.isEmpty()) {
             appendToPane(pane, "None", false, Color.GRAY, 12);
         } else {
-            errorPerResource.forEach((res, count) ->
-                    appendToPane(pane, " - " + res + ": " + count, false, Color.RED, 12));
+            appendTable(pane, AggregateTable.ofCounts("Resource", "Errors", errorPerResource));
+        }
+        if (result.isApproximate()) {
+            appendToPane(pane, "(approximate: the most failing resources only, counts may be over by up to "
+                    + result.getMaxErrorCountError() + ")", false, Color.GRAY, 12);
         }
         JButton chartButton = new JButton("Show Web Dev Chart");
         chartButton.addActionListener(ev -> {
@@ -417,35 +1174,30 @@ public class MainFrame extends JFrame {
         pane.insertComponent(chartButton);
     }
 
-    private void doSecurityAnalystAnalysis(List<LogEntry> entries, JTextPane pane) {
-        Set<String> sensitiveEndpoints = new HashSet<>();
-        Set<String> suspiciousMethods = new HashSet<>();
-
-        for (LogEntry e : entries) {
-            if (e.getResource().toLowerCase().contains("/admin")
-                    || e.getResource().toLowerCase().contains("/login")) {
-                sensitiveEndpoints.add(e.getResource());
-            }
-
-            if (Set.of("DELETE", "PUT", "TRACE").contains(e.getRequestMethod().toUpperCase())) {
-                suspiciousMethods.add(e.getRequestMethod() + " " + e.getResource());
-            }
+    private static String formatSeconds(long seconds) {
+        if (seconds >= 3600) {
+            return seconds / 3600 + "h " + seconds % 3600 / 60 + "m";
         }
+        return seconds >= 60 ? seconds / 60 + "m " + seconds % 60 + "s" : seconds + "s";
+    }
+
+    private void showSecurityAnalystResult(SecurityAnalystAnalyzer.Result result, JTextPane pane) {
+        appendToPane(pane, "Total requests: " + result.getTotalRequests(), true, Color.BLACK, 14);
+        List<String> sensitiveEndpoints = result.getSensitiveEndpoints();
+        List<String> suspiciousMethods = result.getSuspiciousMethods();
 
         appendToPane(pane, "\nSensitive endpoints accessed:", true, Color.RED, 13);
         if (sensitiveEndpoints.isEmpty()) {
             appendToPane(pane, "None", false, Color.GRAY, 12);
         } else {
-            sensitiveEndpoints.forEach(ep ->
-                    appendToPane(pane, " - " + ep, false, Color.RED, 12));
+            appendTable(pane, AggregateTable.ofKeys("Endpoint", sensitiveEndpoints));
         }
 
         appendToPane(pane, "\nSuspicious HTTP methods:", true, Color.ORANGE, 13);
         if (suspiciousMethods.isEmpty()) {
             appendToPane(pane, "None", false, Color.GRAY, 12);
         } else {
-            suspiciousMethods.forEach(m ->
-                    appendToPane(pane, " - " + m, false, Color.ORANGE, 12));
+            appendTable(pane, AggregateTable.ofKeys("Method and resource", suspiciousMethods));
         }
         JButton chartButton = new JButton("Show Security Chart");
         chartButton.addActionListener(ev -> {
@@ -478,6 +1230,13 @@ public class MainFrame extends JFrame {
         pane.insertComponent(chartButton);
     }
 
+    /** Embeds a result table at the end of the pane, on a line of its own. */
+    private void appendTable(JTextPane pane, AggregateTable table) {
+        pane.setCaretPosition(pane.getDocument().getLength());
+        pane.insertComponent(table);
+        appendToPane(pane, "", false, Color.BLACK, 12);
+    }
+
     private void appendToPane(JTextPane pane, String text, boolean bold, Color color, int fontSize) {
         StyledDocument doc = pane.getStyledDocument();
         Style style = pane.addStyle("Style", null);
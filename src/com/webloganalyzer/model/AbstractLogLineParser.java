@@ -0,0 +1,328 @@
+package com.webloganalyzer.model;
+
+import java.time.DateTimeException;
+import java.time.Month;
+import java.time.OffsetDateTime;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What every {@link LogLineParser} shares: building entries, rows and records from the field
+ * boundaries that {@link #scan} finds, reject counters, a one-entry timestamp cache, and the
+ * scanning helpers. Subclasses only decide where the fields of a line are.
+ */
+abstract class AbstractLogLineParser implements LogLineParser {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+
+    private static final String[] MONTHS = {
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+
+    // "01/Jul/1995:00:00:01 -0400"
+    private static final int TIMESTAMP_LENGTH = 26;
+
+    private final char[] cachedTimestampChars = new char[TIMESTAMP_LENGTH];
+    private OffsetDateTime cachedTimestamp;
+
+    private final long[] rejectCounts = new long[RejectReason.values().length];
+    private long acceptedCount;
+    private RejectReason lastRejectReason;
+
+    // Field boundaries of the line last accepted by scan().
+    int hostStart;
+    int hostEnd;
+    int methodStart;
+    int methodEnd;
+    int resourceStart;
+    int resourceEnd;
+    int status;
+    int bytes;
+    OffsetDateTime timestamp;
+
+    /**
+     * Finds the fields of {@code line}, ending with {@link #accept()} or {@link #reject}. Sets
+     * every field boundary above when it accepts.
+     */
+    abstract boolean scan(CharSequence line);
+
+    @Override
+    public LogEntry parse(CharSequence line) {
+        if (!scan(line)) {
+            return null;
+        }
+        return new LogEntry(
+                substring(line, hostStart, hostEnd),
+                timestamp,
+                substring(line, methodStart, methodEnd),
+                substring(line, resourceStart, resourceEnd),
+                status,
+                bytes);
+    }
+
+    /** Hosts, methods and resources already in the table's dictionaries allocate nothing. */
+    @Override
+    public boolean parseInto(CharSequence line, LogTable table) {
+        if (!scan(line)) {
+            return false;
+        }
+        table.addRow(
+                table.getIps().idOf(line, hostStart, hostEnd),
+                table.getMethods().idOf(line, methodStart, methodEnd),
+                table.getResources().idOf(line, resourceStart, resourceEnd),
+                timestamp.toEpochSecond(),
+                timestamp.getOffset().getTotalSeconds(),
+                status,
+                bytes);
+        return true;
+    }
+
+    @Override
+    public boolean parseInto(CharSequence line, LogRecord record) {
+        if (!scan(line)) {
+            return false;
+        }
+        record.set(
+                line,
+                hostStart,
+                hostEnd,
+                record.getDictionaries().getMethods().idOf(line, methodStart, methodEnd),
+                resourceStart,
+                resourceEnd,
+                timestamp.toEpochSecond(),
+                timestamp.getOffset().getTotalSeconds(),
+                status,
+                bytes);
+        return true;
+    }
+
+    @Override
+    public RejectReason getLastRejectReason() {
+        return lastRejectReason;
+    }
+
+    @Override
+    public long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    @Override
+    public long getLineCount() {
+        return acceptedCount + getTotalRejectCount();
+    }
+
+    @Override
+    public long getRejectCount(RejectReason reason) {
+        return rejectCounts[reason.ordinal()];
+    }
+
+    @Override
+    public long getTotalRejectCount() {
+        long total = 0;
+        for (long count : rejectCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public Map<RejectReason, Long> getRejectCounts() {
+        Map<RejectReason, Long> counts = new EnumMap<>(RejectReason.class);
+        for (RejectReason reason : RejectReason.values()) {
+            if (rejectCounts[reason.ordinal()] > 0) {
+                counts.put(reason, rejectCounts[reason.ordinal()]);
+            }
+        }
+        return counts;
+    }
+
+    final boolean accept() {
+        lastRejectReason = null;
+        acceptedCount++;
+        return true;
+    }
+
+    final boolean reject(RejectReason reason) {
+        lastRejectReason = reason;
+        rejectCounts[reason.ordinal()]++;
+        return false;
+    }
+
+    /** Decodes a "dd/MMM/yyyy:HH:mm:ss Z" timestamp, or returns {@code null} if it is not one. */
+    final OffsetDateTime decodeTimestamp(CharSequence line, int start, int end) {
+        int length = end - start;
+        if (length == TIMESTAMP_LENGTH) {
+            if (cachedTimestamp != null && sameAsCached(line, start)) {
+                return cachedTimestamp;
+            }
+            OffsetDateTime decoded = decodeCanonical(line, start);
+            if (decoded == null) {
+                decoded = decodeWithFormatter(line, start, end);
+            }
+            if (decoded != null) {
+                for (int i = 0; i < TIMESTAMP_LENGTH; i++) {
+                    cachedTimestampChars[i] = line.charAt(start + i);
+                }
+                cachedTimestamp = decoded;
+            }
+            return decoded;
+        }
+        return decodeWithFormatter(line, start, end);
+    }
+
+    private boolean sameAsCached(CharSequence line, int start) {
+        // Consecutive lines usually differ only in the seconds, so compare from the end.
+        for (int i = TIMESTAMP_LENGTH - 1; i >= 0; i--) {
+            if (line.charAt(start + i) != cachedTimestampChars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fast path for the well-formed "dd/MMM/yyyy:HH:mm:ss +HHMM" layout. Returns {@code null}
+     * for anything unusual so the formatter can decide, which keeps its exact semantics.
+     */
+    private static OffsetDateTime decodeCanonical(CharSequence s, int p) {
+        if (s.charAt(p + 2) != '/' || s.charAt(p + 6) != '/' || s.charAt(p + 11) != ':'
+                || s.charAt(p + 14) != ':' || s.charAt(p + 17) != ':' || s.charAt(p + 20) != ' ') {
+            return null;
+        }
+        int day = twoDigits(s, p);
+        int month = month(s, p + 3);
+        int century = twoDigits(s, p + 7);
+        int yearOfCentury = twoDigits(s, p + 9);
+        int hour = twoDigits(s, p + 12);
+        int minute = twoDigits(s, p + 15);
+        int second = twoDigits(s, p + 18);
+        int offsetHours = twoDigits(s, p + 22);
+        int offsetMinutes = twoDigits(s, p + 24);
+        char sign = s.charAt(p + 21);
+        if (century < 0 || yearOfCentury < 0) {
+            return null;
+        }
+        int year = century * 100 + yearOfCentury;
+        if (day < 1 || month < 1 || year < 1 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 59 || offsetHours < 0 || offsetMinutes < 0 || offsetMinutes > 59
+                || (sign != '+' && sign != '-')) {
+            return null;
+        }
+        int offsetSeconds = offsetHours * 3600 + offsetMinutes * 60;
+        if (offsetSeconds > 18 * 3600 || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        ZoneOffset offset = ZoneOffset.ofTotalSeconds(sign == '-' ? -offsetSeconds : offsetSeconds);
+        return OffsetDateTime.of(year, month, day, hour, minute, second, 0, offset);
+    }
+
+    private static OffsetDateTime decodeWithFormatter(CharSequence line, int start, int end) {
+        try {
+            return OffsetDateTime.parse(line.subSequence(start, end), TIMESTAMP_FORMAT);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int month(CharSequence s, int p) {
+        char c0 = s.charAt(p);
+        char c1 = s.charAt(p + 1);
+        char c2 = s.charAt(p + 2);
+        for (int i = 0; i < MONTHS.length; i++) {
+            String m = MONTHS[i];
+            if (m.charAt(0) == c0 && m.charAt(1) == c1 && m.charAt(2) == c2) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int twoDigits(CharSequence s, int p) {
+        int hi = s.charAt(p) - '0';
+        int lo = s.charAt(p + 1) - '0';
+        if (hi < 0 || hi > 9 || lo < 0 || lo > 9) {
+            return -1;
+        }
+        return hi * 10 + lo;
+    }
+
+    static int threeDigits(CharSequence s, int p, int len) {
+        if (p + 3 > len) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = p; i < p + 3; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    /**
+     * Integer.parseInt semantics without the substring for the common all-ASCII-digits case.
+     * Signed, non-ASCII or overflowing values fall back to Integer.parseInt itself; returns
+     * {@code Long.MIN_VALUE} when that rejects the text.
+     */
+    static long parseInt(CharSequence s, int start, int end) {
+        if (end - start <= 9) {
+            int value = 0;
+            int i = start;
+            for (; i < end; i++) {
+                int d = s.charAt(i) - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                value = value * 10 + d;
+            }
+            if (i == end) {
+                return value;
+            }
+        }
+        try {
+            return Integer.parseInt(substring(s, start, end));
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    static boolean isWhitespace(char c) {
+        // The characters matched by the regex class \s.
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    static int tokenEnd(CharSequence s, int from, int len) {
+        int i = from;
+        while (i < len && !isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    static int indexOf(CharSequence s, char c, int from, int len) {
+        for (int i = from; i < len; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean charAt(CharSequence s, int index, int len, char expected) {
+        return index < len && s.charAt(index) == expected;
+    }
+
+    static String substring(CharSequence s, int start, int end) {
+        if (s instanceof String str) {
+            return str.substring(start, end);
+        }
+        return s.subSequence(start, end).toString();
+    }
+}
@@ -0,0 +1,369 @@
+package com.webloganalyzer.model;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parser for a {@link LogFormat} compiled from an Apache or nginx format string. The format
+ * becomes a flat {@link Program}: the literal text before each field, the field's kind, and the
+ * single character that ends it (the first character of the next literal). Scanning walks the
+ * line once, never backtracking: each field runs to its end character, then the literal after it
+ * must follow. Fields the analyses do not use (ident, user, referrer, user agent, ...) are skipped
+ * without being copied; the others are read in place like {@link NasaLogLineParser} does.
+ *
+ * <p>Trailing text after the last element of the format is ignored, as the NASA parser ignores
+ * trailing text after the byte count. A quoted field ends at its first unescaped quote, so
+ * unlike the NASA parser this one rejects a request line with a stray quote in it. A line that
+ * ends inside the format, with a field that is fine but for its missing end, is a
+ * {@link RejectReason#FORMAT_MISMATCH}: a Common line read as Combined is not a bad byte count.
+ */
+final class CompiledLogLineParser extends AbstractLogLineParser {
+
+    enum Field {
+        HOST(RejectReason.MALFORMED_PREFIX),
+        TIME(RejectReason.MISSING_TIMESTAMP),
+        REQUEST(RejectReason.MALFORMED_REQUEST),
+        METHOD(RejectReason.MALFORMED_REQUEST),
+        RESOURCE(RejectReason.MALFORMED_REQUEST),
+        STATUS(RejectReason.BAD_STATUS),
+        BYTES(RejectReason.BAD_BYTES),
+        SKIP(RejectReason.FORMAT_MISMATCH);
+
+        final RejectReason rejectReason;
+
+        Field(RejectReason rejectReason) {
+            this.rejectReason = rejectReason;
+        }
+    }
+
+    private static final char END_OF_TOKEN = 0;
+
+    /**
+     * A compiled format: field {@code i} follows {@code literals[i]}, ends at
+     * {@code terminators[i]} and is rejected for {@code rejectReasons[i]};
+     * {@code literals[fields.length]} follows the last field. A field with nothing after it ends
+     * at the next whitespace ({@link #END_OF_TOKEN}).
+     */
+    record Program(String[] literals, Field[] fields, char[] terminators, boolean[] quoted,
+                   RejectReason[] rejectReasons) {
+    }
+
+    private final String[] literals;
+    private final Field[] fields;
+    private final char[] terminators;
+    private final boolean[] quoted;
+    private final RejectReason[] rejectReasons;
+
+    CompiledLogLineParser(Program program) {
+        this.literals = program.literals();
+        this.fields = program.fields();
+        this.terminators = program.terminators();
+        this.quoted = program.quoted();
+        this.rejectReasons = program.rejectReasons();
+    }
+
+    @Override
+    boolean scan(CharSequence line) {
+        int len = line.length();
+        int pos = 0;
+        int timeStart = 0;
+        int timeEnd = 0;
+        bytes = 0;
+        for (int i = 0; i < fields.length; i++) {
+            Field field = fields[i];
+            pos = matchLiteral(line, pos, len, literals[i]);
+            if (pos < 0) {
+                return reject(rejectReasons[i]);
+            }
+            int end = fieldEnd(line, pos, len, terminators[i], quoted[i]);
+            boolean terminated = terminators[i] == END_OF_TOKEN || charAt(line, end, len, terminators[i]);
+            if ((!terminated && end < len) || (end == pos && (field != Field.SKIP || !quoted[i]))) {  // only "" may be empty
+                return reject(rejectReasons[i]);
+            }
+            switch (field) {
+                case HOST -> {
+                    hostStart = pos;
+                    hostEnd = end;
+                }
+                case TIME -> {
+                    timeStart = pos;
+                    timeEnd = end;
+                    if (!terminated && decodeTimestamp(line, pos, end) == null) {
+                        return reject(RejectReason.BAD_TIMESTAMP);
+                    }
+                }
+                case REQUEST -> {
+                    if (!splitRequest(line, pos, end)) {
+                        return reject(RejectReason.MALFORMED_REQUEST);
+                    }
+                }
+                case METHOD -> {
+                    methodStart = pos;
+                    methodEnd = end;
+                }
+                case RESOURCE -> {
+                    resourceStart = pos;
+                    resourceEnd = end;
+                }
+                case STATUS -> {
+                    status = end - pos == 3 ? threeDigits(line, pos, end) : -1;
+                    if (status < 0) {
+                        return reject(RejectReason.BAD_STATUS);
+                    }
+                }
+                case BYTES -> {
+                    if (end - pos == 1 && line.charAt(pos) == '-') {
+                        bytes = 0;
+                    } else {
+                        long parsed = parseInt(line, pos, end);
+                        if (parsed == Long.MIN_VALUE) {
+                            return reject(RejectReason.BAD_BYTES);
+                        }
+                        bytes = (int) parsed;
+                    }
+                }
+                case SKIP -> {
+                    // never materialized
+                }
+            }
+            if (!terminated) {
+                return reject(RejectReason.FORMAT_MISMATCH);  // the line ends where the format goes on
+            }
+            pos = end;
+        }
+        if (matchLiteral(line, pos, len, literals[fields.length]) < 0) {
+            return reject(RejectReason.FORMAT_MISMATCH);
+        }
+
+        // Decoded last, as the NASA parser does: the most expensive check runs only on lines
+        // that match everywhere else.
+        timestamp = decodeTimestamp(line, timeStart, timeEnd);
+        if (timestamp == null) {
+            return reject(RejectReason.BAD_TIMESTAMP);
+        }
+        return accept();
+    }
+
+    /** Position after {@code literal} if the line continues with it at {@code pos}, else -1. */
+    private static int matchLiteral(CharSequence line, int pos, int len, String literal) {
+        int literalLength = literal.length();
+        if (pos + literalLength > len) {
+            return -1;
+        }
+        for (int i = 0; i < literalLength; i++) {
+            if (line.charAt(pos + i) != literal.charAt(i)) {
+                return -1;
+            }
+        }
+        return pos + literalLength;
+    }
+
+    /**
+     * End of the field starting at {@code pos}: the first {@code terminator}, skipping
+     * backslash-escaped characters in quoted fields, or {@code len} if there is none. A field
+     * ending at a space is a single token, as {@code \S+} is in the NASA format, so it may also
+     * end at other whitespace.
+     */
+    private static int fieldEnd(CharSequence line, int pos, int len, char terminator, boolean quoted) {
+        if (terminator == END_OF_TOKEN || terminator == ' ') {
+            return tokenEnd(line, pos, len);
+        }
+        if (!quoted) {
+            int end = indexOf(line, terminator, pos, len);
+            return end < 0 ? len : end;
+        }
+        for (int i = pos; i < len; i++) {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == terminator) {
+                return i;
+            }
+        }
+        return len;
+    }
+
+    /** "METHOD RESOURCE PROTOCOL": three tokens separated by single spaces, as in the NASA format. */
+    private boolean splitRequest(CharSequence line, int start, int end) {
+        int firstSpace = tokenEnd(line, start, end);
+        if (firstSpace == start || !charAt(line, firstSpace, end, ' ')) {
+            return false;
+        }
+        int secondSpace = tokenEnd(line, firstSpace + 1, end);
+        if (secondSpace == firstSpace + 1 || !charAt(line, secondSpace, end, ' ')
+                || secondSpace + 1 == end || tokenEnd(line, secondSpace + 1, end) != end) {
+            return false;
+        }
+        methodStart = start;
+        methodEnd = firstSpace;
+        resourceStart = firstSpace + 1;
+        resourceEnd = secondSpace;
+        return true;
+    }
+
+    /**
+     * Compiles an Apache {@code LogFormat} string ({@code %h}, {@code %>s}, {@code %{Referer}i},
+     * ...) or an nginx {@code log_format} string ({@code $remote_addr}, {@code $status}, ...).
+     *
+     * @throws IllegalArgumentException if the format lacks the host, timestamp, request (or
+     *                                  method and resource) or status, names one twice, puts two
+     *                                  fields next to each other, or uses a timestamp layout other
+     *                                  than {@code [dd/MMM/yyyy:HH:mm:ss Z]}
+     */
+    static Program compile(String pattern) {
+        List<String> literals = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        List<String> directives = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            int start = i;
+            Field field;
+            if (c == '%' && i + 1 < pattern.length() && pattern.charAt(i + 1) == '%') {
+                literal.append('%');
+                i += 2;
+                continue;
+            } else if (c == '%') {
+                i++;
+                while (i < pattern.length() && (pattern.charAt(i) == '<' || pattern.charAt(i) == '>')) {
+                    i++;
+                }
+                String parameter = null;
+                if (i < pattern.length() && pattern.charAt(i) == '{') {
+                    int close = pattern.indexOf('}', i);
+                    if (close < 0) {
+                        throw new IllegalArgumentException("Unclosed %{ in log format: " + pattern);
+                    }
+                    parameter = pattern.substring(i + 1, close);
+                    i = close + 1;
+                }
+                if (i >= pattern.length()) {
+                    throw new IllegalArgumentException("Log format ends inside a directive: " + pattern);
+                }
+                field = apacheField(pattern.charAt(i++), parameter);
+            } else if (c == '$' && i + 1 < pattern.length() && (isNameChar(pattern.charAt(i + 1)) || pattern.charAt(i + 1) == '{')) {
+                i++;
+                String name;
+                if (pattern.charAt(i) == '{') {
+                    int close = pattern.indexOf('}', i);
+                    if (close < 0) {
+                        throw new IllegalArgumentException("Unclosed ${ in log format: " + pattern);
+                    }
+                    name = pattern.substring(i + 1, close);
+                    i = close + 1;
+                } else {
+                    int nameStart = i;
+                    while (i < pattern.length() && isNameChar(pattern.charAt(i))) {
+                        i++;
+                    }
+                    name = pattern.substring(nameStart, i);
+                }
+                field = nginxField(name);
+            } else {
+                literal.append(c);
+                i++;
+                continue;
+            }
+
+            String directive = pattern.substring(start, i);
+            if (field == null) {
+                // Apache's %t: the timestamp in brackets.
+                literal.append('[');
+                field = Field.TIME;
+                addField(literals, fields, directives, literal, field, directive);
+                literal.append(']');
+            } else {
+                addField(literals, fields, directives, literal, field, directive);
+            }
+        }
+        literals.add(literal.toString());
+
+        Set<Field> seen = EnumSet.noneOf(Field.class);
+        for (int f = 0; f < fields.size(); f++) {
+            Field field = fields.get(f);
+            if (field != Field.SKIP && !seen.add(field)) {
+                throw new IllegalArgumentException("Log format names the " + field.name().toLowerCase()
+                        + " twice (" + directives.get(f) + "): " + pattern);
+            }
+        }
+        boolean hasRequest = seen.contains(Field.REQUEST);
+        boolean hasMethodAndResource = seen.contains(Field.METHOD) && seen.contains(Field.RESOURCE);
+        if (!seen.contains(Field.HOST) || !seen.contains(Field.TIME) || !seen.contains(Field.STATUS)
+                || hasRequest == hasMethodAndResource || (hasRequest && (seen.contains(Field.METHOD) || seen.contains(Field.RESOURCE)))) {
+            throw new IllegalArgumentException("Log format needs the host, timestamp, status and either the request"
+                    + " or the method and resource, each once: " + pattern);
+        }
+
+        int count = fields.size();
+        char[] terminators = new char[count];
+        boolean[] quoted = new boolean[count];
+        RejectReason[] rejectReasons = new RejectReason[count];
+        boolean beforeTime = true;
+        for (int f = 0; f < count; f++) {
+            // Like the NASA parser, anything wrong ahead of the timestamp is a malformed prefix.
+            beforeTime &= fields.get(f) != Field.TIME;
+            rejectReasons[f] = fields.get(f) == Field.SKIP && beforeTime
+                    ? RejectReason.MALFORMED_PREFIX : fields.get(f).rejectReason;
+            String before = literals.get(f);
+            String after = literals.get(f + 1);
+            if (after.isEmpty() && f + 1 < count) {
+                throw new IllegalArgumentException("Fields " + directives.get(f) + " and " + directives.get(f + 1)
+                        + " need text between them: " + pattern);
+            }
+            terminators[f] = after.isEmpty() ? END_OF_TOKEN : after.charAt(0);
+            quoted[f] = terminators[f] == '"' && before.endsWith("\"");
+        }
+        return new Program(literals.toArray(new String[0]), fields.toArray(new Field[0]), terminators, quoted,
+                rejectReasons);
+    }
+
+    private static void addField(List<String> literals, List<Field> fields, List<String> directives,
+                                 StringBuilder literal, Field field, String directive) {
+        literals.add(literal.toString());
+        literal.setLength(0);
+        fields.add(field);
+        directives.add(directive);
+    }
+
+    /** The field of an Apache directive, or {@code null} for {@code %t}, which brings its own brackets. */
+    private static Field apacheField(char directive, String parameter) {
+        return switch (directive) {
+            case 'h', 'a' -> Field.HOST;
+            case 't' -> {
+                if (parameter != null) {
+                    throw new IllegalArgumentException("Only the default %t timestamp is supported, not %{" + parameter + "}t");
+                }
+                yield null;
+            }
+            case 'r' -> Field.REQUEST;
+            case 'm' -> Field.METHOD;
+            case 'U' -> Field.RESOURCE;
+            case 's' -> Field.STATUS;
+            case 'b', 'B' -> Field.BYTES;
+            default -> Field.SKIP;
+        };
+    }
+
+    private static Field nginxField(String variable) {
+        return switch (variable) {
+            case "remote_addr" -> Field.HOST;
+            case "time_local" -> Field.TIME;
+            case "request" -> Field.REQUEST;
+            case "request_method" -> Field.METHOD;
+            case "uri", "request_uri" -> Field.RESOURCE;
+            case "status" -> Field.STATUS;
+            case "body_bytes_sent", "bytes_sent" -> Field.BYTES;
+            case "time_iso8601", "msec" -> throw new IllegalArgumentException(
+                    "Only $time_local timestamps are supported, not $" + variable);
+            default -> Field.SKIP;
+        };
+    }
+
+    private static boolean isNameChar(char c) {
+        return c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+}
@@ -0,0 +1,23 @@
+package com.webloganalyzer.model;
+
+/**
+ * The IP, method and resource dictionaries that give a {@link LogTable} or a stream of
+ * {@link LogRecord}s their int ids. Same threading rules as {@link StringDictionary}.
+ */
+public class LogDictionaries {
+    private final StringDictionary ips = new StringDictionary();
+    private final StringDictionary methods = new StringDictionary(16);
+    private final StringDictionary resources = new StringDictionary();
+
+    public StringDictionary getIps() {
+        return ips;
+    }
+
+    public StringDictionary getMethods() {
+        return methods;
+    }
+
+    public StringDictionary getResources() {
+        return resources;
+    }
+}
@@ -1,10 +1,10 @@
 package com.webloganalyzer.model;
 
 import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Locale;
 
 public class LogEntry {
+    private static final ThreadLocal<NasaLogLineParser> PARSER = ThreadLocal.withInitial(NasaLogLineParser::new);
+
     private String ipAddress;
     private OffsetDateTime timestamp;
     private String requestMethod;
@@ -47,30 +47,7 @@ public class LogEntry {
     }
 
     public static LogEntry parseFromNasaLogLine(String line) {
-        try {
-            String regex = "^(\\S+) \\S+ \\S+ \\[(.+?)\\] \"(\\S+) (\\S+) \\S+\" (\\d{3}) (\\S+)";
-            java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(regex);
-            java.util.regex.Matcher matcher = pattern.matcher(line);
-
-            if (!matcher.find()) {
-                return null;
-            }
-
-            String ip = matcher.group(1);
-            String dateStr = matcher.group(2);
-            String method = matcher.group(3);
-            String resource = matcher.group(4);
-            int status = Integer.parseInt(matcher.group(5));
-            String bytesStr = matcher.group(6);
-            int bytes = bytesStr.equals("-") ? 0 : Integer.parseInt(bytesStr);
-
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
-            OffsetDateTime timestamp = OffsetDateTime.parse(dateStr, formatter);
-
-            return new LogEntry(ip, timestamp, method, resource, status, bytes);
-        } catch (Exception e) {
-            return null;
-        }
+        return PARSER.get().parse(line);
     }
 
     @Override
@@ -0,0 +1,91 @@
+package com.webloganalyzer.model;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * The layout of an access log, as an Apache {@code LogFormat} or nginx {@code log_format} string,
+ * and the factory for parsers of it. {@link #COMMON} (the NASA logs) uses the hand-written
+ * {@link NasaLogLineParser}; any other format is compiled once into a program that its parsers
+ * run without backtracking, skipping the fields no analysis reads.
+ *
+ * <p>A format must give the client host, the timestamp in the Common Log Format layout
+ * ({@code %t} or {@code [$time_local]}), the status and either the request line or the method
+ * and resource; the byte count is optional and reads as 0 when absent.
+ */
+public final class LogFormat {
+
+    public static final String COMMON_PATTERN = "%h %l %u %t \"%r\" %>s %b";
+    public static final String COMBINED_PATTERN = COMMON_PATTERN + " \"%{Referer}i\" \"%{User-agent}i\"";
+
+    public static final LogFormat COMMON = new LogFormat("common", COMMON_PATTERN, NasaLogLineParser::new);
+    public static final LogFormat COMBINED = compile("combined", COMBINED_PATTERN);
+
+    private final String name;
+    private final String pattern;
+    private final Supplier<LogLineParser> parsers;
+
+    private LogFormat(String name, String pattern, Supplier<LogLineParser> parsers) {
+        this.name = name;
+        this.pattern = pattern;
+        this.parsers = parsers;
+    }
+
+    /**
+     * Compiles a format string.
+     *
+     * @throws IllegalArgumentException if the format cannot be parsed into log entries
+     */
+    public static LogFormat compile(String pattern) {
+        return compile(pattern, pattern);
+    }
+
+    public static LogFormat compile(String name, String pattern) {
+        CompiledLogLineParser.Program program = CompiledLogLineParser.compile(pattern);
+        return new LogFormat(name, pattern, () -> new CompiledLogLineParser(program));
+    }
+
+    /**
+     * {@code common} or {@code combined}, or a format string. The Common Log Format string itself
+     * also gives {@link #COMMON}, so it keeps its hand-written parser.
+     */
+    public static LogFormat of(String nameOrPattern) {
+        return switch (nameOrPattern.toLowerCase(Locale.ROOT)) {
+            case "common", "clf" -> COMMON;
+            case "combined" -> COMBINED;
+            default -> nameOrPattern.equals(COMMON_PATTERN) ? COMMON : compile(nameOrPattern);
+        };
+    }
+
+    /** A new parser; parsers are not thread-safe, so each worker needs its own. */
+    public LogLineParser newParser() {
+        return parsers.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LogFormat other && pattern.equals(other.pattern) && isCommon() == other.isCommon();
+    }
+
+    @Override
+    public int hashCode() {
+        return pattern.hashCode();
+    }
+
+    private boolean isCommon() {
+        return this == COMMON;
+    }
+
+    @Override
+    public String toString() {
+        return name.equals(pattern) ? pattern : name + " (" + pattern + ")";
+    }
+}
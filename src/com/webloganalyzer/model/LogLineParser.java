@@ -0,0 +1,47 @@
+package com.webloganalyzer.model;
+
+import java.util.Map;
+
+/**
+ * Turns raw access log lines into entries, table rows or records, counting the lines it rejects
+ * by {@link RejectReason}. Parsers come from a {@link LogFormat} and keep per-line state, so they
+ * are not thread-safe: give each worker its own parser.
+ */
+public interface LogLineParser {
+
+    /**
+     * Parses one line, returning {@code null} if it does not match the format. The reason is then
+     * available from {@link #getLastRejectReason()}.
+     */
+    LogEntry parse(CharSequence line);
+
+    /**
+     * Parses one line straight into a row of {@code table}, matching hosts, methods and resources
+     * against the table's dictionaries in place.
+     *
+     * @return false if the line was rejected; see {@link #getLastRejectReason()}
+     */
+    boolean parseInto(CharSequence line, LogTable table);
+
+    /**
+     * Parses one line into {@code record}, resolving its ids against the record's dictionaries.
+     * The IP and resource are only resolved when first asked for, so {@code line} must stay as it
+     * is while the record is read.
+     *
+     * @return false if the line was rejected, in which case the record is left unchanged
+     */
+    boolean parseInto(CharSequence line, LogRecord record);
+
+    RejectReason getLastRejectReason();
+
+    long getAcceptedCount();
+
+    /** Lines seen so far, accepted or rejected. */
+    long getLineCount();
+
+    long getRejectCount(RejectReason reason);
+
+    long getTotalRejectCount();
+
+    Map<RejectReason, Long> getRejectCounts();
+}
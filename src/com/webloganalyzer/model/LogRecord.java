@@ -0,0 +1,128 @@
+package com.webloganalyzer.model;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Mutable, reusable holder for one parsed line, with IP, method and resource stored as ids into
+ * {@link #getDictionaries()}. Parsers and table scans overwrite the same instance for every line,
+ * so consumers must copy anything they want to keep.
+ *
+ * <p>A parser leaves the IP and resource as ranges of its line and interns them only when their
+ * id is asked for, so consumers that need only their {@linkplain #getIpHash() hashes} or a few of
+ * their values, like heavy-hitter summaries and sketches, keep the dictionaries from growing.
+ */
+public class LogRecord {
+    private final LogDictionaries dictionaries;
+
+    private int ipId;  // -1 until interned from the line
+    private int methodId;
+    private int resourceId;  // -1 until interned from the line
+    private CharSequence line;
+    private int ipStart;
+    private int ipEnd;
+    private int resourceStart;
+    private int resourceEnd;
+    private long epochSecond;
+    private int offsetSeconds;
+    private int statusCode;
+    private int bytes;
+
+    public LogRecord(LogDictionaries dictionaries) {
+        this.dictionaries = dictionaries;
+    }
+
+    public void set(int ipId, int methodId, int resourceId, long epochSecond, int offsetSeconds,
+                    int statusCode, int bytes) {
+        this.ipId = ipId;
+        this.methodId = methodId;
+        this.resourceId = resourceId;
+        this.epochSecond = epochSecond;
+        this.offsetSeconds = offsetSeconds;
+        this.statusCode = statusCode;
+        this.bytes = bytes;
+        this.line = null;
+    }
+
+    /** Sets a parsed line whose IP and resource are {@code line} ranges, interned on first use. */
+    public void set(CharSequence line, int ipStart, int ipEnd, int methodId, int resourceStart, int resourceEnd,
+                    long epochSecond, int offsetSeconds, int statusCode, int bytes) {
+        set(-1, methodId, -1, epochSecond, offsetSeconds, statusCode, bytes);
+        this.line = line;
+        this.ipStart = ipStart;
+        this.ipEnd = ipEnd;
+        this.resourceStart = resourceStart;
+        this.resourceEnd = resourceEnd;
+    }
+
+    public LogDictionaries getDictionaries() {
+        return dictionaries;
+    }
+
+    public int getIpId() {
+        if (ipId < 0) {
+            ipId = dictionaries.getIps().idOf(line, ipStart, ipEnd);
+        }
+        return ipId;
+    }
+
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public int getResourceId() {
+        if (resourceId < 0) {
+            resourceId = dictionaries.getResources().idOf(line, resourceStart, resourceEnd);
+        }
+        return resourceId;
+    }
+
+    /** The {@link StringDictionary#hash} of the IP, without interning it. */
+    public long getIpHash() {
+        return ipId >= 0 ? dictionaries.getIps().hashOf(ipId) : StringDictionary.hash(line, ipStart, ipEnd);
+    }
+
+    /** The {@link StringDictionary#hash} of the resource, without interning it. */
+    public long getResourceHash() {
+        return resourceId >= 0 ? dictionaries.getResources().hashOf(resourceId)
+                : StringDictionary.hash(line, resourceStart, resourceEnd);
+    }
+
+    public long getEpochSecond() {
+        return epochSecond;
+    }
+
+    public int getOffsetSeconds() {
+        return offsetSeconds;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public int getBytes() {
+        return bytes;
+    }
+
+    public String getIpAddress() {
+        return ipId >= 0 ? dictionaries.getIps().valueOf(ipId) : line.subSequence(ipStart, ipEnd).toString();
+    }
+
+    public String getRequestMethod() {
+        return dictionaries.getMethods().valueOf(methodId);
+    }
+
+    public String getResource() {
+        return resourceId >= 0 ? dictionaries.getResources().valueOf(resourceId)
+                : line.subSequence(resourceStart, resourceEnd).toString();
+    }
+
+    public OffsetDateTime getTimestamp() {
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneOffset.ofTotalSeconds(offsetSeconds));
+    }
+
+    public LogEntry toEntry() {
+        return new LogEntry(getIpAddress(), getTimestamp(), getRequestMethod(), getResource(), statusCode, bytes);
+    }
+}
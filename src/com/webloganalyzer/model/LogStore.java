@@ -0,0 +1,21 @@
+package com.webloganalyzer.model;
+
+/**
+ * Parsed log rows in file order, read by row number. Ids refer to {@link #getDictionaries()}.
+ * Implementations are filled by one writer; once filled, any number of threads may read them.
+ */
+public interface LogStore {
+
+    int size();
+
+    LogDictionaries getDictionaries();
+
+    int getIpId(int row);
+
+    int getResourceId(int row);
+
+    long getEpochSecond(int row);
+
+    /** Loads one row into a record that shares this store's dictionaries. */
+    void readInto(int row, LogRecord record);
+}
@@ -0,0 +1,274 @@
+package com.webloganalyzer.model;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Struct-of-arrays store for parsed log lines. IP, method and resource are dictionary-encoded
+ * int ids, timestamps are epoch seconds plus the original UTC offset, and status and byte counts
+ * are plain int columns. A month of NASA logs shares a few tens of thousands of hosts and a few
+ * thousand resources, so the dictionaries stay small while the columns hold one primitive per row.
+ *
+ * <p>Rows keep insertion order. Not thread-safe for writers: fill one table per worker and
+ * combine them with {@link #addAll}. For logs larger than the heap see {@link OffHeapLogStore}.
+ */
+public class LogTable implements LogStore {
+
+    private final LogDictionaries dictionaries;
+    private final StringDictionary ips;
+    private final StringDictionary methods;
+    private final StringDictionary resources;
+
+    private int[] ipIds;
+    private int[] methodIds;
+    private int[] resourceIds;
+    private long[] epochSeconds;
+    private int[] offsetSeconds;
+    private int[] statusCodes;
+    private int[] byteCounts;
+    private int size;
+
+    public LogTable() {
+        this(1024);
+    }
+
+    public LogTable(int initialCapacity) {
+        this(initialCapacity, new LogDictionaries());
+    }
+
+    /** Creates a table whose ids refer to {@code dictionaries}, which may be shared with others. */
+    public LogTable(int initialCapacity, LogDictionaries dictionaries) {
+        int capacity = Math.max(16, initialCapacity);
+        this.dictionaries = dictionaries;
+        ips = dictionaries.getIps();
+        methods = dictionaries.getMethods();
+        resources = dictionaries.getResources();
+        ipIds = new int[capacity];
+        methodIds = new int[capacity];
+        resourceIds = new int[capacity];
+        epochSeconds = new long[capacity];
+        offsetSeconds = new int[capacity];
+        statusCodes = new int[capacity];
+        byteCounts = new int[capacity];
+    }
+
+    /**
+     * Wraps columns that are already filled, for instance read back from a snapshot. The arrays
+     * are used as they are, not copied, and each must hold at least {@code size} rows whose ids
+     * refer to {@code dictionaries}.
+     */
+    public LogTable(LogDictionaries dictionaries, int size, int[] ipIds, int[] methodIds, int[] resourceIds,
+                    long[] epochSeconds, int[] offsetSeconds, int[] statusCodes, int[] byteCounts) {
+        this.dictionaries = dictionaries;
+        ips = dictionaries.getIps();
+        methods = dictionaries.getMethods();
+        resources = dictionaries.getResources();
+        this.ipIds = ipIds;
+        this.methodIds = methodIds;
+        this.resourceIds = resourceIds;
+        this.epochSeconds = epochSeconds;
+        this.offsetSeconds = offsetSeconds;
+        this.statusCodes = statusCodes;
+        this.byteCounts = byteCounts;
+        this.size = size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** Rough heap footprint of the columns (at their current capacity) and the dictionaries. */
+    public long estimateMemoryBytes() {
+        long columns = 6L * Integer.BYTES + Long.BYTES;
+        return columns * ipIds.length + ips.estimateMemoryBytes() + methods.estimateMemoryBytes()
+                + resources.estimateMemoryBytes();
+    }
+
+    @Override
+    public LogDictionaries getDictionaries() {
+        return dictionaries;
+    }
+
+    public StringDictionary getIps() {
+        return ips;
+    }
+
+    public StringDictionary getMethods() {
+        return methods;
+    }
+
+    public StringDictionary getResources() {
+        return resources;
+    }
+
+    public void add(LogEntry entry) {
+        OffsetDateTime timestamp = entry.getTimestamp();
+        addRow(ips.idOf(entry.getIpAddress()),
+                methods.idOf(entry.getRequestMethod()),
+                resources.idOf(entry.getResource()),
+                timestamp.toEpochSecond(),
+                timestamp.getOffset().getTotalSeconds(),
+                entry.getStatusCode(),
+                entry.getBytes());
+    }
+
+    public void add(LogRecord record) {
+        if (record.getDictionaries() == dictionaries) {
+            addRow(record.getIpId(), record.getMethodId(), record.getResourceId(), record.getEpochSecond(),
+                    record.getOffsetSeconds(), record.getStatusCode(), record.getBytes());
+        } else {
+            addRow(ips.idOf(record.getIpAddress()), methods.idOf(record.getRequestMethod()),
+                    resources.idOf(record.getResource()), record.getEpochSecond(), record.getOffsetSeconds(),
+                    record.getStatusCode(), record.getBytes());
+        }
+    }
+
+    /** Appends a row whose ids come from this table's own dictionaries. */
+    public void addRow(int ipId, int methodId, int resourceId, long epochSecond, int offsetSecond,
+                       int statusCode, int bytes) {
+        if (size == ipIds.length) {
+            grow(Math.max(16, size * 2));
+        }
+        ipIds[size] = ipId;
+        methodIds[size] = methodId;
+        resourceIds[size] = resourceId;
+        epochSeconds[size] = epochSecond;
+        offsetSeconds[size] = offsetSecond;
+        statusCodes[size] = statusCode;
+        byteCounts[size] = bytes;
+        size++;
+    }
+
+    /** Appends every row of {@code other}, translating its dictionary ids into this table's. */
+    public void addAll(LogTable other) {
+        if (size + other.size > ipIds.length) {
+            grow(Math.max(size + other.size, size * 2));
+        }
+        if (other.dictionaries == dictionaries) {
+            System.arraycopy(other.ipIds, 0, ipIds, size, other.size);
+            System.arraycopy(other.methodIds, 0, methodIds, size, other.size);
+            System.arraycopy(other.resourceIds, 0, resourceIds, size, other.size);
+        } else {
+            int[] ipMap = remap(other.ips, ips);
+            int[] methodMap = remap(other.methods, methods);
+            int[] resourceMap = remap(other.resources, resources);
+            for (int row = 0; row < other.size; row++) {
+                ipIds[size + row] = ipMap[other.ipIds[row]];
+                methodIds[size + row] = methodMap[other.methodIds[row]];
+                resourceIds[size + row] = resourceMap[other.resourceIds[row]];
+            }
+        }
+        System.arraycopy(other.epochSeconds, 0, epochSeconds, size, other.size);
+        System.arraycopy(other.offsetSeconds, 0, offsetSeconds, size, other.size);
+        System.arraycopy(other.statusCodes, 0, statusCodes, size, other.size);
+        System.arraycopy(other.byteCounts, 0, byteCounts, size, other.size);
+        size += other.size;
+    }
+
+    @Override
+    public int getIpId(int row) {
+        return ipIds[row];
+    }
+
+    public int getMethodId(int row) {
+        return methodIds[row];
+    }
+
+    @Override
+    public int getResourceId(int row) {
+        return resourceIds[row];
+    }
+
+    @Override
+    public long getEpochSecond(int row) {
+        return epochSeconds[row];
+    }
+
+    public int getOffsetSeconds(int row) {
+        return offsetSeconds[row];
+    }
+
+    public int getStatusCode(int row) {
+        return statusCodes[row];
+    }
+
+    public int getBytes(int row) {
+        return byteCounts[row];
+    }
+
+    public String getIpAddress(int row) {
+        return ips.valueOf(ipIds[row]);
+    }
+
+    public String getRequestMethod(int row) {
+        return methods.valueOf(methodIds[row]);
+    }
+
+    public String getResource(int row) {
+        return resources.valueOf(resourceIds[row]);
+    }
+
+    public OffsetDateTime getTimestamp(int row) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds[row]),
+                ZoneOffset.ofTotalSeconds(offsetSeconds[row]));
+    }
+
+    @Override
+    public void readInto(int row, LogRecord record) {
+        if (record.getDictionaries() != dictionaries) {
+            throw new IllegalArgumentException("Record does not share this table's dictionaries");
+        }
+        record.set(ipIds[row], methodIds[row], resourceIds[row], epochSeconds[row], offsetSeconds[row],
+                statusCodes[row], byteCounts[row]);
+    }
+
+    /** Builds a {@link LogEntry} for one row; the table itself keeps no entry objects. */
+    public LogEntry getEntry(int row) {
+        return new LogEntry(getIpAddress(row), getTimestamp(row), getRequestMethod(row),
+                getResource(row), statusCodes[row], byteCounts[row]);
+    }
+
+    /** Read-only list view that creates each {@link LogEntry} on access. */
+    public List<LogEntry> asEntryList() {
+        return new EntryView();
+    }
+
+    private void grow(int capacity) {
+        ipIds = Arrays.copyOf(ipIds, capacity);
+        methodIds = Arrays.copyOf(methodIds, capacity);
+        resourceIds = Arrays.copyOf(resourceIds, capacity);
+        epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+        offsetSeconds = Arrays.copyOf(offsetSeconds, capacity);
+        statusCodes = Arrays.copyOf(statusCodes, capacity);
+        byteCounts = Arrays.copyOf(byteCounts, capacity);
+    }
+
+    private static int[] remap(StringDictionary from, StringDictionary to) {
+        int[] map = new int[from.size()];
+        for (int id = 0; id < map.length; id++) {
+            map[id] = to.idOf(from.valueOf(id));
+        }
+        return map;
+    }
+
+    private class EntryView extends AbstractList<LogEntry> implements RandomAccess {
+        @Override
+        public LogEntry get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return getEntry(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.webloganalyzer.model;
+
+/**
+ * Single-pass tokenizer for NASA Common Log Format lines, the parser of {@link LogFormat#COMMON}.
+ * Accepts exactly the lines the old regex
+ * {@code ^(\S+) \S+ \S+ \[(.+?)\] "(\S+) (\S+) \S+" (\d{3}) (\S+)} accepted and builds
+ * identical {@link LogEntry} values.
+ *
+ * <p>Instances keep a one-entry timestamp cache and per-reason reject counters, so they are
+ * not thread-safe: give each worker its own parser.
+ */
+public class NasaLogLineParser extends AbstractLogLineParser {
+
+    @Override
+    boolean scan(CharSequence line) {
+        int len = line.length();
+
+        hostStart = 0;
+        hostEnd = tokenEnd(line, 0, len);
+        if (hostEnd == 0 || !charAt(line, hostEnd, len, ' ')) {
+            return reject(RejectReason.MALFORMED_PREFIX);
+        }
+        int identEnd = tokenEnd(line, hostEnd + 1, len);
+        if (identEnd == hostEnd + 1 || !charAt(line, identEnd, len, ' ')) {
+            return reject(RejectReason.MALFORMED_PREFIX);
+        }
+        int userEnd = tokenEnd(line, identEnd + 1, len);
+        if (userEnd == identEnd + 1 || !charAt(line, userEnd, len, ' ')) {
+            return reject(RejectReason.MALFORMED_PREFIX);
+        }
+        if (!charAt(line, userEnd + 1, len, '[')) {
+            return reject(RejectReason.MISSING_TIMESTAMP);
+        }
+
+        // The lazy (.+?) can only succeed at the first ']' because a timestamp never contains one.
+        int tsStart = userEnd + 2;
+        int tsEnd = indexOf(line, ']', tsStart, len);
+        if (tsEnd <= tsStart) {
+            return reject(RejectReason.MISSING_TIMESTAMP);
+        }
+        if (!charAt(line, tsEnd + 1, len, ' ') || !charAt(line, tsEnd + 2, len, '"')) {
+            return reject(RejectReason.MALFORMED_REQUEST);
+        }
+
+        methodStart = tsEnd + 3;
+        methodEnd = tokenEnd(line, methodStart, len);
+        if (methodEnd == methodStart || !charAt(line, methodEnd, len, ' ')) {
+            return reject(RejectReason.MALFORMED_REQUEST);
+        }
+        resourceStart = methodEnd + 1;
+        resourceEnd = tokenEnd(line, resourceStart, len);
+        if (resourceEnd == resourceStart || !charAt(line, resourceEnd, len, ' ')) {
+            return reject(RejectReason.MALFORMED_REQUEST);
+        }
+        // \S+" followed by a space: the protocol token must end in the closing quote.
+        int protocolStart = resourceEnd + 1;
+        int protocolEnd = tokenEnd(line, protocolStart, len);
+        if (protocolEnd - protocolStart < 2 || line.charAt(protocolEnd - 1) != '"'
+                || !charAt(line, protocolEnd, len, ' ')) {
+            return reject(RejectReason.MALFORMED_REQUEST);
+        }
+
+        int statusStart = protocolEnd + 1;
+        status = threeDigits(line, statusStart, len);
+        if (status < 0 || !charAt(line, statusStart + 3, len, ' ')) {
+            return reject(RejectReason.BAD_STATUS);
+        }
+
+        int bytesStart = statusStart + 4;
+        int bytesEnd = tokenEnd(line, bytesStart, len);
+        if (bytesEnd == bytesStart) {
+            return reject(RejectReason.BAD_BYTES);
+        }
+        if (bytesEnd - bytesStart == 1 && line.charAt(bytesStart) == '-') {
+            bytes = 0;
+        } else {
+            long parsed = parseInt(line, bytesStart, bytesEnd);
+            if (parsed == Long.MIN_VALUE) {
+                return reject(RejectReason.BAD_BYTES);
+            }
+            bytes = (int) parsed;
+        }
+
+        timestamp = decodeTimestamp(line, tsStart, tsEnd);
+        if (timestamp == null) {
+            return reject(RejectReason.BAD_TIMESTAMP);
+        }
+
+        return accept();
+    }
+}
@@ -0,0 +1,337 @@
+package com.webloganalyzer.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Row store for logs larger than the heap. Each row is packed into 32 bytes of a fixed-size
+ * segment outside the Java heap: segments are direct buffers until {@code memoryBudgetBytes} is
+ * used up, after which they are mapped from a temporary spill file, whose pages the operating
+ * system writes out and reads back as memory gets tight. Either way the rows are invisible to the
+ * garbage collector, so the heap only holds the dictionaries (which grow with the distinct hosts
+ * and resources, not with the lines) and one reference per segment.
+ *
+ * <p>Direct buffers count against {@code -XX:MaxDirectMemorySize}, which defaults to the maximum
+ * heap size; a segment that does not fit there is spilled like one over the budget.
+ *
+ * <p>Not thread-safe for writers: fill the store from one thread, for instance by appending the
+ * partial {@link LogTable}s of the workers in file order. Reads use absolute positions only, so
+ * any number of threads may read a filled store. {@link #close()} frees the spill file.
+ */
+public final class OffHeapLogStore implements LogStore, Closeable {
+
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = 256L << 20;
+
+    static final int ROW_BYTES = 32;
+    private static final int ROW_SHIFT = 5;
+    private static final int SEGMENT_SHIFT = 18;
+    static final int SEGMENT_ROWS = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_ROWS - 1;
+    static final int SEGMENT_BYTES = SEGMENT_ROWS * ROW_BYTES;
+
+    // Field offsets within a row; the long comes first so it stays 8-byte aligned.
+    private static final int EPOCH_SECOND = 0;
+    private static final int IP_ID = 8;
+    private static final int METHOD_ID = 12;
+    private static final int RESOURCE_ID = 16;
+    private static final int OFFSET_SECONDS = 20;
+    private static final int STATUS_CODE = 24;
+    private static final int BYTE_COUNT = 28;
+
+    private final LogDictionaries dictionaries;
+    private final StringDictionary ips;
+    private final StringDictionary methods;
+    private final StringDictionary resources;
+    private final long memoryBudgetBytes;
+    private final File spillDirectory;
+
+    private ByteBuffer[] segments = new ByteBuffer[16];
+    private int segmentCount;
+    private int directSegments;
+    private boolean memoryExhausted;
+    private FileChannel spillChannel;
+    private Path spillFile;
+    private int spilledSegments;
+    private int size;
+
+    /** A store with the default memory budget, spilling to the system temporary directory. */
+    public OffHeapLogStore() {
+        this(DEFAULT_MEMORY_BUDGET_BYTES, null);
+    }
+
+    /**
+     * @param memoryBudgetBytes direct memory to fill before spilling; 0 spills every segment
+     * @param spillDirectory where the spill file goes, or {@code null} for the system temporary directory
+     */
+    public OffHeapLogStore(long memoryBudgetBytes, File spillDirectory) {
+        this(memoryBudgetBytes, spillDirectory, new LogDictionaries());
+    }
+
+    /** Creates a store whose ids refer to {@code dictionaries}, which may be shared with others. */
+    public OffHeapLogStore(long memoryBudgetBytes, File spillDirectory, LogDictionaries dictionaries) {
+        if (memoryBudgetBytes < 0) {
+            throw new IllegalArgumentException("memoryBudgetBytes must not be negative");
+        }
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.spillDirectory = spillDirectory;
+        this.dictionaries = dictionaries;
+        ips = dictionaries.getIps();
+        methods = dictionaries.getMethods();
+        resources = dictionaries.getResources();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public LogDictionaries getDictionaries() {
+        return dictionaries;
+    }
+
+    public StringDictionary getIps() {
+        return ips;
+    }
+
+    public StringDictionary getMethods() {
+        return methods;
+    }
+
+    public StringDictionary getResources() {
+        return resources;
+    }
+
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    /** Where the spill file goes, or {@code null} for the system temporary directory. */
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /** Bytes of direct memory taken by segments. */
+    public long getDirectBytes() {
+        return (long) directSegments * SEGMENT_BYTES;
+    }
+
+    /** Bytes of segments mapped from the spill file. */
+    public long getSpilledBytes() {
+        return (long) spilledSegments * SEGMENT_BYTES;
+    }
+
+    /** Rough heap footprint: the dictionaries and the segment table, but none of the rows. */
+    public long estimateHeapBytes() {
+        return 16L * segments.length + ips.estimateMemoryBytes() + methods.estimateMemoryBytes()
+                + resources.estimateMemoryBytes();
+    }
+
+    public void add(LogRecord record) {
+        if (record.getDictionaries() == dictionaries) {
+            addRow(record.getIpId(), record.getMethodId(), record.getResourceId(), record.getEpochSecond(),
+                    record.getOffsetSeconds(), record.getStatusCode(), record.getBytes());
+        } else {
+            addRow(ips.idOf(record.getIpAddress()), methods.idOf(record.getRequestMethod()),
+                    resources.idOf(record.getResource()), record.getEpochSecond(), record.getOffsetSeconds(),
+                    record.getStatusCode(), record.getBytes());
+        }
+    }
+
+    /** Appends a row whose ids come from this store's own dictionaries. */
+    public void addRow(int ipId, int methodId, int resourceId, long epochSecond, int offsetSecond,
+                       int statusCode, int bytes) {
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Store is full at " + size + " rows");
+        }
+        if ((size >>> SEGMENT_SHIFT) == segmentCount) {
+            addSegment();
+        }
+        ByteBuffer segment = segments[size >>> SEGMENT_SHIFT];
+        int at = (size & SEGMENT_MASK) << ROW_SHIFT;
+        segment.putLong(at + EPOCH_SECOND, epochSecond);
+        segment.putInt(at + IP_ID, ipId);
+        segment.putInt(at + METHOD_ID, methodId);
+        segment.putInt(at + RESOURCE_ID, resourceId);
+        segment.putInt(at + OFFSET_SECONDS, offsetSecond);
+        segment.putInt(at + STATUS_CODE, statusCode);
+        segment.putInt(at + BYTE_COUNT, bytes);
+        size++;
+    }
+
+    /** Appends every row of {@code table}, translating its dictionary ids into this store's. */
+    public void addAll(LogTable table) {
+        if (table.getDictionaries() == dictionaries) {
+            for (int row = 0; row < table.size(); row++) {
+                addRow(table.getIpId(row), table.getMethodId(row), table.getResourceId(row),
+                        table.getEpochSecond(row), table.getOffsetSeconds(row), table.getStatusCode(row),
+                        table.getBytes(row));
+            }
+            return;
+        }
+        int[] ipMap = remap(table.getIps(), ips);
+        int[] methodMap = remap(table.getMethods(), methods);
+        int[] resourceMap = remap(table.getResources(), resources);
+        for (int row = 0; row < table.size(); row++) {
+            addRow(ipMap[table.getIpId(row)], methodMap[table.getMethodId(row)],
+                    resourceMap[table.getResourceId(row)], table.getEpochSecond(row),
+                    table.getOffsetSeconds(row), table.getStatusCode(row), table.getBytes(row));
+        }
+    }
+
+    /** Appends every row of {@code other}, translating its dictionary ids into this store's. */
+    public void addAll(OffHeapLogStore other) {
+        boolean shared = other.getDictionaries() == dictionaries;
+        int[] ipMap = shared ? null : remap(other.getIps(), ips);
+        int[] methodMap = shared ? null : remap(other.getMethods(), methods);
+        int[] resourceMap = shared ? null : remap(other.getResources(), resources);
+        for (int row = 0; row < other.size(); row++) {
+            ByteBuffer segment = other.segment(row);
+            int at = position(row);
+            int ipId = segment.getInt(at + IP_ID);
+            int methodId = segment.getInt(at + METHOD_ID);
+            int resourceId = segment.getInt(at + RESOURCE_ID);
+            addRow(shared ? ipId : ipMap[ipId], shared ? methodId : methodMap[methodId],
+                    shared ? resourceId : resourceMap[resourceId], segment.getLong(at + EPOCH_SECOND),
+                    segment.getInt(at + OFFSET_SECONDS), segment.getInt(at + STATUS_CODE),
+                    segment.getInt(at + BYTE_COUNT));
+        }
+    }
+
+    @Override
+    public int getIpId(int row) {
+        return segment(row).getInt(position(row) + IP_ID);
+    }
+
+    public int getMethodId(int row) {
+        return segment(row).getInt(position(row) + METHOD_ID);
+    }
+
+    @Override
+    public int getResourceId(int row) {
+        return segment(row).getInt(position(row) + RESOURCE_ID);
+    }
+
+    @Override
+    public long getEpochSecond(int row) {
+        return segment(row).getLong(position(row) + EPOCH_SECOND);
+    }
+
+    public int getOffsetSeconds(int row) {
+        return segment(row).getInt(position(row) + OFFSET_SECONDS);
+    }
+
+    public int getStatusCode(int row) {
+        return segment(row).getInt(position(row) + STATUS_CODE);
+    }
+
+    public int getBytes(int row) {
+        return segment(row).getInt(position(row) + BYTE_COUNT);
+    }
+
+    @Override
+    public void readInto(int row, LogRecord record) {
+        if (record.getDictionaries() != dictionaries) {
+            throw new IllegalArgumentException("Record does not share this store's dictionaries");
+        }
+        ByteBuffer segment = segment(row);
+        int at = position(row);
+        record.set(segment.getInt(at + IP_ID), segment.getInt(at + METHOD_ID), segment.getInt(at + RESOURCE_ID),
+                segment.getLong(at + EPOCH_SECOND), segment.getInt(at + OFFSET_SECONDS),
+                segment.getInt(at + STATUS_CODE), segment.getInt(at + BYTE_COUNT));
+    }
+
+    /** Builds a {@link LogEntry} for one row; the store itself keeps no entry objects. */
+    public LogEntry getEntry(int row) {
+        LogRecord record = new LogRecord(dictionaries);
+        readInto(row, record);
+        return record.toEntry();
+    }
+
+    /**
+     * Drops every row and deletes the spill file. Direct segments are freed once the buffers are
+     * collected, as the JDK offers no way to release them earlier.
+     */
+    @Override
+    public void close() throws IOException {
+        segments = new ByteBuffer[0];
+        segmentCount = 0;
+        directSegments = 0;
+        spilledSegments = 0;
+        size = 0;
+        if (spillChannel != null) {
+            spillChannel.close();  // deletes the file, which stays readable while mapped
+            spillChannel = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapLogStore{rows=" + size + ", direct=" + (getDirectBytes() >> 20) + " MB, spilled="
+                + (getSpilledBytes() >> 20) + " MB" + (spillFile != null ? " in " + spillFile : "") + "}";
+    }
+
+    private ByteBuffer segment(int row) {
+        return segments[row >>> SEGMENT_SHIFT];
+    }
+
+    private static int position(int row) {
+        return (row & SEGMENT_MASK) << ROW_SHIFT;
+    }
+
+    private void addSegment() {
+        if (segmentCount == segments.length) {
+            segments = Arrays.copyOf(segments, segmentCount * 2);
+        }
+        ByteBuffer segment = null;
+        if (!memoryExhausted && getDirectBytes() + SEGMENT_BYTES <= memoryBudgetBytes) {
+            try {
+                segment = ByteBuffer.allocateDirect(SEGMENT_BYTES);
+                directSegments++;
+            } catch (OutOfMemoryError e) {
+                // Out of direct memory (-XX:MaxDirectMemorySize) before the budget: spill the rest.
+                memoryExhausted = true;
+            }
+        }
+        if (segment == null) {
+            segment = mapSpillSegment();
+        }
+        segments[segmentCount++] = segment.order(ByteOrder.nativeOrder());
+    }
+
+    private ByteBuffer mapSpillSegment() {
+        try {
+            if (spillChannel == null) {
+                spillFile = spillDirectory == null
+                        ? Files.createTempFile("weblog-", ".spill")
+                        : Files.createTempFile(spillDirectory.toPath(), "weblog-", ".spill");
+                spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            // Mapping past the end grows the file; the new pages read as zeros until written.
+            ByteBuffer segment = spillChannel.map(FileChannel.MapMode.READ_WRITE,
+                    (long) spilledSegments * SEGMENT_BYTES, SEGMENT_BYTES);
+            spilledSegments++;
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill log rows to disk", e);
+        }
+    }
+
+    private static int[] remap(StringDictionary from, StringDictionary to) {
+        int[] map = new int[from.size()];
+        for (int id = 0; id < map.length; id++) {
+            map[id] = to.idOf(from.valueOf(id));
+        }
+        return map;
+    }
+}
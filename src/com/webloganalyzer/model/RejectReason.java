@@ -0,0 +1,21 @@
+package com.webloganalyzer.model;
+
+public enum RejectReason {
+    MALFORMED_PREFIX("host, ident and user fields not separated by single spaces"),
+    MISSING_TIMESTAMP("no [timestamp] section after the user field"),
+    BAD_TIMESTAMP("timestamp is not in dd/MMM/yyyy:HH:mm:ss Z format"),
+    MALFORMED_REQUEST("request is not \"METHOD RESOURCE PROTOCOL\""),
+    BAD_STATUS("status code is not three digits"),
+    BAD_BYTES("byte count is neither '-' nor an integer"),
+    FORMAT_MISMATCH("line does not match the other fields of the log format");
+
+    private final String description;
+
+    RejectReason(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
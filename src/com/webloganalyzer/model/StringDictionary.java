@@ -0,0 +1,146 @@
+package com.webloganalyzer.model;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense int ids (0, 1, 2, ...) to distinct strings. Lookups by character range hash and
+ * compare the characters in place, so no String is created for a value that is already known.
+ * Each value's 64-bit {@link #hash} is kept, so summaries keyed by value hash need not rehash
+ * the strings of stored rows.
+ *
+ * <p>Not thread-safe for writers; concurrent {@link #find} and {@link #valueOf} calls are fine
+ * once the dictionary is no longer modified.
+ */
+public class StringDictionary {
+
+    private String[] values;
+    private long[] hashes;
+    private int[] slots;  // id + 1, or 0 for an empty slot
+    private int size;
+
+    public StringDictionary() {
+        this(64);
+    }
+
+    public StringDictionary(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        values = new String[capacity];
+        hashes = new long[capacity];
+        slots = new int[tableSizeFor(capacity * 2)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String valueOf(int id) {
+        return values[id];
+    }
+
+    /** The {@link #hash} of {@code valueOf(id)}. */
+    public long hashOf(int id) {
+        return hashes[id];
+    }
+
+    /** Rough heap footprint: the id and hash arrays plus a compact Latin-1 String per value. */
+    public long estimateMemoryBytes() {
+        long bytes = 4L * (values.length + slots.length) + 8L * hashes.length;
+        for (int i = 0; i < size; i++) {
+            bytes += 40 + values[i].length();
+        }
+        return bytes;
+    }
+
+    /** Returns the id of {@code value}, adding it if it is new. */
+    public int idOf(String value) {
+        return lookup(value, 0, value.length(), hash(value, 0, value.length()), true);
+    }
+
+    /** Returns the id of {@code chars[start, end)}, adding it if it is new. */
+    public int idOf(CharSequence chars, int start, int end) {
+        return lookup(chars, start, end, hash(chars, start, end), true);
+    }
+
+    /** Returns the id of {@code value}, or -1 if it is not in the dictionary. */
+    public int find(String value) {
+        return lookup(value, 0, value.length(), hash(value, 0, value.length()), false);
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars of {@code chars[start, end)}, finished with the
+     * MurmurHash3 fmix64 step so that every bit is well mixed. Equal values hash alike whichever
+     * dictionary, if any, they are in.
+     */
+    public static long hash(CharSequence chars, int start, int end) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            h ^= chars.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe1a85ec5L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private int lookup(CharSequence chars, int start, int end, long hash, boolean insert) {
+        int mask = slots.length - 1;
+        int index = (int) hash & mask;
+        int slot;
+        while ((slot = slots[index]) != 0) {
+            int id = slot - 1;
+            if (hashes[id] == hash && matches(values[id], chars, start, end)) {
+                return id;
+            }
+            index = (index + 1) & mask;
+        }
+        if (!insert) {
+            return -1;
+        }
+
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        values[id] = chars instanceof String s ? s.substring(start, end) : chars.subSequence(start, end).toString();
+        hashes[id] = hash;
+        slots[index] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        int[] newSlots = new int[slots.length * 2];
+        int mask = newSlots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int index = (int) hashes[id] & mask;
+            while (newSlots[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            newSlots[index] = id + 1;
+        }
+        slots = newSlots;
+    }
+
+    private static boolean matches(String value, CharSequence chars, int start, int end) {
+        int length = end - start;
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != chars.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int tableSizeFor(int n) {
+        return Integer.highestOneBit(Math.max(n - 1, 1)) << 1;
+    }
+}
@@ -0,0 +1,141 @@
+package com.webloganalyzer.service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Switches between exact aggregation and bounded-memory approximations in the role analyzers.
+ * Top-K and distinct counting are chosen independently. Also carries the {@link RateRule}s that
+ * decide which IPs the System Administrator view reports as bursting, and the inactivity gap that
+ * ends a session in the Web Developer view.
+ * Instances are immutable; the {@code with...} methods return modified copies.
+ */
+public final class AnalysisOptions {
+
+    /** Counters per Space-Saving summary; counts are off by at most N / capacity. */
+    public static final int DEFAULT_HEAVY_HITTER_CAPACITY = 1024;
+
+    /** HyperLogLog precision; 2^12 one-byte registers, about 1.6% standard error. */
+    public static final int DEFAULT_DISTINCT_PRECISION = 12;
+
+    /** The usual web analytics session timeout. */
+    public static final Duration DEFAULT_SESSION_GAP = Duration.ofMinutes(30);
+
+    public static final AnalysisOptions EXACT = new AnalysisOptions(false, DEFAULT_HEAVY_HITTER_CAPACITY, false,
+            DEFAULT_DISTINCT_PRECISION, RateRule.DEFAULTS, DEFAULT_SESSION_GAP);
+
+    private final boolean approximateTopK;
+    private final int heavyHitterCapacity;
+    private final boolean approximateDistinct;
+    private final int distinctPrecision;
+    private final List<RateRule> rateRules;
+    private final Duration sessionGap;
+
+    public AnalysisOptions(boolean approximateTopK, int heavyHitterCapacity,
+                           boolean approximateDistinct, int distinctPrecision) {
+        this(approximateTopK, heavyHitterCapacity, approximateDistinct, distinctPrecision, RateRule.DEFAULTS,
+                DEFAULT_SESSION_GAP);
+    }
+
+    public AnalysisOptions(boolean approximateTopK, int heavyHitterCapacity,
+                           boolean approximateDistinct, int distinctPrecision, List<RateRule> rateRules,
+                           Duration sessionGap) {
+        if (heavyHitterCapacity < 1) {
+            throw new IllegalArgumentException("heavyHitterCapacity must be positive");
+        }
+        if (distinctPrecision < HyperLogLog.MIN_PRECISION || distinctPrecision > HyperLogLog.MAX_PRECISION) {
+            throw new IllegalArgumentException("distinctPrecision must be between " + HyperLogLog.MIN_PRECISION
+                    + " and " + HyperLogLog.MAX_PRECISION);
+        }
+        if (rateRules.isEmpty()) {
+            throw new IllegalArgumentException("At least one rate rule is needed");
+        }
+        if (sessionGap.isNegative() || sessionGap.isZero() || sessionGap.getNano() != 0) {
+            throw new IllegalArgumentException("Session gap must be a positive whole number of seconds: " + sessionGap);
+        }
+        this.approximateTopK = approximateTopK;
+        this.heavyHitterCapacity = heavyHitterCapacity;
+        this.approximateDistinct = approximateDistinct;
+        this.distinctPrecision = distinctPrecision;
+        this.rateRules = List.copyOf(rateRules);
+        this.sessionGap = sessionGap;
+    }
+
+    /** Whether top IPs, top URLs and the resources with errors come from fixed-size heavy-hitter summaries. */
+    public boolean isApproximateTopK() {
+        return approximateTopK;
+    }
+
+    public int getHeavyHitterCapacity() {
+        return heavyHitterCapacity;
+    }
+
+    /**
+     * Whether unique IP and resource counts come from HyperLogLog sketches instead of exact sets.
+     * Together with {@link #isApproximateTopK()}, the Web Developer view then keeps no state per
+     * resource while it parses.
+     */
+    public boolean isApproximateDistinct() {
+        return approximateDistinct;
+    }
+
+    public int getDistinctPrecision() {
+        return distinctPrecision;
+    }
+
+    public List<RateRule> getRateRules() {
+        return rateRules;
+    }
+
+    /** Longest pause between two requests of one IP that still counts as the same session. */
+    public Duration getSessionGap() {
+        return sessionGap;
+    }
+
+    public AnalysisOptions withApproximateTopK(boolean approximateTopK) {
+        return new AnalysisOptions(approximateTopK, heavyHitterCapacity, approximateDistinct, distinctPrecision,
+                rateRules, sessionGap);
+    }
+
+    public AnalysisOptions withHeavyHitterCapacity(int heavyHitterCapacity) {
+        return new AnalysisOptions(approximateTopK, heavyHitterCapacity, approximateDistinct, distinctPrecision,
+                rateRules, sessionGap);
+    }
+
+    public AnalysisOptions withApproximateDistinct(boolean approximateDistinct) {
+        return new AnalysisOptions(approximateTopK, heavyHitterCapacity, approximateDistinct, distinctPrecision,
+                rateRules, sessionGap);
+    }
+
+    public AnalysisOptions withDistinctPrecision(int distinctPrecision) {
+        return new AnalysisOptions(approximateTopK, heavyHitterCapacity, approximateDistinct, distinctPrecision,
+                rateRules, sessionGap);
+    }
+
+    public AnalysisOptions withRateRules(List<RateRule> rateRules) {
+        return new AnalysisOptions(approximateTopK, heavyHitterCapacity, approximateDistinct, distinctPrecision,
+                rateRules, sessionGap);
+    }
+
+    public AnalysisOptions withSessionGap(Duration sessionGap) {
+        return new AnalysisOptions(approximateTopK, heavyHitterCapacity, approximateDistinct, distinctPrecision,
+                rateRules, sessionGap);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof AnalysisOptions other
+                && approximateTopK == other.approximateTopK
+                && heavyHitterCapacity == other.heavyHitterCapacity
+                && approximateDistinct == other.approximateDistinct
+                && distinctPrecision == other.distinctPrecision
+                && rateRules.equals(other.rateRules)
+                && sessionGap.equals(other.sessionGap);
+    }
+
+    @Override
+    public int hashCode() {
+        return java.util.Objects.hash(approximateTopK, heavyHitterCapacity, approximateDistinct, distinctPrecision,
+                rateRules, sessionGap);
+    }
+}
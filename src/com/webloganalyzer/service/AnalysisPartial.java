@@ -0,0 +1,38 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogRecord;
+
+import java.util.List;
+
+/**
+ * One worker's share of a fused parse-and-aggregate run: its accumulator and the record the
+ * parser writes each line into. Both use the worker's own dictionaries.
+ */
+record AnalysisPartial<R>(LogAnalyzer.Accumulator<R> accumulator, LogRecord record) {
+
+    static <R> AnalysisPartial<R> create(LogAnalyzer<R> analyzer) {
+        LogDictionaries dictionaries = new LogDictionaries();
+        return new AnalysisPartial<>(analyzer.newAccumulator(dictionaries), new LogRecord(dictionaries));
+    }
+
+    static <R> LineHandler<AnalysisPartial<R>> handler() {
+        return (parser, line, partial) -> {
+            if (parser.parseInto(line, partial.record())) {
+                partial.accumulator().accept(partial.record());
+            }
+        };
+    }
+
+    /** Merges the partials, which must be in file order, and returns the combined result. */
+    static <R> R mergeInOrder(LogAnalyzer<R> analyzer, List<AnalysisPartial<R>> partials) {
+        if (partials.isEmpty()) {
+            return analyzer.newAccumulator(new LogDictionaries()).result();
+        }
+        LogAnalyzer.Accumulator<R> combined = partials.get(0).accumulator();
+        for (int i = 1; i < partials.size(); i++) {
+            combined.merge(partials.get(i).accumulator());
+        }
+        return combined.result();
+    }
+}
@@ -0,0 +1,58 @@
+package com.webloganalyzer.service;
+
+/**
+ * How far a progressive analysis has got: the input bytes covered so far, and the result over
+ * exactly those bytes. The remaining time is extrapolated from the rate so far, so it settles
+ * after the first few work units.
+ */
+public class AnalysisProgress<R> {
+
+    private final long bytesDone;
+    private final long bytesTotal;
+    private final long elapsedNanos;
+    private final R partialResult;
+
+    public AnalysisProgress(long bytesDone, long bytesTotal, long elapsedNanos, R partialResult) {
+        this.bytesDone = bytesDone;
+        this.bytesTotal = bytesTotal;
+        this.elapsedNanos = elapsedNanos;
+        this.partialResult = partialResult;
+    }
+
+    public long getBytesDone() {
+        return bytesDone;
+    }
+
+    public long getBytesTotal() {
+        return bytesTotal;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /** The result over the first {@link #getBytesDone()} bytes of the input, in file order. */
+    public R getPartialResult() {
+        return partialResult;
+    }
+
+    /** Share of the input done, from 0 to 1. */
+    public double getFraction() {
+        return bytesTotal <= 0 ? 1 : Math.min(1, (double) bytesDone / bytesTotal);
+    }
+
+    /** Estimated time left in milliseconds, or -1 before anything is done. */
+    public long getEtaMillis() {
+        if (bytesDone <= 0) {
+            return -1;
+        }
+        return (long) (getElapsedMillis() * (double) Math.max(0, bytesTotal - bytesDone) / bytesDone);
+    }
+
+    @Override
+    public String toString() {
+        long eta = getEtaMillis();
+        return String.format("%.0f%% (%.1f of %.1f MB), ETA %s", getFraction() * 100,
+                bytesDone / 1048576.0, bytesTotal / 1048576.0, eta < 0 ? "-" : (eta + 999) / 1000 + " s");
+    }
+}
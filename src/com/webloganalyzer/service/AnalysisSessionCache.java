@@ -0,0 +1,170 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the parsed tables of recently opened logs in memory, together with every role result
+ * computed from them, so switching roles or coming back to a log re-renders without reading the
+ * file again. Unlike {@link ParsedLogCache}, nothing is written to disk and the cache lives only
+ * as long as the application.
+ *
+ * <p>Tables are held up to a memory budget, estimated with {@link LogTable#estimateMemoryBytes()};
+ * when a new table pushes the total over it, the least recently used logs are dropped first. The
+ * newest table is always kept, even if it alone exceeds the budget. A log is identified by its
+ * canonical path and the size and modification time of each file it is read from, the files of a
+ * directory included, so a log that changed on disk is parsed again.
+ */
+public class AnalysisSessionCache {
+
+    /** A quarter of the maximum heap. */
+    public static final long DEFAULT_BUDGET_BYTES = Runtime.getRuntime().maxMemory() / 4;
+
+    private final long budgetBytes;
+    private final LinkedHashMap<Key, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    public AnalysisSessionCache() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    public AnalysisSessionCache(long budgetBytes) {
+        if (budgetBytes < 1) {
+            throw new IllegalArgumentException("budgetBytes must be positive");
+        }
+        this.budgetBytes = budgetBytes;
+    }
+
+    /** The session of {@code log} if its table is still cached and the log has not changed since. */
+    public synchronized Session get(File log) throws IOException {
+        return sessions.get(Key.of(log));
+    }
+
+    /** Caches {@code table} as the parsed contents of {@code log}, replacing any older session. */
+    public Session put(File log, LogTable table) throws IOException {
+        return put(log, table, null);
+    }
+
+    /**
+     * Caches {@code table} with the {@code rollups} built while it was parsed, so the session need
+     * not build them from the table; {@code null} leaves that to {@link Session#getRollups}.
+     */
+    public synchronized Session put(File log, LogTable table, TimeRollupIndex rollups) throws IOException {
+        Key key = Key.of(log);
+        Session session = new Session(log, table, table.estimateMemoryBytes(), rollups);
+        Session replaced = sessions.put(key, session);
+        if (replaced != null) {
+            usedBytes -= replaced.getEstimatedBytes();
+        }
+        usedBytes += session.getEstimatedBytes();
+
+        Iterator<Map.Entry<Key, Session>> eldest = sessions.entrySet().iterator();
+        while (usedBytes > budgetBytes && sessions.size() > 1) {
+            Session evicted = eldest.next().getValue();
+            eldest.remove();
+            usedBytes -= evicted.getEstimatedBytes();
+            System.out.println("AnalysisSessionCache: evicted " + evicted.getLog() + " (" + evicted.getEstimatedBytes() / (1 << 20) + " MB)");
+        }
+        return session;
+    }
+
+    public synchronized void clear() {
+        sessions.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized int size() {
+        return sessions.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /** One parsed log and the role results computed from it so far. */
+    public static final class Session {
+        private final File log;
+        private final LogTable table;
+        private final long estimatedBytes;
+        private final Map<ResultKey, Object> results = new ConcurrentHashMap<>();
+        private volatile TimeRollupIndex rollups;
+
+        private Session(File log, LogTable table, long estimatedBytes, TimeRollupIndex rollups) {
+            this.log = log;
+            this.table = table;
+            this.estimatedBytes = estimatedBytes;
+            this.rollups = rollups;
+        }
+
+        public File getLog() {
+            return log;
+        }
+
+        public LogTable getTable() {
+            return table;
+        }
+
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        /** The result for {@code role} with {@code options}, if it has been computed. */
+        public Object getResult(LogAnalysisService.Role role, AnalysisOptions options) {
+            return results.get(new ResultKey(role, options));
+        }
+
+        public void putResult(LogAnalysisService.Role role, AnalysisOptions options, Object result) {
+            results.put(new ResultKey(role, options), result);
+        }
+
+        /** The cached result for {@code role}, or a new one computed from the table and cached. */
+        public Object analyze(LogAnalysisService.Role role, AnalysisOptions options, int parallelism) {
+            return results.computeIfAbsent(new ResultKey(role, options),
+                    key -> new LogAnalysisService(parallelism, options).analyze(table, role));
+        }
+
+        /**
+         * Per-minute and per-hour rollups of the table: those it was cached with, or else built
+         * from the table on first use.
+         */
+        public TimeRollupIndex getRollups(int parallelism) {
+            TimeRollupIndex index = rollups;
+            if (index == null) {
+                index = new LogAnalysisService(parallelism).analyze(table, new TimeRollupAnalyzer());
+                rollups = index;
+            }
+            return index;
+        }
+    }
+
+    private record ResultKey(LogAnalysisService.Role role, AnalysisOptions options) {
+    }
+
+    /** A log's canonical path and the size and modification time of every file it is read from. */
+    private record Key(String path, List<Stamp> files) {
+        static Key of(File log) throws IOException {
+            // A directory's own size and time do not change when a file in it grows.
+            List<File> files = log.isDirectory() ? MultiFileLogProcessor.expand(List.of(log)) : List.of(log);
+            List<Stamp> stamps = new ArrayList<>(files.size());
+            for (File file : files) {
+                stamps.add(new Stamp(file.getName(), file.length(), file.lastModified()));
+            }
+            return new Key(log.getCanonicalPath(), stamps);
+        }
+    }
+
+    private record Stamp(String name, long size, long lastModified) {
+    }
+}
@@ -0,0 +1,98 @@
+package com.webloganalyzer.service;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The request bursts and failed-login spikes found by a {@link RateBurstAnalyzer}, oldest first.
+ * Only the most recent {@link RateBurstAnalyzer#MAX_BURSTS} are kept; {@link #getDroppedCount()}
+ * says how many older ones were let go.
+ */
+public class BurstTimeline {
+
+    public enum Kind {
+        REQUESTS("requests"),
+        FAILED_LOGINS("failed logins");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * One stretch during which {@code ip} stayed over the limit of {@code rule}: from the request
+     * that first crossed it to the last request made while still over it. {@code peak} is the
+     * highest count seen in one window. An ongoing burst was still over the limit at the newest
+     * request of the log.
+     */
+    public record Burst(String ip, Kind kind, RateRule rule, OffsetDateTime start, OffsetDateTime end,
+                        int peak, boolean ongoing) {
+
+        private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+        public int limit() {
+            return kind == Kind.REQUESTS ? rule.maxRequests() : rule.maxFailedLogins();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s .. %s  %s  %d %s in %s (limit %d)%s", TIME.format(start), TIME.format(end),
+                    ip, peak, kind, rule.windowLabel(), limit(), ongoing ? ", ongoing" : "");
+        }
+    }
+
+    private final List<RateRule> rules;
+    private final List<Burst> bursts;
+    private final long droppedCount;
+
+    public BurstTimeline(List<RateRule> rules, List<Burst> bursts, long droppedCount) {
+        this.rules = List.copyOf(rules);
+        this.bursts = List.copyOf(bursts);
+        this.droppedCount = droppedCount;
+    }
+
+    public List<RateRule> getRules() {
+        return rules;
+    }
+
+    public List<Burst> getBursts() {
+        return bursts;
+    }
+
+    public List<Burst> getBursts(Kind kind) {
+        List<Burst> matching = new ArrayList<>();
+        for (Burst burst : bursts) {
+            if (burst.kind() == kind) matching.add(burst);
+        }
+        return matching;
+    }
+
+    /** IPs with at least one burst of {@code kind}, in the order of their first one. */
+    public List<String> getIps(Kind kind) {
+        Set<String> ips = new LinkedHashSet<>();
+        for (Burst burst : bursts) {
+            if (burst.kind() == kind) ips.add(burst.ip());
+        }
+        return List.copyOf(ips);
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "BurstTimeline{rules=" + rules + ", bursts=" + bursts.size() + ", dropped=" + droppedCount + "}";
+    }
+}
@@ -0,0 +1,40 @@
+package com.webloganalyzer.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one chunk (block, unit or batch) a worker parsed. The event's duration is the
+ * parse time; the thread it was recorded on is the worker.
+ */
+@Name("com.webloganalyzer.ChunkParsed")
+@Label("Chunk Parsed")
+@Category({"Web Log Analyzer", "Parsing"})
+@Description("One chunk of a log parsed by a worker")
+@StackTrace(false)
+class ChunkParsedEvent extends jdk.jfr.Event {
+
+    @Label("Processor")
+    String processor;
+
+    @Label("Lines")
+    long lines;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Queue Wait")
+    @Description("Time between the chunk being handed off and a worker starting on it")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWait;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+}
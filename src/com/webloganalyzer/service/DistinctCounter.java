@@ -0,0 +1,56 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.StringDictionary;
+
+import java.util.BitSet;
+
+/**
+ * Counts distinct values, exactly with a bit per dictionary id or approximately with a
+ * {@link HyperLogLog} over the values' {@link StringDictionary#hash}es, as chosen by
+ * {@link AnalysisOptions#isApproximateDistinct()}. Approximate counting takes hashes rather than
+ * ids so that parsed values need not be interned at all.
+ */
+final class DistinctCounter {
+
+    private final StringDictionary dictionary;
+    private final BitSet seen;
+    private final HyperLogLog sketch;
+
+    DistinctCounter(StringDictionary dictionary, AnalysisOptions options) {
+        this.dictionary = dictionary;
+        if (options.isApproximateDistinct()) {
+            seen = null;
+            sketch = new HyperLogLog(options.getDistinctPrecision());
+        } else {
+            seen = new BitSet();
+            sketch = null;
+        }
+    }
+
+    /** Whether values are given to {@link #addHash} rather than {@link #add}. */
+    boolean isApproximate() {
+        return sketch != null;
+    }
+
+    void add(int id) {
+        seen.set(id);
+    }
+
+    void addHash(long hash) {
+        sketch.addHash(hash);
+    }
+
+    void merge(DistinctCounter other) {
+        if (sketch != null) {
+            sketch.merge(other.sketch);
+        } else if (other.dictionary == dictionary) {
+            seen.or(other.seen);
+        } else {
+            other.seen.stream().forEach(id -> seen.set(IdCounter.translate(other.dictionary, dictionary, id)));
+        }
+    }
+
+    int count() {
+        return sketch != null ? (int) Math.min(Integer.MAX_VALUE, sketch.estimate()) : seen.cardinality();
+    }
+}
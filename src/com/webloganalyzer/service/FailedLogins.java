@@ -0,0 +1,25 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogRecord;
+
+/**
+ * Recognizes failed logins: a POST to a {@code /login} resource answered with 401 or 403.
+ */
+final class FailedLogins {
+
+    private final IdFlags postMethods;
+    private final IdFlags loginResources;
+
+    FailedLogins(LogDictionaries dictionaries) {
+        postMethods = new IdFlags(dictionaries.getMethods(), "POST"::equalsIgnoreCase);
+        loginResources = new IdFlags(dictionaries.getResources(), r -> r.toLowerCase().contains("/login"));
+    }
+
+    boolean test(LogRecord record) {
+        int status = record.getStatusCode();
+        return (status == 401 || status == 403)
+                && postMethods.test(record.getMethodId())
+                && loginResources.test(record.getResourceId());
+    }
+}
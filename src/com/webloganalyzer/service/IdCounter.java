@@ -0,0 +1,141 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.StringDictionary;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Primitive per-id counters over one {@link StringDictionary}. Merging counters built on other
+ * dictionaries translates ids through their string values.
+ */
+final class IdCounter {
+
+    private final StringDictionary dictionary;
+    private int[] counts;
+
+    IdCounter(StringDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.counts = new int[Math.max(16, dictionary.size())];
+    }
+
+    StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    void increment(int id) {
+        if (id >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(id + 1, counts.length * 2));
+        }
+        counts[id]++;
+    }
+
+    void add(int id, int delta) {
+        if (id >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(id + 1, counts.length * 2));
+        }
+        counts[id] += delta;
+    }
+
+    int get(int id) {
+        return id < counts.length ? counts[id] : 0;
+    }
+
+    /** One past the highest id that may hold a count. */
+    int idLimit() {
+        return Math.min(counts.length, dictionary.size());
+    }
+
+    void merge(IdCounter other) {
+        int limit = other.idLimit();
+        if (other.dictionary == dictionary) {
+            if (limit > counts.length) {
+                counts = Arrays.copyOf(counts, limit);
+            }
+            for (int id = 0; id < limit; id++) {
+                counts[id] += other.counts[id];
+            }
+        } else {
+            for (int id = 0; id < limit; id++) {
+                if (other.counts[id] != 0) {
+                    add(translate(other.dictionary, dictionary, id), other.counts[id]);
+                }
+            }
+        }
+    }
+
+    int countNonZero() {
+        int nonZero = 0;
+        for (int id = 0; id < idLimit(); id++) {
+            if (counts[id] != 0) nonZero++;
+        }
+        return nonZero;
+    }
+
+    /** Ids of the {@code limit} highest counts, highest first, using a bounded min-heap. */
+    int[] topIds(int limit) {
+        int[] heap = new int[limit];
+        int heapSize = 0;
+        for (int id = 0; id < idLimit(); id++) {
+            int count = counts[id];
+            if (count == 0) continue;
+            if (heapSize < limit) {
+                heap[heapSize] = id;
+                siftUp(heap, heapSize++);
+            } else if (count > counts[heap[0]]) {
+                heap[0] = id;
+                siftDown(heap, heapSize);
+            }
+        }
+        int[] top = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            top[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i);
+        }
+        return top;
+    }
+
+    /** Non-zero counts keyed by value, in id (first-seen) order. */
+    Map<String, Integer> toMap() {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (int id = 0; id < idLimit(); id++) {
+            if (counts[id] != 0) {
+                map.put(dictionary.valueOf(id), counts[id]);
+            }
+        }
+        return map;
+    }
+
+    static int translate(StringDictionary from, StringDictionary to, int id) {
+        return from == to ? id : to.idOf(from.valueOf(id));
+    }
+
+    private void siftUp(int[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (counts[heap[index]] >= counts[heap[parent]]) break;
+            swap(heap, index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) break;
+            int smallest = left + 1 < size && counts[heap[left + 1]] < counts[heap[left]] ? left + 1 : left;
+            if (counts[heap[index]] <= counts[heap[smallest]]) break;
+            swap(heap, index, smallest);
+            index = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+}
@@ -0,0 +1,38 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.StringDictionary;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Caches a string predicate per dictionary id, so checks like "resource contains /login" run
+ * once per distinct value instead of once per line. Ids added later are evaluated on first use.
+ */
+final class IdFlags {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+
+    private final StringDictionary dictionary;
+    private final Predicate<String> predicate;
+    private byte[] states = new byte[64];
+
+    IdFlags(StringDictionary dictionary, Predicate<String> predicate) {
+        this.dictionary = dictionary;
+        this.predicate = predicate;
+    }
+
+    boolean test(int id) {
+        if (id >= states.length) {
+            states = Arrays.copyOf(states, Math.max(id + 1, states.length * 2));
+        }
+        byte state = states[id];
+        if (state == UNKNOWN) {
+            state = predicate.test(dictionary.valueOf(id)) ? TRUE : FALSE;
+            states[id] = state;
+        }
+        return state == TRUE;
+    }
+}
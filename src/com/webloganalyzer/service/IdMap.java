@@ -0,0 +1,117 @@
+package com.webloganalyzer.service;
+
+import java.util.Arrays;
+
+/**
+ * Values keyed by dictionary id, for when only a few ids of a large dictionary are live at a
+ * time. Unlike an array indexed by id, memory follows the entries: {@link #retain} shrinks the
+ * map as entries go. Entries are kept in insertion order and visited by position.
+ */
+final class IdMap<V> {
+
+    /** Decides which entries {@link #retain} keeps. */
+    @FunctionalInterface
+    interface Filter<V> {
+        boolean keep(int id, V value);
+    }
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] ids = new int[MIN_CAPACITY];
+    private Object[] values = new Object[MIN_CAPACITY];
+    private int size;
+    // The index: id + 1 of the entry in each slot, 0 for a free one, and its value, so a lookup
+    // needs no hop through the entry arrays.
+    private int[] slotKeys = new int[2 * MIN_CAPACITY];
+    private Object[] slotValues = new Object[2 * MIN_CAPACITY];
+    private int shift = Integer.numberOfLeadingZeros(2 * MIN_CAPACITY - 1);
+
+    int size() {
+        return size;
+    }
+
+    int idAt(int position) {
+        return ids[position];
+    }
+
+    @SuppressWarnings("unchecked")
+    V valueAt(int position) {
+        return (V) values[position];
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int id) {
+        int key = id + 1;
+        for (int slot = slotOf(id); slotKeys[slot] != 0; slot = (slot + 1) & (slotKeys.length - 1)) {
+            if (slotKeys[slot] == key) {
+                return (V) slotValues[slot];
+            }
+        }
+        return null;
+    }
+
+    /** Adds an entry for an id that has none. */
+    void add(int id, V value) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+            rehash(size * 4);
+        }
+        ids[size] = id;
+        values[size] = value;
+        size++;
+        insert(id, value);
+    }
+
+    /** Drops the entries {@code filter} rejects, keeping the others in order, and shrinks to fit. */
+    void retain(Filter<V> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            @SuppressWarnings("unchecked")
+            V value = (V) values[i];
+            if (filter.keep(ids[i], value)) {
+                ids[kept] = ids[i];
+                values[kept++] = value;
+            }
+        }
+        if (kept == size) {
+            return;
+        }
+        Arrays.fill(values, kept, size, null);
+        size = kept;
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, size)) * 2);
+        if (capacity < ids.length) {
+            ids = Arrays.copyOf(ids, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        rehash(2 * ids.length);
+    }
+
+    /** High bits of a Fibonacci hash, since ids are dense and their low bits alike. */
+    private int slotOf(int id) {
+        return (id * 0x9E3779B9) >>> shift;
+    }
+
+    private void rehash(int slotCount) {
+        if (slotCount == slotKeys.length) {
+            Arrays.fill(slotKeys, 0);
+            Arrays.fill(slotValues, null);
+        } else {
+            slotKeys = new int[slotCount];
+            slotValues = new Object[slotCount];
+        }
+        shift = Integer.numberOfLeadingZeros(slotCount - 1);
+        for (int i = 0; i < size; i++) {
+            insert(ids[i], values[i]);
+        }
+    }
+
+    private void insert(int id, Object value) {
+        int slot = slotOf(id);
+        while (slotKeys[slot] != 0) {
+            slot = (slot + 1) & (slotKeys.length - 1);
+        }
+        slotKeys[slot] = id + 1;
+        slotValues[slot] = value;
+    }
+}
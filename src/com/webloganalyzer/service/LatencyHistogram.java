@@ -0,0 +1,85 @@
+package com.webloganalyzer.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations with power-of-two microsecond buckets: bucket 0 holds
+ * everything under 1 us, bucket {@code i} holds {@code [2^(i-1), 2^i)} us, and the last bucket
+ * everything longer. Recording is one atomic increment, cheap enough for every chunk a worker
+ * parses; percentiles are reported as the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+
+    static final int BUCKETS = 32;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        counts.incrementAndGet(bucket);
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /** Count per bucket, see the class comment for the bucket bounds. */
+    public long[] getCounts() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    /** Exclusive upper bound of bucket {@code bucket}, in microseconds. */
+    public static long upperBoundMicros(int bucket) {
+        return 1L << bucket;
+    }
+
+    /** Upper bound in microseconds of the bucket holding the given percentile, 0 when empty. */
+    public long percentileMicros(double percent) {
+        long[] snapshot = getCounts();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return upperBoundMicros(i);
+            }
+        }
+        return upperBoundMicros(BUCKETS - 1);
+    }
+
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            copy.counts.set(i, counts.get(i));
+        }
+        return copy;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d, p50 < %d us, p90 < %d us, p99 < %d us, max < %d us", getCount(),
+                percentileMicros(50), percentileMicros(90), percentileMicros(99), percentileMicros(100));
+    }
+}
@@ -0,0 +1,50 @@
+package com.webloganalyzer.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable {@link CharSequence} view of one ISO-8859-1 encoded line inside a {@link ByteBuffer}.
+ * Lets the parser work straight on mapped file bytes; only the fields it keeps become Strings.
+ */
+class Latin1Line implements CharSequence {
+
+    private final ByteBuffer buffer;
+    private int offset;
+    private int length;
+    private byte[] scratch = new byte[256];
+
+    Latin1Line(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    void reset(int offset, int length) {
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        int count = end - start;
+        if (count > scratch.length) {
+            scratch = new byte[Math.max(count, scratch.length * 2)];
+        }
+        buffer.get(offset + start, scratch, 0, count);
+        return new String(scratch, 0, count, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return (String) subSequence(0, length);
+    }
+}
@@ -0,0 +1,12 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogLineParser;
+
+/**
+ * How a worker turns one raw line into its partial result {@code T}, e.g. a list of entries or a
+ * {@link com.webloganalyzer.model.LogTable}. Each worker owns its parser and its partial result.
+ */
+@FunctionalInterface
+interface LineHandler<T> {
+    void handle(LogLineParser parser, CharSequence line, T partial);
+}
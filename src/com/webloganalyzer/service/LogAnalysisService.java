@@ -0,0 +1,173 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogRecord;
+import com.webloganalyzer.model.LogStore;
+
+import java.io.File;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs the role analyses, either fused into a processor's parse loop or as a fork/join
+ * map-reduce over already parsed rows: a {@link com.webloganalyzer.model.LogTable} on the heap or
+ * an {@link com.webloganalyzer.model.OffHeapLogStore} for logs larger than the heap.
+ */
+public class LogAnalysisService {
+
+    /** Smallest row range worth its own task; below this the split overhead dominates. */
+    static final int MIN_ROWS_PER_TASK = 16_384;
+
+    public enum Role {
+        SYSTEM_ADMINISTRATOR("System Administrator"),
+        WEB_DEVELOPER("Web Developer"),
+        SECURITY_ANALYST("Security Analyst");
+
+        private final String label;
+
+        Role(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public LogAnalyzer<?> newAnalyzer(AnalysisOptions options) {
+            return switch (this) {
+                case SYSTEM_ADMINISTRATOR -> new SystemAdminAnalyzer(options);
+                case WEB_DEVELOPER -> new WebDeveloperAnalyzer(options);
+                case SECURITY_ANALYST -> new SecurityAnalystAnalyzer();
+            };
+        }
+
+        /** The role shown as {@code label} in the GUI, defaulting to System Administrator. */
+        public static Role fromLabel(String label) {
+            for (Role role : values()) {
+                if (role.label.equals(label)) {
+                    return role;
+                }
+            }
+            return SYSTEM_ADMINISTRATOR;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final int parallelism;
+    private final AnalysisOptions options;
+
+    public LogAnalysisService(int parallelism) {
+        this(parallelism, AnalysisOptions.EXACT);
+    }
+
+    public LogAnalysisService(int parallelism, AnalysisOptions options) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        this.options = options;
+    }
+
+    public AnalysisOptions getOptions() {
+        return options;
+    }
+
+    /** Parses {@code logFile} with {@code processor}, aggregating each worker's lines as they are parsed. */
+    public Object analyze(LogProcessor processor, File logFile, Role role) throws Exception {
+        return processor.analyzeLogFile(logFile, role.newAnalyzer(options));
+    }
+
+    public Object analyze(LogStore table, Role role) {
+        return analyze(table, role, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /** Analyzes only the rows with {@code fromEpochSecond <= timestamp < toEpochSecond}. */
+    public Object analyze(LogStore table, Role role, long fromEpochSecond, long toEpochSecond) {
+        return addSessions(table, analyze(table, role.newAnalyzer(options), fromEpochSecond, toEpochSecond),
+                fromEpochSecond, toEpochSecond);
+    }
+
+    /**
+     * Completes a role result computed from all rows of {@code table} some other way, such as
+     * while they were parsed: a Web Developer result gets its sessions, others are returned as
+     * they are.
+     */
+    public Object addSessions(LogStore table, Object result) {
+        return addSessions(table, result, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private Object addSessions(LogStore table, Object result, long fromEpochSecond, long toEpochSecond) {
+        if (result instanceof WebDeveloperAnalyzer.Result developer) {
+            return developer.withSessions(new Sessionizer(parallelism, options.getSessionGap())
+                    .sessionize(table, fromEpochSecond, toEpochSecond));
+        }
+        return result;
+    }
+
+    public <R> R analyze(LogStore table, LogAnalyzer<R> analyzer) {
+        return analyze(table, analyzer, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Splits the rows into ranges, aggregates each range into its own accumulator and
+     * merges neighbouring ranges pairwise. All accumulators share the table's dictionaries, so
+     * merges add counter arrays without translating ids. Rows outside
+     * {@code [fromEpochSecond, toEpochSecond)} are skipped.
+     */
+    public <R> R analyze(LogStore table, LogAnalyzer<R> analyzer, long fromEpochSecond, long toEpochSecond) {
+        int rowsPerTask = Math.max(MIN_ROWS_PER_TASK, table.size() / (parallelism * 4) + 1);
+        RangeTask<R> task = new RangeTask<>(table, analyzer, fromEpochSecond, toEpochSecond, 0, table.size(), rowsPerTask);
+        if (parallelism == 1 || table.size() <= rowsPerTask) {
+            return task.compute().result();
+        }
+        return WorkerPools.forParallelism(parallelism).invoke(task).result();
+    }
+
+    private static final class RangeTask<R> extends RecursiveTask<LogAnalyzer.Accumulator<R>> {
+        private static final long serialVersionUID = 1L;
+
+        private final LogStore table;
+        private final LogAnalyzer<R> analyzer;
+        private final long fromEpochSecond;
+        private final long toEpochSecond;
+        private final int start;
+        private final int end;
+        private final int rowsPerTask;
+
+        RangeTask(LogStore table, LogAnalyzer<R> analyzer, long fromEpochSecond, long toEpochSecond,
+                  int start, int end, int rowsPerTask) {
+            this.table = table;
+            this.analyzer = analyzer;
+            this.fromEpochSecond = fromEpochSecond;
+            this.toEpochSecond = toEpochSecond;
+            this.start = start;
+            this.end = end;
+            this.rowsPerTask = rowsPerTask;
+        }
+
+        @Override
+        protected LogAnalyzer.Accumulator<R> compute() {
+            if (end - start <= rowsPerTask) {
+                LogAnalyzer.Accumulator<R> accumulator = analyzer.newAccumulator(table.getDictionaries());
+                LogRecord record = new LogRecord(table.getDictionaries());
+                for (int row = start; row < end; row++) {
+                    long epochSecond = table.getEpochSecond(row);
+                    if (epochSecond >= fromEpochSecond && epochSecond < toEpochSecond) {
+                        table.readInto(row, record);
+                        accumulator.accept(record);
+                    }
+                }
+                return accumulator;
+            }
+            int middle = (start + end) >>> 1;
+            RangeTask<R> right = new RangeTask<>(table, analyzer, fromEpochSecond, toEpochSecond, middle, end, rowsPerTask);
+            right.fork();
+            LogAnalyzer.Accumulator<R> left =
+                    new RangeTask<>(table, analyzer, fromEpochSecond, toEpochSecond, start, middle, rowsPerTask).compute();
+            left.merge(right.join());  // left covers earlier rows, keeping file order
+            return left;
+        }
+    }
+}
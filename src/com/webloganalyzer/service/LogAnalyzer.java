@@ -0,0 +1,32 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogRecord;
+
+/**
+ * An aggregation that runs inside a processor's parse loop. Every worker gets its own
+ * {@link Accumulator}, fed one record at a time, and the per-worker accumulators are merged in
+ * file order at the end, so only aggregates are ever held in memory.
+ *
+ * @param <R> the immutable result type
+ */
+public interface LogAnalyzer<R> {
+
+    /**
+     * Creates an empty accumulator for records whose ids refer to {@code dictionaries}.
+     */
+    Accumulator<R> newAccumulator(LogDictionaries dictionaries);
+
+    interface Accumulator<R> {
+        /** Adds one record. The record is reused by the caller, so copy what must be kept. */
+        void accept(LogRecord record);
+
+        /**
+         * Folds in {@code other}, an accumulator from the same analyzer that covers input later
+         * in the file. {@code other} must not be used afterwards.
+         */
+        void merge(Accumulator<R> other);
+
+        R result();
+    }
+}
@@ -1,10 +1,52 @@
 package com.webloganalyzer.service;
 
 import com.webloganalyzer.model.LogEntry;
+import com.webloganalyzer.model.LogRecord;
+import com.webloganalyzer.model.LogTable;
+import com.webloganalyzer.model.OffHeapLogStore;
 
 import java.io.File;
 import java.util.List;
 
 public interface LogProcessor {
     List<LogEntry> processLogFile(File logFile) throws Exception;
-}
\ No newline at end of file
+
+    /**
+     * Parses the file into a columnar {@link LogTable}. Implementations override this to fill the
+     * table straight from the parser instead of going through {@link LogEntry} objects.
+     */
+    default LogTable processToTable(File logFile) throws Exception {
+        List<LogEntry> entries = processLogFile(logFile);
+        LogTable table = new LogTable(entries.size());
+        for (LogEntry entry : entries) {
+            table.add(entry);
+        }
+        return table;
+    }
+
+    /**
+     * Parses the file and appends its rows to {@code store} in file order. Implementations
+     * override this to append each partial table as soon as the ones before it are in, so that
+     * only a few partials are ever on the heap; this default parses the whole file into a
+     * {@link LogTable} first.
+     */
+    default void processInto(File logFile, OffHeapLogStore store) throws Exception {
+        store.addAll(processToTable(logFile));
+    }
+
+    /**
+     * Parses the file and feeds every record to {@code analyzer}, returning only the aggregate.
+     * Implementations override this to run the accumulators inside their parse loop so no
+     * per-line data outlives its line.
+     */
+    default <R> R analyzeLogFile(File logFile, LogAnalyzer<R> analyzer) throws Exception {
+        LogTable table = processToTable(logFile);
+        LogAnalyzer.Accumulator<R> accumulator = analyzer.newAccumulator(table.getDictionaries());
+        LogRecord record = new LogRecord(table.getDictionaries());
+        for (int row = 0; row < table.size(); row++) {
+            table.readInto(row, record);
+            accumulator.accept(record);
+        }
+        return accumulator.result();
+    }
+}
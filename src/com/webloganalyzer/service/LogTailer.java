@@ -0,0 +1,346 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogFormat;
+import com.webloganalyzer.model.LogLineParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a growing access log like {@code tail -F}: every poll parses only the complete lines
+ * appended since the last one and feeds them to a running {@link LogAnalyzer} accumulator, then
+ * hands the updated result to a listener.
+ *
+ * <p>Rotation is detected by a change in the file's identity (its file key, or creation time
+ * where the platform has no file key); the rest of the old file is drained before following the
+ * new one from its start. A file that shrinks below the current offset is treated as truncated
+ * and re-read from the start. Aggregates keep everything seen so far in both cases.
+ *
+ * <p>With a checkpoint file the byte offset is saved after every update, so a restarted tailer
+ * resumes where the previous one stopped instead of rescanning the file. Aggregates are not part
+ * of the checkpoint; they only cover lines read by this tailer.
+ */
+public class LogTailer<R> implements AutoCloseable {
+
+    public interface Listener<R> {
+        /** Called on the tailer thread after each poll that read new lines. */
+        void onUpdate(R result, TailStats stats);
+    }
+
+    public static final long DEFAULT_POLL_MILLIS = 250;
+
+    private static final int INITIAL_CHUNK_BYTES = 1 << 20;
+    private static final int LATENCY_WINDOW = 1024;
+    private static final int FINGERPRINT_BYTES = 64;
+
+    private final Path logPath;
+    private final LogAnalyzer<R> analyzer;
+    private final File checkpointFile;
+    private final long pollMillis;
+    private final Listener<R> listener;
+
+    private final AnalysisPartial<R> partial;
+    private final LineHandler<AnalysisPartial<R>> handler = AnalysisPartial.handler();
+    private final LogLineParser parser;
+    private ByteBuffer chunk = ByteBuffer.allocate(INITIAL_CHUNK_BYTES);
+
+    private FileChannel channel;
+    private Object identity;
+    private long offset;
+    private byte[] fingerprint = new byte[0];  // the bytes just before offset
+
+    private long linesParsed;
+    private int rotations;
+    private int truncations;
+    private long updates;
+    private long latencySumMillis;
+    private long maxLatencyMillis;
+    private final long[] recentLatencies = new long[LATENCY_WINDOW];
+
+    private final Object wakeup = new Object();
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * @param checkpointFile where to keep the byte offset, or {@code null} to always start at the
+     *                       beginning of the file
+     */
+    public LogTailer(File logFile, LogAnalyzer<R> analyzer, File checkpointFile, long pollMillis, Listener<R> listener) {
+        this(logFile, LogFormat.COMMON, analyzer, checkpointFile, pollMillis, listener);
+    }
+
+    public LogTailer(File logFile, LogFormat format, LogAnalyzer<R> analyzer, File checkpointFile, long pollMillis,
+                     Listener<R> listener) {
+        if (pollMillis < 1) {
+            throw new IllegalArgumentException("pollMillis must be positive");
+        }
+        this.logPath = logFile.toPath().toAbsolutePath();
+        this.analyzer = analyzer;
+        this.checkpointFile = checkpointFile;
+        this.pollMillis = pollMillis;
+        this.listener = listener;
+        this.partial = AnalysisPartial.create(analyzer);
+        this.parser = format.newParser();
+    }
+
+    /** Starts following on a daemon thread. */
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalStateException("Already started");
+        }
+        running = true;
+        thread = new Thread(this::followLoop, "log-tailer-" + logPath.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stops following, saves the checkpoint and closes the file. */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        Thread current;
+        synchronized (this) {
+            current = thread;
+        }
+        synchronized (wakeup) {
+            wakeup.notifyAll();
+        }
+        if (current != null && current != Thread.currentThread()) {
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (channel != null) {
+                saveCheckpoint();
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    public LogAnalyzer<R> getAnalyzer() {
+        return analyzer;
+    }
+
+    private void followLoop() {
+        while (running) {
+            try {
+                poll();
+            } catch (IOException e) {
+                System.err.println("LogTailer: " + e.getMessage());
+            }
+            synchronized (wakeup) {
+                try {
+                    if (running) {
+                        wakeup.wait(pollMillis);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads and analyzes whatever complete lines were appended since the last poll, notifying the
+     * listener if there were any. Returns the number of lines read.
+     */
+    public synchronized long poll() throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(logPath, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            // Mid-rotation: the old file was moved away and the new one is not there yet.
+            return channel == null ? 0 : publish(readAvailable(true), -1);
+        }
+        Object currentIdentity = attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+
+        long lines = 0;
+        if (channel == null) {
+            open(currentIdentity);
+            resumeFromCheckpoint(attributes.size());
+        } else if (!currentIdentity.equals(identity)) {
+            lines += readAvailable(true);
+            channel.close();
+            open(currentIdentity);
+            offset = 0;
+            fingerprint = new byte[0];
+            rotations++;
+            System.out.println("LogTailer: " + logPath + " rotated, following the new file");
+        } else if (attributes.size() < offset || !fingerprintMatches()) {
+            offset = 0;
+            fingerprint = new byte[0];
+            truncations++;
+            System.out.println("LogTailer: " + logPath + " truncated, reading from the start");
+        }
+
+        lines += readAvailable(false);
+        return publish(lines, attributes.lastModifiedTime().toMillis());
+    }
+
+    private void open(Object currentIdentity) throws IOException {
+        channel = FileChannel.open(logPath, StandardOpenOption.READ);
+        identity = currentIdentity;
+    }
+
+    /**
+     * Parses complete lines between the offset and the current end of the file. With
+     * {@code toEnd} an unterminated last line is parsed too, for a file that will not grow again.
+     */
+    private long readAvailable(boolean toEnd) throws IOException {
+        long before = linesParsed;
+        long size = channel.size();
+        while (offset < size) {
+            int wanted = (int) Math.min(chunk.capacity(), size - offset);
+            chunk.clear().limit(wanted);
+            while (chunk.hasRemaining()) {
+                if (channel.read(chunk, offset + chunk.position()) < 0) {
+                    break;
+                }
+            }
+            int read = chunk.position();
+            if (read == 0) {
+                break;
+            }
+
+            int end = read;
+            if (!(toEnd && offset + read == size)) {
+                end = lastNewline(chunk, read) + 1;
+                if (end == 0) {
+                    if (read < chunk.capacity()) {
+                        break;  // an incomplete line; wait for the rest
+                    }
+                    chunk = ByteBuffer.allocate(chunk.capacity() * 2);  // a line longer than the chunk
+                    continue;
+                }
+            }
+
+            chunk.position(0).limit(end);
+            MappedLogFile.forEachLine(chunk, line -> {
+                handler.handle(parser, line, partial);
+                linesParsed++;
+            });
+            offset += end;
+            int keep = Math.min(end, FINGERPRINT_BYTES);
+            fingerprint = new byte[keep];
+            chunk.get(end - keep, fingerprint);
+        }
+        return linesParsed - before;
+    }
+
+    /**
+     * Checks that the bytes before the offset are still the ones already read, which catches a
+     * file truncated and rewritten past the old offset between two polls.
+     */
+    private boolean fingerprintMatches() throws IOException {
+        if (fingerprint.length == 0) {
+            return true;
+        }
+        ByteBuffer current = ByteBuffer.allocate(fingerprint.length);
+        long position = offset - fingerprint.length;
+        while (current.hasRemaining()) {
+            if (channel.read(current, position + current.position()) < 0) {
+                return false;
+            }
+        }
+        return Arrays.equals(current.array(), fingerprint);
+    }
+
+    private static int lastNewline(ByteBuffer buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private long publish(long lines, long lastModifiedMillis) throws IOException {
+        if (lines == 0) {
+            return 0;
+        }
+        R result = partial.accumulator().result();
+        long latency = lastModifiedMillis < 0 ? 0 : Math.max(0, System.currentTimeMillis() - lastModifiedMillis);
+        recentLatencies[(int) (updates % LATENCY_WINDOW)] = latency;
+        updates++;
+        latencySumMillis += latency;
+        maxLatencyMillis = Math.max(maxLatencyMillis, latency);
+        saveCheckpoint();
+        listener.onUpdate(result, snapshot(latency));
+        return lines;
+    }
+
+    private TailStats snapshot(long lastLatency) {
+        long[] window = Arrays.copyOf(recentLatencies, (int) Math.min(updates, LATENCY_WINDOW));
+        Arrays.sort(window);
+        long p95 = window.length == 0 ? 0 : window[(int) Math.ceil(window.length * 0.95) - 1];
+        return new TailStats(linesParsed, parser.getTotalRejectCount(), offset, rotations, truncations, updates,
+                lastLatency, updates == 0 ? 0 : (double) latencySumMillis / updates, p95, maxLatencyMillis);
+    }
+
+    private void resumeFromCheckpoint(long size) throws IOException {
+        offset = 0;
+        if (checkpointFile == null || !checkpointFile.isFile()) {
+            return;
+        }
+        Properties checkpoint = new Properties();
+        try (InputStream in = Files.newInputStream(checkpointFile.toPath())) {
+            checkpoint.load(in);
+        } catch (IOException e) {
+            System.err.println("LogTailer: ignoring unreadable checkpoint " + checkpointFile + ": " + e.getMessage());
+            return;
+        }
+        long saved = Long.parseLong(checkpoint.getProperty("offset", "0"));
+        if (logPath.toString().equals(checkpoint.getProperty("path"))
+                && String.valueOf(identity).equals(checkpoint.getProperty("identity"))
+                && saved <= size) {
+            offset = saved;
+            fingerprint = HexFormat.of().parseHex(checkpoint.getProperty("fingerprint", ""));
+            if (!fingerprintMatches()) {
+                offset = 0;
+                fingerprint = new byte[0];
+                System.out.println("LogTailer: " + logPath + " was rewritten since the checkpoint, reading from the start");
+                return;
+            }
+            System.out.println("LogTailer: resuming " + logPath + " at byte " + offset);
+        } else {
+            System.out.println("LogTailer: checkpoint does not match " + logPath + ", reading from the start");
+        }
+    }
+
+    private void saveCheckpoint() throws IOException {
+        if (checkpointFile == null) {
+            return;
+        }
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("path", logPath.toString());
+        checkpoint.setProperty("identity", String.valueOf(identity));
+        checkpoint.setProperty("offset", Long.toString(offset));
+        checkpoint.setProperty("fingerprint", HexFormat.of().formatHex(fingerprint));
+
+        Path target = checkpointFile.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            checkpoint.store(out, "LogTailer checkpoint");
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
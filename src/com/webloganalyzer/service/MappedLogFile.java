@@ -0,0 +1,133 @@
+package com.webloganalyzer.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A log file opened for memory-mapped reading and split into byte ranges that start and end on
+ * line boundaries, so each range can be mapped and parsed by a different worker.
+ */
+public class MappedLogFile implements AutoCloseable {
+
+    // A single mapping is limited to Integer.MAX_VALUE bytes; keep well below that.
+    private static final long MAX_RANGE_BYTES = 1L << 30;
+
+    public record ByteRange(long start, long end) {
+        public long length() {
+            return end - start;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long size;
+
+    public MappedLogFile(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Splits the file into roughly {@code parts} ranges (more if a range would exceed the mapping
+     * limit). Every range begins at the start of a line; empty ranges are dropped.
+     */
+    public List<ByteRange> split(int parts) throws IOException {
+        int count = (int) Math.max(Math.max(parts, 1), (size + MAX_RANGE_BYTES - 1) / MAX_RANGE_BYTES);
+        List<ByteRange> ranges = new ArrayList<>(count);
+        long start = 0;
+        for (int i = 1; i <= count && start < size; i++) {
+            long end = i == count ? size : alignToLineStart(size * i / count);
+            if (end > start) {
+                ranges.add(new ByteRange(start, end));
+                start = end;
+            }
+        }
+        return ranges;
+    }
+
+    public MappedByteBuffer map(ByteRange range) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, range.start(), range.length());
+    }
+
+    /**
+     * Visits every line of a mapped range with the same terminator rules as
+     * {@link java.io.BufferedReader#readLine()}: "\n", "\r" or "\r\n". The {@link CharSequence}
+     * passed to the visitor is reused and only valid during the call.
+     */
+    public static void forEachLine(ByteBuffer buffer, Consumer<CharSequence> visitor) {
+        Latin1Line line = new Latin1Line(buffer);
+        int limit = buffer.limit();
+        int pos = 0;
+        while (pos < limit) {
+            int end = pos;
+            byte b = 0;
+            while (end < limit) {
+                b = buffer.get(end);
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+                end++;
+            }
+            line.reset(pos, end - pos);
+            visitor.accept(line);
+            if (b == '\r' && end + 1 < limit && buffer.get(end + 1) == '\n') {
+                end++;
+            }
+            pos = end + 1;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Returns the first line start at or after {@code position}, or the file size if there is none.
+     */
+    private long alignToLineStart(long position) throws IOException {
+        if (position <= 0) {
+            return 0;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        long scan = position - 1;
+        while (scan < size) {
+            buf.clear();
+            int read = channel.read(buf, scan);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buf.get(i);
+                if (b == '\n') {
+                    return scan + i + 1;
+                }
+                if (b == '\r') {
+                    long next = scan + i + 1;
+                    if (i + 1 < read) {
+                        return buf.get(i + 1) == '\n' ? next + 1 : next;
+                    }
+                    return next < size && peek(next) == '\n' ? next + 1 : next;
+                }
+            }
+            scan += read;
+        }
+        return size;
+    }
+
+    private byte peek(long position) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        channel.read(one, position);
+        return one.get(0);
+    }
+}
@@ -0,0 +1,512 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogEntry;
+import com.webloganalyzer.model.LogFormat;
+import com.webloganalyzer.model.LogLineParser;
+import com.webloganalyzer.model.LogRecord;
+import com.webloganalyzer.model.LogTable;
+import com.webloganalyzer.model.OffHeapLogStore;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parses a set of logs (files, directories of rotated logs, gzip-compressed or plain) as one
+ * input. Each file becomes one or more work units: a {@code .gz} file is a single unit, since a
+ * gzip stream can only be decompressed from its start, while a plain file is split into
+ * newline-aligned mapped ranges, small enough to give every worker several units but no smaller
+ * than {@link #MIN_UNIT_BYTES} and no larger than {@link #MAX_UNIT_BYTES}. Units are handed to the
+ * workers largest first, so a big file starts early and the small ones fill in the gaps behind it.
+ *
+ * <p>Each unit fills its own partial result; partials are merged in file order (files sorted by
+ * name within a directory), so results do not depend on which worker finished first.
+ *
+ * <p>The progressive analysis instead hands out units in file order, keeps only a few per thread in
+ * flight, and folds each one into the result as soon as every unit before it is done, reporting the
+ * result so far at intervals. Interrupting the calling thread stops such a run after the units
+ * already started, so an abandoned analysis does not keep the workers busy.
+ */
+public class MultiFileLogProcessor implements LogProcessor {
+
+    static final long MIN_UNIT_BYTES = 4L << 20;
+    static final long MAX_UNIT_BYTES = 64L << 20;
+    private static final int UNITS_PER_THREAD = 4;
+    private static final int UNITS_IN_FLIGHT_PER_THREAD = 2;
+
+    /** Rows a unit bound for a store keeps on the heap before moving them off it. */
+    private static final int STORE_PARTIAL_ROWS = 1 << 16;
+
+    private static final int GZIP_BUFFER_BYTES = 1 << 16;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private final int threadCount;
+    private final LogFormat format;
+    private final ProcessorMetrics metrics = ProcessorMetrics.shared();
+
+    public MultiFileLogProcessor(int threadCount) {
+        this(threadCount, LogFormat.COMMON);
+    }
+
+    public MultiFileLogProcessor(int threadCount, LogFormat format) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be positive");
+        }
+        this.threadCount = threadCount;
+        this.format = format;
+    }
+
+    /**
+     * Replaces every directory with the regular files directly inside it, sorted by name; hidden
+     * files are skipped. Files are kept as given.
+     */
+    public static List<File> expand(List<File> inputs) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (File input : inputs) {
+            if (input.isDirectory()) {
+                File[] children = input.listFiles(file -> file.isFile() && !file.isHidden());
+                if (children == null) {
+                    throw new IOException("Cannot list directory " + input);
+                }
+                Arrays.sort(children, Comparator.comparing(File::getName));
+                files.addAll(Arrays.asList(children));
+            } else if (input.isFile()) {
+                files.add(input);
+            } else {
+                throw new IOException("No such file or directory: " + input);
+            }
+        }
+        return files;
+    }
+
+    static boolean isGzip(File file) {
+        return file.getName().endsWith(".gz");
+    }
+
+    @Override
+    public List<LogEntry> processLogFile(File logFile) throws Exception {
+        return processLogFiles(List.of(logFile));
+    }
+
+    @Override
+    public LogTable processToTable(File logFile) throws Exception {
+        return processToTable(List.of(logFile));
+    }
+
+    @Override
+    public void processInto(File logFile, OffHeapLogStore store) throws Exception {
+        processInto(List.of(logFile), store);
+    }
+
+    @Override
+    public <R> R analyzeLogFile(File logFile, LogAnalyzer<R> analyzer) throws Exception {
+        return analyzeLogFiles(List.of(logFile), analyzer);
+    }
+
+    public List<LogEntry> processLogFiles(List<File> inputs) throws Exception {
+        List<List<LogEntry>> partials = run(inputs, ArrayList::new, (parser, line, entries) -> {
+            LogEntry entry = parser.parse(line);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        });
+        return metrics.measure(ProcessorMetrics.Phase.MERGE, () -> {
+            List<LogEntry> allEntries = new ArrayList<>();
+            for (List<LogEntry> partial : partials) {
+                allEntries.addAll(partial);
+            }
+            return allEntries;
+        });
+    }
+
+    public LogTable processToTable(List<File> inputs) throws Exception {
+        List<LogTable> partials = run(inputs, LogTable::new, (parser, line, table) -> parser.parseInto(line, table));
+        return metrics.measure(ProcessorMetrics.Phase.MERGE, () -> {
+            int totalRows = 0;
+            for (LogTable partial : partials) {
+                totalRows += partial.size();
+            }
+            LogTable table = new LogTable(totalRows);
+            for (LogTable partial : partials) {
+                table.addAll(partial);
+            }
+            return table;
+        });
+    }
+
+    /**
+     * Parses the inputs into {@code store} in file order, appending each unit's rows as soon as
+     * every unit before it is in. A unit in flight keeps at most {@link #STORE_PARTIAL_ROWS} rows
+     * on the heap and moves the rest into a spilling store of its own, since a gzip file is a
+     * single unit however large it is.
+     */
+    public void processInto(List<File> inputs, OffHeapLogStore store) throws Exception {
+        Queue<StorePartial> partials = new ConcurrentLinkedQueue<>();
+        try {
+            runInOrder(inputs, () -> {
+                StorePartial partial = new StorePartial(store.getSpillDirectory());
+                partials.add(partial);
+                return partial;
+            }, StorePartial::parse, partial -> {
+                partial.appendTo(store);
+                partials.remove(partial);
+            }, () -> null, 0, null);
+        } finally {
+            for (StorePartial partial : partials) {
+                partial.close();  // units abandoned by a failure
+            }
+        }
+    }
+
+    public <R> R analyzeLogFiles(List<File> inputs, LogAnalyzer<R> analyzer) throws Exception {
+        List<AnalysisPartial<R>> partials = run(inputs, () -> AnalysisPartial.create(analyzer), AnalysisPartial.handler());
+        return metrics.measure(ProcessorMetrics.Phase.MERGE, () -> AnalysisPartial.mergeInOrder(analyzer, partials));
+    }
+
+    /**
+     * Like {@link #analyzeLogFiles}, but reports the result over the units done so far to
+     * {@code listener}, at most every {@code intervalMillis}, while the run is still going.
+     *
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public <R> R analyzeProgressively(List<File> inputs, LogAnalyzer<R> analyzer, long intervalMillis,
+                                      Consumer<AnalysisProgress<R>> listener) throws Exception {
+        List<LogAnalyzer.Accumulator<R>> combined = new ArrayList<>(1);
+        runInOrder(inputs, () -> AnalysisPartial.create(analyzer), AnalysisPartial.handler(), partial -> {
+            if (combined.isEmpty()) {
+                combined.add(partial.accumulator());
+            } else {
+                combined.get(0).merge(partial.accumulator());
+            }
+        }, () -> combined.get(0).result(), intervalMillis, listener);
+        return combined.isEmpty()
+                ? analyzer.newAccumulator(new LogDictionaries()).result()
+                : combined.get(0).result();
+    }
+
+    /**
+     * Parses the inputs into one table like {@link #processToTable(List)} and builds the table's
+     * {@link TimeRollupIndex} in the same pass: each unit's rows are rolled up by the worker that
+     * parsed them, and the unit rollups are merged in file order, so the index needs no pass of
+     * its own over the table.
+     */
+    public TableRollups processToTableWithRollups(List<File> inputs) throws Exception {
+        List<RollupPartial> partials = run(inputs, RollupPartial::new, RollupPartial::parse);
+        return metrics.measure(ProcessorMetrics.Phase.MERGE, () -> {
+            int totalRows = 0;
+            for (RollupPartial partial : partials) {
+                totalRows += partial.table.size();
+            }
+            LogTable table = new LogTable(totalRows);
+            LogAnalyzer.Accumulator<TimeRollupIndex> rollups = null;
+            for (RollupPartial partial : partials) {
+                table.addAll(partial.table);
+                if (rollups == null) {
+                    rollups = partial.rollups;
+                } else {
+                    rollups.merge(partial.rollups);
+                }
+            }
+            return new TableRollups(table, rollups == null
+                    ? new TimeRollupAnalyzer().newAccumulator(table.getDictionaries()).result()
+                    : rollups.result());
+        });
+    }
+
+    /** The rows of one unit and their rollups. */
+    private static final class RollupPartial {
+        private final LogTable table = new LogTable();
+        private final LogRecord record = new LogRecord(table.getDictionaries());
+        private final LogAnalyzer.Accumulator<TimeRollupIndex> rollups =
+                new TimeRollupAnalyzer().newAccumulator(table.getDictionaries());
+
+        static void parse(LogLineParser parser, CharSequence line, RollupPartial partial) {
+            if (parser.parseInto(line, partial.table)) {
+                partial.table.readInto(partial.table.size() - 1, partial.record);
+                partial.rollups.accept(partial.record);
+            }
+        }
+    }
+
+    /**
+     * The rows of one unit bound for a store: a small table that turns into a store of its own,
+     * spilled to disk rather than held in direct memory, once it outgrows {@link #STORE_PARTIAL_ROWS}.
+     */
+    private static final class StorePartial implements Closeable {
+        private final File spillDirectory;
+        private final LogDictionaries dictionaries = new LogDictionaries();
+        private final LogRecord record = new LogRecord(dictionaries);
+        private LogTable table = new LogTable(1024, dictionaries);
+        private OffHeapLogStore overflow;
+
+        StorePartial(File spillDirectory) {
+            this.spillDirectory = spillDirectory;
+        }
+
+        static void parse(LogLineParser parser, CharSequence line, StorePartial partial) {
+            if (!parser.parseInto(line, partial.record)) {
+                return;
+            }
+            if (partial.overflow != null) {
+                partial.overflow.add(partial.record);
+                return;
+            }
+            partial.table.add(partial.record);
+            if (partial.table.size() == STORE_PARTIAL_ROWS) {
+                partial.overflow = new OffHeapLogStore(0, partial.spillDirectory, partial.dictionaries);
+                partial.overflow.addAll(partial.table);
+                partial.table = null;
+            }
+        }
+
+        void appendTo(OffHeapLogStore store) {
+            if (overflow == null) {
+                store.addAll(table);
+                return;
+            }
+            store.addAll(overflow);
+            close();
+        }
+
+        @Override
+        public void close() {
+            if (overflow != null) {
+                try {
+                    overflow.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /** A parsed table and its time rollups. */
+    public record TableRollups(LogTable table, TimeRollupIndex rollups) {
+    }
+
+    /** A file or a byte range of one, in input order, with the work it is expected to take. */
+    private record WorkUnit(int order, File file, MappedLogFile mapped, MappedLogFile.ByteRange range, long cost) {
+    }
+
+    private <T> List<T> run(List<File> inputs, Supplier<T> newPartial, LineHandler<T> handler) throws Exception {
+        List<File> files = expand(inputs);
+        ProcessorMetrics.Run run = metrics.startRun("MultiFileLogProcessor", threadCount);
+        List<MappedLogFile> opened = new ArrayList<>();
+        ExecutorService executor = WorkerPools.forParallelism(threadCount);
+        List<Future<T>> futures = new ArrayList<>();
+        try {
+            List<WorkUnit> units = plan(files, opened);
+            List<WorkUnit> schedule = new ArrayList<>(units);
+            schedule.sort(Comparator.comparingLong(WorkUnit::cost).reversed());
+            for (int i = 0; i < units.size(); i++) {
+                futures.add(null);
+            }
+            for (WorkUnit unit : schedule) {
+                long queuedAt = System.nanoTime();
+                futures.set(unit.order(), executor.submit(() -> process(unit, newPartial, handler, run, queuedAt)));
+            }
+
+            List<T> partials = new ArrayList<>(units.size());
+            for (Future<T> future : futures) {
+                try {
+                    partials.add(future.get());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+            run.finish();
+            return partials;
+        } finally {
+            for (Future<T> future : futures) {
+                if (future != null) {
+                    future.cancel(false);  // after a failure, skips the units not started yet
+                }
+            }
+            for (MappedLogFile mapped : opened) {
+                mapped.close();
+            }
+        }
+    }
+
+    /**
+     * Parses the units in file order with a bounded number in flight and passes each partial to
+     * {@code inOrder} once all earlier ones have been passed. After a partial, if another is still
+     * to come and {@code intervalMillis} have passed since the last report, reports the progress
+     * with the current {@code snapshot} to {@code listener}, unless that is {@code null}.
+     */
+    private <T, R> void runInOrder(List<File> inputs, Supplier<T> newPartial, LineHandler<T> handler, Consumer<T> inOrder,
+                                   Supplier<R> snapshot, long intervalMillis,
+                                   Consumer<AnalysisProgress<R>> listener) throws Exception {
+        List<File> files = expand(inputs);
+        long startedAt = System.nanoTime();
+        ProcessorMetrics.Run run = metrics.startRun("MultiFileLogProcessor", threadCount);
+        List<MappedLogFile> opened = new ArrayList<>();
+        ExecutorService executor = WorkerPools.forParallelism(threadCount);
+        ArrayDeque<Future<T>> inFlight = new ArrayDeque<>();
+        try {
+            List<WorkUnit> units = plan(files, opened);
+            long totalBytes = 0;
+            for (WorkUnit unit : units) {
+                totalBytes += unit.cost();
+            }
+            long doneBytes = 0;
+            long reportedAt = startedAt;
+            int submitted = 0;
+            for (WorkUnit unit : units) {
+                while (submitted < units.size() && inFlight.size() < threadCount * UNITS_IN_FLIGHT_PER_THREAD) {
+                    WorkUnit next = units.get(submitted++);
+                    long queuedAt = System.nanoTime();
+                    inFlight.add(executor.submit(() -> process(next, newPartial, handler, run, queuedAt)));
+                }
+                T partial;
+                try {
+                    partial = inFlight.remove().get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+                metrics.measure(ProcessorMetrics.Phase.MERGE, () -> {
+                    inOrder.accept(partial);
+                    return null;
+                });
+                doneBytes += unit.cost();
+
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Analysis cancelled");
+                }
+                long now = System.nanoTime();
+                if (listener != null && unit.order() < units.size() - 1
+                        && now - reportedAt >= intervalMillis * 1_000_000) {
+                    listener.accept(new AnalysisProgress<>(doneBytes, totalBytes, now - startedAt, snapshot.get()));
+                    reportedAt = System.nanoTime();
+                }
+            }
+            run.finish();
+        } finally {
+            for (Future<T> future : inFlight) {
+                future.cancel(false);  // skips the units not started yet
+            }
+            for (MappedLogFile mapped : opened) {
+                mapped.close();
+            }
+        }
+    }
+
+    private List<WorkUnit> plan(List<File> files, List<MappedLogFile> opened) throws IOException {
+        long totalBytes = 0;
+        for (File file : files) {
+            totalBytes += isGzip(file) ? estimateUncompressedSize(file) : file.length();
+        }
+        long unitBytes = Math.min(MAX_UNIT_BYTES, Math.max(MIN_UNIT_BYTES, totalBytes / (threadCount * UNITS_PER_THREAD)));
+
+        List<WorkUnit> units = new ArrayList<>();
+        for (File file : files) {
+            if (isGzip(file)) {
+                units.add(new WorkUnit(units.size(), file, null, null, estimateUncompressedSize(file)));
+                continue;
+            }
+            MappedLogFile mapped = new MappedLogFile(file);
+            opened.add(mapped);
+            int parts = (int) Math.max(1, (mapped.size() + unitBytes - 1) / unitBytes);
+            for (MappedLogFile.ByteRange range : mapped.split(parts)) {
+                units.add(new WorkUnit(units.size(), file, mapped, range, range.length()));
+            }
+        }
+        return units;
+    }
+
+    /**
+     * The gzip trailer's ISIZE field (uncompressed size modulo 2^32) of the last member, which is
+     * exact for the usual single-member file under 4 GB. Falls back to a typical text compression
+     * ratio when the trailer is clearly not the whole story.
+     */
+    static long estimateUncompressedSize(File gzipFile) throws IOException {
+        long compressed = gzipFile.length();
+        long guess = compressed * 10;
+        if (compressed < 18) {
+            return compressed;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(gzipFile, "r")) {
+            file.seek(compressed - 4);
+            long isize = Integer.toUnsignedLong(Integer.reverseBytes(file.readInt()));
+            return isize >= compressed ? isize : guess;
+        }
+    }
+
+    private <T> T process(WorkUnit unit, Supplier<T> newPartial, LineHandler<T> handler,
+                          ProcessorMetrics.Run run, long queuedAt) throws IOException {
+        ProcessorMetrics.Chunk chunk = run.startChunk(queuedAt);
+        T partial = newPartial.get();
+        LogLineParser parser = format.newParser();
+        long bytes;
+        if (unit.mapped() != null) {
+            MappedLogFile.forEachLine(unit.mapped().map(unit.range()), line -> handler.handle(parser, line, partial));
+            bytes = unit.range().length();
+        } else {
+            try (InputStream in = new GZIPInputStream(new FileInputStream(unit.file()), GZIP_BUFFER_BYTES)) {
+                bytes = forEachLine(in, line -> handler.handle(parser, line, partial));
+            }
+        }
+        chunk.finish(parser.getLineCount(), bytes);
+        run.recordRejects(parser);
+        return partial;
+    }
+
+    /**
+     * Visits the lines of a stream, decoding Latin-1 straight from a reused byte chunk, and
+     * returns the number of bytes read.
+     */
+    private static long forEachLine(InputStream in, Consumer<CharSequence> visitor) throws IOException {
+        byte[] chunk = new byte[CHUNK_BYTES];
+        int filled = 0;
+        long total = 0;
+        while (true) {
+            int read = in.read(chunk, filled, chunk.length - filled);
+            if (read < 0) {
+                if (filled > 0) {
+                    MappedLogFile.forEachLine(ByteBuffer.wrap(chunk, 0, filled), visitor);
+                }
+                return total;
+            }
+            filled += read;
+            total += read;
+            int end = lastNewline(chunk, filled) + 1;
+            if (end == 0) {
+                if (filled == chunk.length) {
+                    chunk = Arrays.copyOf(chunk, chunk.length * 2);  // a line longer than the chunk
+                }
+                continue;
+            }
+            MappedLogFile.forEachLine(ByteBuffer.wrap(chunk, 0, end), visitor);
+            System.arraycopy(chunk, end, chunk, 0, filled - end);
+            filled -= end;
+        }
+    }
+
+    static int lastNewline(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,83 +1,312 @@
 package com.webloganalyzer.service;
 
 import com.webloganalyzer.model.LogEntry;
+import com.webloganalyzer.model.LogFormat;
+import com.webloganalyzer.model.LogLineParser;
+import com.webloganalyzer.model.LogTable;
+import com.webloganalyzer.model.OffHeapLogStore;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+/**
+ * Parses one file on a shared work-stealing pool ({@link WorkerPools}). The input is cut into
+ * many small blocks of lines or newline-aligned bytes, and tasks split their block range lazily:
+ * a task hands off the back half of its remaining range only while the pool has few queued tasks,
+ * i.e. when some worker may be idle. Balanced runs therefore stay at a handful of tasks, while a
+ * run with uneven blocks keeps splitting until every worker has something to do.
+ *
+ * <p>Each task fills its own partial result; partials come back in file order. Per-worker busy
+ * time for the last run is available from {@link #getLastUtilization()}; every block is also
+ * reported to {@link ProcessorMetrics} as a chunk.
+ */
 public class ParallelLogProcessor implements LogProcessor {
 
+    public enum InputMode {
+        /** Read every line onto the heap first, then split the list between workers. */
+        READ_ALL_LINES,
+        /** Map the file and let each worker decode and parse its own newline-aligned byte range. */
+        MEMORY_MAPPED
+    }
+
+    /** Lines per block in {@link InputMode#READ_ALL_LINES} mode. */
+    static final int LINES_PER_BLOCK = 2048;
+    /** Target block size in {@link InputMode#MEMORY_MAPPED} mode. */
+    static final long BYTES_PER_BLOCK = 1L << 20;
+    /** Smallest number of blocks per worker, so small files still split finely enough to balance. */
+    static final int MIN_BLOCKS_PER_THREAD = 8;
+    /**
+     * Blocks per thread parsed at a time by {@link #processInto}; few enough that the window's
+     * partial tables die young instead of filling a small heap's old generation.
+     */
+    static final int STORE_WINDOW_BLOCKS_PER_THREAD = 2;
+    /** A task splits while at most this many of its forked tasks are still unclaimed. */
+    static final int SURPLUS_THRESHOLD = 2;
+
     private final int threadCount;
+    private final InputMode inputMode;
+    private final LogFormat format;
+    private final ProcessorMetrics metrics = ProcessorMetrics.shared();
+    private volatile WorkerUtilization lastUtilization;
 
     public ParallelLogProcessor(int threadCount) {
+        this(threadCount, InputMode.READ_ALL_LINES);
+    }
+
+    public ParallelLogProcessor(int threadCount, InputMode inputMode) {
+        this(threadCount, inputMode, LogFormat.COMMON);
+    }
+
+    public ParallelLogProcessor(int threadCount, InputMode inputMode, LogFormat format) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be positive");
+        }
         this.threadCount = threadCount;
+        this.inputMode = inputMode;
+        this.format = format;
+    }
+
+    /** Load balance of the most recent run, or {@code null} before the first one. */
+    public WorkerUtilization getLastUtilization() {
+        return lastUtilization;
     }
 
     @Override
     public List<LogEntry> processLogFile(File logFile) throws Exception {
-        System.out.println("=== ParallelLogProcessor starting ===");
-        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
-        System.out.println("Requested threads: " + threadCount);
+        List<List<LogEntry>> partials = run(logFile, ArrayList::new, (parser, line, entries) -> {
+            LogEntry entry = parser.parse(line);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        });
 
-        List<String> allLines = Files.readAllLines(logFile.toPath(), StandardCharsets.ISO_8859_1);
-        int totalLines = allLines.size();
-        System.out.println("Total lines in log file: " + totalLines);
+        return metrics.measure(ProcessorMetrics.Phase.MERGE, () -> {
+            List<LogEntry> allEntries = new ArrayList<>();
+            for (List<LogEntry> partialResult : partials) {
+                allEntries.addAll(partialResult);
+            }
+            return allEntries;
+        });
+    }
 
-        int chunkSize = Math.max(1, (int) Math.ceil((double) totalLines / threadCount));
-        System.out.println("Calculated chunk size: " + chunkSize + " lines per thread.");
+    @Override
+    public LogTable processToTable(File logFile) throws Exception {
+        List<LogTable> partials = run(logFile, LogTable::new, (parser, line, table) -> parser.parseInto(line, table));
 
-        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(threadCount);
-        executor.prestartAllCoreThreads();  // warm up all threads now
-        System.out.println("All " + threadCount + " threads prestarted.");
+        return metrics.measure(ProcessorMetrics.Phase.MERGE, () -> {
+            int totalRows = 0;
+            for (LogTable partial : partials) {
+                totalRows += partial.size();
+            }
+            LogTable table = new LogTable(totalRows);
+            for (LogTable partial : partials) {
+                table.addAll(partial);
+            }
+            return table;
+        });
+    }
 
-        List<Future<List<LogEntry>>> futures = new ArrayList<>();
+    /**
+     * Parses the file into {@code store} one window of {@link #STORE_WINDOW_BLOCKS_PER_THREAD}
+     * blocks per thread at a time, appending the window's partial tables in file order before parsing the
+     * next, so only about a window of rows is ever on the heap. Always reads mapped byte ranges,
+     * whatever the input mode, since reading every line first is what a store for logs larger
+     * than the heap has to avoid.
+     */
+    @Override
+    public void processInto(File logFile, OffHeapLogStore store) throws Exception {
+        try (MappedLogFile mapped = new MappedLogFile(logFile)) {
+            List<MappedLogFile.ByteRange> ranges = mapped.split(blockCount(mapped));
+            invoke(ranges.size(), threadCount * STORE_WINDOW_BLOCKS_PER_THREAD, LogTable::new, (block, parser, table) -> {
+                MappedLogFile.forEachLine(mapped.map(ranges.get(block)), line -> parser.parseInto(line, table));
+                return ranges.get(block).length();
+            }, store::addAll);
+        }
+    }
 
-        for (int i = 0; i < threadCount; i++) {
-            final int start = i * chunkSize;
-            final int end = Math.min(start + chunkSize, totalLines);
+    @Override
+    public <R> R analyzeLogFile(File logFile, LogAnalyzer<R> analyzer) throws Exception {
+        List<AnalysisPartial<R>> partials = run(logFile, () -> AnalysisPartial.create(analyzer), AnalysisPartial.handler());
+        return metrics.measure(ProcessorMetrics.Phase.MERGE, () -> AnalysisPartial.mergeInOrder(analyzer, partials));
+    }
 
-            if (start >= end) {
-                System.out.println("Worker " + i + ": no work assigned (start >= end), skipping.");
-                continue;
+    /**
+     * Parses the file on the shared pool, each task filling its own partial result, and returns
+     * the partials in file order.
+     */
+    private <T> List<T> run(File logFile, Supplier<T> newPartial, LineHandler<T> handler) throws Exception {
+        if (inputMode == InputMode.MEMORY_MAPPED) {
+            try (MappedLogFile mapped = new MappedLogFile(logFile)) {
+                List<MappedLogFile.ByteRange> ranges = mapped.split(blockCount(mapped));
+                return invoke(ranges.size(), newPartial, (block, parser, partial) -> {
+                    MappedLogFile.forEachLine(mapped.map(ranges.get(block)), line -> handler.handle(parser, line, partial));
+                    return ranges.get(block).length();
+                });
             }
+        }
 
-            System.out.println("Worker " + i + ": processing lines [" + start + " - " + (end - 1) + "]");
+        long readMark = ProcessorMetrics.allocatedBytes();
+        List<String> allLines = Files.readAllLines(logFile.toPath(), StandardCharsets.ISO_8859_1);
+        metrics.recordAllocation(ProcessorMetrics.Phase.READ, readMark);
+        int linesPerBlock = Math.max(1, Math.min(LINES_PER_BLOCK, allLines.size() / (threadCount * MIN_BLOCKS_PER_THREAD)));
+        int blocks = (allLines.size() + linesPerBlock - 1) / linesPerBlock;
+        return invoke(blocks, newPartial, (block, parser, partial) -> {
+            int end = Math.min(allLines.size(), (block + 1) * linesPerBlock);
+            long bytes = 0;
+            for (int i = block * linesPerBlock; i < end; i++) {
+                String line = allLines.get(i);
+                handler.handle(parser, line, partial);
+                bytes += line.length() + 1;  // Latin-1: one byte per char, plus the terminator
+            }
+            return bytes;
+        });
+    }
+
+    private int blockCount(MappedLogFile mapped) {
+        return (int) Math.max((long) threadCount * MIN_BLOCKS_PER_THREAD,
+                (mapped.size() + BYTES_PER_BLOCK - 1) / BYTES_PER_BLOCK);
+    }
 
-            List<String> chunk = allLines.subList(start, end);
+    /** Parses block {@code block} of the input into {@code partial}, returning its size in bytes. */
+    @FunctionalInterface
+    private interface BlockParser<T> {
+        long parse(int block, LogLineParser parser, T partial) throws IOException;
+    }
 
-            Callable<List<LogEntry>> task = () -> {
-                List<LogEntry> localList = new ArrayList<>();
-                for (String line : chunk) {
-                    LogEntry entry = LogEntry.parseFromNasaLogLine(line);
-                    if (entry != null) {
-                        localList.add(entry);
-                    }
-                }
-                return localList;
-            };
+    /** What one worker thread did during a run; only ever written by that thread. */
+    private static final class WorkerCounter {
+        long busyNanos;
+        long tasks;
+        long blocks;
+    }
+
+    /** Shared state of one run. */
+    private static final class Run<T> {
+        final Supplier<T> newPartial;
+        final BlockParser<T> blockParser;
+        final LogFormat format;
+        final Map<Thread, WorkerCounter> counters = new ConcurrentHashMap<>();
+        final ProcessorMetrics.Run metrics;
+
+        Run(Supplier<T> newPartial, BlockParser<T> blockParser, LogFormat format, ProcessorMetrics.Run metrics) {
+            this.newPartial = newPartial;
+            this.blockParser = blockParser;
+            this.format = format;
+            this.metrics = metrics;
+        }
+    }
+
+    private <T> List<T> invoke(int blocks, Supplier<T> newPartial, BlockParser<T> blockParser) {
+        List<T> partials = new ArrayList<>();
+        invoke(blocks, Math.max(1, blocks), newPartial, blockParser, partials::add);
+        return partials;
+    }
 
-            futures.add(executor.submit(task));
+    /**
+     * Parses the blocks {@code windowBlocks} at a time and passes each window's partials to
+     * {@code inOrder} in file order before starting on the next window. The run's metrics and
+     * utilization cover all windows.
+     */
+    private <T> void invoke(int blocks, int windowBlocks, Supplier<T> newPartial, BlockParser<T> blockParser,
+                            Consumer<T> inOrder) {
+        if (blocks == 0) {
+            lastUtilization = new WorkerUtilization(0, new long[threadCount], 0, 0, 0);
+            return;
+        }
+        Run<T> run = new Run<>(newPartial, blockParser, format, metrics.startRun("ParallelLogProcessor " + inputMode, threadCount));
+        ForkJoinPool pool = WorkerPools.forParallelism(threadCount);
+        long stealsBefore = pool.getStealCount();
+        long start = System.nanoTime();
+        for (int from = 0; from < blocks; from += windowBlocks) {
+            pool.invoke(new BlockTask<>(run, from, Math.min(blocks, from + windowBlocks))).forEach(inOrder);
         }
+        long wallNanos = System.nanoTime() - start;
+        run.metrics.finish();
 
-        List<LogEntry> allEntries = new ArrayList<>();
-        for (Future<List<LogEntry>> future : futures) {
-            List<LogEntry> partialResult = future.get();  // blocks until each task completes
-            allEntries.addAll(partialResult);
+        long[] busyNanos = new long[Math.max(threadCount, run.counters.size())];
+        long tasks = 0;
+        int worker = 0;
+        for (WorkerCounter counter : run.counters.values()) {
+            busyNanos[worker++] = counter.busyNanos;
+            tasks += counter.tasks;
         }
+        lastUtilization = new WorkerUtilization(wallNanos, busyNanos, tasks, blocks, pool.getStealCount() - stealsBefore);
+    }
 
-        executor.shutdown();
-        boolean finished = executor.awaitTermination(1, TimeUnit.MINUTES);
-        if (!finished) {
-            System.err.println("Executor did not shut down cleanly within timeout.");
-        } else {
-            System.out.println("Executor shut down cleanly.");
+    /**
+     * Parses blocks {@code [start, end)} into one partial, splitting off the back half of what is
+     * left whenever the pool is short of queued work (lazy binary splitting). Returns its own
+     * partial followed by those of the tasks it split off, in block order.
+     */
+    private static final class BlockTask<T> extends RecursiveTask<List<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Run<T> run;
+        private final int start;
+        private final int end;
+        private long forkedAtNanos;  // 0 for the root task, which nobody queued
+
+        BlockTask(Run<T> run, int start, int end) {
+            this.run = run;
+            this.start = start;
+            this.end = end;
         }
 
-        System.out.println("=== ParallelLogProcessor completed ===");
-        return allEntries;
+        @Override
+        protected List<T> compute() {
+            WorkerCounter counter = run.counters.computeIfAbsent(Thread.currentThread(), thread -> new WorkerCounter());
+            counter.tasks++;
+            T partial = run.newPartial.get();
+            LogLineParser parser = run.format.newParser();
+            Deque<BlockTask<T>> splitOff = new ArrayDeque<>();
+
+            boolean canSplit = getPool().getParallelism() > 1;
+            int limit = end;
+            for (int block = start; block < limit; block++) {
+                if (canSplit && limit - block > 1 && getSurplusQueuedTaskCount() <= SURPLUS_THRESHOLD) {
+                    int middle = block + (limit - block + 1) / 2;
+                    BlockTask<T> back = new BlockTask<>(run, middle, limit);
+                    back.forkedAtNanos = System.nanoTime();
+                    back.fork();
+                    splitOff.push(back);
+                    limit = middle;
+                }
+                ProcessorMetrics.Chunk chunk = block == start && forkedAtNanos != 0
+                        ? run.metrics.startChunk(forkedAtNanos)
+                        : run.metrics.startChunk();
+                long linesBefore = parser.getLineCount();
+                long blockStart = System.nanoTime();
+                long bytes;
+                try {
+                    bytes = run.blockParser.parse(block, parser, partial);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                counter.busyNanos += System.nanoTime() - blockStart;
+                counter.blocks++;
+                chunk.finish(parser.getLineCount() - linesBefore, bytes);
+            }
+            run.metrics.recordRejects(parser);
+
+            List<T> partials = new ArrayList<>();
+            partials.add(partial);
+            while (!splitOff.isEmpty()) {
+                partials.addAll(splitOff.pop().join());  // the most recently split-off range comes next
+            }
+            return partials;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,279 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogTable;
+import com.webloganalyzer.model.StringDictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk binary snapshots of parsed logs. A snapshot holds a {@link LogTable}'s dictionaries and
+ * raw columns and is keyed by the log's absolute path, size, modification time and a hash of its
+ * first and last 64 KB, so a changed file is never served from a stale snapshot. Loading reads the
+ * snapshot in one go and bulk-copies the columns, which takes milliseconds where the text parser
+ * takes seconds. The snapshot is read rather than mapped, since a mapping would keep the file
+ * open until it is garbage collected, and Windows refuses to replace a mapped file when the
+ * snapshot is refreshed.
+ *
+ * <p>Snapshots are written to a temporary file and moved into place, so a crash never leaves a
+ * half-written snapshot under the real name. Unreadable snapshots are treated as misses.
+ */
+public class ParsedLogCache {
+
+    private static final int MAGIC = 0x574C4143;  // "WLAC"
+    private static final int VERSION = 1;
+    private static final int SAMPLE_BYTES = 64 * 1024;
+    private static final int BYTES_PER_ROW = 6 * Integer.BYTES + Long.BYTES;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final File cacheDir;
+
+    public ParsedLogCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Returns the cached table, or parses the file with {@code processor} and caches the result.
+     * Directories are parsed but never cached, since their content has no single key.
+     */
+    public LogTable loadOrParse(File logFile, LogProcessor processor) throws Exception {
+        if (!logFile.isFile()) {
+            return processor.processToTable(logFile);
+        }
+        LogTable table = load(logFile);
+        if (table == null) {
+            Key before = Key.of(logFile);
+            table = processor.processToTable(logFile);
+            if (Key.of(logFile).equals(before)) {  // don't cache a file that changed while parsing
+                store(before, logFile, table);
+            }
+        }
+        return table;
+    }
+
+    /** Returns the snapshot of {@code logFile}, or {@code null} if there is no current one. */
+    public LogTable load(File logFile) throws IOException {
+        File snapshot = snapshotFile(logFile);
+        if (!snapshot.isFile() || !logFile.isFile()) {
+            return null;
+        }
+        Key key = Key.of(logFile);
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            readFully(channel, buffer, 0);
+            if (buffer.hasRemaining()) {
+                return null;  // truncated while being read
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            Key stored = new Key(readString(buffer), buffer.getLong(), buffer.getLong(), buffer.getLong());
+            if (!stored.equals(key)) {
+                return null;
+            }
+            int rows = buffer.getInt();
+            LogDictionaries dictionaries = new LogDictionaries();
+            readDictionary(buffer, dictionaries.getIps());
+            readDictionary(buffer, dictionaries.getMethods());
+            readDictionary(buffer, dictionaries.getResources());
+
+            int[] ipIds = readInts(buffer, rows);
+            int[] methodIds = readInts(buffer, rows);
+            int[] resourceIds = readInts(buffer, rows);
+            long[] epochSeconds = new long[rows];
+            buffer.asLongBuffer().get(epochSeconds);
+            buffer.position(buffer.position() + rows * Long.BYTES);
+            int[] offsetSeconds = readInts(buffer, rows);
+            int[] statusCodes = readInts(buffer, rows);
+            int[] byteCounts = readInts(buffer, rows);
+            if (buffer.getInt() != MAGIC) {
+                return null;
+            }
+            return new LogTable(dictionaries, rows, ipIds, methodIds, resourceIds, epochSeconds,
+                    offsetSeconds, statusCodes, byteCounts);
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            System.err.println("ParsedLogCache: ignoring damaged snapshot " + snapshot + ": " + e);
+            return null;
+        }
+    }
+
+    /** Writes a snapshot of {@code table}, the parsed content of {@code logFile}. */
+    public void store(File logFile, LogTable table) throws IOException {
+        store(Key.of(logFile), logFile, table);
+    }
+
+    private void store(Key key, File logFile, LogTable table) throws IOException {
+        long rowBytes = (long) table.size() * BYTES_PER_ROW;
+        if (rowBytes > Integer.MAX_VALUE / 2) {
+            System.out.println("ParsedLogCache: " + logFile + " is too large to snapshot");
+            return;
+        }
+        Path target = snapshotFile(logFile).toPath();
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+            out.putInt(MAGIC).putInt(VERSION);
+            writeString(channel, out, key.path());
+            ensure(channel, out, 3 * Long.BYTES + Integer.BYTES);
+            out.putLong(key.size()).putLong(key.lastModified()).putLong(key.sampleHash());
+            out.putInt(table.size());
+            writeDictionary(channel, out, table.getIps());
+            writeDictionary(channel, out, table.getMethods());
+            writeDictionary(channel, out, table.getResources());
+
+            int rows = table.size();
+            for (int row = 0; row < rows; row++) {
+                ensure(channel, out, Integer.BYTES);
+                out.putInt(table.getIpId(row));
+            }
+            for (int row = 0; row < rows; row++) {
+                ensure(channel, out, Integer.BYTES);
+                out.putInt(table.getMethodId(row));
+            }
+            for (int row = 0; row < rows; row++) {
+                ensure(channel, out, Integer.BYTES);
+                out.putInt(table.getResourceId(row));
+            }
+            for (int row = 0; row < rows; row++) {
+                ensure(channel, out, Long.BYTES);
+                out.putLong(table.getEpochSecond(row));
+            }
+            for (int row = 0; row < rows; row++) {
+                ensure(channel, out, Integer.BYTES);
+                out.putInt(table.getOffsetSeconds(row));
+            }
+            for (int row = 0; row < rows; row++) {
+                ensure(channel, out, Integer.BYTES);
+                out.putInt(table.getStatusCode(row));
+            }
+            for (int row = 0; row < rows; row++) {
+                ensure(channel, out, Integer.BYTES);
+                out.putInt(table.getBytes(row));
+            }
+            ensure(channel, out, Integer.BYTES);
+            out.putInt(MAGIC);
+            flush(channel, out);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Deletes the snapshot of {@code logFile}, if any. */
+    public boolean invalidate(File logFile) throws IOException {
+        return Files.deleteIfExists(snapshotFile(logFile).toPath());
+    }
+
+    File snapshotFile(File logFile) {
+        String path = logFile.getAbsolutePath();
+        CRC32C crc = new CRC32C();
+        crc.update(path.getBytes(StandardCharsets.UTF_8));
+        return new File(cacheDir, logFile.getName() + "-" + Long.toHexString(crc.getValue()) + ".snapshot");
+    }
+
+    private record Key(String path, long size, long lastModified, long sampleHash) {
+
+        static Key of(File logFile) throws IOException {
+            Path path = logFile.toPath().toAbsolutePath();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                CRC32C crc = new CRC32C();
+                ByteBuffer sample = ByteBuffer.allocate(SAMPLE_BYTES);
+                readFully(channel, sample, 0);
+                crc.update(sample.flip());
+                if (size > SAMPLE_BYTES) {
+                    sample.clear();
+                    readFully(channel, sample, Math.max(SAMPLE_BYTES, size - SAMPLE_BYTES));
+                    crc.update(sample.flip());
+                }
+                return new Key(path.toString(), size, Files.getLastModifiedTime(path).toMillis(), crc.getValue());
+            }
+        }
+    }
+
+    /** Fills {@code buffer} from {@code position} on, or up to the end of the file. */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+    }
+
+    private static void writeDictionary(FileChannel channel, ByteBuffer out, StringDictionary dictionary) throws IOException {
+        ensure(channel, out, Integer.BYTES);
+        out.putInt(dictionary.size());
+        for (int id = 0; id < dictionary.size(); id++) {
+            writeString(channel, out, dictionary.valueOf(id));
+        }
+    }
+
+    private static void readDictionary(ByteBuffer buffer, StringDictionary dictionary) {
+        int count = buffer.getInt();
+        for (int id = 0; id < count; id++) {
+            if (dictionary.idOf(readString(buffer)) != id) {
+                throw new IllegalArgumentException("duplicate dictionary value");
+            }
+        }
+    }
+
+    private static void writeString(FileChannel channel, ByteBuffer out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(channel, out, Integer.BYTES);
+        out.putInt(bytes.length);
+        int written = 0;
+        while (written < bytes.length) {
+            ensure(channel, out, 1);
+            int count = Math.min(out.remaining(), bytes.length - written);
+            out.put(bytes, written, count);
+            written += count;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    private static void ensure(FileChannel channel, ByteBuffer out, int bytes) throws IOException {
+        if (out.remaining() < bytes) {
+            flush(channel, out);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
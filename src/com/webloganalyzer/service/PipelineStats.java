@@ -0,0 +1,65 @@
+package com.webloganalyzer.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stall figures for one {@link StreamingLogProcessor} run. Producer stall is time the reader
+ * spent blocked on a full queue (parsing is the bottleneck); consumer stall is time workers spent
+ * blocked on an empty queue (reading is the bottleneck).
+ */
+public class PipelineStats {
+    private final long batches;
+    private final long lines;
+    private final long producerStallNanos;
+    private final long consumerStallNanos;
+    private final int workerCount;
+    private final long wallNanos;
+
+    public PipelineStats(long batches, long lines, long producerStallNanos, long consumerStallNanos,
+                         int workerCount, long wallNanos) {
+        this.batches = batches;
+        this.lines = lines;
+        this.producerStallNanos = producerStallNanos;
+        this.consumerStallNanos = consumerStallNanos;
+        this.workerCount = workerCount;
+        this.wallNanos = wallNanos;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getProducerStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(producerStallNanos);
+    }
+
+    /** Total across all workers. */
+    public long getConsumerStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(consumerStallNanos);
+    }
+
+    public long getWallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(wallNanos);
+    }
+
+    /** Share of the run the producer spent blocked, 0..1. */
+    public double getProducerStallRatio() {
+        return wallNanos == 0 ? 0 : (double) producerStallNanos / wallNanos;
+    }
+
+    /** Average share of the run each worker spent waiting for input, 0..1. */
+    public double getConsumerStallRatio() {
+        return wallNanos == 0 || workerCount == 0 ? 0 : (double) consumerStallNanos / workerCount / wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d batches, %d lines in %d ms; producer stalled %d ms (%.0f%%), workers stalled %d ms (%.0f%% each)",
+                batches, lines, getWallMillis(), getProducerStallMillis(), getProducerStallRatio() * 100,
+                getConsumerStallMillis(), getConsumerStallRatio() * 100);
+    }
+}
@@ -0,0 +1,371 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogLineParser;
+import com.webloganalyzer.model.RejectReason;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counters every {@link LogProcessor} feeds while it parses: lines, bytes, chunks and busy time
+ * per worker thread, rejected lines by reason, a latency histogram of chunks and one of the time
+ * chunks waited to be picked up, and bytes allocated per phase. Everything is cumulative since
+ * the last {@link #reset()} and safe to read while runs are in progress, which is what the live
+ * metrics view in the GUI does.
+ *
+ * <p>Each chunk and each run is also emitted as a JFR event ({@code com.webloganalyzer.ChunkParsed}
+ * and {@code com.webloganalyzer.ProcessorRun}), so a recording started with
+ * {@code -XX:StartFlightRecording} shows them next to the JVM's own GC and allocation events.
+ *
+ * <p>Recording is per chunk (a block, unit or batch of thousands of lines), never per line.
+ */
+public final class ProcessorMetrics {
+
+    public enum Phase {
+        /** Getting bytes or lines off disk before parsing, where that is a separate step. */
+        READ,
+        /** Parsing chunks on the workers, including any decoding or decompression they do. */
+        PARSE,
+        /** Combining the workers' partial results. */
+        MERGE
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCountingThreads();
+    private static final ProcessorMetrics SHARED = new ProcessorMetrics();
+
+    private final Map<String, WorkerStats> workers = new ConcurrentHashMap<>();
+    private final Map<RejectReason, LongAdder> rejects = new ConcurrentHashMap<>();
+    private final LatencyHistogram chunkLatency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final Map<Phase, LongAdder> allocated = new EnumMap<>(Phase.class);
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private volatile long resetNanos = System.nanoTime();
+    private volatile long gcCountAtReset = gcCount();
+    private volatile long gcMillisAtReset = gcMillis();
+
+    public ProcessorMetrics() {
+        for (Phase phase : Phase.values()) {
+            allocated.put(phase, new LongAdder());
+        }
+    }
+
+    /** The instance the processors report to. */
+    public static ProcessorMetrics shared() {
+        return SHARED;
+    }
+
+    /**
+     * Bytes allocated so far by the calling thread, or -1 where the JVM cannot tell (virtual
+     * threads, or a JVM without allocation accounting). Only differences are meaningful.
+     */
+    public static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    public Run startRun(String processor, int threads) {
+        runs.increment();
+        return new Run(processor, threads);
+    }
+
+    /** Runs {@code work} on the calling thread and adds what it allocated to {@code phase}. */
+    public <V> V measure(Phase phase, Supplier<V> work) {
+        long mark = allocatedBytes();
+        V result = work.get();
+        recordAllocation(phase, mark);
+        return result;
+    }
+
+    /** Adds what the calling thread allocated since {@code mark} (from {@link #allocatedBytes()}). */
+    public void recordAllocation(Phase phase, long mark) {
+        long now = allocatedBytes();
+        if (mark >= 0 && now >= mark) {
+            allocated.get(phase).add(now - mark);
+        }
+    }
+
+    public void reset() {
+        workers.clear();
+        rejects.clear();
+        chunkLatency.reset();
+        queueWait.reset();
+        allocated.values().forEach(LongAdder::reset);
+        runs.reset();
+        lines.reset();
+        bytes.reset();
+        chunks.reset();
+        resetNanos = System.nanoTime();
+        gcCountAtReset = gcCount();
+        gcMillisAtReset = gcMillis();
+    }
+
+    public Snapshot snapshot() {
+        Map<String, WorkerSnapshot> workerSnapshots = new TreeMap<>();
+        workers.forEach((name, stats) -> workerSnapshots.put(name, new WorkerSnapshot(stats.lines.sum(),
+                stats.bytes.sum(), stats.chunks.sum(), TimeUnit.NANOSECONDS.toMillis(stats.busyNanos.sum()))));
+        Map<RejectReason, Long> rejectCounts = new EnumMap<>(RejectReason.class);
+        rejects.forEach((reason, count) -> rejectCounts.put(reason, count.sum()));
+        Map<Phase, Long> allocatedBytes = new EnumMap<>(Phase.class);
+        allocated.forEach((phase, adder) -> allocatedBytes.put(phase, adder.sum()));
+        return new Snapshot(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - resetNanos), runs.sum(), lines.sum(),
+                bytes.sum(), chunks.sum(), workerSnapshots, rejectCounts, chunkLatency.copy(), queueWait.copy(),
+                allocatedBytes, gcCount() - gcCountAtReset, gcMillis() - gcMillisAtReset);
+    }
+
+    /** One parse by one processor; create with {@link #startRun}, close with {@link #finish()}. */
+    public final class Run {
+        private final String processor;
+        private final int threads;
+        private final ProcessorRunEvent event = new ProcessorRunEvent();
+        private final LongAdder runLines = new LongAdder();
+        private final LongAdder runBytes = new LongAdder();
+        private final LongAdder runChunks = new LongAdder();
+        private final LongAdder runRejected = new LongAdder();
+
+        private Run(String processor, int threads) {
+            this.processor = processor;
+            this.threads = threads;
+            event.begin();
+        }
+
+        /** Starts timing a chunk the calling worker picked up straight away. */
+        public Chunk startChunk() {
+            return new Chunk(this, 0);
+        }
+
+        /**
+         * Starts timing a chunk that was handed off at {@code queuedAtNanos} ({@link System#nanoTime()}),
+         * recording how long it waited for a worker.
+         */
+        public Chunk startChunk(long queuedAtNanos) {
+            long waited = System.nanoTime() - queuedAtNanos;
+            queueWait.record(waited);
+            return new Chunk(this, waited);
+        }
+
+        /** Adds a parser's reject counts; call once per parser, when it is done. */
+        public void recordRejects(LogLineParser parser) {
+            parser.getRejectCounts().forEach((reason, count) -> {
+                rejects.computeIfAbsent(reason, r -> new LongAdder()).add(count);
+                runRejected.add(count);
+            });
+        }
+
+        /** Same as {@link ProcessorMetrics#recordAllocation}, for code that only holds the run. */
+        public void recordAllocation(Phase phase, long mark) {
+            ProcessorMetrics.this.recordAllocation(phase, mark);
+        }
+
+        public void finish() {
+            event.end();
+            if (event.shouldCommit()) {
+                event.processor = processor;
+                event.threads = threads;
+                event.chunks = runChunks.sum();
+                event.lines = runLines.sum();
+                event.bytes = runBytes.sum();
+                event.rejected = runRejected.sum();
+                event.commit();
+            }
+        }
+    }
+
+    /** Times one chunk on the worker thread that parses it. */
+    public final class Chunk {
+        private final Run run;
+        private final long queueWaitNanos;
+        private final ChunkParsedEvent event = new ChunkParsedEvent();
+        private final long startAllocated = allocatedBytes();
+        private final long startNanos;
+
+        private Chunk(Run run, long queueWaitNanos) {
+            this.run = run;
+            this.queueWaitNanos = queueWaitNanos;
+            event.begin();
+            startNanos = System.nanoTime();
+        }
+
+        /** Call on the same thread that started the chunk. */
+        public void finish(long chunkLines, long chunkBytes) {
+            long nanos = System.nanoTime() - startNanos;
+            long endAllocated = allocatedBytes();
+            long chunkAllocated = startAllocated >= 0 && endAllocated >= startAllocated ? endAllocated - startAllocated : 0;
+            event.end();
+
+            chunkLatency.record(nanos);
+            allocated.get(Phase.PARSE).add(chunkAllocated);
+            lines.add(chunkLines);
+            bytes.add(chunkBytes);
+            chunks.increment();
+            run.runLines.add(chunkLines);
+            run.runBytes.add(chunkBytes);
+            run.runChunks.increment();
+            WorkerStats worker = workers.computeIfAbsent(Thread.currentThread().getName(), name -> new WorkerStats());
+            worker.lines.add(chunkLines);
+            worker.bytes.add(chunkBytes);
+            worker.chunks.increment();
+            worker.busyNanos.add(nanos);
+
+            if (event.shouldCommit()) {
+                event.processor = run.processor;
+                event.lines = chunkLines;
+                event.bytes = chunkBytes;
+                event.queueWait = queueWaitNanos;
+                event.allocated = chunkAllocated;
+                event.commit();
+            }
+        }
+    }
+
+    private static final class WorkerStats {
+        final LongAdder lines = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder chunks = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+    }
+
+    public record WorkerSnapshot(long lines, long bytes, long chunks, long busyMillis) {
+    }
+
+    /** The counters at one point in time. */
+    public static final class Snapshot {
+        private final long elapsedMillis;
+        private final long runs;
+        private final long lines;
+        private final long bytes;
+        private final long chunks;
+        private final Map<String, WorkerSnapshot> workers;
+        private final Map<RejectReason, Long> rejects;
+        private final LatencyHistogram chunkLatency;
+        private final LatencyHistogram queueWait;
+        private final Map<Phase, Long> allocated;
+        private final long gcCount;
+        private final long gcMillis;
+
+        Snapshot(long elapsedMillis, long runs, long lines, long bytes, long chunks, Map<String, WorkerSnapshot> workers,
+                 Map<RejectReason, Long> rejects, LatencyHistogram chunkLatency, LatencyHistogram queueWait,
+                 Map<Phase, Long> allocated, long gcCount, long gcMillis) {
+            this.elapsedMillis = elapsedMillis;
+            this.runs = runs;
+            this.lines = lines;
+            this.bytes = bytes;
+            this.chunks = chunks;
+            this.workers = Collections.unmodifiableMap(workers);
+            this.rejects = Collections.unmodifiableMap(rejects);
+            this.chunkLatency = chunkLatency;
+            this.queueWait = queueWait;
+            this.allocated = Collections.unmodifiableMap(allocated);
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        /** Time since the counters were last reset. */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public long getRuns() {
+            return runs;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getChunks() {
+            return chunks;
+        }
+
+        /** Per worker thread name, sorted by name. */
+        public Map<String, WorkerSnapshot> getWorkers() {
+            return workers;
+        }
+
+        public Map<RejectReason, Long> getRejects() {
+            return rejects;
+        }
+
+        public LatencyHistogram getChunkLatency() {
+            return chunkLatency;
+        }
+
+        public LatencyHistogram getQueueWait() {
+            return queueWait;
+        }
+
+        public Map<Phase, Long> getAllocatedBytes() {
+            return allocated;
+        }
+
+        /** Collections and total collection time of all collectors since the last reset. */
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        public long getGcMillis() {
+            return gcMillis;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("%d runs, %d chunks, %d lines, %.1f MB in the last %.1f s%n",
+                    runs, chunks, lines, bytes / 1e6, elapsedMillis / 1000.0));
+            text.append("Chunk latency: ").append(chunkLatency).append('\n');
+            text.append("Queue wait:    ").append(queueWait).append('\n');
+            text.append("Allocated:    ");
+            allocated.forEach((phase, amount) -> text.append(String.format(" %s %.1f MB", phase, amount / 1e6)));
+            text.append(String.format("%nGC: %d collections, %d ms%n", gcCount, gcMillis));
+            text.append("Rejected lines: ").append(rejects.isEmpty() ? "none" : rejects).append('\n');
+            text.append("Workers:\n");
+            long busiest = workers.values().stream().mapToLong(WorkerSnapshot::busyMillis).max().orElse(0);
+            workers.forEach((name, worker) -> text.append(String.format("  %-28s %10d lines %9.1f MB %6d chunks %8d ms busy%s%n",
+                    name, worker.lines(), worker.bytes() / 1e6, worker.chunks(), worker.busyMillis(),
+                    busiest == 0 ? "" : String.format(" (%3.0f%% of busiest)", 100.0 * worker.busyMillis() / busiest))));
+            return text.toString();
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCountingThreads() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    && threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            System.err.println("ProcessorMetrics: no per-thread allocation accounting: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,36 @@
+package com.webloganalyzer.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** JFR event spanning one parse of a log by a {@link LogProcessor}, merging excluded. */
+@Name("com.webloganalyzer.ProcessorRun")
+@Label("Processor Run")
+@Category({"Web Log Analyzer", "Parsing"})
+@Description("One parse of a log file or set of files")
+@StackTrace(false)
+class ProcessorRunEvent extends jdk.jfr.Event {
+
+    @Label("Processor")
+    String processor;
+
+    @Label("Threads")
+    int threads;
+
+    @Label("Chunks")
+    long chunks;
+
+    @Label("Lines")
+    long lines;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Rejected Lines")
+    long rejected;
+}
@@ -0,0 +1,591 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogRecord;
+import com.webloganalyzer.model.StringDictionary;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-IP request and failed-login rates over sliding windows, reported as a {@link BurstTimeline}
+ * of the stretches during which an IP was over a {@link RateRule}. Each IP's counts are kept in a
+ * ring of time buckets, a sixth of the shortest window long, so windows slide in bucket steps.
+ * IPs whose ring has gone quiet for the longest window are evicted as the log time moves on, and
+ * the states are kept in a map keyed by IP id rather than an array indexed by it, so the memory of
+ * the analyzer is bounded by the IPs active within the longest window rather than by the length of
+ * the log or the number of IPs ever seen, which lets the same analyzer follow a live log. The IP
+ * dictionary itself belongs to the caller, and grows with every IP the other analyzers count.
+ *
+ * <p>As with every analyzer, each worker counts into its own accumulator and no counter is shared
+ * between threads. The first longest-window of a worker's share belongs to windows that started
+ * in the previous share, so those records are only counted and kept; the accumulator before it
+ * replays and judges them when the two are merged. For logs in time order, which access logs are
+ * to within a second or two, the timeline does not depend on how the file was split.
+ */
+public class RateBurstAnalyzer implements LogAnalyzer<BurstTimeline> {
+
+    /** Bursts kept per timeline; older ones are dropped first, which bounds a long-running tail. */
+    public static final int MAX_BURSTS = 10_000;
+
+    /** Most buckets per IP ring, which caps how far apart the shortest and longest window can be. */
+    public static final int MAX_BUCKETS = 4096;
+
+    private static final int BUCKETS_PER_SHORTEST_WINDOW = 6;
+
+    /** Evicted IP states kept for reuse, so IPs that come and go do not churn the heap. */
+    private static final int MAX_SPARE_STATES = 1024;
+
+    private final List<RateRule> rules;
+    private final int bucketSeconds;
+    private final int[] windowBuckets;
+    private final int[] limits;  // per check; 0 for a check that is off
+    private final int span;  // buckets in the longest window, the length of every ring
+
+    public RateBurstAnalyzer() {
+        this(RateRule.DEFAULTS);
+    }
+
+    public RateBurstAnalyzer(List<RateRule> rules) {
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("At least one rate rule is needed");
+        }
+        this.rules = List.copyOf(rules);
+        this.bucketSeconds = bucketSeconds(this.rules);
+        this.windowBuckets = new int[this.rules.size()];
+        long longest = 0;
+        for (int r = 0; r < windowBuckets.length; r++) {
+            long buckets = this.rules.get(r).window().getSeconds() / bucketSeconds;
+            if (buckets > MAX_BUCKETS) {
+                throw new IllegalArgumentException("Rate windows " + this.rules + " are too far apart: the "
+                        + this.rules.get(r).windowLabel() + " window would need " + buckets + " buckets of "
+                        + bucketSeconds + " s, at most " + MAX_BUCKETS + " are allowed");
+            }
+            windowBuckets[r] = (int) buckets;
+            longest = Math.max(longest, buckets);
+        }
+        this.span = (int) longest;
+        this.limits = new int[2 * windowBuckets.length];
+        for (int r = 0; r < windowBuckets.length; r++) {
+            limits[r] = this.rules.get(r).maxRequests();
+            limits[windowBuckets.length + r] = this.rules.get(r).maxFailedLogins();
+        }
+    }
+
+    public List<RateRule> getRules() {
+        return rules;
+    }
+
+    /** The step in which the windows slide. */
+    public int getBucketSeconds() {
+        return bucketSeconds;
+    }
+
+    @Override
+    public Accumulator<BurstTimeline> newAccumulator(LogDictionaries dictionaries) {
+        return new RateAccumulator(this, dictionaries, false);
+    }
+
+    /** The largest divisor of every window that is at most a sixth of the shortest one. */
+    static int bucketSeconds(List<RateRule> rules) {
+        long gcd = 0;
+        long shortest = Long.MAX_VALUE;
+        for (RateRule rule : rules) {
+            long seconds = rule.window().getSeconds();
+            gcd = gcd(gcd, seconds);
+            shortest = Math.min(shortest, seconds);
+        }
+        for (long bucket = shortest / BUCKETS_PER_SHORTEST_WINDOW; bucket > 1; bucket--) {
+            if (gcd % bucket == 0) {
+                return (int) bucket;
+            }
+        }
+        return 1;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * A burst while it is tracked. {@code check} indexes the per-IP sums: rule {@code r}'s
+     * request count is check {@code r}, its failed-login count check {@code rules + r}.
+     */
+    private static final class Span {
+        final String ip;
+        final int check;
+        long start;
+        int offsetSeconds;
+        long end;
+        int peak;
+
+        Span(String ip, int check, long second, int offsetSeconds, int count) {
+            this.ip = ip;
+            this.check = check;
+            this.start = second;
+            this.offsetSeconds = offsetSeconds;
+            this.end = second;
+            this.peak = count;
+        }
+
+        void extend(long second, int count) {
+            end = Math.max(end, second);
+            peak = Math.max(peak, count);
+        }
+
+        Span copy() {
+            Span copy = new Span(ip, check, start, offsetSeconds, peak);
+            copy.end = end;
+            return copy;
+        }
+    }
+
+    /** One IP's bucket rings, running window sums and open bursts. */
+    private static final class IpState {
+        final int[] requests;
+        int[] failedLogins;  // allocated on the first failed login
+        long lastBucket;     // the rings hold the buckets (lastBucket - span, lastBucket]
+        int lastSlot;        // lastBucket's index in the rings
+        final int[] sums;    // per check, over the window ending at lastBucket
+        Span[] open;         // per check, allocated on the first burst
+        boolean judged;
+
+        IpState(int span, int checks, long bucket) {
+            requests = new int[span];
+            sums = new int[checks];
+            reset(bucket);
+        }
+
+        /** Empties an evicted state for reuse by the next new IP. */
+        void reset(long bucket) {
+            Arrays.fill(requests, 0);
+            if (failedLogins != null) Arrays.fill(failedLogins, 0);
+            Arrays.fill(sums, 0);
+            lastBucket = bucket;
+            lastSlot = Math.floorMod(bucket, requests.length);
+            open = null;
+            judged = false;
+        }
+
+        Span[] open(int checks) {
+            if (open == null) {
+                open = new Span[checks];
+            }
+            return open;
+        }
+
+        IpState copy(Map<Span, Span> spans) {
+            IpState copy = new IpState(requests.length, sums.length, lastBucket);
+            System.arraycopy(requests, 0, copy.requests, 0, requests.length);
+            copy.failedLogins = failedLogins == null ? null : failedLogins.clone();
+            System.arraycopy(sums, 0, copy.sums, 0, sums.length);
+            copy.lastSlot = lastSlot;
+            if (open != null) {
+                copy.open = new Span[open.length];
+                for (int k = 0; k < open.length; k++) {
+                    copy.open[k] = open[k] == null ? null : spans.computeIfAbsent(open[k], Span::copy);
+                }
+            }
+            copy.judged = judged;
+            return copy;
+        }
+    }
+
+    private static final class RateAccumulator implements Accumulator<BurstTimeline> {
+        private final RateBurstAnalyzer analyzer;
+        private final LogDictionaries dictionaries;
+        private final StringDictionary ips;
+        private final FailedLogins failedLogins;
+        private final int checks;
+
+        // Records of the first longest-window, counted but not judged until merged or reported.
+        private boolean started;
+        private boolean judging;
+        private long headEnd;
+        private long[] headSeconds = new long[64];
+        private int[] headOffsets = new int[64];
+        private int[] headIps = new int[64];  // ip id << 1 | failed login
+        private int headSize;
+
+        private long bucketStart = Long.MAX_VALUE;
+        private long currentBucket;
+        private long watermark = Long.MIN_VALUE;
+        private long nextSweep = Long.MIN_VALUE;
+        private IdMap<IpState> states = new IdMap<>();
+        private final ArrayDeque<IpState> spare = new ArrayDeque<>();
+
+        private final ArrayDeque<Span> closed = new ArrayDeque<>();
+        private long dropped;
+        // Bursts opened at the first judgement of an IP counted in the head, which may continue
+        // bursts still open at the end of the previous share.
+        private Map<String, Span[]> continuations = new HashMap<>();
+
+        /** @param anchored whether the input starts at the first record, so nothing is left to a predecessor */
+        RateAccumulator(RateBurstAnalyzer analyzer, LogDictionaries dictionaries, boolean anchored) {
+            this.analyzer = analyzer;
+            this.dictionaries = dictionaries;
+            this.ips = dictionaries.getIps();
+            this.failedLogins = new FailedLogins(dictionaries);
+            this.checks = 2 * analyzer.rules.size();
+            this.judging = anchored;
+        }
+
+        @Override
+        public void accept(LogRecord record) {
+            add(record.getIpId(), record.getEpochSecond(), record.getOffsetSeconds(), failedLogins.test(record));
+        }
+
+        private void add(int ipId, long second, int offsetSeconds, boolean failedLogin) {
+            long bucket = bucketOf(second);
+            if (!started) {
+                started = true;
+                headEnd = bucket + analyzer.span - 1;
+            }
+            if (!judging) {
+                if (bucket > headEnd) {
+                    judging = true;
+                } else {
+                    appendHead(ipId, second, offsetSeconds, failedLogin);
+                }
+            }
+            watermark = Math.max(watermark, bucket);
+            IpState state = state(ipId, bucket);
+            if (count(state, bucket, failedLogin) && judging) {
+                judge(state, ipId, second, offsetSeconds);
+                if (watermark >= nextSweep) {
+                    sweep();
+                }
+            }
+        }
+
+        /** Consecutive requests mostly share a bucket, which saves the division. */
+        private long bucketOf(long second) {
+            if (second < bucketStart || second >= bucketStart + analyzer.bucketSeconds) {
+                currentBucket = Math.floorDiv(second, analyzer.bucketSeconds);
+                bucketStart = currentBucket * analyzer.bucketSeconds;
+            }
+            return currentBucket;
+        }
+
+        private void appendHead(int ipId, long second, int offsetSeconds, boolean failedLogin) {
+            if (headSize == headIps.length) {
+                int capacity = Math.max(64, headSize * 2);
+                headSeconds = Arrays.copyOf(headSeconds, capacity);
+                headOffsets = Arrays.copyOf(headOffsets, capacity);
+                headIps = Arrays.copyOf(headIps, capacity);
+            }
+            headSeconds[headSize] = second;
+            headOffsets[headSize] = offsetSeconds;
+            headIps[headSize++] = ipId << 1 | (failedLogin ? 1 : 0);
+        }
+
+        private IpState state(int ipId, long bucket) {
+            IpState state = states.get(ipId);
+            if (state == null) {
+                state = spare.pollFirst();
+                if (state == null) {
+                    state = new IpState(analyzer.span, checks, bucket);
+                } else {
+                    state.reset(bucket);
+                }
+                states.add(ipId, state);
+            }
+            return state;
+        }
+
+        /** Counts one request in its bucket; returns false if it is older than every window. */
+        private boolean count(IpState state, long bucket, boolean failedLogin) {
+            if (bucket > state.lastBucket) {
+                advance(state, bucket);
+            } else if (bucket <= state.lastBucket - analyzer.span) {
+                return false;
+            }
+            int slot = state.lastSlot - (int) (state.lastBucket - bucket);
+            if (slot < 0) slot += analyzer.span;
+            state.requests[slot]++;
+            if (failedLogin) {
+                if (state.failedLogins == null) {
+                    state.failedLogins = new int[analyzer.span];
+                }
+                state.failedLogins[slot]++;
+            }
+            int rules = analyzer.windowBuckets.length;
+            for (int r = 0; r < rules; r++) {
+                // A request a little out of order still counts if it falls inside the window.
+                if (bucket > state.lastBucket - analyzer.windowBuckets[r]) {
+                    state.sums[r]++;
+                    if (failedLogin) state.sums[rules + r]++;
+                }
+            }
+            return true;
+        }
+
+        /** Slides the rings and window sums forward to end at {@code bucket}. */
+        private void advance(IpState state, long bucket) {
+            int span = analyzer.span;
+            int rules = analyzer.windowBuckets.length;
+            long steps = bucket - state.lastBucket;
+            if (steps >= span) {
+                Arrays.fill(state.requests, 0);
+                if (state.failedLogins != null) Arrays.fill(state.failedLogins, 0);
+                Arrays.fill(state.sums, 0);
+            } else {
+                int d = (int) steps;
+                int lastSlot = state.lastSlot;
+                for (int r = 0; r < rules; r++) {
+                    int n = analyzer.windowBuckets[r];
+                    if (d >= n) {
+                        state.sums[r] = 0;
+                        state.sums[rules + r] = 0;
+                    } else {
+                        // The d oldest buckets of the window, from lastBucket - n + 1 on, leave it.
+                        int from = lastSlot - n + 1 < 0 ? lastSlot - n + 1 + span : lastSlot - n + 1;
+                        state.sums[r] -= sumRing(state.requests, from, d);
+                        if (state.failedLogins != null) state.sums[rules + r] -= sumRing(state.failedLogins, from, d);
+                    }
+                }
+                // The next d slots hold buckets that have left every window.
+                int first = lastSlot + 1 == span ? 0 : lastSlot + 1;
+                clearRing(state.requests, first, d);
+                if (state.failedLogins != null) clearRing(state.failedLogins, first, d);
+            }
+            state.lastBucket = bucket;
+            state.lastSlot = steps >= span ? Math.floorMod(bucket, span) : (int) ((state.lastSlot + steps) % span);
+        }
+
+        private static int sumRing(int[] ring, int from, int count) {
+            int end = Math.min(ring.length, from + count);
+            int sum = 0;
+            for (int i = from; i < end; i++) {
+                sum += ring[i];
+            }
+            for (int i = 0; i < count - (end - from); i++) {
+                sum += ring[i];
+            }
+            return sum;
+        }
+
+        private static void clearRing(int[] ring, int from, int count) {
+            int end = Math.min(ring.length, from + count);
+            Arrays.fill(ring, from, end, 0);
+            Arrays.fill(ring, 0, count - (end - from), 0);
+        }
+
+        private void judge(IpState state, int ipId, long second, int offsetSeconds) {
+            for (int k = 0; k < checks; k++) {
+                int limit = analyzer.limits[k];
+                if (limit == 0) {
+                    continue;
+                }
+                int sum = state.sums[k];
+                Span span = state.open == null ? null : state.open[k];
+                if (sum > limit) {
+                    if (span != null) {
+                        span.extend(second, sum);
+                    } else {
+                        span = new Span(ips.valueOf(ipId), k, second, offsetSeconds, sum);
+                        state.open(checks)[k] = span;
+                        // An IP first seen after the head opens nothing on its first request (1 is
+                        // never over a limit), so only IPs counted in the head get here.
+                        if (!state.judged) {
+                            continuations.computeIfAbsent(span.ip, ip -> new Span[checks])[k] = span;
+                        }
+                    }
+                } else if (span != null) {
+                    close(span);
+                    state.open[k] = null;
+                }
+            }
+            state.judged = true;
+        }
+
+        /** Evicts IPs with nothing left in any window; their open bursts are over. */
+        private void sweep() {
+            long expired = watermark - analyzer.span;
+            states.retain((id, state) -> {
+                if (state.lastBucket > expired) {
+                    return true;
+                }
+                if (state.open != null) {
+                    for (Span span : state.open) {
+                        if (span != null) close(span);
+                    }
+                }
+                if (spare.size() < MAX_SPARE_STATES) {
+                    spare.addFirst(state);
+                }
+                return false;
+            });
+            nextSweep = watermark + analyzer.span;
+        }
+
+        private void close(Span span) {
+            closed.addLast(span);
+            if (closed.size() > MAX_BURSTS) {
+                closed.removeFirst();
+                dropped++;
+            }
+        }
+
+        @Override
+        public void merge(Accumulator<BurstTimeline> other) {
+            RateAccumulator o = (RateAccumulator) other;
+            for (int i = 0; i < o.headSize; i++) {
+                int packed = o.headIps[i];
+                add(IdCounter.translate(o.ips, ips, packed >>> 1), o.headSeconds[i], o.headOffsets[i],
+                        (packed & 1) != 0);
+            }
+            dropped += o.dropped;
+            if (!o.judging) {
+                return;  // everything it saw was in its head, replayed above
+            }
+
+            IdMap<IpState> adopted = new IdMap<>();
+            for (int i = 0; i < o.states.size(); i++) {
+                adopted.add(IdCounter.translate(o.ips, ips, o.states.idAt(i)), o.states.valueAt(i));
+            }
+
+            // Bursts open at the end of the replay continue into the next share if the IP's
+            // following request there kept it over the limit.
+            for (int i = 0; i < states.size(); i++) {
+                Span[] open = states.valueAt(i).open;
+                for (int k = 0; open != null && k < checks; k++) {
+                    Span span = open[k];
+                    if (span == null) continue;
+                    IpState next = adopted.get(states.idAt(i));
+                    Span[] continued = o.continuations.get(span.ip);
+                    if (next != null && !next.judged) {
+                        next.open(checks)[k] = span;  // its next request decides
+                    } else if (continued != null && continued[k] != null) {
+                        Span continuation = continued[k];
+                        continuation.start = span.start;
+                        continuation.offsetSeconds = span.offsetSeconds;
+                        continuation.peak = Math.max(continuation.peak, span.peak);
+                        replaceContinuation(span, continuation);
+                    } else {
+                        close(span);
+                    }
+                }
+            }
+            for (Span span : o.closed) {
+                close(span);
+            }
+
+            if (judging) {
+                // The replay already judged the head records of the adopted IPs.
+                for (int i = 0; i < adopted.size(); i++) {
+                    adopted.valueAt(i).judged = true;
+                }
+            } else {
+                judging = true;
+                continuations = o.continuations;
+            }
+            states = adopted;
+            watermark = Math.max(watermark, o.watermark);
+            nextSweep = o.nextSweep;
+        }
+
+        private void replaceContinuation(Span span, Span continuation) {
+            Span[] mine = continuations.get(span.ip);
+            if (mine != null && mine[span.check] == span) {
+                mine[span.check] = continuation;
+            }
+        }
+
+        /** Judges the head as the start of the input, on a copy so that counting can go on. */
+        @Override
+        public BurstTimeline result() {
+            RateAccumulator anchored = new RateAccumulator(analyzer, dictionaries, true);
+            anchored.merge(copy());
+            return anchored.timeline();
+        }
+
+        private RateAccumulator copy() {
+            RateAccumulator copy = new RateAccumulator(analyzer, dictionaries, false);
+            copy.started = started;
+            copy.judging = judging;
+            copy.headEnd = headEnd;
+            copy.headSeconds = Arrays.copyOf(headSeconds, headSize);
+            copy.headOffsets = Arrays.copyOf(headOffsets, headSize);
+            copy.headIps = Arrays.copyOf(headIps, headSize);
+            copy.headSize = headSize;
+            copy.watermark = watermark;
+            copy.nextSweep = nextSweep;
+            copy.dropped = dropped;
+
+            Map<Span, Span> spans = new IdentityHashMap<>();
+            for (int i = 0; i < states.size(); i++) {
+                copy.states.add(states.idAt(i), states.valueAt(i).copy(spans));
+            }
+            for (Span span : closed) {
+                copy.closed.addLast(spans.computeIfAbsent(span, Span::copy));
+            }
+            for (Map.Entry<String, Span[]> entry : continuations.entrySet()) {
+                Span[] continued = new Span[checks];
+                for (int k = 0; k < checks; k++) {
+                    Span span = entry.getValue()[k];
+                    continued[k] = span == null ? null : spans.computeIfAbsent(span, Span::copy);
+                }
+                copy.continuations.put(entry.getKey(), continued);
+            }
+            return copy;
+        }
+
+        private BurstTimeline timeline() {
+            List<BurstTimeline.Burst> bursts = new ArrayList<>(closed.size());
+            for (Span span : closed) {
+                bursts.add(analyzer.toBurst(span, false));
+            }
+            for (int i = 0; i < states.size(); i++) {
+                IpState state = states.valueAt(i);
+                for (int k = 0; state.open != null && k < checks; k++) {
+                    Span span = state.open[k];
+                    if (span != null) bursts.add(analyzer.toBurst(span, stillOver(state, span.check)));
+                }
+            }
+            bursts.sort(Comparator.comparing(BurstTimeline.Burst::start)
+                    .thenComparing(BurstTimeline.Burst::ip)
+                    .thenComparing(BurstTimeline.Burst::kind)
+                    .thenComparing(burst -> burst.rule().window()));
+            int excess = Math.max(0, bursts.size() - MAX_BURSTS);
+            return new BurstTimeline(analyzer.rules, bursts.subList(excess, bursts.size()), dropped + excess);
+        }
+
+        /** Whether the window ending at the newest bucket of the log is still over the limit. */
+        private boolean stillOver(IpState state, int check) {
+            int rules = analyzer.windowBuckets.length;
+            int[] counts = check < rules ? state.requests : state.failedLogins;
+            long from = watermark - analyzer.windowBuckets[check % rules];
+            int sum = 0;
+            for (long b = state.lastBucket; b > from && counts != null; b--) {
+                sum += counts[Math.floorMod(b, analyzer.span)];
+            }
+            return sum > analyzer.limits[check];
+        }
+    }
+
+    private BurstTimeline.Burst toBurst(Span span, boolean ongoing) {
+        int r = span.check % rules.size();
+        ZoneOffset offset = ZoneOffset.ofTotalSeconds(span.offsetSeconds);
+        return new BurstTimeline.Burst(span.ip,
+                span.check < rules.size() ? BurstTimeline.Kind.REQUESTS : BurstTimeline.Kind.FAILED_LOGINS,
+                rules.get(r),
+                OffsetDateTime.ofInstant(Instant.ofEpochSecond(span.start), offset),
+                OffsetDateTime.ofInstant(Instant.ofEpochSecond(span.end), offset),
+                span.peak, ongoing);
+    }
+}
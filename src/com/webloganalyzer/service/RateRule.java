@@ -0,0 +1,74 @@
+package com.webloganalyzer.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A per-IP rate limit over a sliding window: an IP is bursting while it made more than
+ * {@code maxRequests} requests, or more than {@code maxFailedLogins} failed logins, within the
+ * last {@code window}. A failed-login limit of 0 turns that check off.
+ */
+public record RateRule(Duration window, int maxRequests, int maxFailedLogins) {
+
+    public static final List<RateRule> DEFAULTS = List.of(
+            new RateRule(Duration.ofMinutes(1), 60, 5),
+            new RateRule(Duration.ofMinutes(10), 300, 20));
+
+    public RateRule {
+        if (window.isNegative() || window.isZero() || window.getNano() != 0) {
+            throw new IllegalArgumentException("Rate window must be a positive whole number of seconds: " + window);
+        }
+        if (maxRequests < 1) {
+            throw new IllegalArgumentException("Request limit must be positive: " + maxRequests);
+        }
+        if (maxFailedLogins < 0) {
+            throw new IllegalArgumentException("Failed-login limit must not be negative: " + maxFailedLogins);
+        }
+    }
+
+    /**
+     * Parses {@code WINDOW:REQUESTS[:FAILED_LOGINS]}, where the window is a number of seconds,
+     * minutes or hours such as {@code 30s}, {@code 1m} or {@code 1h}, e.g. {@code 10m:300:20}.
+     */
+    public static RateRule parse(String spec) {
+        String[] parts = spec.split(":");
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("Rate rule must be WINDOW:REQUESTS[:FAILED_LOGINS]: " + spec);
+        }
+        try {
+            return new RateRule(parseWindow(parts[0]), Integer.parseInt(parts[1]),
+                    parts.length == 3 ? Integer.parseInt(parts[2]) : 0);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid rate rule " + spec);
+        }
+    }
+
+    /** Parses a number of seconds, minutes or hours such as {@code 30s}, {@code 10m} or {@code 1h}. */
+    public static Duration parseWindow(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (lower.isEmpty()) {
+            throw new NumberFormatException();
+        }
+        return switch (lower.charAt(lower.length() - 1)) {
+            case 's' -> Duration.ofSeconds(Long.parseLong(lower.substring(0, lower.length() - 1)));
+            case 'm' -> Duration.ofMinutes(Long.parseLong(lower.substring(0, lower.length() - 1)));
+            case 'h' -> Duration.ofHours(Long.parseLong(lower.substring(0, lower.length() - 1)));
+            default -> Duration.ofSeconds(Long.parseLong(lower));
+        };
+    }
+
+    /** The window as {@code 90s}, {@code 10m} or {@code 1h}. */
+    public String windowLabel() {
+        long seconds = window.getSeconds();
+        if (seconds % 3600 == 0) {
+            return seconds / 3600 + "h";
+        }
+        return seconds % 60 == 0 ? seconds / 60 + "m" : seconds + "s";
+    }
+
+    @Override
+    public String toString() {
+        return windowLabel() + ":" + maxRequests + (maxFailedLogins > 0 ? ":" + maxFailedLogins : "");
+    }
+}
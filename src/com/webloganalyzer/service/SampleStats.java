@@ -0,0 +1,64 @@
+package com.webloganalyzer.service;
+
+import java.util.Arrays;
+
+/**
+ * Summary of repeated measurements of one quantity (a phase's milliseconds, a speedup ratio).
+ * Percentiles use the nearest-rank method, so the median and p90 are always observed values;
+ * the standard deviation is the sample one (n - 1).
+ */
+public class SampleStats {
+    private final double[] sorted;
+
+    public SampleStats(double[] samples) {
+        if (samples.length == 0) {
+            throw new IllegalArgumentException("No samples");
+        }
+        this.sorted = samples.clone();
+        Arrays.sort(sorted);
+    }
+
+    public int getCount() {
+        return sorted.length;
+    }
+
+    public double getMin() {
+        return sorted[0];
+    }
+
+    public double getMax() {
+        return sorted[sorted.length - 1];
+    }
+
+    public double getMean() {
+        return Arrays.stream(sorted).average().orElse(0);
+    }
+
+    public double getMedian() {
+        return percentile(50);
+    }
+
+    public double getP90() {
+        return percentile(90);
+    }
+
+    public double getStdDev() {
+        if (sorted.length < 2) {
+            return 0;
+        }
+        double mean = getMean();
+        double squares = Arrays.stream(sorted).map(v -> (v - mean) * (v - mean)).sum();
+        return Math.sqrt(squares / (sorted.length - 1));
+    }
+
+    /** Nearest-rank percentile, {@code 0 < percent <= 100}. */
+    public double percentile(double percent) {
+        int rank = (int) Math.ceil(percent / 100 * sorted.length);
+        return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("median %.2f, p90 %.2f, stddev %.2f (n=%d)", getMedian(), getP90(), getStdDev(), getCount());
+    }
+}
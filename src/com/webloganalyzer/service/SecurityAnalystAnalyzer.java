@@ -0,0 +1,111 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogRecord;
+import com.webloganalyzer.model.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Admin/login endpoints that were accessed and resources hit with DELETE, PUT or TRACE, for the
+ * Security Analyst view.
+ */
+public class SecurityAnalystAnalyzer implements LogAnalyzer<SecurityAnalystAnalyzer.Result> {
+
+    private static final Set<String> SUSPICIOUS_METHODS = Set.of("DELETE", "PUT", "TRACE");
+
+    @Override
+    public Accumulator<Result> newAccumulator(LogDictionaries dictionaries) {
+        return new SecurityAccumulator(dictionaries);
+    }
+
+    public static class Result {
+        private final int totalRequests;
+        private final List<String> sensitiveEndpoints;
+        private final List<String> suspiciousMethods;
+
+        public Result(int totalRequests, List<String> sensitiveEndpoints, List<String> suspiciousMethods) {
+            this.totalRequests = totalRequests;
+            this.sensitiveEndpoints = List.copyOf(sensitiveEndpoints);
+            this.suspiciousMethods = List.copyOf(suspiciousMethods);
+        }
+
+        public int getTotalRequests() {
+            return totalRequests;
+        }
+
+        public List<String> getSensitiveEndpoints() {
+            return sensitiveEndpoints;
+        }
+
+        /** Distinct "METHOD resource" pairs using a suspicious method. */
+        public List<String> getSuspiciousMethods() {
+            return suspiciousMethods;
+        }
+    }
+
+    private static final class SecurityAccumulator implements Accumulator<Result> {
+        private final StringDictionary methods;
+        private final StringDictionary resources;
+        private final IdFlags sensitiveResources;
+        private final IdFlags suspiciousMethodIds;
+        private final BitSet sensitiveSeen = new BitSet();
+        // (methodId << 32 | resourceId) in first-seen order
+        private final Set<Long> suspiciousPairs = new LinkedHashSet<>();
+        private int totalRequests;
+
+        SecurityAccumulator(LogDictionaries dictionaries) {
+            methods = dictionaries.getMethods();
+            resources = dictionaries.getResources();
+            sensitiveResources = new IdFlags(resources, r -> {
+                String lower = r.toLowerCase();
+                return lower.contains("/admin") || lower.contains("/login");
+            });
+            suspiciousMethodIds = new IdFlags(methods, m -> SUSPICIOUS_METHODS.contains(m.toUpperCase()));
+        }
+
+        @Override
+        public void accept(LogRecord record) {
+            totalRequests++;
+            int resourceId = record.getResourceId();
+            if (sensitiveResources.test(resourceId)) {
+                sensitiveSeen.set(resourceId);
+            }
+            int methodId = record.getMethodId();
+            if (suspiciousMethodIds.test(methodId)) {
+                suspiciousPairs.add(((long) methodId << 32) | resourceId);
+            }
+        }
+
+        @Override
+        public void merge(Accumulator<Result> other) {
+            SecurityAccumulator o = (SecurityAccumulator) other;
+            totalRequests += o.totalRequests;
+            if (o.resources == resources) {
+                sensitiveSeen.or(o.sensitiveSeen);
+            } else {
+                o.sensitiveSeen.stream().forEach(id -> sensitiveSeen.set(IdCounter.translate(o.resources, resources, id)));
+            }
+            for (long pair : o.suspiciousPairs) {
+                int methodId = IdCounter.translate(o.methods, methods, (int) (pair >>> 32));
+                int resourceId = IdCounter.translate(o.resources, resources, (int) pair);
+                suspiciousPairs.add(((long) methodId << 32) | resourceId);
+            }
+        }
+
+        @Override
+        public Result result() {
+            List<String> sensitiveEndpoints = new ArrayList<>();
+            sensitiveSeen.stream().forEach(id -> sensitiveEndpoints.add(resources.valueOf(id)));
+            List<String> suspiciousMethods = new ArrayList<>();
+            for (long pair : suspiciousPairs) {
+                suspiciousMethods.add(methods.valueOf((int) (pair >>> 32)) + " " + resources.valueOf((int) pair));
+            }
+            return new Result(totalRequests, sensitiveEndpoints, suspiciousMethods);
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.webloganalyzer.service;
 
 import com.webloganalyzer.model.LogEntry;
+import com.webloganalyzer.model.LogFormat;
+import com.webloganalyzer.model.LogLineParser;
+import com.webloganalyzer.model.LogRecord;
+import com.webloganalyzer.model.LogTable;
+import com.webloganalyzer.model.OffHeapLogStore;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -9,19 +14,63 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class SequentialLogProcessor implements LogProcessor {
+    private final LogFormat format;
+    private final ProcessorMetrics metrics = ProcessorMetrics.shared();
+
+    public SequentialLogProcessor() {
+        this(LogFormat.COMMON);
+    }
+
+    public SequentialLogProcessor(LogFormat format) {
+        this.format = format;
+    }
+
     @Override
     public List<LogEntry> processLogFile(File logFile) throws Exception {
-        List<LogEntry> entries = new ArrayList<>();
+        return run(logFile, new ArrayList<>(), (parser, line, entries) -> {
+            LogEntry entry = parser.parse(line);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        });
+    }
+
+    @Override
+    public LogTable processToTable(File logFile) throws Exception {
+        return run(logFile, new LogTable(), (parser, line, table) -> parser.parseInto(line, table));
+    }
+
+    @Override
+    public void processInto(File logFile, OffHeapLogStore store) throws Exception {
+        LogRecord record = new LogRecord(store.getDictionaries());
+        run(logFile, store, (parser, line, rows) -> {
+            if (parser.parseInto(line, record)) {
+                rows.add(record);
+            }
+        });
+    }
+
+    @Override
+    public <R> R analyzeLogFile(File logFile, LogAnalyzer<R> analyzer) throws Exception {
+        AnalysisPartial<R> partial = run(logFile, AnalysisPartial.create(analyzer), AnalysisPartial.handler());
+        return partial.accumulator().result();
+    }
+
+    /** Parses the whole file into {@code result} on the calling thread, as a single metrics chunk. */
+    private <T> T run(File logFile, T result, LineHandler<T> handler) throws Exception {
+        ProcessorMetrics.Run run = metrics.startRun("SequentialLogProcessor", 1);
+        ProcessorMetrics.Chunk chunk = run.startChunk();
+        LogLineParser parser = format.newParser();
 
         try (BufferedReader reader = new BufferedReader(new FileReader(logFile))) {
             String line;
             while ((line = reader.readLine()) != null) {
-                LogEntry entry = LogEntry.parseFromNasaLogLine(line);
-                if (entry != null) {
-                    entries.add(entry);
-                }
+                handler.handle(parser, line, result);
             }
         }
-        return entries;
+        chunk.finish(parser.getLineCount(), logFile.length());
+        run.recordRejects(parser);
+        run.finish();
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package com.webloganalyzer.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * User sessions reconstructed by a {@link Sessionizer}: how long they last, how many pages they
+ * view and on which pages they end. A session is one IP's run of requests with no pause longer
+ * than the gap; its page views are the requests for anything but images, styles and scripts.
+ */
+public class SessionStats {
+
+    /**
+     * A page that sessions ended on: {@code exits} sessions left from it out of {@code views}
+     * views of it in all sessions.
+     */
+    public record ExitPage(String url, int exits, int views) {
+
+        public double exitRate() {
+            return views == 0 ? 0 : (double) exits / views;
+        }
+    }
+
+    private final Duration gap;
+    private final long sessionCount;
+    private final long pageViews;
+    private final long bounces;
+    private final int[] sortedDurations;  // seconds
+    private final int[] sortedPages;
+    private final List<ExitPage> topExitPages;
+
+    /** The duration and page arrays are sorted here and must not be used by the caller afterwards. */
+    SessionStats(Duration gap, int[] durations, int[] pages, List<ExitPage> topExitPages) {
+        this.gap = gap;
+        this.sessionCount = durations.length;
+        Arrays.sort(durations);
+        Arrays.sort(pages);
+        this.sortedDurations = durations;
+        this.sortedPages = pages;
+        long views = 0;
+        long bounced = 0;
+        for (int count : pages) {
+            views += count;
+            if (count <= 1) bounced++;
+        }
+        this.pageViews = views;
+        this.bounces = bounced;
+        this.topExitPages = List.copyOf(topExitPages);
+    }
+
+    public Duration getGap() {
+        return gap;
+    }
+
+    public long getSessionCount() {
+        return sessionCount;
+    }
+
+    public long getPageViews() {
+        return pageViews;
+    }
+
+    /** Sessions with at most one page view. */
+    public long getBounces() {
+        return bounces;
+    }
+
+    public double getBounceRate() {
+        return sessionCount == 0 ? 0 : (double) bounces / sessionCount;
+    }
+
+    public double getMeanPagesPerSession() {
+        return sessionCount == 0 ? 0 : (double) pageViews / sessionCount;
+    }
+
+    public int getMedianPagesPerSession() {
+        return percentile(sortedPages, 50);
+    }
+
+    public int getP90PagesPerSession() {
+        return percentile(sortedPages, 90);
+    }
+
+    /** From the first to the last request; a single-request session lasts 0 s. */
+    public double getMeanDurationSeconds() {
+        long total = 0;
+        for (int seconds : sortedDurations) {
+            total += seconds;
+        }
+        return sessionCount == 0 ? 0 : (double) total / sessionCount;
+    }
+
+    public int getMedianDurationSeconds() {
+        return percentile(sortedDurations, 50);
+    }
+
+    public int getP90DurationSeconds() {
+        return percentile(sortedDurations, 90);
+    }
+
+    public int getMaxDurationSeconds() {
+        return sessionCount == 0 ? 0 : sortedDurations[sortedDurations.length - 1];
+    }
+
+    /** The {@link Sessionizer#TOP_EXIT_PAGE_COUNT} pages most sessions ended on, most first. */
+    public List<ExitPage> getTopExitPages() {
+        return topExitPages;
+    }
+
+    /** Nearest-rank percentile, 0 without sessions. */
+    private static int percentile(int[] sorted, double percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return "SessionStats{gap=" + gap + ", sessions=" + sessionCount + ", pageViews=" + pageViews
+                + ", bounces=" + bounces + "}";
+    }
+}
@@ -0,0 +1,448 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogStore;
+import com.webloganalyzer.model.StringDictionary;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reconstructs user sessions from stored rows. Rows are partitioned by a hash of their IP across
+ * the workers, so every IP's requests land in exactly one partition; each partition then orders
+ * its rows by IP and timestamp and cuts every IP's requests into sessions wherever the pause
+ * between two of them exceeds the gap. Partitions share nothing but the read-only store and its
+ * dictionaries, so the workers need no locks and their results are simply added up.
+ *
+ * <p>A partition holds a few ints per row of its share and per IP in it, and its work is
+ * proportional to those alone, however many distinct IPs the store has. Stores too large for
+ * {@code parallelism} partitions of {@code maxRowsPerPartition} rows (by default
+ * {@link #MAX_ROWS_PER_PARTITION}) are done in rounds of {@code parallelism} partitions, each
+ * round scanning the store once for its own IPs.
+ */
+public class Sessionizer {
+
+    public static final int TOP_EXIT_PAGE_COUNT = 10;
+
+    public static final int MAX_ROWS_PER_PARTITION = 1 << 22;
+
+    private static final Set<String> ASSET_EXTENSIONS =
+            Set.of("gif", "jpg", "jpeg", "png", "bmp", "xbm", "ico", "css", "js");
+
+    private final int parallelism;
+    private final Duration gap;
+    private final long gapSeconds;
+    private final int maxRowsPerPartition;
+
+    public Sessionizer(int parallelism) {
+        this(parallelism, AnalysisOptions.DEFAULT_SESSION_GAP);
+    }
+
+    public Sessionizer(int parallelism, Duration gap) {
+        this(parallelism, gap, MAX_ROWS_PER_PARTITION);
+    }
+
+    /** @param maxRowsPerPartition rows a partition should hold at most, which bounds its memory */
+    public Sessionizer(int parallelism, Duration gap, int maxRowsPerPartition) {
+        if (parallelism < 1 || maxRowsPerPartition < 1) {
+            throw new IllegalArgumentException("parallelism and maxRowsPerPartition must be positive");
+        }
+        this.parallelism = parallelism;
+        this.gap = gap;
+        this.gapSeconds = gap.getSeconds();
+        this.maxRowsPerPartition = maxRowsPerPartition;
+    }
+
+    public SessionStats sessionize(LogStore store) {
+        return sessionize(store, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /** Sessions of the rows with {@code fromEpochSecond <= timestamp < toEpochSecond}. */
+    public SessionStats sessionize(LogStore store, long fromEpochSecond, long toEpochSecond) {
+        long rowsPerRound = (long) parallelism * maxRowsPerPartition;
+        int rounds = (int) Math.max(1, (store.size() + rowsPerRound - 1) / rowsPerRound);
+        int partitions = parallelism * rounds;
+        int rowsPerTask = Math.max(LogAnalysisService.MIN_ROWS_PER_TASK, store.size() / (parallelism * 4) + 1);
+
+        Totals total = new Totals(store);
+        for (int round = 0; round < rounds; round++) {
+            RoundTask task = new RoundTask(store, this, fromEpochSecond, toEpochSecond, partitions,
+                    round * parallelism, parallelism, rowsPerTask);
+            for (Sessions sessions : WorkerPools.forParallelism(parallelism).invoke(task)) {
+                total.add(sessions);
+            }
+        }
+        return total.stats(gap);
+    }
+
+    /** Requests for images, styles and scripts are part of a page, not page views of their own. */
+    static boolean isPage(String resource) {
+        int end = resource.length();
+        for (int i = 0; i < end; i++) {
+            char c = resource.charAt(i);
+            if (c == '?' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+        int dot = resource.lastIndexOf('.', end - 1);
+        if (dot < 0 || resource.lastIndexOf('/', end - 1) > dot) {
+            return true;
+        }
+        return !ASSET_EXTENSIONS.contains(resource.substring(dot + 1, end).toLowerCase(Locale.ROOT));
+    }
+
+    /** Spreads the dense dictionary ids so neighbouring IPs land in different partitions. */
+    static int partitionOf(int ipId, int partitions) {
+        return Math.floorMod(ipId * 0x9E3779B9, partitions);
+    }
+
+    /** A growable list of ints: row numbers while partitioning, session figures afterwards. */
+    private static final class IntList {
+        int[] values = new int[64];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /** Dense ids for the IPs of one partition, in order of first appearance. */
+    private static final class LocalIds {
+        private int[] keys = new int[256];  // IP id + 1, 0 for a free slot
+        private int[] ids = new int[256];
+        private int shift = 32 - 8;
+        int size;
+
+        int idOf(int ip) {
+            // High bits of a product with another multiplier than partitionOf's, so the IPs that
+            // share a partition still spread over the slots.
+            int slot = (ip * 0x85EBCA6B) >>> shift;
+            while (keys[slot] != 0) {
+                if (keys[slot] == ip + 1) {
+                    return ids[slot];
+                }
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            keys[slot] = ip + 1;
+            ids[slot] = size;
+            if (++size > keys.length / 2) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new int[oldKeys.length * 2];
+            ids = new int[oldKeys.length * 2];
+            shift--;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = ((oldKeys[i] - 1) * 0x85EBCA6B) >>> shift;
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & (keys.length - 1);
+                    }
+                    keys[slot] = oldKeys[i];
+                    ids[slot] = oldIds[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Session figures of one partition: one entry per session, and the resource id of every
+     * page view, so a partition holds nothing sized by the dictionaries.
+     */
+    private static final class Sessions {
+        final IntList durations = new IntList();
+        final IntList pages = new IntList();
+        final IntList exits = new IntList();
+        final IntList views = new IntList();
+    }
+
+    /** The figures of all partitions, with page views and exits counted per resource. */
+    private static final class Totals {
+        final IntList durations = new IntList();
+        final IntList pages = new IntList();
+        final IdCounter exits;
+        final IdCounter views;
+
+        Totals(LogStore store) {
+            StringDictionary resources = store.getDictionaries().getResources();
+            exits = new IdCounter(resources);
+            views = new IdCounter(resources);
+        }
+
+        void add(Sessions partition) {
+            durations.addAll(partition.durations);
+            pages.addAll(partition.pages);
+            for (int i = 0; i < partition.exits.size; i++) {
+                exits.increment(partition.exits.values[i]);
+            }
+            for (int i = 0; i < partition.views.size; i++) {
+                views.increment(partition.views.values[i]);
+            }
+        }
+
+        SessionStats stats(Duration gap) {
+            List<SessionStats.ExitPage> topExitPages = new ArrayList<>();
+            for (int id : exits.topIds(TOP_EXIT_PAGE_COUNT)) {
+                topExitPages.add(new SessionStats.ExitPage(exits.getDictionary().valueOf(id), exits.get(id), views.get(id)));
+            }
+            return new SessionStats(gap, durations.toArray(), pages.toArray(), topExitPages);
+        }
+    }
+
+    /**
+     * One round: scans the store for the rows of partitions {@code [first, first + count)}, then
+     * sessionizes each of those partitions in its own task.
+     */
+    private static final class RoundTask extends RecursiveTask<List<Sessions>> {
+        private static final long serialVersionUID = 1L;
+
+        private final LogStore store;
+        private final Sessionizer sessionizer;
+        private final long fromEpochSecond;
+        private final long toEpochSecond;
+        private final int partitions;
+        private final int first;
+        private final int count;
+        private final int rowsPerTask;
+
+        RoundTask(LogStore store, Sessionizer sessionizer, long fromEpochSecond, long toEpochSecond,
+                  int partitions, int first, int count, int rowsPerTask) {
+            this.store = store;
+            this.sessionizer = sessionizer;
+            this.fromEpochSecond = fromEpochSecond;
+            this.toEpochSecond = toEpochSecond;
+            this.partitions = partitions;
+            this.first = first;
+            this.count = count;
+            this.rowsPerTask = rowsPerTask;
+        }
+
+        @Override
+        protected List<Sessions> compute() {
+            List<IntList[]> scattered = new ScatterTask(this, 0, store.size()).compute();
+            List<PartitionTask> tasks = new ArrayList<>(count);
+            for (int slot = 0; slot < count; slot++) {
+                tasks.add(new PartitionTask(store, sessionizer, scattered, slot));
+            }
+            invokeAll(tasks);
+            List<Sessions> done = new ArrayList<>(count);
+            for (PartitionTask task : tasks) {
+                done.add(task.join());
+            }
+            return done;
+        }
+    }
+
+    /**
+     * Sorts rows {@code [start, end)} into one row list per partition of the round, splitting
+     * the range like {@link LogAnalysisService}. Returns the lists of each leaf range in row order.
+     */
+    private static final class ScatterTask extends RecursiveTask<List<IntList[]>> {
+        private static final long serialVersionUID = 1L;
+
+        private final RoundTask round;
+        private final int start;
+        private final int end;
+
+        ScatterTask(RoundTask round, int start, int end) {
+            this.round = round;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<IntList[]> compute() {
+            if (end - start <= round.rowsPerTask) {
+                IntList[] lists = new IntList[round.count];
+                for (int slot = 0; slot < lists.length; slot++) {
+                    lists[slot] = new IntList();
+                }
+                LogStore store = round.store;
+                for (int row = start; row < end; row++) {
+                    int slot = partitionOf(store.getIpId(row), round.partitions) - round.first;
+                    if (slot >= 0 && slot < round.count) {
+                        long epochSecond = store.getEpochSecond(row);
+                        if (epochSecond >= round.fromEpochSecond && epochSecond < round.toEpochSecond) {
+                            lists[slot].add(row);
+                        }
+                    }
+                }
+                List<IntList[]> leaves = new ArrayList<>();
+                leaves.add(lists);
+                return leaves;
+            }
+            int middle = (start + end) >>> 1;
+            ScatterTask right = new ScatterTask(round, middle, end);
+            right.fork();
+            List<IntList[]> leaves = new ScatterTask(round, start, middle).compute();
+            leaves.addAll(right.join());  // left covers earlier rows, keeping file order
+            return leaves;
+        }
+    }
+
+    /** Orders one partition's rows by IP and time and cuts them into sessions. */
+    private static final class PartitionTask extends RecursiveTask<Sessions> {
+        private static final long serialVersionUID = 1L;
+
+        private final LogStore store;
+        private final Sessionizer sessionizer;
+        private final List<IntList[]> scattered;
+        private final int slot;
+
+        PartitionTask(LogStore store, Sessionizer sessionizer, List<IntList[]> scattered, int slot) {
+            this.store = store;
+            this.sessionizer = sessionizer;
+            this.scattered = scattered;
+            this.slot = slot;
+        }
+
+        @Override
+        protected Sessions compute() {
+            int total = 0;
+            for (IntList[] lists : scattered) {
+                total += lists[slot].size;
+            }
+            int[] rows = new int[total];
+            int filled = 0;
+            for (IntList[] lists : scattered) {
+                System.arraycopy(lists[slot].values, 0, rows, filled, lists[slot].size);
+                filled += lists[slot].size;
+                lists[slot] = null;  // no longer needed once gathered
+            }
+
+            // Counting sort by IP keeps each IP's rows in file order, which for access logs is
+            // time order already; the rare IP whose rows are not gets sorted on its own. The IPs
+            // are numbered within the partition, so the sort costs nothing per IP of the store.
+            LocalIds ips = new LocalIds();
+            int[] localIds = new int[total];
+            for (int i = 0; i < total; i++) {
+                localIds[i] = ips.idOf(store.getIpId(rows[i]));
+            }
+            int[] starts = new int[ips.size + 1];
+            for (int ip : localIds) {
+                starts[ip + 1]++;
+            }
+            for (int ip = 0; ip < ips.size; ip++) {
+                starts[ip + 1] += starts[ip];
+            }
+            int[] byIp = new int[total];
+            int[] next = Arrays.copyOf(starts, ips.size);
+            for (int i = 0; i < total; i++) {
+                byIp[next[localIds[i]]++] = rows[i];
+            }
+            rows = null;
+            localIds = null;
+
+            Sessions sessions = new Sessions();
+            IdFlags pages = new IdFlags(store.getDictionaries().getResources(), Sessionizer::isPage);
+            long[] seconds = new long[64];
+            for (int ip = 0; ip < ips.size; ip++) {
+                int from = starts[ip];
+                int to = starts[ip + 1];
+                if (to - from > seconds.length) {
+                    seconds = new long[Math.max(to - from, seconds.length * 2)];
+                }
+                if (!readInTimeOrder(byIp, from, to, seconds)) {
+                    sortByTime(byIp, from, to, seconds);
+                }
+                sessionize(byIp, from, to, seconds, pages, sessions);
+            }
+            return sessions;
+        }
+
+        /** Reads the timestamps of {@code rows[from, to)}; returns whether they never go backwards. */
+        private boolean readInTimeOrder(int[] rows, int from, int to, long[] seconds) {
+            boolean ordered = true;
+            for (int i = from; i < to; i++) {
+                seconds[i - from] = store.getEpochSecond(rows[i]);
+                if (i > from && seconds[i - from] < seconds[i - from - 1]) {
+                    ordered = false;
+                }
+            }
+            return ordered;
+        }
+
+        /**
+         * Sorts {@code rows[from, to)} by timestamp, ties in file order, by packing each row's
+         * second (relative to the earliest) above its position. One IP's requests span far less
+         * than the 2^32 seconds that leaves room for.
+         */
+        private static void sortByTime(int[] rows, int from, int to, long[] seconds) {
+            int n = to - from;
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                min = Math.min(min, seconds[i]);
+            }
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = (seconds[i] - min) << 31 | i;
+            }
+            Arrays.sort(keys);
+            int[] sorted = new int[n];
+            for (int i = 0; i < n; i++) {
+                int position = (int) (keys[i] & Integer.MAX_VALUE);
+                sorted[i] = rows[from + position];
+                seconds[i] = min + (keys[i] >>> 31);
+            }
+            System.arraycopy(sorted, 0, rows, from, n);
+        }
+
+        /** Cuts one IP's time-ordered rows into sessions and adds their figures to {@code sessions}. */
+        private void sessionize(int[] rows, int from, int to, long[] seconds, IdFlags pages, Sessions sessions) {
+            long start = seconds[0];
+            long last = start;
+            int pageViews = 0;
+            int exitPage = -1;
+            for (int i = from; i < to; i++) {
+                long second = seconds[i - from];
+                if (second - last > sessionizer.gapSeconds) {
+                    close(sessions, start, last, pageViews, exitPage);
+                    start = second;
+                    pageViews = 0;
+                    exitPage = -1;
+                }
+                last = second;
+                int resource = store.getResourceId(rows[i]);
+                if (pages.test(resource)) {
+                    pageViews++;
+                    sessions.views.add(resource);
+                    exitPage = resource;
+                }
+            }
+            close(sessions, start, last, pageViews, exitPage);
+        }
+
+        private static void close(Sessions sessions, long start, long last, int pageViews, int exitPage) {
+            sessions.durations.add((int) Math.min(Integer.MAX_VALUE, last - start));
+            sessions.pages.add(pageViews);
+            if (exitPage >= 0) {
+                sessions.exits.add(exitPage);
+            }
+        }
+    }
+}
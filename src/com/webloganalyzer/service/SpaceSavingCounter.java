@@ -0,0 +1,293 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitter summary holding at most {@code capacity} counters. When a new value
+ * arrives and the summary is full, the smallest counter is taken over and its old count becomes
+ * the newcomer's error bound. Every reported count overestimates the true count by at most
+ * {@link #getMaxError()}, which is at most N/capacity, and every value that occurs more than
+ * N/capacity times is guaranteed to be tracked.
+ *
+ * <p>Values are keyed by their {@link StringDictionary#hash}, and only the values of the tracked
+ * counters are kept, so the summary never interns the values it sees: its memory is fixed by the
+ * capacity however many distinct values pass through.
+ *
+ * <p>Summaries merge as described by Agarwal et al., "Mergeable Summaries": a value missing from
+ * a full summary is assumed to have that summary's minimum count, and the union is cut back to
+ * the largest {@code capacity} counters.
+ */
+final class SpaceSavingCounter {
+
+    private final int capacity;
+
+    private long[] keys;
+    private String[] values;
+    private long[] counts;
+    private long[] errors;
+    private int[] heap;       // slots ordered as a min-heap on count
+    private int[] heapIndex;  // slot -> position in heap
+    private int[] table;      // open addressing on key: slot + 1, or 0 for empty
+    private int size;
+    private int newest = -1;  // slot taken over by the last increment, until its value is set
+    private long total;
+
+    SpaceSavingCounter(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        keys = new long[capacity];
+        values = new String[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        heap = new int[capacity];
+        heapIndex = new int[capacity];
+        table = new int[Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) << 1];
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Number of occurrences offered so far, including merged summaries. */
+    long getTotal() {
+        return total;
+    }
+
+    /** Upper bound on how much any reported count exceeds the true count. */
+    long getMaxError() {
+        return size < capacity ? 0 : counts[heap[0]];
+    }
+
+    /**
+     * Counts one occurrence of the value hashed to {@code key}.
+     *
+     * @return false if the value has just taken a counter, in which case it must be given to
+     *         {@link #setValue} before the next call
+     */
+    boolean increment(long key) {
+        total++;
+        int slot = find(key);
+        if (slot >= 0) {
+            counts[slot]++;
+            siftDown(heapIndex[slot]);
+            return true;
+        }
+        if (size < capacity) {
+            slot = size++;
+            keys[slot] = key;
+            counts[slot] = 1;
+            errors[slot] = 0;
+            heap[slot] = slot;
+            heapIndex[slot] = slot;
+            insert(key, slot);
+            siftUp(slot);
+        } else {
+            slot = heap[0];
+            remove(keys[slot]);
+            keys[slot] = key;
+            errors[slot] = counts[slot];
+            counts[slot]++;
+            insert(key, slot);
+            siftDown(0);
+        }
+        values[slot] = null;
+        newest = slot;
+        return false;
+    }
+
+    /** Names the value that the last {@link #increment} took a counter for. */
+    void setValue(String value) {
+        values[newest] = value;
+        newest = -1;
+    }
+
+    /** Estimated count of the value hashed to {@code key}: an upper bound, or 0 if it is not tracked. */
+    long estimate(long key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /** The {@code limit} largest counters as (value, estimated count), largest first. */
+    List<Map.Entry<String, Integer>> top(int limit) {
+        int[] ordered = slotsByCount();
+        List<Map.Entry<String, Integer>> top = new ArrayList<>(Math.min(limit, ordered.length));
+        for (int i = 0; i < ordered.length && i < limit; i++) {
+            int slot = ordered[i];
+            top.add(Map.entry(values[slot], (int) Math.min(Integer.MAX_VALUE, counts[slot])));
+        }
+        return top;
+    }
+
+    /** Every tracked value with its estimated count, largest first. */
+    Map<String, Integer> toMap() {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : top(size)) {
+            map.put(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+    /** Folds {@code other} into this summary; both must have the same capacity. */
+    void merge(SpaceSavingCounter other) {
+        long thisMin = size < capacity ? 0 : counts[heap[0]];
+        long otherMin = other.size < other.capacity ? 0 : other.counts[other.heap[0]];
+
+        int unionSize = size + other.size;
+        long[] unionKeys = new long[unionSize];
+        String[] unionValues = new String[unionSize];
+        long[] unionCounts = new long[unionSize];
+        long[] unionErrors = new long[unionSize];
+        boolean[] matched = new boolean[size];
+        int n = 0;
+
+        for (int otherSlot = 0; otherSlot < other.size; otherSlot++) {
+            long key = other.keys[otherSlot];
+            int slot = find(key);
+            unionKeys[n] = key;
+            unionValues[n] = other.values[otherSlot];
+            if (slot >= 0) {
+                matched[slot] = true;
+                unionCounts[n] = counts[slot] + other.counts[otherSlot];
+                unionErrors[n] = errors[slot] + other.errors[otherSlot];
+            } else {
+                unionCounts[n] = thisMin + other.counts[otherSlot];
+                unionErrors[n] = thisMin + other.errors[otherSlot];
+            }
+            n++;
+        }
+        for (int slot = 0; slot < size; slot++) {
+            if (!matched[slot]) {
+                unionKeys[n] = keys[slot];
+                unionValues[n] = values[slot];
+                unionCounts[n] = counts[slot] + otherMin;
+                unionErrors[n] = errors[slot] + otherMin;
+                n++;
+            }
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(unionCounts[b], unionCounts[a]));
+
+        long mergedTotal = total + other.total;
+        size = 0;
+        Arrays.fill(table, 0);
+        Arrays.fill(values, null);
+        for (int i = 0; i < n && i < capacity; i++) {
+            int u = order[i];
+            int slot = size++;
+            keys[slot] = unionKeys[u];
+            values[slot] = unionValues[u];
+            counts[slot] = unionCounts[u];
+            errors[slot] = unionErrors[u];
+            heap[slot] = slot;
+            heapIndex[slot] = slot;
+            insert(unionKeys[u], slot);
+            siftUp(slot);
+        }
+        total = mergedTotal;
+    }
+
+    private int[] slotsByCount() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(counts[b], counts[a]));
+        int[] slots = new int[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = order[i];
+        }
+        return slots;
+    }
+
+    private int find(long key) {
+        int mask = table.length - 1;
+        int index = mix(key) & mask;
+        int entry;
+        while ((entry = table[index]) != 0) {
+            if (keys[entry - 1] == key) {
+                return entry - 1;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(long key, int slot) {
+        int mask = table.length - 1;
+        int index = mix(key) & mask;
+        while (table[index] != 0) {
+            index = (index + 1) & mask;
+        }
+        table[index] = slot + 1;
+    }
+
+    // Linear-probing delete with backward shift, so lookups never need tombstones.
+    private void remove(long key) {
+        int mask = table.length - 1;
+        int index = mix(key) & mask;
+        while (keys[table[index] - 1] != key) {
+            index = (index + 1) & mask;
+        }
+        int hole = index;
+        index = (index + 1) & mask;
+        while (table[index] != 0) {
+            int home = mix(keys[table[index] - 1]) & mask;
+            if (((index - home) & mask) >= ((index - hole) & mask)) {
+                table[hole] = table[index];
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    // Keys are well-mixed hashes, so their low bits index the table as they are.
+    private static int mix(long key) {
+        return (int) key;
+    }
+
+    private void siftUp(int index) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[slot]) break;
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(slot, index);
+    }
+
+    private void siftDown(int index) {
+        int slot = heap[index];
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) break;
+            int smallest = left + 1 < size && counts[heap[left + 1]] < counts[heap[left]] ? left + 1 : left;
+            if (counts[slot] <= counts[heap[smallest]]) break;
+            place(heap[smallest], index);
+            index = smallest;
+        }
+        place(slot, index);
+    }
+
+    private void place(int slot, int index) {
+        heap[index] = slot;
+        heapIndex[slot] = index;
+    }
+}
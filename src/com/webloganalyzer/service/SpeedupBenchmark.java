@@ -0,0 +1,244 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogTable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Measures how a full analysis scales with the thread count. Every repetition runs four phases
+ * and times them separately:
+ * <ul>
+ *   <li>read: one pass over the raw bytes (decompressing gzip), the I/O floor of the input. It is
+ *       reported on its own and left out of the totals and speedups: parsing reads the input again,
+ *       so counting a separate serial pass as well would pull every speedup towards 1;</li>
+ *   <li>parse: {@code processToTable} with the processor for that thread count;</li>
+ *   <li>aggregate: {@link LogAnalysisService} over the parsed table for the selected role;</li>
+ *   <li>render: the caller's renderer applied to the result.</li>
+ * </ul>
+ *
+ * <p>All runs see the same cache state: the input is read once before anything is timed, so the
+ * OS page cache holds it for every run (a cold-cache figure would need the cache dropped between
+ * runs, which a JVM cannot do). Each thread count then gets its warmup repetitions, and the
+ * measured repetitions are interleaved across thread counts, rotating the order each round, so
+ * JIT, GC and background-load drift spreads over all thread counts instead of favouring the ones
+ * measured last. A GC is requested before every run.
+ *
+ * <p>Thread count 1 is always measured and is the baseline for speedups.
+ */
+public class SpeedupBenchmark {
+
+    public enum Phase {
+        READ("Read", false),
+        PARSE("Parse", true),
+        AGGREGATE("Aggregate", true),
+        RENDER("Render", true);
+
+        private final String label;
+        private final boolean inTotal;
+
+        Phase(String label, boolean inTotal) {
+            this.label = label;
+            this.inTotal = inTotal;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /** Whether the phase counts towards a repetition's total and so towards the speedup. */
+        public boolean isInTotal() {
+            return inTotal;
+        }
+    }
+
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+
+    private final LogAnalysisService.Role role;
+    private final AnalysisOptions options;
+    private final IntFunction<LogProcessor> processors;
+    private int warmupRepetitions = 2;
+    private int repetitions = 5;
+    private Consumer<Object> renderer = String::valueOf;
+    private Consumer<String> progress = message -> { };
+
+    /** {@code processors} gives the processor to parse with at a thread count. */
+    public SpeedupBenchmark(LogAnalysisService.Role role, AnalysisOptions options, IntFunction<LogProcessor> processors) {
+        this.role = role;
+        this.options = options;
+        this.processors = processors;
+    }
+
+    public SpeedupBenchmark warmupRepetitions(int warmupRepetitions) {
+        if (warmupRepetitions < 0) {
+            throw new IllegalArgumentException("warmupRepetitions must not be negative");
+        }
+        this.warmupRepetitions = warmupRepetitions;
+        return this;
+    }
+
+    public SpeedupBenchmark repetitions(int repetitions) {
+        if (repetitions < 1) {
+            throw new IllegalArgumentException("repetitions must be positive");
+        }
+        this.repetitions = repetitions;
+        return this;
+    }
+
+    /** What the render phase does with each result; the default only formats it as a string. */
+    public SpeedupBenchmark renderer(Consumer<Object> renderer) {
+        this.renderer = renderer;
+        return this;
+    }
+
+    /** Receives a line per step, from the measuring thread. */
+    public SpeedupBenchmark progress(Consumer<String> progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    /**
+     * Runs the benchmark and returns one measurement per thread count, fewest threads first.
+     * Interrupting the calling thread stops it between runs with an {@link InterruptedException}.
+     */
+    public List<SpeedupMeasurement> measure(File input, int... threadCounts) throws Exception {
+        TreeSet<Integer> threadSet = new TreeSet<>();
+        threadSet.add(1);
+        for (int threads : threadCounts) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Thread counts must be positive");
+            }
+            threadSet.add(threads);
+        }
+        List<Integer> threads = new ArrayList<>(threadSet);
+
+        progress.accept("Priming the page cache with " + input.getName());
+        read(input);
+
+        for (int t : threads) {
+            for (int i = 0; i < warmupRepetitions; i++) {
+                progress.accept("Warmup " + (i + 1) + "/" + warmupRepetitions + " at " + t + " threads");
+                runOnce(input, t);
+            }
+        }
+
+        // samples[thread index][phase][repetition], in milliseconds
+        double[][][] samples = new double[threads.size()][Phase.values().length][repetitions];
+        for (int r = 0; r < repetitions; r++) {
+            for (int k = 0; k < threads.size(); k++) {
+                int index = (k + r) % threads.size();
+                progress.accept("Repetition " + (r + 1) + "/" + repetitions + " at " + threads.get(index) + " threads");
+                long[] nanos = runOnce(input, threads.get(index));
+                for (Phase phase : Phase.values()) {
+                    samples[index][phase.ordinal()][r] = nanos[phase.ordinal()] / 1e6;
+                }
+            }
+        }
+
+        double[] baselineTotals = totals(samples[0]);
+        List<SpeedupMeasurement> measurements = new ArrayList<>(threads.size());
+        for (int index = 0; index < threads.size(); index++) {
+            Map<Phase, SampleStats> phases = new EnumMap<>(Phase.class);
+            for (Phase phase : Phase.values()) {
+                phases.put(phase, new SampleStats(samples[index][phase.ordinal()]));
+            }
+            double[] totals = totals(samples[index]);
+            double[] speedups = new double[repetitions];
+            for (int r = 0; r < repetitions; r++) {
+                speedups[r] = baselineTotals[r] / Math.max(totals[r], 1e-6);
+            }
+            SpeedupMeasurement measurement = new SpeedupMeasurement(threads.get(index), phases,
+                    new SampleStats(totals), new SampleStats(speedups));
+            progress.accept(measurement.toString());
+            measurements.add(measurement);
+        }
+        return measurements;
+    }
+
+    /**
+     * Fits Amdahl's law, {@code 1/S(p) = f + (1 - f)/p}, to the median speedups by least squares
+     * and returns the serial fraction {@code f}, clamped to 0..1. NaN when no thread count above
+     * one was measured.
+     */
+    public static double estimateSerialFraction(List<SpeedupMeasurement> measurements) {
+        double numerator = 0;
+        double denominator = 0;
+        for (SpeedupMeasurement measurement : measurements) {
+            if (measurement.getThreads() < 2) {
+                continue;
+            }
+            double x = 1.0 / measurement.getThreads();
+            double y = 1 / measurement.getSpeedup().getMedian();
+            numerator += (y - x) * (1 - x);
+            denominator += (1 - x) * (1 - x);
+        }
+        if (denominator == 0) {
+            return Double.NaN;
+        }
+        return Math.min(1, Math.max(0, numerator / denominator));
+    }
+
+    private long[] runOnce(File input, int threads) throws Exception {
+        if (Thread.interrupted()) {
+            throw new InterruptedException("Speedup measurement cancelled");
+        }
+        System.gc();
+        long[] nanos = new long[Phase.values().length];
+
+        long start = System.nanoTime();
+        read(input);
+        long readDone = System.nanoTime();
+        LogTable table = processors.apply(threads).processToTable(input);
+        long parseDone = System.nanoTime();
+        Object result = new LogAnalysisService(threads, options).analyze(table, role);
+        long aggregateDone = System.nanoTime();
+        renderer.accept(result);
+        long renderDone = System.nanoTime();
+
+        nanos[Phase.READ.ordinal()] = readDone - start;
+        nanos[Phase.PARSE.ordinal()] = parseDone - readDone;
+        nanos[Phase.AGGREGATE.ordinal()] = aggregateDone - parseDone;
+        nanos[Phase.RENDER.ordinal()] = renderDone - aggregateDone;
+        return nanos;
+    }
+
+    private static double[] totals(double[][] phaseSamples) {
+        double[] totals = new double[phaseSamples[0].length];
+        for (Phase phase : Phase.values()) {
+            if (!phase.isInTotal()) {
+                continue;
+            }
+            for (int r = 0; r < totals.length; r++) {
+                totals[r] += phaseSamples[phase.ordinal()][r];
+            }
+        }
+        return totals;
+    }
+
+    /** Reads every byte of the input (each file of a directory, gzip decompressed) and discards it. */
+    private static long read(File input) throws IOException {
+        byte[] buffer = new byte[READ_BUFFER_BYTES];
+        long bytes = 0;
+        for (File file : MultiFileLogProcessor.expand(List.of(input))) {
+            try (InputStream in = MultiFileLogProcessor.isGzip(file)
+                    ? new GZIPInputStream(new FileInputStream(file), 1 << 16)
+                    : new FileInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    bytes += read;
+                }
+            }
+        }
+        return bytes;
+    }
+}
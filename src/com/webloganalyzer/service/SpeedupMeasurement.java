@@ -0,0 +1,65 @@
+package com.webloganalyzer.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The repeated timings of one thread count in a {@link SpeedupBenchmark} run: milliseconds per
+ * phase and in total (without the read phase), and the speedup over the single-threaded baseline.
+ * Speedup is taken per repetition (baseline total of repetition i over this total of repetition
+ * i), so its spread reflects run-to-run noise rather than just the ratio of two medians.
+ */
+public class SpeedupMeasurement {
+    private final int threads;
+    private final Map<SpeedupBenchmark.Phase, SampleStats> phases;
+    private final SampleStats total;
+    private final SampleStats speedup;
+
+    public SpeedupMeasurement(int threads, Map<SpeedupBenchmark.Phase, SampleStats> phases, SampleStats total,
+                              SampleStats speedup) {
+        this.threads = threads;
+        this.phases = new EnumMap<>(phases);
+        this.total = total;
+        this.speedup = speedup;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /** Milliseconds spent in one phase. */
+    public SampleStats getPhase(SpeedupBenchmark.Phase phase) {
+        return phases.get(phase);
+    }
+
+    /** Milliseconds for the phases of a repetition that count towards the total, all but read. */
+    public SampleStats getTotal() {
+        return total;
+    }
+
+    public SampleStats getSpeedup() {
+        return speedup;
+    }
+
+    /**
+     * The Karp-Flatt metric: the serial fraction that Amdahl's law would need to explain the
+     * median speedup at this thread count. Undefined (NaN) for a single thread.
+     */
+    public double getSerialFraction() {
+        if (threads < 2) {
+            return Double.NaN;
+        }
+        return (1 / speedup.getMedian() - 1.0 / threads) / (1 - 1.0 / threads);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder phaseMedians = new StringBuilder();
+        for (Map.Entry<SpeedupBenchmark.Phase, SampleStats> entry : phases.entrySet()) {
+            phaseMedians.append(phaseMedians.length() == 0 ? "" : ", ")
+                    .append(entry.getKey().getLabel()).append(String.format(" %.1f", entry.getValue().getMedian()));
+        }
+        return String.format("%d threads: total %s ms; speedup %.2fx +/- %.2f; phases [%s]",
+                threads, total, speedup.getMedian(), speedup.getStdDev(), phaseMedians);
+    }
+}
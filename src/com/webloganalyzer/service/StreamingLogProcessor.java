@@ -0,0 +1,275 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogEntry;
+import com.webloganalyzer.model.LogFormat;
+import com.webloganalyzer.model.LogLineParser;
+import com.webloganalyzer.model.LogTable;
+import com.webloganalyzer.model.OffHeapLogStore;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Reads the file on the calling thread in fixed-size batches of lines and hands them to parser
+ * workers through a bounded queue, so disk reads and parsing overlap. A full queue blocks the
+ * reader, which keeps at most {@code queueDepth} batches of raw lines in memory. The reader also
+ * blocks while {@code queueDepth + workerCount} batches are read but not yet delivered in file
+ * order, so one slow batch cannot leave an unbounded number of finished partials waiting on it.
+ */
+public class StreamingLogProcessor implements LogProcessor {
+
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    public static final int DEFAULT_QUEUE_DEPTH = 16;
+
+    private static final Batch END_OF_INPUT = new Batch(-1, new String[0], 0, 0);
+
+    private final int workerCount;
+    private final int batchSize;
+    private final int queueDepth;
+    private final LogFormat format;
+    private final ProcessorMetrics metrics = ProcessorMetrics.shared();
+
+    private volatile PipelineStats lastStats;
+
+    public StreamingLogProcessor(int workerCount) {
+        this(workerCount, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_DEPTH);
+    }
+
+    public StreamingLogProcessor(int workerCount, int batchSize, int queueDepth) {
+        this(workerCount, batchSize, queueDepth, LogFormat.COMMON);
+    }
+
+    public StreamingLogProcessor(int workerCount, int batchSize, int queueDepth, LogFormat format) {
+        if (workerCount < 1 || batchSize < 1 || queueDepth < 1) {
+            throw new IllegalArgumentException("workerCount, batchSize and queueDepth must be positive");
+        }
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.queueDepth = queueDepth;
+        this.format = format;
+    }
+
+    /** Stall statistics of the most recent run, or {@code null} before the first one. */
+    public PipelineStats getLastStats() {
+        return lastStats;
+    }
+
+    @Override
+    public List<LogEntry> processLogFile(File logFile) throws Exception {
+        List<LogEntry> allEntries = new ArrayList<>();
+        this.<List<LogEntry>>run(logFile, ArrayList::new, (parser, line, entries) -> {
+            LogEntry entry = parser.parse(line);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }, allEntries::addAll);
+        return allEntries;
+    }
+
+    @Override
+    public LogTable processToTable(File logFile) throws Exception {
+        LogTable table = new LogTable();
+        run(logFile, () -> new LogTable(batchSize), (parser, line, partial) -> parser.parseInto(line, partial), table::addAll);
+        return table;
+    }
+
+    @Override
+    public void processInto(File logFile, OffHeapLogStore store) throws Exception {
+        run(logFile, () -> new LogTable(batchSize), (parser, line, partial) -> parser.parseInto(line, partial), store::addAll);
+    }
+
+    @Override
+    public <R> R analyzeLogFile(File logFile, LogAnalyzer<R> analyzer) throws Exception {
+        List<AnalysisPartial<R>> combined = new ArrayList<>(1);
+        run(logFile, () -> AnalysisPartial.create(analyzer), AnalysisPartial.handler(), partial -> {
+            if (combined.isEmpty()) {
+                combined.add(partial);
+            } else {
+                combined.get(0).accumulator().merge(partial.accumulator());
+            }
+        });
+        return AnalysisPartial.mergeInOrder(analyzer, combined);
+    }
+
+    /**
+     * Runs the pipeline, parsing each batch into a fresh partial result. Finished partials are
+     * handed to {@code inOrder} strictly in file order, as soon as all earlier batches are done,
+     * one call at a time but outside any lock, so the other workers keep parsing meanwhile.
+     */
+    private <T> void run(File logFile, Supplier<T> newPartial, LineHandler<T> handler, Consumer<T> inOrder) throws Exception {
+        long startNanos = System.nanoTime();
+        ProcessorMetrics.Run run = metrics.startRun("StreamingLogProcessor", workerCount);
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(queueDepth);
+        LongAdder consumerStallNanos = new LongAdder();
+        ReorderBuffer<T> reorder = new ReorderBuffer<>(inOrder, queueDepth + workerCount);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            futures.add(executor.submit(() -> {
+                consume(queue, consumerStallNanos, format, newPartial, handler, reorder, run);
+                return null;
+            }));
+        }
+
+        long batches = 0;
+        long lines = 0;
+        long producerStallNanos = 0;
+        boolean produced = false;
+        long readMark = ProcessorMetrics.allocatedBytes();
+        try (BufferedReader reader = Files.newBufferedReader(logFile.toPath(), StandardCharsets.ISO_8859_1)) {
+            String[] pending = new String[batchSize];
+            int count = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                pending[count++] = line;
+                if (count == batchSize) {
+                    producerStallNanos += reorder.reserve(futures);
+                    producerStallNanos += put(queue, new Batch(batches++, pending, count, System.nanoTime()), futures);
+                    lines += count;
+                    pending = new String[batchSize];
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                producerStallNanos += reorder.reserve(futures);
+                producerStallNanos += put(queue, new Batch(batches++, pending, count, System.nanoTime()), futures);
+                lines += count;
+            }
+            for (int i = 0; i < workerCount; i++) {
+                put(queue, END_OF_INPUT, futures);
+            }
+            produced = true;
+            metrics.recordAllocation(ProcessorMetrics.Phase.READ, readMark);
+        } finally {
+            if (produced) {
+                executor.shutdown();
+            } else {
+                executor.shutdownNow();  // interrupts workers waiting on the queue
+            }
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        run.finish();
+
+        lastStats = new PipelineStats(batches, lines, producerStallNanos, consumerStallNanos.sum(),
+                workerCount, System.nanoTime() - startNanos);
+    }
+
+    private static <T> void consume(BlockingQueue<Batch> queue, LongAdder stallNanos, LogFormat format,
+                                    Supplier<T> newPartial, LineHandler<T> handler, ReorderBuffer<T> reorder,
+                                    ProcessorMetrics.Run run) throws InterruptedException {
+        LogLineParser parser = format.newParser();
+        while (true) {
+            long waitStart = System.nanoTime();
+            Batch batch = queue.take();
+            stallNanos.add(System.nanoTime() - waitStart);
+            if (batch == END_OF_INPUT) {
+                run.recordRejects(parser);
+                return;
+            }
+            ProcessorMetrics.Chunk chunk = run.startChunk(batch.queuedAtNanos());
+            T partial = newPartial.get();
+            long bytes = 0;
+            for (int i = 0; i < batch.count(); i++) {
+                handler.handle(parser, batch.lines()[i], partial);
+                bytes += batch.lines()[i].length() + 1;
+            }
+            chunk.finish(batch.count(), bytes);
+            long mergeMark = ProcessorMetrics.allocatedBytes();
+            reorder.complete(batch.sequence(), partial);
+            run.recordAllocation(ProcessorMetrics.Phase.MERGE, mergeMark);
+        }
+    }
+
+    /**
+     * Blocks until the queue accepts the batch and returns how long that took. Gives up if a
+     * worker has died, since nobody may be left to drain the queue.
+     */
+    private static long put(BlockingQueue<Batch> queue, Batch batch, List<? extends Future<?>> workers) throws Exception {
+        long waitStart = System.nanoTime();
+        while (!queue.offer(batch, 50, TimeUnit.MILLISECONDS)) {
+            checkWorkers(workers);
+        }
+        return System.nanoTime() - waitStart;
+    }
+
+    private static void checkWorkers(List<? extends Future<?>> workers) throws Exception {
+        for (Future<?> worker : workers) {
+            if (worker.isDone()) {
+                worker.get();  // rethrows the worker's failure
+                throw new IllegalStateException("Parser worker exited before end of input");
+            }
+        }
+    }
+
+    private record Batch(long sequence, String[] lines, int count, long queuedAtNanos) {
+    }
+
+    /**
+     * Releases batch results to a consumer in sequence order, whatever order they finish in. The
+     * reader reserves a slot before queueing each batch and the slot is freed when the batch is
+     * delivered, so at most {@code capacity} batches are between the two and their results fit
+     * a ring indexed by sequence. Whichever worker completes the next batch in order delivers it
+     * and any that follow, without holding the lock while the consumer runs.
+     */
+    private static final class ReorderBuffer<T> {
+        private final Consumer<T> inOrder;
+        private final Semaphore slots;
+        private final Object[] waiting;
+        private long nextSequence;
+        private boolean delivering;
+
+        ReorderBuffer(Consumer<T> inOrder, int capacity) {
+            this.inOrder = inOrder;
+            this.slots = new Semaphore(capacity);
+            this.waiting = new Object[capacity];
+        }
+
+        /** Blocks until a batch may be read and returns how long that took. */
+        long reserve(List<? extends Future<?>> workers) throws Exception {
+            long waitStart = System.nanoTime();
+            while (!slots.tryAcquire(50, TimeUnit.MILLISECONDS)) {
+                checkWorkers(workers);
+            }
+            return System.nanoTime() - waitStart;
+        }
+
+        void complete(long sequence, T partial) {
+            synchronized (this) {
+                waiting[(int) (sequence % waiting.length)] = partial;
+                if (delivering || sequence != nextSequence) {
+                    return;  // the worker delivering now, or the one completing nextSequence, takes it
+                }
+                delivering = true;
+            }
+            while (true) {
+                T next;
+                synchronized (this) {
+                    int slot = (int) (nextSequence % waiting.length);
+                    @SuppressWarnings("unchecked")
+                    T ready = (T) waiting[slot];
+                    if (ready == null) {
+                        delivering = false;
+                        return;
+                    }
+                    waiting[slot] = null;
+                    nextSequence++;
+                    next = ready;
+                }
+                inOrder.accept(next);
+                slots.release();
+            }
+        }
+    }
+}
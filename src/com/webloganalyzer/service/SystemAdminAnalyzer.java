@@ -0,0 +1,183 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogRecord;
+import com.webloganalyzer.model.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unique IPs, server errors, failed logins, per-IP request volume and per-IP rate bursts for the
+ * System Administrator view.
+ */
+public class SystemAdminAnalyzer implements LogAnalyzer<SystemAdminAnalyzer.Result> {
+
+    public static final int TOP_IP_COUNT = 10;
+
+    private final AnalysisOptions options;
+
+    public SystemAdminAnalyzer() {
+        this(AnalysisOptions.EXACT);
+    }
+
+    public SystemAdminAnalyzer(AnalysisOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public Accumulator<Result> newAccumulator(LogDictionaries dictionaries) {
+        return new SystemAdminAccumulator(dictionaries, options);
+    }
+
+    public static class Result {
+        private final int totalRequests;
+        private final int uniqueIps;
+        private final int serverErrors;
+        private final int failedLogins;
+        private final BurstTimeline bursts;
+        private final List<Map.Entry<String, Integer>> topIps;
+        private final boolean approximate;
+        private final long maxCountError;
+        private final boolean uniqueIpsApproximate;
+
+        public Result(int totalRequests, int uniqueIps, int serverErrors, int failedLogins,
+                      BurstTimeline bursts, List<Map.Entry<String, Integer>> topIps,
+                      boolean approximate, long maxCountError, boolean uniqueIpsApproximate) {
+            this.totalRequests = totalRequests;
+            this.uniqueIps = uniqueIps;
+            this.serverErrors = serverErrors;
+            this.failedLogins = failedLogins;
+            this.bursts = bursts;
+            this.topIps = List.copyOf(topIps);
+            this.approximate = approximate;
+            this.maxCountError = maxCountError;
+            this.uniqueIpsApproximate = uniqueIpsApproximate;
+        }
+
+        public int getTotalRequests() {
+            return totalRequests;
+        }
+
+        public int getUniqueIps() {
+            return uniqueIps;
+        }
+
+        public int getServerErrors() {
+            return serverErrors;
+        }
+
+        public int getFailedLogins() {
+            return failedLogins;
+        }
+
+        /** IPs that went over a request {@link RateRule} at least once, in the order they first did. */
+        public List<String> getSuspiciousIps() {
+            return bursts.getIps(BurstTimeline.Kind.REQUESTS);
+        }
+
+        /** Request bursts and failed-login spikes over the {@link AnalysisOptions#getRateRules() rate rules}. */
+        public BurstTimeline getBursts() {
+            return bursts;
+        }
+
+        /** The {@link #TOP_IP_COUNT} busiest IPs with their request counts, busiest first. */
+        public List<Map.Entry<String, Integer>> getTopIps() {
+            return topIps;
+        }
+
+        /** Whether top IPs come from a heavy-hitter summary rather than exact counts. */
+        public boolean isApproximate() {
+            return approximate;
+        }
+
+        /** Most any approximate per-IP count can exceed the true count by; 0 in exact mode. */
+        public long getMaxCountError() {
+            return maxCountError;
+        }
+
+        /** Whether {@link #getUniqueIps()} is a HyperLogLog estimate. */
+        public boolean isUniqueIpsApproximate() {
+            return uniqueIpsApproximate;
+        }
+    }
+
+    private static final class SystemAdminAccumulator implements Accumulator<Result> {
+        // Exactly one of ipRequestCounts and ipHitters is used, depending on the options. The
+        // summary keys IPs by hash; the rate rules still intern every IP for their per-IP state.
+        private final IdCounter ipRequestCounts;
+        private final SpaceSavingCounter ipHitters;
+        private final DistinctCounter uniqueIps;
+        private final StringDictionary ips;
+        private final FailedLogins failedLoginChecks;
+        private final Accumulator<BurstTimeline> rates;
+        private int totalRequests;
+        private int serverErrors;
+        private int failedLogins;
+
+        SystemAdminAccumulator(LogDictionaries dictionaries, AnalysisOptions options) {
+            ips = dictionaries.getIps();
+            if (options.isApproximateTopK()) {
+                ipRequestCounts = null;
+                ipHitters = new SpaceSavingCounter(options.getHeavyHitterCapacity());
+            } else {
+                ipRequestCounts = new IdCounter(ips);
+                ipHitters = null;
+            }
+            uniqueIps = new DistinctCounter(ips, options);
+            failedLoginChecks = new FailedLogins(dictionaries);
+            rates = new RateBurstAnalyzer(options.getRateRules()).newAccumulator(dictionaries);
+        }
+
+        @Override
+        public void accept(LogRecord record) {
+            int status = record.getStatusCode();
+            totalRequests++;
+            if (ipRequestCounts != null) {
+                ipRequestCounts.increment(record.getIpId());
+            } else if (!ipHitters.increment(record.getIpHash())) {
+                ipHitters.setValue(record.getIpAddress());
+            }
+            if (uniqueIps.isApproximate()) {
+                uniqueIps.addHash(record.getIpHash());
+            } else {
+                uniqueIps.add(record.getIpId());
+            }
+            if (status >= 500) serverErrors++;
+            if (failedLoginChecks.test(record)) failedLogins++;
+            rates.accept(record);
+        }
+
+        @Override
+        public void merge(Accumulator<Result> other) {
+            SystemAdminAccumulator o = (SystemAdminAccumulator) other;
+            totalRequests += o.totalRequests;
+            serverErrors += o.serverErrors;
+            failedLogins += o.failedLogins;
+            if (ipRequestCounts != null) {
+                ipRequestCounts.merge(o.ipRequestCounts);
+            } else {
+                ipHitters.merge(o.ipHitters);
+            }
+            uniqueIps.merge(o.uniqueIps);
+            rates.merge(o.rates);
+        }
+
+        @Override
+        public Result result() {
+            BurstTimeline bursts = rates.result();
+            if (ipHitters != null) {
+                return new Result(totalRequests, uniqueIps.count(), serverErrors, failedLogins, bursts,
+                        ipHitters.top(TOP_IP_COUNT), true, ipHitters.getMaxError(), uniqueIps.isApproximate());
+            }
+
+            List<Map.Entry<String, Integer>> topIps = new ArrayList<>();
+            for (int id : ipRequestCounts.topIds(TOP_IP_COUNT)) {
+                topIps.add(Map.entry(ips.valueOf(id), ipRequestCounts.get(id)));
+            }
+            return new Result(totalRequests, uniqueIps.count(), serverErrors, failedLogins, bursts, topIps,
+                    false, 0, uniqueIps.isApproximate());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.webloganalyzer.service;
+
+/**
+ * Progress of a {@link LogTailer} at one update. Latency is measured from the log file's
+ * last-modified time, i.e. the most recent append, to the moment the updated result was handed
+ * to the listener; the oldest line of an update may be up to one poll interval older.
+ */
+public class TailStats {
+    private final long linesParsed;
+    private final long rejectedLines;
+    private final long offset;
+    private final int rotations;
+    private final int truncations;
+    private final long updates;
+    private final long lastLatencyMillis;
+    private final double meanLatencyMillis;
+    private final long p95LatencyMillis;
+    private final long maxLatencyMillis;
+
+    public TailStats(long linesParsed, long rejectedLines, long offset, int rotations, int truncations, long updates,
+                     long lastLatencyMillis, double meanLatencyMillis, long p95LatencyMillis, long maxLatencyMillis) {
+        this.linesParsed = linesParsed;
+        this.rejectedLines = rejectedLines;
+        this.offset = offset;
+        this.rotations = rotations;
+        this.truncations = truncations;
+        this.updates = updates;
+        this.lastLatencyMillis = lastLatencyMillis;
+        this.meanLatencyMillis = meanLatencyMillis;
+        this.p95LatencyMillis = p95LatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    /** Lines parsed since the tailer started, including rejected ones. */
+    public long getLinesParsed() {
+        return linesParsed;
+    }
+
+    public long getRejectedLines() {
+        return rejectedLines;
+    }
+
+    /** Byte offset in the current file up to which every complete line has been analyzed. */
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getRotations() {
+        return rotations;
+    }
+
+    public int getTruncations() {
+        return truncations;
+    }
+
+    public long getUpdates() {
+        return updates;
+    }
+
+    public long getLastLatencyMillis() {
+        return lastLatencyMillis;
+    }
+
+    public double getMeanLatencyMillis() {
+        return meanLatencyMillis;
+    }
+
+    /** Over the most recent updates only. */
+    public long getP95LatencyMillis() {
+        return p95LatencyMillis;
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lines (%d rejected) in %d updates, offset %d, %d rotations, %d truncations; "
+                        + "latency last %d ms, mean %.0f ms, p95 %d ms, max %d ms",
+                linesParsed, rejectedLines, updates, offset, rotations, truncations,
+                lastLatencyMillis, meanLatencyMillis, p95LatencyMillis, maxLatencyMillis);
+    }
+}
@@ -0,0 +1,35 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogRecord;
+
+/**
+ * Builds a {@link TimeRollupIndex} while the log is parsed, or from a parsed table. Only the
+ * minute level is accumulated; the hour level is derived from it when the index is built.
+ */
+public class TimeRollupAnalyzer implements LogAnalyzer<TimeRollupIndex> {
+
+    @Override
+    public Accumulator<TimeRollupIndex> newAccumulator(LogDictionaries dictionaries) {
+        return new RollupAccumulator();
+    }
+
+    private static final class RollupAccumulator implements Accumulator<TimeRollupIndex> {
+        private final TimeRollupIndex.Level minutes = new TimeRollupIndex.Level();
+
+        @Override
+        public void accept(LogRecord record) {
+            minutes.add(Math.floorDiv(record.getEpochSecond(), 60), record.getStatusCode(), record.getBytes());
+        }
+
+        @Override
+        public void merge(Accumulator<TimeRollupIndex> other) {
+            minutes.merge(((RollupAccumulator) other).minutes);
+        }
+
+        @Override
+        public TimeRollupIndex result() {
+            return new TimeRollupIndex(minutes.copy());
+        }
+    }
+}
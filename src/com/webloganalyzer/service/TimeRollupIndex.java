@@ -0,0 +1,256 @@
+package com.webloganalyzer.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-minute and per-hour traffic rollups: request count, bytes and status-class counts per
+ * bucket. Range totals and histograms are answered from the buckets alone, so their cost depends
+ * on the number of buckets in the range, never on the number of log lines.
+ *
+ * <p>Bucket boundaries are aligned to UTC epoch minutes and hours. Instances are immutable; build
+ * them with {@link TimeRollupAnalyzer}.
+ */
+public class TimeRollupIndex {
+
+    public enum Granularity {
+        MINUTE(60),
+        HOUR(3600);
+
+        private final int seconds;
+
+        Granularity(int seconds) {
+            this.seconds = seconds;
+        }
+
+        public int getSeconds() {
+            return seconds;
+        }
+    }
+
+    private final Level minutes;
+    private final Level hours;
+
+    TimeRollupIndex(Level minutes) {
+        this.minutes = minutes;
+        this.hours = minutes.coarsen(60);
+    }
+
+    public boolean isEmpty() {
+        return minutes.size() == 0;
+    }
+
+    /** Start of the earliest non-empty minute, or 0 if the index is empty. */
+    public long getFirstEpochSecond() {
+        return isEmpty() ? 0 : minutes.first() * 60;
+    }
+
+    /** End (exclusive) of the latest non-empty minute, or 0 if the index is empty. */
+    public long getEndEpochSecond() {
+        return isEmpty() ? 0 : (minutes.first() + minutes.size()) * 60;
+    }
+
+    /**
+     * Totals for every minute that overlaps {@code [fromEpochSecond, toEpochSecond)}. Whole hours
+     * inside the range come from the hour rollup and only the ragged ends from minutes.
+     */
+    public Totals totals(long fromEpochSecond, long toEpochSecond) {
+        Totals totals = new Totals();
+        if (toEpochSecond <= fromEpochSecond) {
+            return totals;
+        }
+        long firstMinute = Math.floorDiv(fromEpochSecond, 60);
+        long endMinute = -Math.floorDiv(-toEpochSecond, 60);
+        long firstHour = -Math.floorDiv(-firstMinute, 60);
+        long endHour = Math.floorDiv(endMinute, 60);
+        if (firstHour < endHour) {
+            minutes.sumInto(firstMinute, firstHour * 60, totals);
+            hours.sumInto(firstHour, endHour, totals);
+            minutes.sumInto(endHour * 60, endMinute, totals);
+        } else {
+            minutes.sumInto(firstMinute, endMinute, totals);
+        }
+        return totals;
+    }
+
+    public Totals totals() {
+        return totals(getFirstEpochSecond(), getEndEpochSecond());
+    }
+
+    /** One bucket per minute or hour overlapping the range, empty buckets included, oldest first. */
+    public List<Bucket> histogram(long fromEpochSecond, long toEpochSecond, Granularity granularity) {
+        Level level = granularity == Granularity.HOUR ? hours : minutes;
+        int width = granularity.getSeconds();
+        long first = Math.floorDiv(fromEpochSecond, width);
+        long end = -Math.floorDiv(-toEpochSecond, width);
+        List<Bucket> buckets = new ArrayList<>((int) Math.max(0, Math.min(end - first, Integer.MAX_VALUE)));
+        for (long bucket = first; bucket < end; bucket++) {
+            Totals totals = new Totals();
+            level.sumInto(bucket, bucket + 1, totals);
+            buckets.add(new Bucket(bucket * width, width, totals));
+        }
+        return buckets;
+    }
+
+    public record Bucket(long startEpochSecond, int widthSeconds, Totals totals) {
+    }
+
+    /** Request, byte and status-class sums over some set of buckets. */
+    public static class Totals {
+        private long requests;
+        private long bytes;
+        private final long[] statusClasses = new long[Level.STATUS_CLASSES];
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /** Responses whose status is in {@code statusClass}xx, for classes 1 to 5. */
+        public long getStatusClassCount(int statusClass) {
+            return statusClass >= 1 && statusClass <= Level.STATUS_CLASSES ? statusClasses[statusClass - 1] : 0;
+        }
+
+        /** 4xx and 5xx responses. */
+        public long getErrors() {
+            return statusClasses[3] + statusClasses[4];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests, %d bytes, 2xx %d, 3xx %d, 4xx %d, 5xx %d",
+                    requests, bytes, statusClasses[1], statusClasses[2], statusClasses[3], statusClasses[4]);
+        }
+    }
+
+    /**
+     * Dense bucket arrays over a contiguous range of bucket numbers, growing in either direction
+     * as earlier or later buckets show up.
+     */
+    static final class Level {
+        static final int STATUS_CLASSES = 5;
+
+        private long first;
+        private int size;
+        private int[] requests = new int[0];
+        private long[] bytes = new long[0];
+        private int[] statusClasses = new int[0];  // STATUS_CLASSES per bucket
+
+        long first() {
+            return first;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(long bucket, int statusCode, int byteCount) {
+            int index = indexFor(bucket);
+            requests[index]++;
+            bytes[index] += byteCount;
+            int statusClass = statusCode / 100;
+            if (statusClass >= 1 && statusClass <= STATUS_CLASSES) {
+                statusClasses[index * STATUS_CLASSES + statusClass - 1]++;
+            }
+        }
+
+        void merge(Level other) {
+            if (other.size == 0) {
+                return;
+            }
+            indexFor(other.first);
+            indexFor(other.first + other.size - 1);
+            int shift = (int) (other.first - first);
+            for (int i = 0; i < other.size; i++) {
+                requests[shift + i] += other.requests[i];
+                bytes[shift + i] += other.bytes[i];
+            }
+            for (int i = 0; i < other.size * STATUS_CLASSES; i++) {
+                statusClasses[shift * STATUS_CLASSES + i] += other.statusClasses[i];
+            }
+        }
+
+        Level copy() {
+            Level copy = new Level();
+            copy.first = first;
+            copy.size = size;
+            copy.requests = Arrays.copyOf(requests, size);
+            copy.bytes = Arrays.copyOf(bytes, size);
+            copy.statusClasses = Arrays.copyOf(statusClasses, size * STATUS_CLASSES);
+            return copy;
+        }
+
+        /** Sums every {@code factor} consecutive buckets into one bucket of a coarser level. */
+        Level coarsen(int factor) {
+            Level coarse = new Level();
+            for (int i = 0; i < size; i++) {
+                if (requests[i] == 0) {
+                    continue;
+                }
+                int index = coarse.indexFor(Math.floorDiv(first + i, factor));
+                coarse.requests[index] += requests[i];
+                coarse.bytes[index] += bytes[i];
+                for (int c = 0; c < STATUS_CLASSES; c++) {
+                    coarse.statusClasses[index * STATUS_CLASSES + c] += statusClasses[i * STATUS_CLASSES + c];
+                }
+            }
+            return coarse;
+        }
+
+        void sumInto(long fromBucket, long toBucket, Totals totals) {
+            long from = Math.max(fromBucket, first);
+            long to = Math.min(toBucket, first + size);
+            for (long bucket = from; bucket < to; bucket++) {
+                int index = (int) (bucket - first);
+                totals.requests += requests[index];
+                totals.bytes += bytes[index];
+                for (int c = 0; c < STATUS_CLASSES; c++) {
+                    totals.statusClasses[c] += statusClasses[index * STATUS_CLASSES + c];
+                }
+            }
+        }
+
+        private int indexFor(long bucket) {
+            if (size == 0) {
+                first = bucket;
+                ensureCapacity(16, 0);
+                size = 1;
+                return 0;
+            }
+            if (bucket < first) {
+                int shift = (int) (first - bucket);
+                ensureCapacity(size + shift, shift);
+                first = bucket;
+                size += shift;
+                return 0;
+            }
+            long index = bucket - first;
+            if (index >= size) {
+                ensureCapacity((int) index + 1, 0);
+                size = (int) index + 1;
+            }
+            return (int) index;
+        }
+
+        /** Makes room for {@code needed} buckets, moving the existing ones up by {@code shift}. */
+        private void ensureCapacity(int needed, int shift) {
+            if (needed <= requests.length && shift == 0) {
+                return;
+            }
+            int capacity = Math.max(needed, needed <= requests.length ? requests.length : requests.length * 2);
+            int[] newRequests = new int[capacity];
+            long[] newBytes = new long[capacity];
+            int[] newStatusClasses = new int[capacity * STATUS_CLASSES];
+            System.arraycopy(requests, 0, newRequests, shift, size);
+            System.arraycopy(bytes, 0, newBytes, shift, size);
+            System.arraycopy(statusClasses, 0, newStatusClasses, shift * STATUS_CLASSES, size * STATUS_CLASSES);
+            requests = newRequests;
+            bytes = newBytes;
+            statusClasses = newStatusClasses;
+        }
+    }
+}
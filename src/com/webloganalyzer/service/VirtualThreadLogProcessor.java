@@ -0,0 +1,212 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogEntry;
+import com.webloganalyzer.model.LogFormat;
+import com.webloganalyzer.model.LogLineParser;
+import com.webloganalyzer.model.LogTable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Ingests many sources at once by splitting I/O from parsing. Every source (a file, or each file
+ * of a directory; plain or gzip) is read by its own thread from {@link VirtualThreads}, which cuts
+ * it into line-aligned chunks and hands them to a bounded parsing pool of {@code parserThreads}
+ * workers. Readers block cheaply while the disk, the decompressor or a full parsing queue holds
+ * them up, so thousands of sources cost no more carrier threads than a handful.
+ *
+ * <p>At most {@code parserThreads * CHUNKS_IN_FLIGHT_PER_PARSER} chunks are read but not yet
+ * parsed at any time, which bounds memory no matter how many sources there are. Partials are
+ * merged in source and chunk order, so results match a sequential pass over the sources.
+ */
+public class VirtualThreadLogProcessor implements LogProcessor {
+
+    static final int CHUNK_BYTES = 1 << 20;
+    static final int CHUNKS_IN_FLIGHT_PER_PARSER = 4;
+
+    private static final int GZIP_BUFFER_BYTES = 1 << 16;
+
+    private final int parserThreads;
+    private final LogFormat format;
+    private final ProcessorMetrics metrics = ProcessorMetrics.shared();
+
+    public VirtualThreadLogProcessor(int parserThreads) {
+        this(parserThreads, LogFormat.COMMON);
+    }
+
+    public VirtualThreadLogProcessor(int parserThreads, LogFormat format) {
+        if (parserThreads < 1) {
+            throw new IllegalArgumentException("parserThreads must be positive");
+        }
+        this.parserThreads = parserThreads;
+        this.format = format;
+    }
+
+    @Override
+    public List<LogEntry> processLogFile(File logFile) throws Exception {
+        return processLogFiles(List.of(logFile));
+    }
+
+    @Override
+    public LogTable processToTable(File logFile) throws Exception {
+        return processToTable(List.of(logFile));
+    }
+
+    @Override
+    public <R> R analyzeLogFile(File logFile, LogAnalyzer<R> analyzer) throws Exception {
+        return analyzeLogFiles(List.of(logFile), analyzer);
+    }
+
+    public List<LogEntry> processLogFiles(List<File> inputs) throws Exception {
+        List<List<LogEntry>> partials = run(inputs, ArrayList::new, (parser, line, entries) -> {
+            LogEntry entry = parser.parse(line);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        });
+        return metrics.measure(ProcessorMetrics.Phase.MERGE, () -> {
+            List<LogEntry> allEntries = new ArrayList<>();
+            for (List<LogEntry> partial : partials) {
+                allEntries.addAll(partial);
+            }
+            return allEntries;
+        });
+    }
+
+    public LogTable processToTable(List<File> inputs) throws Exception {
+        List<LogTable> partials = run(inputs, LogTable::new, (parser, line, table) -> parser.parseInto(line, table));
+        return metrics.measure(ProcessorMetrics.Phase.MERGE, () -> {
+            int totalRows = 0;
+            for (LogTable partial : partials) {
+                totalRows += partial.size();
+            }
+            LogTable table = new LogTable(totalRows);
+            for (LogTable partial : partials) {
+                table.addAll(partial);
+            }
+            return table;
+        });
+    }
+
+    public <R> R analyzeLogFiles(List<File> inputs, LogAnalyzer<R> analyzer) throws Exception {
+        List<AnalysisPartial<R>> partials = run(inputs, () -> AnalysisPartial.create(analyzer), AnalysisPartial.handler());
+        return metrics.measure(ProcessorMetrics.Phase.MERGE, () -> AnalysisPartial.mergeInOrder(analyzer, partials));
+    }
+
+    private <T> List<T> run(List<File> inputs, Supplier<T> newPartial, LineHandler<T> handler) throws Exception {
+        List<File> sources = MultiFileLogProcessor.expand(inputs);
+        Ingestion<T> ingestion = new Ingestion<>(WorkerPools.forParallelism(parserThreads),
+                new Semaphore(parserThreads * CHUNKS_IN_FLIGHT_PER_PARSER), format, newPartial, handler,
+                metrics.startRun("VirtualThreadLogProcessor", parserThreads));
+        ExecutorService readers = VirtualThreads.newExecutor("log-reader");
+        List<Future<List<Future<T>>>> readerResults = new ArrayList<>(sources.size());
+        try {
+            for (File source : sources) {
+                readerResults.add(readers.submit(() -> read(source, ingestion)));
+            }
+            List<T> partials = new ArrayList<>();
+            for (Future<List<Future<T>>> readerResult : readerResults) {
+                for (Future<T> chunk : get(readerResult)) {
+                    partials.add(get(chunk));
+                }
+            }
+            ingestion.metrics().finish();
+            return partials;
+        } finally {
+            for (Future<List<Future<T>>> readerResult : readerResults) {
+                readerResult.cancel(true);  // after a failure, stops readers still blocked on I/O or the semaphore
+            }
+            readers.shutdown();
+        }
+    }
+
+    /**
+     * Reads one source on a reader thread and submits each line-aligned chunk for parsing,
+     * returning the parse futures in chunk order.
+     */
+    private static <T> List<Future<T>> read(File source, Ingestion<T> ingestion) throws IOException, InterruptedException {
+        List<Future<T>> chunks = new ArrayList<>();
+        long readMark = ProcessorMetrics.allocatedBytes();  // -1 on a virtual thread, which then goes unrecorded
+        try (InputStream in = open(source)) {
+            // A small plain file is read in one piece, without a full-size chunk.
+            long plainSize = MultiFileLogProcessor.isGzip(source) ? Long.MAX_VALUE : source.length() + 1;
+            byte[] chunk = new byte[(int) Math.min(CHUNK_BYTES, plainSize)];
+            int filled = 0;
+            while (true) {
+                int read = in.read(chunk, filled, chunk.length - filled);
+                if (read < 0) {
+                    if (filled > 0) {
+                        chunks.add(submit(ingestion, chunk, filled));
+                    }
+                    ingestion.metrics().recordAllocation(ProcessorMetrics.Phase.READ, readMark);
+                    return chunks;
+                }
+                filled += read;
+                if (filled < chunk.length) {
+                    continue;  // fill the chunk before cutting it, so chunks stay large
+                }
+                int end = MultiFileLogProcessor.lastNewline(chunk, filled) + 1;
+                if (end == 0) {
+                    chunk = Arrays.copyOf(chunk, chunk.length * 2);  // a line longer than the chunk
+                    continue;
+                }
+                byte[] next = new byte[Math.max(CHUNK_BYTES, filled - end)];
+                System.arraycopy(chunk, end, next, 0, filled - end);
+                chunks.add(submit(ingestion, chunk, end));
+                chunk = next;
+                filled -= end;
+            }
+        }
+    }
+
+    private static InputStream open(File source) throws IOException {
+        InputStream in = new FileInputStream(source);
+        return MultiFileLogProcessor.isGzip(source) ? new GZIPInputStream(in, GZIP_BUFFER_BYTES) : in;
+    }
+
+    /** What the readers of one run share: the parsing pool, its admission limit and the partial type. */
+    private record Ingestion<T>(ForkJoinPool parsers, Semaphore inFlight, LogFormat format,
+                                Supplier<T> newPartial, LineHandler<T> handler, ProcessorMetrics.Run metrics) {
+    }
+
+    /** Queues one chunk for parsing, blocking the reader while too many chunks are waiting. */
+    private static <T> Future<T> submit(Ingestion<T> ingestion, byte[] bytes, int length) throws InterruptedException {
+        ingestion.inFlight().acquire();
+        long queuedAt = System.nanoTime();
+        return ingestion.parsers().submit(() -> {
+            try {
+                ProcessorMetrics.Chunk chunk = ingestion.metrics().startChunk(queuedAt);
+                T partial = ingestion.newPartial().get();
+                LogLineParser parser = ingestion.format().newParser();
+                MappedLogFile.forEachLine(ByteBuffer.wrap(bytes, 0, length),
+                        line -> ingestion.handler().handle(parser, line, partial));
+                chunk.finish(parser.getLineCount(), length);
+                ingestion.metrics().recordRejects(parser);
+                return partial;
+            } finally {
+                ingestion.inFlight().release();
+            }
+        });
+    }
+
+    private static <V> V get(Future<V> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.webloganalyzer.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-per-task executors for blocking I/O work. On Java 21 and later these run every task on
+ * its own virtual thread; the project targets Java 17, so the factory is looked up reflectively
+ * and older runtimes fall back to a cached pool of daemon platform threads, which behaves the
+ * same but costs a real thread per concurrently blocked task.
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_EXECUTOR = lookUpVirtualExecutor();
+    private static final AtomicInteger PLATFORM_THREAD_IDS = new AtomicInteger();
+
+    private VirtualThreads() {
+    }
+
+    /** Whether {@link #newExecutor(String)} gives virtual threads on this runtime. */
+    public static boolean isAvailable() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    /** A new executor that starts one thread per task; close it with {@code shutdown()}. */
+    public static ExecutorService newExecutor(String namePrefix) {
+        if (NEW_VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("VirtualThreads: falling back to platform threads: " + e);
+            }
+        }
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, namePrefix + "-" + PLATFORM_THREAD_IDS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    private static Method lookUpVirtualExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.webloganalyzer.service;
+
+import com.webloganalyzer.model.LogDictionaries;
+import com.webloganalyzer.model.LogRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request counts per HTTP method, the most requested URLs and error counts per resource for the
+ * Web Developer view. Sessions need every request of an IP in time order, which a per-line
+ * accumulator does not see, so they are added by {@link LogAnalysisService} from stored rows.
+ */
+public class WebDeveloperAnalyzer implements LogAnalyzer<WebDeveloperAnalyzer.Result> {
+
+    public static final int TOP_URL_COUNT = 5;
+
+    private final AnalysisOptions options;
+
+    public WebDeveloperAnalyzer() {
+        this(AnalysisOptions.EXACT);
+    }
+
+    public WebDeveloperAnalyzer(AnalysisOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public Accumulator<Result> newAccumulator(LogDictionaries dictionaries) {
+        return new WebDeveloperAccumulator(dictionaries, options);
+    }
+
+    public static class Result {
+        private final int totalRequests;
+        private final Map<String, Integer> methodCounts;
+        private final List<Map.Entry<String, Integer>> topUrls;
+        private final Map<String, Integer> errorsPerResource;
+        private final boolean approximate;
+        private final long maxCountError;
+        private final long maxErrorCountError;
+        private final int uniqueResources;
+        private final boolean uniqueResourcesApproximate;
+        private final SessionStats sessions;
+
+        public Result(int totalRequests, Map<String, Integer> methodCounts,
+                      List<Map.Entry<String, Integer>> topUrls, Map<String, Integer> errorsPerResource,
+                      boolean approximate, long maxCountError, long maxErrorCountError,
+                      int uniqueResources, boolean uniqueResourcesApproximate, SessionStats sessions) {
+            this.totalRequests = totalRequests;
+            this.methodCounts = methodCounts;
+            this.topUrls = List.copyOf(topUrls);
+            this.errorsPerResource = errorsPerResource;
+            this.approximate = approximate;
+            this.maxCountError = maxCountError;
+            this.maxErrorCountError = maxErrorCountError;
+            this.uniqueResources = uniqueResources;
+            this.uniqueResourcesApproximate = uniqueResourcesApproximate;
+            this.sessions = sessions;
+        }
+
+        public Result withSessions(SessionStats sessions) {
+            return new Result(totalRequests, methodCounts, topUrls, errorsPerResource, approximate, maxCountError,
+                    maxErrorCountError, uniqueResources, uniqueResourcesApproximate, sessions);
+        }
+
+        public int getTotalRequests() {
+            return totalRequests;
+        }
+
+        public Map<String, Integer> getMethodCounts() {
+            return methodCounts;
+        }
+
+        /** The {@link #TOP_URL_COUNT} most requested resources, most requested first. */
+        public List<Map.Entry<String, Integer>> getTopUrls() {
+            return topUrls;
+        }
+
+        /**
+         * 4xx/5xx responses per resource, for resources with at least one. When
+         * {@link #isApproximate()}, only the resources of a heavy-hitter summary, most errors first.
+         */
+        public Map<String, Integer> getErrorsPerResource() {
+            return errorsPerResource;
+        }
+
+        /** Whether the top URLs come from a heavy-hitter summary rather than exact counts. */
+        public boolean isApproximate() {
+            return approximate;
+        }
+
+        /** Most any approximate URL count can exceed the true count by; 0 in exact mode. */
+        public long getMaxCountError() {
+            return maxCountError;
+        }
+
+        /** Most any approximate per-resource error count can exceed the true count by; 0 in exact mode. */
+        public long getMaxErrorCountError() {
+            return maxErrorCountError;
+        }
+
+        public int getUniqueResources() {
+            return uniqueResources;
+        }
+
+        /** Whether {@link #getUniqueResources()} is a HyperLogLog estimate. */
+        public boolean isUniqueResourcesApproximate() {
+            return uniqueResourcesApproximate;
+        }
+
+        /** Session statistics, or {@code null} when the log was analyzed while parsing, without stored rows. */
+        public SessionStats getSessions() {
+            return sessions;
+        }
+    }
+
+    private static final class WebDeveloperAccumulator implements Accumulator<Result> {
+        private final IdCounter methodCounts;
+        // Either urlCounts and errorCounts or the two summaries are used, depending on the options.
+        // The summaries key resources by hash, so they leave the resource dictionary alone.
+        private final IdCounter urlCounts;
+        private final IdCounter errorCounts;
+        private final SpaceSavingCounter urlHitters;
+        private final SpaceSavingCounter errorHitters;
+        private final DistinctCounter uniqueResources;
+        private int totalRequests;
+
+        WebDeveloperAccumulator(LogDictionaries dictionaries, AnalysisOptions options) {
+            methodCounts = new IdCounter(dictionaries.getMethods());
+            if (options.isApproximateTopK()) {
+                urlCounts = null;
+                errorCounts = null;
+                urlHitters = new SpaceSavingCounter(options.getHeavyHitterCapacity());
+                errorHitters = new SpaceSavingCounter(options.getHeavyHitterCapacity());
+            } else {
+                urlCounts = new IdCounter(dictionaries.getResources());
+                errorCounts = new IdCounter(dictionaries.getResources());
+                urlHitters = null;
+                errorHitters = null;
+            }
+            uniqueResources = new DistinctCounter(dictionaries.getResources(), options);
+        }
+
+        @Override
+        public void accept(LogRecord record) {
+            totalRequests++;
+            methodCounts.increment(record.getMethodId());
+            boolean error = record.getStatusCode() >= 400;
+            if (urlCounts != null) {
+                urlCounts.increment(record.getResourceId());
+                if (error) errorCounts.increment(record.getResourceId());
+            } else {
+                long hash = record.getResourceHash();
+                if (!urlHitters.increment(hash)) urlHitters.setValue(record.getResource());
+                if (error && !errorHitters.increment(hash)) errorHitters.setValue(record.getResource());
+            }
+            if (uniqueResources.isApproximate()) {
+                uniqueResources.addHash(record.getResourceHash());
+            } else {
+                uniqueResources.add(record.getResourceId());
+            }
+        }
+
+        @Override
+        public void merge(Accumulator<Result> other) {
+            WebDeveloperAccumulator o = (WebDeveloperAccumulator) other;
+            totalRequests += o.totalRequests;
+            methodCounts.merge(o.methodCounts);
+            if (urlCounts != null) {
+                urlCounts.merge(o.urlCounts);
+                errorCounts.merge(o.errorCounts);
+            } else {
+                urlHitters.merge(o.urlHitters);
+                errorHitters.merge(o.errorHitters);
+            }
+            uniqueResources.merge(o.uniqueResources);
+        }
+
+        @Override
+        public Result result() {
+            if (urlHitters != null) {
+                return new Result(totalRequests, methodCounts.toMap(), urlHitters.top(TOP_URL_COUNT),
+                        errorHitters.toMap(), true, urlHitters.getMaxError(), errorHitters.getMaxError(),
+                        uniqueResources.count(), uniqueResources.isApproximate(), null);
+            }
+            List<Map.Entry<String, Integer>> topUrls = new ArrayList<>();
+            for (int id : urlCounts.topIds(TOP_URL_COUNT)) {
+                topUrls.add(Map.entry(urlCounts.getDictionary().valueOf(id), urlCounts.get(id)));
+            }
+            return new Result(totalRequests, methodCounts.toMap(), topUrls, errorCounts.toMap(), false, 0, 0,
+                    uniqueResources.count(), uniqueResources.isApproximate(), null);
+        }
+    }
+}
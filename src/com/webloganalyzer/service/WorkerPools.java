@@ -0,0 +1,41 @@
+package com.webloganalyzer.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Long-lived work-stealing pools shared by the processors and {@link LogAnalysisService}, one
+ * per parallelism level. Creating a pool per call paid for thread start-up on every run and left
+ * nothing for the JIT-warm threads of the previous run to do; shared pools keep their workers for
+ * the pool's keep-alive time and start new ones lazily.
+ *
+ * <p>Workers are daemon threads named {@code log-worker-<parallelism>-<n>}, so an idle pool never
+ * keeps the JVM alive.
+ */
+public final class WorkerPools {
+
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private WorkerPools() {
+    }
+
+    /** The shared pool with exactly {@code parallelism} workers. */
+    public static ForkJoinPool forParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        return POOLS.computeIfAbsent(parallelism, WorkerPools::newPool);
+    }
+
+    private static ForkJoinPool newPool(int parallelism) {
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("log-worker-" + parallelism + "-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ForkJoinPool(parallelism, factory, null, false);
+    }
+}
@@ -0,0 +1,87 @@
+package com.webloganalyzer.service;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load-balance figures for one {@link ParallelLogProcessor} run: how long each worker spent
+ * parsing, as a share of the run's wall time, and how many tasks the input ended up split into.
+ * Workers that never got a task count as idle, so a run that kept only some of the threads busy
+ * shows up as a low minimum utilization.
+ */
+public class WorkerUtilization {
+    private final long wallNanos;
+    private final long[] busyNanos;
+    private final long tasks;
+    private final long blocks;
+    private final long steals;
+
+    public WorkerUtilization(long wallNanos, long[] busyNanos, long tasks, long blocks, long steals) {
+        this.wallNanos = wallNanos;
+        this.busyNanos = busyNanos.clone();
+        this.tasks = tasks;
+        this.blocks = blocks;
+        this.steals = steals;
+    }
+
+    public int getWorkerCount() {
+        return busyNanos.length;
+    }
+
+    public long getWallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(wallNanos);
+    }
+
+    /** Tasks the input was split into; grows only when idle workers came looking for work. */
+    public long getTaskCount() {
+        return tasks;
+    }
+
+    /** Fixed-size blocks of lines or bytes, the smallest unit a task can hand off. */
+    public long getBlockCount() {
+        return blocks;
+    }
+
+    /** Tasks taken from another worker's queue during the run (pool-wide). */
+    public long getStealCount() {
+        return steals;
+    }
+
+    /** Each worker's busy time as a share of the wall time, 0..1, busiest first. */
+    public double[] getUtilizations() {
+        double[] utilizations = new double[busyNanos.length];
+        for (int i = 0; i < busyNanos.length; i++) {
+            utilizations[i] = wallNanos == 0 ? 0 : Math.min(1, (double) busyNanos[i] / wallNanos);
+        }
+        Arrays.sort(utilizations);
+        for (int i = 0, j = utilizations.length - 1; i < j; i++, j--) {
+            double swap = utilizations[i];
+            utilizations[i] = utilizations[j];
+            utilizations[j] = swap;
+        }
+        return utilizations;
+    }
+
+    public double getMeanUtilization() {
+        return Arrays.stream(getUtilizations()).average().orElse(0);
+    }
+
+    public double getMinUtilization() {
+        return Arrays.stream(getUtilizations()).min().orElse(0);
+    }
+
+    public double getMaxUtilization() {
+        return Arrays.stream(getUtilizations()).max().orElse(0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder perWorker = new StringBuilder();
+        for (double utilization : getUtilizations()) {
+            perWorker.append(perWorker.length() == 0 ? "" : " ").append(String.format("%.0f%%", utilization * 100));
+        }
+        return String.format("%d workers, %d tasks over %d blocks, %d steals in %d ms; utilization mean %.0f%%, min %.0f%%, max %.0f%% [%s]",
+                getWorkerCount(), tasks, blocks, steals, getWallMillis(), getMeanUtilization() * 100,
+                getMinUtilization() * 100, getMaxUtilization() * 100, perWorker);
+    }
+}